@@ -0,0 +1,332 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Supplier;
+
+import org.sagebionetworks.bridge.dao.DistributedLockDao;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
+import org.sagebionetworks.bridge.redis.JedisOps;
+
+/**
+ * <p>
+ * ViewCache that builds each missing view only once, however many requests miss on it at the same time. When a
+ * popular view is removed (a survey is published, an app config changes), every client asking for it would otherwise
+ * call the supplier, and all of those calls go to DynamoDB at once.
+ * </p>
+ * <p>
+ * On each server, the first request for a key builds the view and any requests for the same key that arrive while it
+ * is running wait for its result (or its exception). If a DistributedLockDao is set, the server building the view
+ * also takes a short lease in Redis, and other servers that miss on the key poll Redis for the view instead of
+ * building it themselves. If the lease expires before the view appears (the holder failed or is very slow), they
+ * build it after all.
+ * </p>
+ * <p>
+ * A local tier can also be turned on, which keeps a copy of recently used views on each server (off the heap, see
+ * OffHeapViewStore) so that hits don't have to go to Redis. Local copies expire after a few seconds. Removing a view
+ * or a namespace removes the local copies on this server right away; other servers keep serving theirs until they
+ * expire, so the TTL is how stale a view can be after a change.
+ * </p>
+ */
+public class BridgeViewCache extends ViewCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BridgeViewCache.class);
+
+    static final long LEASE_POLL_MILLIS = 50L;
+    private static final String VIEW_KEY_SUFFIX = ":view";
+    private static final String OTHER_KEY_TYPE = "other";
+    private static final String NAMESPACE = "namespace";
+    private static final String NAMESPACE_VERSION_PREFIX = "v";
+    /** Without a local tier, namespace versions read from Redis are reused for this long. */
+    static final int DEFAULT_NAMESPACE_TTL_SECONDS = 5;
+
+    private final ConcurrentMap<CacheKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final CacheProvider cacheProvider;
+    private final ObjectMapper mapper;
+    private final int cachePeriod;
+    private DistributedLockDao lockDao;
+    private int leaseSeconds;
+    private OffHeapViewStore localStore;
+    private JedisOps jedisOps;
+    private long namespaceTtlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_NAMESPACE_TTL_SECONDS);
+    private final ConcurrentMap<CacheKey, NamespaceVersion> namespaceVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ViewCacheStats> stats = new ConcurrentHashMap<>();
+
+    public BridgeViewCache(CacheProvider cacheProvider, ObjectMapper mapper, int cachePeriod) {
+        this.cacheProvider = checkNotNull(cacheProvider);
+        this.mapper = checkNotNull(mapper);
+        this.cachePeriod = cachePeriod;
+        setCacheProvider(cacheProvider);
+        setObjectMapper(mapper);
+        setCachePeriod(cachePeriod);
+    }
+
+    /**
+     * Coordinate the building of views across servers with a lease of this many seconds. The lease should be longer
+     * than it normally takes to build a view, but short enough that waiting it out after a failure is acceptable.
+     */
+    public final void setDistributedLease(DistributedLockDao lockDao, int leaseSeconds) {
+        this.lockDao = lockDao;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Keep local copies of views in an off-heap buffer of this many bytes, for this many seconds. The JVM's
+     * -XX:MaxDirectMemorySize has to leave room for the buffer.
+     */
+    public final void setLocalTier(int capacityBytes, int ttlSeconds) {
+        this.localStore = new OffHeapViewStore(capacityBytes, ttlSeconds);
+        this.namespaceTtlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Reuse namespace versions read from Redis for this many seconds (0 reads them on every request). This is how
+     * long other servers can go on serving the old views after a namespace is removed. Setting a local tier sets
+     * this to the local TTL.
+     */
+    public final void setNamespaceTtl(int ttlSeconds) {
+        this.namespaceTtlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /** Namespace versions are kept in Redis as counters, through this JedisOps. */
+    public final void setJedisOps(JedisOps jedisOps) {
+        this.jedisOps = jedisOps;
+    }
+
+    /** Hits and misses for each type of view this cache has served, by the simple name of the view's class. */
+    public Map<String, ViewCacheStats> getStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+
+    @Override
+    public <T> String getView(CacheKey key, Supplier<T> supplier) {
+        checkNotNull(key);
+        checkNotNull(supplier);
+
+        if (localStore != null) {
+            String view = localStore.get(key);
+            if (view != null) {
+                statsFor(key).recordLocalHit();
+                return view;
+            }
+        }
+        // Requests that wait on another request's load aren't counted in the stats
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            String view = loadView(key, supplier);
+            putLocalView(key, view);
+            flight.complete(view);
+            return view;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Rebuild a view and replace it in Redis in a single write, so requests see either the old view or the new one
+     * but never miss. If a request is building the view at the same time (from data read before the change), this
+     * waits for it to finish so the refreshed view is written last.
+     */
+    public <T> String refreshView(CacheKey key, Supplier<T> supplier) {
+        checkNotNull(key);
+        checkNotNull(supplier);
+
+        CompletableFuture<String> flight = inFlight.get(key);
+        if (flight != null) {
+            flight.handle((view, e) -> null).join();
+        }
+        String view = cacheView(key, supplier);
+        putLocalView(key, view);
+        return view;
+    }
+
+    @Override
+    public void removeView(CacheKey key) {
+        if (localStore != null) {
+            localStore.remove(key);
+        }
+        cacheProvider.removeObject(key);
+    }
+
+    /**
+     * The current version of a namespace of views (all the app config views of a study, for example). The version
+     * is part of the key of every view in the namespace (see getNamespacedCacheKey()), so incrementing it with
+     * removeNamespace() orphans all of them at once, however many there are, and they expire from Redis on their
+     * own. Versions read from Redis are reused for a few seconds (see setNamespaceTtl()), so most requests don't
+     * have to read them.
+     */
+    public long getNamespaceVersion(CacheKey namespaceKey) {
+        checkNotNull(namespaceKey);
+        if (namespaceTtlNanos > 0L) {
+            NamespaceVersion version = namespaceVersions.get(namespaceKey);
+            if (version != null && System.nanoTime() - version.readOn < namespaceTtlNanos) {
+                return version.version;
+            }
+        }
+        return readNamespaceVersion(namespaceKey);
+    }
+
+    /** Read the version from Redis, ignoring any version this server has cached. */
+    public long readNamespaceVersion(CacheKey namespaceKey) {
+        checkState(jedisOps != null, "Namespaces require a JedisOps");
+        String value = jedisOps.get(namespaceKey.toString());
+        long version = (value == null) ? 0L : Long.parseLong(value);
+        namespaceVersions.put(namespaceKey, new NamespaceVersion(version));
+        return version;
+    }
+
+    /** Increment the version of a namespace, so all of its existing views are no longer used. */
+    public long removeNamespace(CacheKey namespaceKey) {
+        checkNotNull(namespaceKey);
+        checkState(jedisOps != null, "Namespaces require a JedisOps");
+        long version = jedisOps.incr(namespaceKey.toString());
+        namespaceVersions.put(namespaceKey, new NamespaceVersion(version));
+        return version;
+    }
+
+    /** The key under which the version of a namespace is kept, e.g. ("api", AppConfig.class) for a study's configs. */
+    public CacheKey getNamespaceKey(Class<?> clazz, String... identifiers) {
+        String[] parts = Arrays.copyOf(identifiers, identifiers.length + 1);
+        parts[identifiers.length] = NAMESPACE;
+        return getCacheKey(clazz, parts);
+    }
+
+    /** The key of a view in a namespace, at the given version of the namespace. */
+    public CacheKey getNamespacedCacheKey(long namespaceVersion, Class<?> clazz, String... identifiers) {
+        String[] parts = Arrays.copyOf(identifiers, identifiers.length + 1);
+        parts[identifiers.length] = NAMESPACE_VERSION_PREFIX + namespaceVersion;
+        return getCacheKey(clazz, parts);
+    }
+
+    private <T> String loadView(CacheKey key, Supplier<T> supplier) {
+        ViewCacheStats keyStats = statsFor(key);
+        String view = cacheProvider.getObject(key, String.class);
+        if (view != null) {
+            keyStats.recordRemoteHit();
+            return view;
+        }
+        if (lockDao == null) {
+            keyStats.recordMiss();
+            return cacheView(key, supplier);
+        }
+        String leaseId = acquireLease(key);
+        if (leaseId == null) {
+            view = awaitView(key);
+            if (view != null) {
+                keyStats.recordRemoteHit();
+                return view;
+            }
+            LOG.info("Lease on view " + key + " expired without the view being cached, building it");
+            keyStats.recordMiss();
+            return cacheView(key, supplier);
+        }
+        keyStats.recordMiss();
+        try {
+            return cacheView(key, supplier);
+        } finally {
+            lockDao.releaseLock(BridgeViewCache.class, key.toString(), leaseId);
+        }
+    }
+
+    private <T> String cacheView(CacheKey key, Supplier<T> supplier) {
+        try {
+            String view = mapper.writeValueAsString(supplier.get());
+            cacheProvider.setObject(key, view, cachePeriod);
+            return view;
+        } catch (JsonProcessingException e) {
+            throw new BridgeServiceException(e);
+        }
+    }
+
+    private void putLocalView(CacheKey key, String view) {
+        if (localStore != null && view != null) {
+            localStore.put(key, view);
+        }
+    }
+
+    private ViewCacheStats statsFor(CacheKey key) {
+        return stats.computeIfAbsent(getKeyType(key), type -> new ViewCacheStats());
+    }
+
+    /** The class name in a view key ("guid:published:api:Survey:view" is a Survey). */
+    static String getKeyType(CacheKey key) {
+        String keyString = key.toString();
+        if (!keyString.endsWith(VIEW_KEY_SUFFIX)) {
+            return OTHER_KEY_TYPE;
+        }
+        int end = keyString.length() - VIEW_KEY_SUFFIX.length();
+        return keyString.substring(keyString.lastIndexOf(':', end - 1) + 1, end);
+    }
+
+    private String acquireLease(CacheKey key) {
+        try {
+            return lockDao.acquireLock(BridgeViewCache.class, key.toString(), leaseSeconds);
+        } catch (ConcurrentModificationException e) {
+            return null;
+        }
+    }
+
+    /** Poll for the view another server is building, until it appears or the lease runs out. */
+    private String awaitView(CacheKey key) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds);
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(LEASE_POLL_MILLIS);
+                String view = cacheProvider.getObject(key, String.class);
+                if (view != null) {
+                    return view;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static String await(CompletableFuture<String> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new BridgeServiceException(cause);
+        }
+    }
+
+    private static final class NamespaceVersion {
+        private final long version;
+        private final long readOn = System.nanoTime();
+
+        NamespaceVersion(long version) {
+            this.version = version;
+        }
+    }
+}
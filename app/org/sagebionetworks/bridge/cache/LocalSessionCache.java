@@ -0,0 +1,186 @@
+package org.sagebionetworks.bridge.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * <p>
+ * Sessions this server has loaded recently, by session token, so that a burst of requests from one client doesn't
+ * read and deserialize the session from Redis on every request. Sessions are kept for a few seconds
+ * (session.local.cache.ttl.seconds, 5 by default; 0 turns the cache off).
+ * </p>
+ * <p>
+ * When a session is signed out or changed, the server making the change revokes it: it drops its own copy and
+ * publishes the revocation on a Redis channel, and every server drops its copy when the message arrives (see
+ * SessionRevocationSubscriber). Changes that are made without a revocation, and revocations that are missed while a
+ * server is reconnecting to Redis, are picked up when the copy expires.
+ * </p>
+ * <p>
+ * The session is kept serialized, as it is in Redis, and each request gets its own copy. UserSession is mutable and
+ * requests change it before saving it, so a shared copy would let other requests see a half-made change, or a change
+ * that was never saved.
+ * </p>
+ */
+@Component
+public class LocalSessionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalSessionCache.class);
+    private static final ObjectMapper MAPPER = BridgeObjectMapper.get();
+
+    public static final String REVOCATION_CHANNEL = "session-revocations";
+    static final String TOKEN_PREFIX = "token:";
+    static final String USER_PREFIX = "user:";
+    static final String TTL_PROPERTY = "session.local.cache.ttl.seconds";
+    static final int DEFAULT_TTL_SECONDS = 5;
+    static final int MAX_SIZE = 20000;
+
+    private Cache<String, CachedSession> cache = createCache(DEFAULT_TTL_SECONDS, Ticker.systemTicker());
+    private JedisPool jedisPool;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        String value = bridgeConfig.get(TTL_PROPERTY);
+        if (value != null) {
+            cache = createCache(Integer.parseInt(value), Ticker.systemTicker());
+        }
+    }
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /** For tests. */
+    final void setTtl(int ttlSeconds, Ticker ticker) {
+        cache = createCache(ttlSeconds, ticker);
+    }
+
+    private static Cache<String, CachedSession> createCache(int ttlSeconds, Ticker ticker) {
+        if (ttlSeconds <= 0) {
+            return null;
+        }
+        return CacheBuilder.newBuilder().maximumSize(MAX_SIZE).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .ticker(ticker).build();
+    }
+
+    /**
+     * A copy of the session from this cache, or else the session from the loader (which returns null if there's no
+     * session).
+     */
+    public UserSession getSession(String sessionToken, Function<String, UserSession> loader) {
+        Cache<String, CachedSession> sessions = cache;
+        if (sessions == null) {
+            return loader.apply(sessionToken);
+        }
+        CachedSession cached = sessions.getIfPresent(sessionToken);
+        if (cached != null) {
+            return cached.copy();
+        }
+        UserSession session = loader.apply(sessionToken);
+        if (session != null) {
+            sessions.put(sessionToken, new CachedSession(session));
+        }
+        return session;
+    }
+
+    /** Drop the session on every server, after it has been signed out or changed. */
+    public void revokeSession(String sessionToken) {
+        invalidateSession(sessionToken);
+        publish(TOKEN_PREFIX + sessionToken);
+    }
+
+    /** Drop all of a user's sessions on every server, when the user is signed out by someone else. */
+    public void revokeUserSessions(String userId) {
+        invalidateUserSessions(userId);
+        publish(USER_PREFIX + userId);
+    }
+
+    /** Handle a revocation published by any server (including this one). */
+    void onRevocation(String message) {
+        if (message.startsWith(TOKEN_PREFIX)) {
+            invalidateSession(message.substring(TOKEN_PREFIX.length()));
+        } else if (message.startsWith(USER_PREFIX)) {
+            invalidateUserSessions(message.substring(USER_PREFIX.length()));
+        } else {
+            LOG.warn("Unknown session revocation: " + message);
+        }
+    }
+
+    /** Drop every session, when revocations may have been missed. */
+    void invalidateAll() {
+        Cache<String, CachedSession> sessions = cache;
+        if (sessions != null) {
+            sessions.invalidateAll();
+        }
+    }
+
+    private void invalidateSession(String sessionToken) {
+        Cache<String, CachedSession> sessions = cache;
+        if (sessions != null && sessionToken != null) {
+            sessions.invalidate(sessionToken);
+        }
+    }
+
+    private void invalidateUserSessions(String userId) {
+        Cache<String, CachedSession> sessions = cache;
+        if (sessions != null && userId != null) {
+            sessions.asMap().values().removeIf(cached -> userId.equals(cached.userId));
+        }
+    }
+
+    private void publish(String message) {
+        if (cache == null) {
+            return;
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.publish(REVOCATION_CHANNEL, message);
+        } catch (RuntimeException e) {
+            // Other servers drop the session when it expires
+            LOG.warn("Could not publish session revocation", e);
+        }
+    }
+
+    /** A session as it's serialized in Redis, and the ID of its user, for revoking all of a user's sessions. */
+    private static final class CachedSession {
+        private final String userId;
+        private final byte[] json;
+
+        CachedSession(UserSession session) {
+            this.userId = session.getId();
+            try {
+                this.json = MAPPER.writeValueAsBytes(session);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        UserSession copy() {
+            try {
+                return MAPPER.readValue(json, UserSession.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
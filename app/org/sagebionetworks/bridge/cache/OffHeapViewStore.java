@@ -0,0 +1,125 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+
+/**
+ * <p>
+ * A small local cache of serialized views, held in a direct ByteBuffer so the view strings don't sit in the heap
+ * (and get copied around by the collector) between requests. Only the index of keys is on the heap.
+ * </p>
+ * <p>
+ * The buffer is written like a ring: each view is appended after the last one, and when the end of the buffer is
+ * reached, writing starts again at the front, evicting whatever views it overwrites. So the store never holds more
+ * than its capacity, and the oldest views are evicted first. Views also expire a fixed time after they are written.
+ * Views larger than a sixteenth of the buffer are not stored.
+ * </p>
+ */
+final class OffHeapViewStore {
+
+    static final int MAX_VIEW_FRACTION = 16;
+
+    private final ByteBuffer arena;
+    private final long ttlNanos;
+    private final Ticker ticker;
+    private final Map<CacheKey, Slot> index = new HashMap<>();
+    private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+    private int writePosition;
+
+    OffHeapViewStore(int capacityBytes, int ttlSeconds) {
+        this(capacityBytes, ttlSeconds, Ticker.systemTicker());
+    }
+
+    OffHeapViewStore(int capacityBytes, int ttlSeconds, Ticker ticker) {
+        checkArgument(capacityBytes > 0);
+        this.arena = ByteBuffer.allocateDirect(capacityBytes);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.ticker = ticker;
+    }
+
+    /** The view, or null if it isn't stored or has expired. */
+    synchronized String get(CacheKey key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        if (ticker.read() - slot.writtenOn >= ttlNanos) {
+            index.remove(key);
+            return null;
+        }
+        byte[] bytes = new byte[slot.length];
+        ByteBuffer view = arena.duplicate();
+        view.position(slot.offset);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    synchronized void put(CacheKey key, String view) {
+        byte[] bytes = view.getBytes(UTF_8);
+        if (bytes.length == 0 || bytes.length > arena.capacity() / MAX_VIEW_FRACTION) {
+            index.remove(key);
+            return;
+        }
+        if (writePosition + bytes.length > arena.capacity()) {
+            evict(writePosition, arena.capacity());
+            writePosition = 0;
+        }
+        evict(writePosition, writePosition + bytes.length);
+
+        ByteBuffer target = arena.duplicate();
+        target.position(writePosition);
+        target.put(bytes);
+
+        Slot slot = new Slot(key, writePosition, bytes.length, ticker.read());
+        slots.addLast(slot);
+        index.put(key, slot);
+        writePosition += bytes.length;
+    }
+
+    synchronized void remove(CacheKey key) {
+        // The bytes stay in the buffer until they are overwritten
+        index.remove(key);
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    int capacity() {
+        return arena.capacity();
+    }
+
+    /** Drop the oldest slots for as long as they overlap the region about to be written. */
+    private void evict(int start, int end) {
+        while (!slots.isEmpty()) {
+            Slot oldest = slots.peekFirst();
+            if (oldest.offset >= end || oldest.offset + oldest.length <= start) {
+                return;
+            }
+            slots.removeFirst();
+            index.remove(oldest.key, oldest);
+        }
+    }
+
+    private static final class Slot {
+        private final CacheKey key;
+        private final int offset;
+        private final int length;
+        private final long writtenOn;
+
+        Slot(CacheKey key, int offset, int length, long writtenOn) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.writtenOn = writtenOn;
+        }
+    }
+}
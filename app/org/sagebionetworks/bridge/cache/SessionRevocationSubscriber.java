@@ -0,0 +1,83 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * Listens for session revocations published by any server, and drops the revoked sessions from this server's
+ * {@link LocalSessionCache}. The subscription holds one connection from the pool for the life of the server. If the
+ * connection is lost, revocations may be missed until it is re-established, so the local cache is cleared each time
+ * the subscription (re)starts.
+ */
+public class SessionRevocationSubscriber implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionRevocationSubscriber.class);
+
+    static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final JedisPool jedisPool;
+    private final LocalSessionCache sessionCache;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile JedisPubSub pubSub;
+
+    public SessionRevocationSubscriber(JedisPool jedisPool, LocalSessionCache sessionCache) {
+        this.jedisPool = checkNotNull(jedisPool);
+        this.sessionCache = checkNotNull(sessionCache);
+        this.thread = new Thread(this::subscribe, "session-revocations");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void subscribe() {
+        while (!closed) {
+            pubSub = new JedisPubSub() {
+                @Override
+                public void onSubscribe(String channel, int subscribedChannels) {
+                    sessionCache.invalidateAll();
+                }
+
+                @Override
+                public void onMessage(String channel, String message) {
+                    sessionCache.onRevocation(message);
+                }
+            };
+            try (Jedis jedis = jedisPool.getResource()) {
+                // Blocks until unsubscribed or the connection fails
+                jedis.subscribe(pubSub, LocalSessionCache.REVOCATION_CHANNEL);
+            } catch (RuntimeException e) {
+                if (!closed) {
+                    LOG.warn("Lost subscription to session revocations, reconnecting", e);
+                    sessionCache.invalidateAll();
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        JedisPubSub current = pubSub;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        thread.interrupt();
+    }
+}
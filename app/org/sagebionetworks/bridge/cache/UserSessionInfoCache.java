@@ -0,0 +1,140 @@
+package org.sagebionetworks.bridge.cache;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.config.Environment;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.accounts.ConsentStatus;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
+
+/**
+ * <p>
+ * The serialized UserSessionInfo for recent sessions, so we don't rebuild and re-serialize the whole session every
+ * time it is returned. Participants who have not consented get the session back in a 412 on every call, and sign-in
+ * responses are usually followed by some of those.
+ * </p>
+ * <p>
+ * Entries are keyed by session token, and remember the parts of the session that go into the payload (the
+ * participant, consent statuses, tokens, environment and study). The session is loaded from Redis on every request,
+ * so a session that has been changed through the SessionUpdateService on any server won't match its entry, and the
+ * payload is regenerated. StudyParticipant and ConsentStatus are immutable value objects, so this comparison is
+ * much cheaper than serialization.
+ * </p>
+ */
+@Component
+public class UserSessionInfoCache {
+
+    static final String MAX_SIZE_PROPERTY = "session.info.cache.max.size";
+    static final int DEFAULT_MAX_SIZE = 10000;
+    static final int EXPIRE_AFTER_ACCESS_MINUTES = 30;
+
+    private Cache<String, Entry> cache = createCache(DEFAULT_MAX_SIZE);
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        String value = bridgeConfig.get(MAX_SIZE_PROPERTY);
+        if (value != null) {
+            cache = createCache(Integer.parseInt(value));
+        }
+    }
+
+    private static Cache<String, Entry> createCache(int maxSize) {
+        return CacheBuilder.newBuilder().maximumSize(maxSize)
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES).build();
+    }
+
+    /** The UserSessionInfo JSON for this session, serialized as UTF-8. Callers must not modify the array. */
+    public byte[] getSessionInfo(UserSession session) {
+        String sessionToken = session.getSessionToken();
+        SessionState state = new SessionState(session);
+        if (sessionToken != null) {
+            Entry entry = cache.getIfPresent(sessionToken);
+            if (entry != null && entry.state.equals(state)) {
+                return entry.json;
+            }
+        }
+        byte[] json;
+        try {
+            json = BridgeObjectMapper.get().writeValueAsBytes(UserSessionInfo.toJSON(session));
+        } catch (JsonProcessingException e) {
+            throw new BridgeServiceException(e);
+        }
+        if (sessionToken != null) {
+            cache.put(sessionToken, new Entry(state, json));
+        }
+        return json;
+    }
+
+    /** Drop the entry for a session that has ended. */
+    public void removeSessionInfo(String sessionToken) {
+        if (sessionToken != null) {
+            cache.invalidate(sessionToken);
+        }
+    }
+
+    private static final class Entry {
+        private final SessionState state;
+        private final byte[] json;
+
+        Entry(SessionState state, byte[] json) {
+            this.state = state;
+            this.json = json;
+        }
+    }
+
+    /** Everything from the session that UserSessionInfo.toJSON() writes out. */
+    static final class SessionState {
+        private final StudyParticipant participant;
+        private final Map<SubpopulationGuid, ConsentStatus> consentStatuses;
+        private final String reauthToken;
+        private final boolean authenticated;
+        private final Environment environment;
+        private final StudyIdentifier studyIdentifier;
+
+        SessionState(UserSession session) {
+            this.participant = session.getParticipant();
+            this.consentStatuses = session.getConsentStatuses();
+            this.reauthToken = session.getReauthToken();
+            this.authenticated = session.isAuthenticated();
+            this.environment = session.getEnvironment();
+            this.studyIdentifier = session.getStudyIdentifier();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(participant, consentStatuses, reauthToken, authenticated, environment,
+                    studyIdentifier);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            SessionState other = (SessionState) obj;
+            return Objects.equals(participant, other.participant)
+                    && Objects.equals(consentStatuses, other.consentStatuses)
+                    && Objects.equals(reauthToken, other.reauthToken) && authenticated == other.authenticated
+                    && Objects.equals(environment, other.environment)
+                    && Objects.equals(studyIdentifier, other.studyIdentifier);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.sagebionetworks.bridge.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hits and misses for one type of view (the class the view's key was created for). A local hit is served from the
+ * server's own copy of the view, a remote hit from Redis, and a miss builds the view.
+ */
+public final class ViewCacheStats {
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    void recordLocalHit() {
+        localHits.increment();
+    }
+
+    void recordRemoteHit() {
+        remoteHits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** The fraction of requests served from the local copy. */
+    public double getLocalHitRatio() {
+        return ratio(getLocalHits(), getLocalHits() + getRemoteHits() + getMisses());
+    }
+
+    /** The fraction of requests served from either tier, without building the view. */
+    public double getHitRatio() {
+        long hits = getLocalHits() + getRemoteHits();
+        return ratio(hits, hits + getMisses());
+    }
+
+    private static double ratio(long count, long total) {
+        return (total == 0L) ? 0.0 : ((double) count) / total;
+    }
+}
@@ -2,6 +2,9 @@ package org.sagebionetworks.bridge.config;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -10,7 +13,13 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
+import org.sagebionetworks.bridge.cache.SessionRevocationSubscriber;
+import org.sagebionetworks.bridge.redis.ConsistentHashRing;
 import org.sagebionetworks.bridge.redis.JedisOps;
+import org.sagebionetworks.bridge.redis.RedisValueCodec;
+import org.sagebionetworks.bridge.redis.ShardedJedisOps;
+import org.sagebionetworks.bridge.tracing.TracingJedisPool;
 
 /**
  * Production-only Spring config. This includes things that we don't want in our unit tests for
@@ -19,30 +28,77 @@ import org.sagebionetworks.bridge.redis.JedisOps;
 @Configuration
 public class BridgeProductionSpringConfig {
 
+    private static final long IDLE_VALIDATION_INTERVAL_MILLIS = 30 * 1000;
+
     @Autowired
     BridgeConfig bridgeConfig;
     
+    @Autowired
+    RedisValueCodec redisValueCodec;
+    
+    // With redis.shard.urls (a comma-separated list of Redis URLs), cached views are spread across those nodes. While
+    // nodes are being added, redis.shard.previous.urls lists the nodes before the change (see ShardedJedisOps).
     @Bean(name = "jedisOps")
     public JedisOps jedisOps() throws Exception {
-        return new JedisOps(jedisPool());
+        String shardUrls = bridgeConfig.get("redis.shard.urls");
+        if (shardUrls == null) {
+            return new JedisOps(jedisPool());
+        }
+        Map<String, JedisOps> nodesByUrl = new HashMap<>();
+        nodesByUrl.put(bridgeConfig.get("elasticache.url"), new JedisOps(jedisPool()));
+        
+        ConsistentHashRing<JedisOps> ring = createShardRing(shardUrls, nodesByUrl);
+        String previousShardUrls = bridgeConfig.get("redis.shard.previous.urls");
+        ConsistentHashRing<JedisOps> previousRing = (previousShardUrls == null) ? null :
+                createShardRing(previousShardUrls, nodesByUrl);
+        return new ShardedJedisOps(jedisPool(), ring, previousRing);
+    }
+    
+    @Bean(destroyMethod = "close")
+    @Autowired
+    public SessionRevocationSubscriber sessionRevocationSubscriber(LocalSessionCache localSessionCache)
+            throws Exception {
+        SessionRevocationSubscriber subscriber = new SessionRevocationSubscriber(jedisPool(), localSessionCache);
+        subscriber.start();
+        return subscriber;
     }
     
     @Bean
     public JedisPool jedisPool() throws Exception {
-        return createJedisPool("elasticache.url");
+        return createJedisPool(bridgeConfig.get("elasticache.url"));
+    }
+    
+    // A node on both the current and the previous ring (or the primary node) is given one pool.
+    private ConsistentHashRing<JedisOps> createShardRing(String urls,
+            Map<String, JedisOps> nodesByUrl) throws Exception {
+        Map<String, JedisOps> nodes = new LinkedHashMap<>();
+        for (String url : urls.split(",")) {
+            String trimmedUrl = url.trim();
+            JedisOps node = nodesByUrl.get(trimmedUrl);
+            if (node == null) {
+                node = new JedisOps(createJedisPool(trimmedUrl));
+                nodesByUrl.put(trimmedUrl, node);
+            }
+            nodes.put(trimmedUrl, node);
+        }
+        return new ConsistentHashRing<>(nodes);
     }
     
-    private JedisPool createJedisPool(String redisServerProperty) throws Exception {
+    private JedisPool createJedisPool(String url) throws Exception {
         final JedisPoolConfig poolConfig = new JedisPoolConfig();
         poolConfig.setMaxTotal(bridgeConfig.getPropertyAsInt("redis.max.total"));
         poolConfig.setMinIdle(bridgeConfig.getPropertyAsInt("redis.min.idle"));
         poolConfig.setMaxIdle(bridgeConfig.getPropertyAsInt("redis.max.idle"));
-        poolConfig.setTestOnCreate(true);
-        poolConfig.setTestOnBorrow(true);
-        poolConfig.setTestOnReturn(true);
+        // Connections are validated in the background rather than with a PING on every borrow and return, which
+        // doubled the round trips to Redis. A connection that fails during a command is marked broken and destroyed
+        // when it is returned.
+        poolConfig.setTestOnCreate(false);
+        poolConfig.setTestOnBorrow(false);
+        poolConfig.setTestOnReturn(false);
         poolConfig.setTestWhileIdle(true);
+        poolConfig.setTimeBetweenEvictionRunsMillis(IDLE_VALIDATION_INTERVAL_MILLIS);
+        poolConfig.setNumTestsPerEvictionRun(-1);
         
-        final String url = bridgeConfig.get(redisServerProperty);
         final JedisPool jedisPool = constructJedisPool(url, poolConfig);
 
         // Shutdown hook
@@ -57,11 +113,7 @@ public class BridgeProductionSpringConfig {
         URI redisURI = new URI(url);
         String password = BridgeUtils.extractPasswordFromURI(redisURI);
         
-        if (password != null) {
-            return new JedisPool(poolConfig, redisURI.getHost(), redisURI.getPort(),
-                    bridgeConfig.getPropertyAsInt("redis.timeout"), password);
-        }
-        return new JedisPool(poolConfig, redisURI.getHost(), redisURI.getPort(),
-                bridgeConfig.getPropertyAsInt("redis.timeout"));
+        return new TracingJedisPool(poolConfig, redisURI.getHost(), redisURI.getPort(),
+                bridgeConfig.getPropertyAsInt("redis.timeout"), password, redisValueCodec);
     }
 }
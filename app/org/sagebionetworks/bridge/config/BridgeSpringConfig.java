@@ -19,6 +19,7 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.S3ClientOptions;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
 import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClient;
 import com.amazonaws.services.sns.AmazonSNSClient;
@@ -52,12 +53,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.FilterType;
 
 import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
 import org.sagebionetworks.bridge.cache.CacheProvider;
-import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.crypto.AesGcmEncryptor;
 import org.sagebionetworks.bridge.crypto.BridgeEncryptor;
 import org.sagebionetworks.bridge.crypto.CmsEncryptor;
 import org.sagebionetworks.bridge.crypto.CmsEncryptorCacheLoader;
+import org.sagebionetworks.bridge.dao.DistributedLockDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoHealthDataRecord;
 import org.sagebionetworks.bridge.dynamodb.DynamoIndexHelper;
 import org.sagebionetworks.bridge.dynamodb.DynamoReportData;
@@ -89,7 +91,16 @@ import org.sagebionetworks.bridge.hibernate.HibernateSharedModuleMetadata;
 import org.sagebionetworks.bridge.hibernate.HibernateSubstudy;
 import org.sagebionetworks.bridge.hibernate.SubstudyPersistenceExceptionConverter;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.outbound.OutboundMessageQueue;
+import org.sagebionetworks.bridge.outbound.QueueingSesClient;
+import org.sagebionetworks.bridge.outbound.QueueingSnsClient;
+import org.sagebionetworks.bridge.play.http.BulkheadConnectionProvider;
+import org.sagebionetworks.bridge.play.http.BulkheadRequestHandler;
+import org.sagebionetworks.bridge.redis.JedisOps;
+import org.sagebionetworks.bridge.redis.RedisValueCodec;
 import org.sagebionetworks.bridge.s3.S3Helper;
+import org.sagebionetworks.bridge.tracing.TracingRequestHandler;
+import org.sagebionetworks.bridge.tracing.TracingSessionEventListener;
 import org.sagebionetworks.bridge.upload.DecryptHandler;
 import org.sagebionetworks.bridge.upload.InitRecordHandler;
 import org.sagebionetworks.bridge.upload.S3DownloadHandler;
@@ -165,13 +176,29 @@ public class BridgeSpringConfig {
         int maxRetries = bridgeConfig().getPropertyAsInt("ddb.max.retries");
         ClientConfiguration awsClientConfig = PredefinedClientConfigurations.dynamoDefault()
                 .withMaxErrorRetry(maxRetries);
-        return new AmazonDynamoDBClient(awsCredentials(), awsClientConfig);
+        AmazonDynamoDBClient client = new AmazonDynamoDBClient(awsCredentials(), awsClientConfig);
+        // Ahead of tracing, so calls turned away by a bulkhead's connection budget aren't traced
+        client.addRequestHandler(new BulkheadRequestHandler());
+        client.addRequestHandler(new TracingRequestHandler("ddb"));
+        // Optional, for pointing at a local stand-in such as DynamoDB Local
+        String endpoint = bridgeConfig().get("dynamodb.endpoint");
+        if (endpoint != null) {
+            client.setEndpoint(endpoint);
+        }
+        return client;
     }
     
     @Bean(name = "snsClient")
     @Resource(name = "snsCredentials")
-    public AmazonSNSClient snsClient() {
-        return new AmazonSNSClient(snsCredentials());
+    public AmazonSNSClient snsClient(OutboundMessageQueue outboundMessageQueue) {
+        QueueingSnsClient client = new QueueingSnsClient(snsCredentials());
+        // Optional, for pointing at a local stand-in
+        String endpoint = bridgeConfig().get("sns.endpoint");
+        if (endpoint != null) {
+            client.setEndpoint(endpoint);
+        }
+        client.setOutboundMessageQueue(outboundMessageQueue);
+        return client;
     }
 
     @Bean(name = "dataPipelineClient")
@@ -183,19 +210,19 @@ public class BridgeSpringConfig {
     @Bean(name = "s3Client")
     @Resource(name = "awsCredentials")
     public AmazonS3Client s3Client(BasicAWSCredentials awsCredentials) {
-        return new AmazonS3Client(awsCredentials);
+        return tracedS3Client(awsCredentials);
     }
 
     @Bean(name = "s3UploadClient")
     @Resource(name = "s3UploadCredentials")
     public AmazonS3Client s3UploadClient(BasicAWSCredentials s3UploadCredentials) {
-        return new AmazonS3Client(s3UploadCredentials);
+        return tracedS3Client(s3UploadCredentials);
     }
 
     @Bean(name = "s3CmsClient")
     @Resource(name = "s3CmsCredentials")
     public AmazonS3Client s3CmsClient(BasicAWSCredentials s3CmsCredentials) {
-        return new AmazonS3Client(s3CmsCredentials);
+        return tracedS3Client(s3CmsCredentials);
     }
 
     @Bean(name ="uploadTokenServiceClient")
@@ -230,7 +257,19 @@ public class BridgeSpringConfig {
     @Bean(name = "s3ConsentsClient")
     @Resource(name = "s3ConsentsCredentials")
     public AmazonS3Client s3ConsentsClient(BasicAWSCredentials awsCredentials) {
-        return new AmazonS3Client(awsCredentials);
+        return tracedS3Client(awsCredentials);
+    }
+
+    private AmazonS3Client tracedS3Client(BasicAWSCredentials credentials) {
+        AmazonS3Client client = new AmazonS3Client(credentials);
+        client.addRequestHandler(new TracingRequestHandler("s3"));
+        // Optional, for pointing at a local S3-compatible stand-in, which will not support virtual-host addressing
+        String endpoint = bridgeConfig().get("s3.endpoint");
+        if (endpoint != null) {
+            client.setEndpoint(endpoint);
+            client.setS3ClientOptions(S3ClientOptions.builder().setPathStyleAccess(true).build());
+        }
+        return client;
     }
 
     @Bean(name = "s3ConsentsHelper")
@@ -243,8 +282,16 @@ public class BridgeSpringConfig {
 
     @Bean(name = "sesClient")
     @Resource(name="awsCredentials")
-    public AmazonSimpleEmailServiceClient sesClient(BasicAWSCredentials awsCredentials) {
-        return new AmazonSimpleEmailServiceClient(awsCredentials);
+    public AmazonSimpleEmailServiceClient sesClient(BasicAWSCredentials awsCredentials,
+            OutboundMessageQueue outboundMessageQueue) {
+        QueueingSesClient client = new QueueingSesClient(awsCredentials);
+        // Optional, for pointing at a local stand-in
+        String endpoint = bridgeConfig().get("ses.endpoint");
+        if (endpoint != null) {
+            client.setEndpoint(endpoint);
+        }
+        client.setOutboundMessageQueue(outboundMessageQueue);
+        return client;
     }
 
     @Bean(name = "sqsClient")
@@ -530,11 +577,13 @@ public class BridgeSpringConfig {
         Properties props = new Properties();
         props.put("hibernate.connection.characterEncoding", "UTF-8");
         props.put("hibernate.connection.CharSet", "UTF-8");
-        props.put("hibernate.connection.driver_class", "com.mysql.jdbc.Driver");
         props.put("hibernate.connection.useUnicode", true);
-        props.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+        // Records a span for each statement executed during a traced request
+        props.put("hibernate.session.events.auto", TracingSessionEventListener.class.getName());
 
-        // c3p0 connection pool properties
+        // c3p0 connection pool properties. Connections taken by worker and admin requests are limited by their
+        // bulkheads' budgets.
+        props.put("hibernate.connection.provider_class", BulkheadConnectionProvider.class.getName());
         props.put("hibernate.c3p0.min_size", 5);
         props.put("hibernate.c3p0.max_size", 20);
         props.put("hibernate.c3p0.timeout", 300);
@@ -545,12 +594,24 @@ public class BridgeSpringConfig {
         props.put("hibernate.connection.password", config.get("hibernate.connection.password"));
         props.put("hibernate.connection.username", config.get("hibernate.connection.username"));
 
-        
+        // Driver and dialect default to MySQL, but can be overridden to run against an in-memory database (the load
+        // test harness uses H2 in MySQL mode, with the schema created by Hibernate).
+        String driver = config.get("hibernate.connection.driver_class");
+        String dialect = config.get("hibernate.dialect");
+        props.put("hibernate.connection.driver_class", driver == null ? "com.mysql.jdbc.Driver" : driver);
+        props.put("hibernate.dialect", dialect == null ? "org.hibernate.dialect.MySQLDialect" : dialect);
+        String hbm2ddl = config.get("hibernate.hbm2ddl.auto");
+        if (hbm2ddl != null) {
+            props.put("hibernate.hbm2ddl.auto", hbm2ddl);
+        }
+
         String url = config.get("hibernate.connection.url");
         
-        // Append SSL props to URL
-        boolean useSsl = Boolean.valueOf(config.get("hibernate.connection.useSSL"));
-        url += "?requireSSL="+useSsl+"&useSSL="+useSsl+"&verifyServerCertificate="+useSsl;
+        // Append SSL props to URL. These are MySQL Connector/J parameters.
+        if (url.startsWith("jdbc:mysql:")) {
+            boolean useSsl = Boolean.valueOf(config.get("hibernate.connection.useSSL"));
+            url += "?requireSSL="+useSsl+"&useSSL="+useSsl+"&verifyServerCertificate="+useSsl;
+        }
         
         props.put("hibernate.connection.url", url);
 
@@ -601,23 +662,57 @@ public class BridgeSpringConfig {
         return synapseClient;
     }
 
+    // Values written to Redis are always readable compressed or not. Compressing them on write is turned on with
+    // redis.compression.enabled once every server can read them; redis.compression.min.bytes sets the threshold.
+    @Bean(name = "redisValueCodec")
+    public RedisValueCodec redisValueCodec() {
+        RedisValueCodec codec = new RedisValueCodec();
+        codec.setCompressionEnabled(Boolean.valueOf(bridgeConfig().get("redis.compression.enabled")));
+        String minBytes = bridgeConfig().get("redis.compression.min.bytes");
+        if (minBytes != null) {
+            codec.setMinCompressedBytes(Integer.parseInt(minBytes));
+        }
+        return codec;
+    }
+
     @Bean(name = "genericViewCache")
     @Autowired
-    public ViewCache genericViewCache(CacheProvider cacheProvider) {
-        ViewCache cache = new ViewCache();
-        cache.setCacheProvider(cacheProvider);
-        cache.setObjectMapper(BridgeObjectMapper.get());
-        cache.setCachePeriod(BridgeConstants.BRIDGE_VIEW_EXPIRE_IN_SECONDS);
+    public BridgeViewCache genericViewCache(CacheProvider cacheProvider, DistributedLockDao lockDao,
+            JedisOps jedisOps) {
+        BridgeViewCache cache = new BridgeViewCache(cacheProvider, BridgeObjectMapper.get(),
+                BridgeConstants.BRIDGE_VIEW_EXPIRE_IN_SECONDS);
+        cache.setJedisOps(jedisOps);
+        setViewCacheLease(cache, lockDao);
+        setViewCacheLocalTier(cache, 16 * 1024 * 1024);
         return cache;
     }
     
     @Bean(name = "appLinkViewCache")
     @Autowired
-    public ViewCache appLinkViewCache(CacheProvider cacheProvider) {
-        ViewCache cache = new ViewCache();
-        cache.setCacheProvider(cacheProvider);
-        cache.setObjectMapper(new ObjectMapper());
-        cache.setCachePeriod(BridgeConstants.APP_LINKS_EXPIRE_IN_SECONDS);
+    public BridgeViewCache appLinkViewCache(CacheProvider cacheProvider, DistributedLockDao lockDao) {
+        BridgeViewCache cache = new BridgeViewCache(cacheProvider, new ObjectMapper(),
+                BridgeConstants.APP_LINKS_EXPIRE_IN_SECONDS);
+        setViewCacheLease(cache, lockDao);
+        setViewCacheLocalTier(cache, 1024 * 1024);
         return cache;
     }
+    
+    // Optional: with view.cache.lease.seconds set, only one server at a time builds a missing view.
+    private void setViewCacheLease(BridgeViewCache cache, DistributedLockDao lockDao) {
+        String leaseSeconds = bridgeConfig().get("view.cache.lease.seconds");
+        if (leaseSeconds != null) {
+            cache.setDistributedLease(lockDao, Integer.parseInt(leaseSeconds));
+        }
+    }
+    
+    // Each server keeps views it has served for view.cache.local.ttl.seconds (5 by default). Setting 
+    // view.cache.local.max.bytes to 0 turns this off.
+    private void setViewCacheLocalTier(BridgeViewCache cache, int defaultMaxBytes) {
+        String maxBytes = bridgeConfig().get("view.cache.local.max.bytes");
+        String ttlSeconds = bridgeConfig().get("view.cache.local.ttl.seconds");
+        int capacity = (maxBytes == null) ? defaultMaxBytes : Integer.parseInt(maxBytes);
+        if (capacity > 0) {
+            cache.setLocalTier(capacity, (ttlSeconds == null) ? 5 : Integer.parseInt(ttlSeconds));
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package org.sagebionetworks.bridge.exceptions;
+
+import org.apache.http.HttpStatus;
+
+/**
+ * The request body is larger than the server accepts. For gzipped bodies, the limit applies to the decompressed size.
+ */
+@SuppressWarnings("serial")
+@NoStackTraceException
+public class EntityTooLargeException extends BridgeServiceException {
+
+    public EntityTooLargeException(String message) {
+        super(message, HttpStatus.SC_REQUEST_TOO_LONG);
+    }
+}
@@ -0,0 +1,26 @@
+package org.sagebionetworks.bridge.exceptions;
+
+import org.apache.http.HttpStatus;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The server is too busy to handle the request right now. The caller should try again after the number of seconds
+ * returned in the Retry-After header.
+ */
+@SuppressWarnings("serial")
+@NoStackTraceException
+public class ServiceUnavailableException extends BridgeServiceException {
+    
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, int retryAfterSeconds) {
+        super(message, HttpStatus.SC_SERVICE_UNAVAILABLE);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @JsonIgnore
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,26 @@
+package org.sagebionetworks.bridge.exceptions;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The caller has made more requests than its rate limit allows. The caller should try again after the number of
+ * seconds returned in the Retry-After header.
+ */
+@SuppressWarnings("serial")
+@NoStackTraceException
+public class TooManyRequestsException extends BridgeServiceException {
+    
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    
+    private final int retryAfterSeconds;
+
+    public TooManyRequestsException(String message, int retryAfterSeconds) {
+        super(message, SC_TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @JsonIgnore
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,66 @@
+package org.sagebionetworks.bridge.json;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * <p>
+ * A BridgeObjectMapper with Jackson's Afterburner module registered. Afterburner generates bytecode accessors for
+ * bean properties the first time a class is serialized (or deserialized), replacing the reflective getter and setter
+ * calls that dominate the cost of writing models like StudyParticipant, ScheduledActivity and HealthDataRecord. The
+ * output is the same; where Afterburner can't optimize a property (e.g. a non-public class) it falls back to the
+ * standard serializer.
+ * </p>
+ * <p>
+ * The models' filtered writers (StudyParticipant.API_NO_HEALTH_CODE_WRITER etc.) belong to their own mappers, so
+ * writer() returns an equivalent writer from this mapper, with the same filters and view. Equivalence is checked
+ * against golden files in AfterburnerObjectMapperTest.
+ * </p>
+ * <p>
+ * Setting the system property bridge.json.afterburner=false turns this off: get() returns BridgeObjectMapper.get()
+ * and writer() returns the writer it is given.
+ * </p>
+ */
+public final class AfterburnerObjectMapper {
+
+    static final String ENABLED_PROPERTY = "bridge.json.afterburner";
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+
+    private static final ObjectMapper INSTANCE = ENABLED ? create() : BridgeObjectMapper.get();
+
+    // Writers are only ever model constants, so this stays small. ObjectWriter doesn't override equals().
+    private static final Map<ObjectWriter, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private AfterburnerObjectMapper() {
+    }
+
+    static ObjectMapper create() {
+        // BridgeObjectMapper doesn't support copy(), so configure a new one.
+        ObjectMapper mapper = new BridgeObjectMapper();
+        mapper.registerModule(new AfterburnerModule());
+        return mapper;
+    }
+
+    public static ObjectMapper get() {
+        return INSTANCE;
+    }
+
+    /** A writer from this mapper with the same filters and view as the given writer. */
+    public static ObjectWriter writer(ObjectWriter writer) {
+        if (!ENABLED) {
+            return writer;
+        }
+        return WRITERS.computeIfAbsent(writer, original -> convert(INSTANCE, original));
+    }
+
+    static ObjectWriter convert(ObjectMapper mapper, ObjectWriter original) {
+        SerializationConfig config = original.getConfig();
+        return mapper.writer(config.getFilterProvider()).withView(config.getActiveView());
+    }
+}
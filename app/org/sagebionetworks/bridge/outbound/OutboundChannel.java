@@ -0,0 +1,348 @@
+package org.sagebionetworks.bridge.outbound;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.sagebionetworks.bridge.crypto.BridgeEncryptor;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+/**
+ * <p>
+ * Messages waiting to be sent through one provider (SES or SNS). Each message is written to the channel's spool
+ * directory before it's queued, and deleted once it has been sent, so messages queued when the server stops are sent
+ * when it starts again on the same host. Messages hold sign-in links, tokens and phone numbers, so they are encrypted
+ * before they're written, and the spool is readable only by the server's user.
+ * </p>
+ * <p>
+ * The queue holds at most capacity messages. When it's full, {@link #enqueue} returns false and the caller sends the
+ * message itself. One thread drains the queue, up to batchSize messages at a time, and sends them no faster than the provider's rate
+ * limit. Throttling, server errors and network failures are retried with exponential backoff, up to maxAttempts.
+ * Messages the provider rejects, and messages that run out of attempts, are moved to the failed/ directory next to
+ * the spool and logged. Failed messages are deleted once they are older than the retention period.
+ * </p>
+ */
+public class OutboundChannel implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboundChannel.class);
+
+    private static final ObjectMapper MAPPER = BridgeObjectMapper.get();
+    static final String SPOOL_SUFFIX = ".msg";
+    static final String FAILED_DIR = "failed";
+    static final Set<PosixFilePermission> DIR_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+    private static final FileAttribute<Set<PosixFilePermission>> FILE_ATTRIBUTE = PosixFilePermissions
+            .asFileAttribute(FILE_PERMISSIONS);
+
+    /** Sends one message to the provider, or throws the provider's exception. */
+    @FunctionalInterface
+    public interface Sender {
+        void send(OutboundMessage message);
+    }
+
+    private final String name;
+    private final Path spoolDir;
+    private final BridgeEncryptor encryptor;
+    private final RateLimiter rateLimiter;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final long failedRetentionMillis;
+    private final Sender sender;
+    private final BlockingQueue<Attempt> queue;
+    private final ScheduledThreadPoolExecutor retries;
+    private final Thread worker;
+    private final Stats stats = new Stats();
+    private volatile boolean closed;
+
+    OutboundChannel(String name, Path spoolDir, BridgeEncryptor encryptor, double permitsPerSecond, int capacity,
+            int batchSize, int maxAttempts, long retryDelayMillis, long failedRetentionMillis, Sender sender) {
+        this.name = checkNotNull(name);
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.spoolDir = checkNotNull(spoolDir);
+        this.encryptor = checkNotNull(encryptor);
+        this.rateLimiter = RateLimiter.create(permitsPerSecond);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        this.failedRetentionMillis = failedRetentionMillis;
+        this.sender = checkNotNull(sender);
+        this.retries = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("OutboundRetry-" + name + "-%d").build());
+        this.worker = new Thread(this::drain, "Outbound-" + name);
+        this.worker.setDaemon(true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Queue any messages left in the spool by a previous run, then start sending. If there are more than the queue
+     * holds, the rest stay in the spool until the next start. Failed messages past the retention period are deleted
+     * now and every hour after.
+     */
+    void start() {
+        try {
+            Path failedDir = spoolDir.resolve(FAILED_DIR);
+            // Parent directories created here are owner-only as well
+            Files.createDirectories(failedDir, PosixFilePermissions.asFileAttribute(DIR_PERMISSIONS));
+            // Directories that already existed keep their permissions unless they're set here
+            Files.setPosixFilePermissions(spoolDir, DIR_PERMISSIONS);
+            Files.setPosixFilePermissions(failedDir, DIR_PERMISSIONS);
+            List<Path> spooled = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolDir, "*" + SPOOL_SUFFIX)) {
+                stream.forEach(spooled::add);
+            }
+            // File names start with the time the message was queued, so this keeps the original order.
+            spooled.sort(null);
+            for (Path path : spooled) {
+                if (queue.remainingCapacity() == 0) {
+                    LOG.warn("Outbound " + name + " queue is full, messages left in " + spoolDir
+                            + " will be sent after the next restart");
+                    break;
+                }
+                try {
+                    queue.add(new Attempt(read(path)));
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Could not read spooled " + name + " message " + path, e);
+                    moveToFailed(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        purgeFailed();
+        retries.scheduleWithFixedDelay(this::purgeFailed, 1L, 1L, TimeUnit.HOURS);
+        worker.start();
+    }
+
+    /**
+     * Spool and queue the message. It is sent in the background. If it can't be spooled, it's still queued, but won't
+     * survive a restart.
+     *
+     * @return false if the queue is full and the message wasn't queued, in which case the caller should send it
+     */
+    public boolean enqueue(OutboundMessage message) {
+        if (closed || queue.remainingCapacity() == 0) {
+            stats.rejected.increment();
+            return false;
+        }
+        Path path = spoolPath(message);
+        try {
+            Path temp = spoolDir.resolve(path.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            // Created readable by the owner only, before anything is written to it
+            Files.createFile(temp, FILE_ATTRIBUTE);
+            Files.write(temp, encryptor.encrypt(MAPPER.writeValueAsString(message)).getBytes(UTF_8));
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not spool " + name + " message " + message.getId(), e);
+        }
+        if (!queue.offer(new Attempt(message))) {
+            // Filled up since it was checked
+            deleteQuietly(path);
+            stats.rejected.increment();
+            return false;
+        }
+        stats.queued.increment();
+        return true;
+    }
+
+    private void drain() {
+        List<Attempt> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            for (Attempt attempt : batch) {
+                rateLimiter.acquire();
+                send(attempt);
+            }
+            batch.clear();
+        }
+    }
+
+    private void send(Attempt attempt) {
+        OutboundMessage message = attempt.message;
+        attempt.count++;
+        try {
+            sender.send(message);
+            stats.recordSent(System.currentTimeMillis() - message.getCreatedOn());
+            deleteQuietly(spoolPath(message));
+        } catch (RuntimeException e) {
+            if (closed) {
+                // Interrupted by close(), this is left in the spool to be sent after a restart
+                return;
+            }
+            if (isRetryable(e) && attempt.count < maxAttempts) {
+                stats.retried.increment();
+                long delay = retryDelayMillis << (attempt.count - 1);
+                LOG.info("Retrying " + name + " message " + message.getId() + " in " + delay + "ms: "
+                        + e.getMessage());
+                // Waits for room rather than dropping a message that was already accepted
+                retries.schedule(() -> {
+                    queue.put(attempt);
+                    return null;
+                }, delay, TimeUnit.MILLISECONDS);
+            } else {
+                stats.failed.increment();
+                LOG.error("Could not send " + name + " message " + message.getId() + " after " + attempt.count
+                        + " attempt(s)", e);
+                moveToFailed(spoolPath(message));
+            }
+        }
+    }
+
+    /** Throttling, errors on the provider's side and failures to reach it are worth trying again. */
+    static boolean isRetryable(RuntimeException e) {
+        if (e instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException)e;
+            String errorCode = ase.getErrorCode();
+            return ase.getStatusCode() >= 500 || ase.getStatusCode() == 429
+                    || (errorCode != null && errorCode.startsWith("Throttl"));
+        }
+        return e instanceof AmazonClientException;
+    }
+
+    private Path spoolPath(OutboundMessage message) {
+        return spoolDir.resolve(String.format("%013d-%s%s", message.getCreatedOn(), message.getId(), SPOOL_SUFFIX));
+    }
+
+    private OutboundMessage read(Path path) throws IOException {
+        return MAPPER.readValue(encryptor.decrypt(new String(Files.readAllBytes(path), UTF_8)), OutboundMessage.class);
+    }
+
+    private void moveToFailed(Path path) {
+        try {
+            if (Files.exists(path)) {
+                Path failed = spoolDir.resolve(FAILED_DIR).resolve(path.getFileName());
+                Files.move(path, failed, StandardCopyOption.REPLACE_EXISTING);
+                // The retention period starts when the message fails, not when it was spooled
+                Files.setLastModifiedTime(failed, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not move failed " + name + " message " + path, e);
+        }
+    }
+
+    /** Delete failed messages that were moved to failed/ longer ago than the retention period. */
+    void purgeFailed() {
+        long cutoff = System.currentTimeMillis() - failedRetentionMillis;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolDir.resolve(FAILED_DIR))) {
+            for (Path path : stream) {
+                if (Files.getLastModifiedTime(path).toMillis() < cutoff) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not delete old failed " + name + " messages", e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Could not delete sent " + name + " message " + path, e);
+        }
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /** Stops sending. Messages not yet sent stay in the spool. */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        retries.shutdownNow();
+    }
+
+    private static final class Attempt {
+        private final OutboundMessage message;
+        private int count;
+
+        Attempt(OutboundMessage message) {
+            this.message = message;
+        }
+    }
+
+    /** Counts of messages through this channel since the server started. */
+    public final class Stats {
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder sentDelayMillis = new LongAdder();
+
+        void recordSent(long delayMillis) {
+            sent.increment();
+            sentDelayMillis.add(delayMillis);
+        }
+
+        /** Messages waiting to be sent (not counting those waiting to be retried). */
+        public int getDepth() {
+            return queue.size();
+        }
+
+        public long getQueued() {
+            return queued.sum();
+        }
+
+        public long getSent() {
+            return sent.sum();
+        }
+
+        public long getRetried() {
+            return retried.sum();
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        /** Messages the queue had no room for, which the caller sent itself. */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        /** Mean time from queueing a message to sending it. */
+        public double getMeanDelayMillis() {
+            long count = sent.sum();
+            return (count == 0L) ? 0.0 : sentDelayMillis.sum() / (double)count;
+        }
+    }
+}
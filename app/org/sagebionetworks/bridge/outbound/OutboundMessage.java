@@ -0,0 +1,105 @@
+package org.sagebionetworks.bridge.outbound;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An email or SMS message waiting to be sent, in the form it is written to the spool directory. An email holds the
+ * raw MIME message as built for SES; an SMS holds the phone number, text and SNS message attributes.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class OutboundMessage {
+
+    private final String id;
+    private final long createdOn;
+    private final String source;
+    private final List<String> destinations;
+    private final byte[] rawMessage;
+    private final String phoneNumber;
+    private final String message;
+    private final Map<String, Attribute> attributes;
+
+    @JsonCreator
+    OutboundMessage(@JsonProperty("id") String id, @JsonProperty("createdOn") long createdOn,
+            @JsonProperty("source") String source, @JsonProperty("destinations") List<String> destinations,
+            @JsonProperty("rawMessage") byte[] rawMessage, @JsonProperty("phoneNumber") String phoneNumber,
+            @JsonProperty("message") String message, @JsonProperty("attributes") Map<String, Attribute> attributes) {
+        this.id = id;
+        this.createdOn = createdOn;
+        this.source = source;
+        this.destinations = (destinations == null) ? ImmutableList.of() : ImmutableList.copyOf(destinations);
+        this.rawMessage = rawMessage;
+        this.phoneNumber = phoneNumber;
+        this.message = message;
+        this.attributes = (attributes == null) ? ImmutableMap.of() : ImmutableMap.copyOf(attributes);
+    }
+
+    public static OutboundMessage email(String id, long createdOn, String source, List<String> destinations,
+            byte[] rawMessage) {
+        return new OutboundMessage(id, createdOn, source, destinations, rawMessage, null, null, null);
+    }
+
+    public static OutboundMessage sms(String id, long createdOn, String phoneNumber, String message,
+            Map<String, Attribute> attributes) {
+        return new OutboundMessage(id, createdOn, null, null, null, phoneNumber, message, attributes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** Epoch milliseconds when the message was queued. */
+    public long getCreatedOn() {
+        return createdOn;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public List<String> getDestinations() {
+        return destinations;
+    }
+
+    public byte[] getRawMessage() {
+        return rawMessage;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Map<String, Attribute> getAttributes() {
+        return attributes;
+    }
+
+    /** An SNS message attribute, e.g. the SMS type or sender ID. */
+    public static final class Attribute {
+        private final String dataType;
+        private final String stringValue;
+
+        @JsonCreator
+        public Attribute(@JsonProperty("dataType") String dataType, @JsonProperty("stringValue") String stringValue) {
+            this.dataType = dataType;
+            this.stringValue = stringValue;
+        }
+
+        public String getDataType() {
+            return dataType;
+        }
+
+        public String getStringValue() {
+            return stringValue;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.sagebionetworks.bridge.outbound;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.crypto.BridgeEncryptor;
+
+/**
+ * <p>
+ * Email and SMS are queued here and sent in the background, so that requests that send a message (sign-in links,
+ * verification emails, password resets, consent agreements, SMS to participants) return as soon as the message is
+ * queued, rather than waiting for SES or SNS. The clients that queue messages are {@link QueueingSesClient} and
+ * {@link QueueingSnsClient}; each has its own {@link OutboundChannel}.
+ * </p>
+ * <p>
+ * Configuration (outbound.{channel}.rate is per channel, e.g. outbound.ses.rate):
+ * <ul>
+ *   <li>outbound.spool.dir: where messages are kept, encrypted, until they're sent. It's created readable only by
+ *   the server's user (user.home/.bridge/outbound).</li>
+ *   <li>outbound.{channel}.rate: messages sent per second, at most. Set this to the account's send rate.</li>
+ *   <li>outbound.queue.capacity: messages each channel holds; when it's full, messages are sent right away
+ *   (10000)</li>
+ *   <li>outbound.batch.size: messages taken from the queue at a time (25)</li>
+ *   <li>outbound.max.attempts: attempts to send a message before giving up on it (5)</li>
+ *   <li>outbound.retry.delay.millis: delay before the first retry, doubling for each retry after (1000)</li>
+ *   <li>outbound.failed.retention.hours: how long messages that couldn't be sent are kept in failed/ (168)</li>
+ * </ul>
+ * </p>
+ */
+@Component
+public class OutboundMessageQueue {
+
+    static final String SPOOL_DIR_PROPERTY = "outbound.spool.dir";
+    static final String RATE_PROPERTY = "outbound.%s.rate";
+    static final String CAPACITY_PROPERTY = "outbound.queue.capacity";
+    static final String BATCH_SIZE_PROPERTY = "outbound.batch.size";
+    static final String MAX_ATTEMPTS_PROPERTY = "outbound.max.attempts";
+    static final String RETRY_DELAY_MILLIS_PROPERTY = "outbound.retry.delay.millis";
+    static final String FAILED_RETENTION_HOURS_PROPERTY = "outbound.failed.retention.hours";
+    static final int DEFAULT_CAPACITY = 10000;
+    static final int DEFAULT_BATCH_SIZE = 25;
+    static final int DEFAULT_MAX_ATTEMPTS = 5;
+    static final long DEFAULT_RETRY_DELAY_MILLIS = 1000L;
+    static final long DEFAULT_FAILED_RETENTION_HOURS = 168L;
+
+    private final ConcurrentMap<String, OutboundChannel> channels = new ConcurrentHashMap<>();
+    private BridgeConfig bridgeConfig;
+    private BridgeEncryptor encryptor;
+    private Path spoolDir = Paths.get(System.getProperty("user.home"), ".bridge", "outbound");
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+        String value = bridgeConfig.get(SPOOL_DIR_PROPERTY);
+        if (value != null && !value.trim().isEmpty()) {
+            spoolDir = Paths.get(value);
+        }
+    }
+
+    /** Spooled messages are encrypted with this. */
+    @Resource(name = "healthCodeEncryptor")
+    final void setEncryptor(BridgeEncryptor encryptor) {
+        this.encryptor = encryptor;
+    }
+
+    /**
+     * Create and start the channel with this name, sending through the sender. Messages the channel spooled before
+     * the server last stopped are queued again.
+     *
+     * @param defaultRate
+     *      messages per second to send if outbound.{name}.rate isn't set
+     */
+    public OutboundChannel createChannel(String name, double defaultRate, OutboundChannel.Sender sender) {
+        double rate = getDouble(String.format(RATE_PROPERTY, name), defaultRate);
+        long retentionHours = (long)getDouble(FAILED_RETENTION_HOURS_PROPERTY, DEFAULT_FAILED_RETENTION_HOURS);
+        OutboundChannel channel = new OutboundChannel(name, spoolDir.resolve(name), encryptor, rate,
+                (int)getDouble(CAPACITY_PROPERTY, DEFAULT_CAPACITY), (int)getDouble(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE),
+                (int)getDouble(MAX_ATTEMPTS_PROPERTY, DEFAULT_MAX_ATTEMPTS),
+                (long)getDouble(RETRY_DELAY_MILLIS_PROPERTY, DEFAULT_RETRY_DELAY_MILLIS),
+                TimeUnit.HOURS.toMillis(retentionHours), sender);
+        OutboundChannel existing = channels.putIfAbsent(name, channel);
+        if (existing != null) {
+            throw new IllegalStateException("Outbound channel " + name + " already exists");
+        }
+        channel.start();
+        return channel;
+    }
+
+    Path getSpoolDir() {
+        return spoolDir;
+    }
+
+    /** Stops every channel when the server shuts down. Messages not yet sent stay in the spool. */
+    @PreDestroy
+    public void close() {
+        for (OutboundChannel channel : channels.values()) {
+            channel.close();
+        }
+    }
+
+    /** Stats for each channel, by name. */
+    public Map<String, OutboundChannel.Stats> getStats() {
+        Map<String, OutboundChannel.Stats> stats = new TreeMap<>();
+        for (OutboundChannel channel : channels.values()) {
+            stats.put(channel.getName(), channel.getStats());
+        }
+        return stats;
+    }
+
+    private double getDouble(String property, double defaultValue) {
+        String value = (bridgeConfig == null) ? null : bridgeConfig.get(property);
+        return (value == null) ? defaultValue : Double.parseDouble(value);
+    }
+}
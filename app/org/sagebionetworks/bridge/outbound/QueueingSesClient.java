@@ -0,0 +1,73 @@
+package org.sagebionetworks.bridge.outbound;
+
+import java.nio.ByteBuffer;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClient;
+import com.amazonaws.services.simpleemail.model.RawMessage;
+import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
+import com.amazonaws.services.simpleemail.model.SendRawEmailResult;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+
+/**
+ * SES client that queues raw emails (which is how all of our email is sent) and returns right away, with the queued
+ * message's ID in place of the SES message ID. Source, destinations and the raw message are kept; other request
+ * properties are not. Everything else goes straight to SES.
+ */
+public class QueueingSesClient extends AmazonSimpleEmailServiceClient {
+
+    static final String CHANNEL_NAME = "ses";
+    /** The sending rate of a new SES account. */
+    static final double DEFAULT_RATE = 14.0;
+
+    private OutboundChannel channel;
+
+    public QueueingSesClient(AWSCredentials awsCredentials) {
+        super(awsCredentials);
+    }
+
+    /**
+     * Start queueing emails. Call this once the client is configured, as messages spooled before a restart may be
+     * sent right away.
+     */
+    public void setOutboundMessageQueue(OutboundMessageQueue outboundMessageQueue) {
+        this.channel = outboundMessageQueue.createChannel(CHANNEL_NAME, DEFAULT_RATE, this::sendNow);
+    }
+
+    @Override
+    public SendRawEmailResult sendRawEmail(SendRawEmailRequest request) {
+        if (channel == null) {
+            return super.sendRawEmail(request);
+        }
+        ByteBuffer data = request.getRawMessage().getData().duplicate();
+        byte[] rawMessage = new byte[data.remaining()];
+        data.get(rawMessage);
+
+        String id = BridgeUtils.generateGuid();
+        if (!channel.enqueue(OutboundMessage.email(id, System.currentTimeMillis(), request.getSource(),
+                request.getDestinations(), rawMessage))) {
+            // The queue is full
+            return super.sendRawEmail(request);
+        }
+        return new SendRawEmailResult().withMessageId(id);
+    }
+
+    void sendNow(OutboundMessage message) {
+        SendRawEmailRequest request = new SendRawEmailRequest(new RawMessage(ByteBuffer.wrap(message.getRawMessage())))
+                .withSource(message.getSource());
+        if (!message.getDestinations().isEmpty()) {
+            request.setDestinations(message.getDestinations());
+        }
+        super.sendRawEmail(request);
+    }
+
+    /** Stops sending. Emails not yet sent stay in the spool. */
+    @Override
+    public void shutdown() {
+        if (channel != null) {
+            channel.close();
+        }
+        super.shutdown();
+    }
+}
@@ -0,0 +1,78 @@
+package org.sagebionetworks.bridge.outbound;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.services.sns.AmazonSNSClient;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+
+/**
+ * SNS client that queues SMS messages (publishes to a phone number) and returns right away, with the queued
+ * message's ID in place of the SNS message ID. Push notifications, which publish to a topic or endpoint, and all
+ * other calls go straight to SNS.
+ */
+public class QueueingSnsClient extends AmazonSNSClient {
+
+    static final String CHANNEL_NAME = "sns";
+    /** The SMS rate of a new SNS account. */
+    static final double DEFAULT_RATE = 20.0;
+
+    private OutboundChannel channel;
+
+    public QueueingSnsClient(AWSCredentials awsCredentials) {
+        super(awsCredentials);
+    }
+
+    /**
+     * Start queueing SMS messages. Call this once the client is configured, as messages spooled before a restart may
+     * be sent right away.
+     */
+    public void setOutboundMessageQueue(OutboundMessageQueue outboundMessageQueue) {
+        this.channel = outboundMessageQueue.createChannel(CHANNEL_NAME, DEFAULT_RATE, this::sendNow);
+    }
+
+    @Override
+    public PublishResult publish(PublishRequest request) {
+        if (channel == null || request.getPhoneNumber() == null) {
+            return super.publish(request);
+        }
+        Map<String, OutboundMessage.Attribute> attributes = new LinkedHashMap<>();
+        if (request.getMessageAttributes() != null) {
+            for (Map.Entry<String, MessageAttributeValue> entry : request.getMessageAttributes().entrySet()) {
+                attributes.put(entry.getKey(), new OutboundMessage.Attribute(entry.getValue().getDataType(),
+                        entry.getValue().getStringValue()));
+            }
+        }
+        String id = BridgeUtils.generateGuid();
+        if (!channel.enqueue(OutboundMessage.sms(id, System.currentTimeMillis(), request.getPhoneNumber(),
+                request.getMessage(), attributes))) {
+            // The queue is full
+            return super.publish(request);
+        }
+        return new PublishResult().withMessageId(id);
+    }
+
+    void sendNow(OutboundMessage message) {
+        PublishRequest request = new PublishRequest().withPhoneNumber(message.getPhoneNumber())
+                .withMessage(message.getMessage());
+        for (Map.Entry<String, OutboundMessage.Attribute> entry : message.getAttributes().entrySet()) {
+            request.addMessageAttributesEntry(entry.getKey(), new MessageAttributeValue()
+                    .withDataType(entry.getValue().getDataType()).withStringValue(entry.getValue().getStringValue()));
+        }
+        super.publish(request);
+    }
+
+    /** Stops sending. SMS messages not yet sent stay in the spool. */
+    @Override
+    public void shutdown() {
+        if (channel != null) {
+            channel.close();
+        }
+        super.shutdown();
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 import org.sagebionetworks.bridge.models.ResourceList;
@@ -13,8 +14,10 @@ import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.activities.ActivityEvent;
 import org.sagebionetworks.bridge.models.activities.CustomActivityEventRequest;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ActivityEventService;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class ActivityEventController extends BaseController {
     private ActivityEventService activityEventService;
@@ -9,26 +9,32 @@ import java.util.List;
 import javax.annotation.Resource;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
 import org.sagebionetworks.bridge.cache.CacheKey;
-import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.CriteriaContext;
 import org.sagebionetworks.bridge.models.GuidVersionHolder;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.appconfig.AppConfig;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.AppConfigService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class AppConfigController extends BaseController {
 
     private AppConfigService appConfigService;
     
-    private ViewCache viewCache;
+    private BridgeViewCache viewCache;
+    
+    private ViewCacheRefresher viewCacheRefresher;
 
     @Autowired
     final void setAppConfigService(AppConfigService appConfigService) {
@@ -36,10 +42,15 @@ public class AppConfigController extends BaseController {
     }
 
     @Resource(name = "genericViewCache")
-    final void setViewCache(ViewCache viewCache) {
+    final void setViewCache(BridgeViewCache viewCache) {
         this.viewCache = viewCache;
     }
     
+    @Autowired
+    final void setViewCacheRefresher(ViewCacheRefresher viewCacheRefresher) {
+        this.viewCacheRefresher = viewCacheRefresher;
+    }
+    
     public Result getStudyAppConfig(String studyId) {
         Study study = studyService.getStudy(studyId);
         
@@ -49,13 +60,13 @@ public class AppConfigController extends BaseController {
                 .withStudyIdentifier(study.getStudyIdentifier())
                 .build();
         
-        CacheKey cacheKey = getCriteriaContextCacheKey(context);
+        // All the cached app configs of a study are removed together by incrementing the version of its namespace
+        long namespaceVersion = viewCache.getNamespaceVersion(getNamespaceKey(viewCache, study.getStudyIdentifier()));
+        CacheKey cacheKey = getCriteriaContextCacheKey(viewCache, context, namespaceVersion);
         String json = viewCache.getView(cacheKey, () -> {
-            AppConfig appConfig = appConfigService.getAppConfigForUser(context, true);
-            // So we can delete all the relevant cached versions, keep track of them under the study
-            cacheProvider.addCacheKeyToSet(CacheKey.appConfigList(study.getStudyIdentifier()), cacheKey.toString());
-            return appConfig;
+            return appConfigService.getAppConfigForUser(context, true);
         });
+        viewCacheRefresher.recordAppConfigContext(context);
         return ok(json).as(JSON_MIME_TYPE);
     }
     
@@ -82,7 +93,7 @@ public class AppConfigController extends BaseController {
         AppConfig appConfig = parseJson(request(), AppConfig.class);
         
         AppConfig created = appConfigService.createAppConfig(session.getStudyIdentifier(), appConfig);
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
         
         return createdResult(new GuidVersionHolder(created.getGuid(), created.getVersion()));
     }
@@ -94,7 +105,7 @@ public class AppConfigController extends BaseController {
         appConfig.setGuid(guid);
         
         AppConfig updated = appConfigService.updateAppConfig(session.getStudyIdentifier(), appConfig);
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
 
         return okResult(new GuidVersionHolder(updated.getGuid(), updated.getVersion()));
     }
@@ -109,11 +120,16 @@ public class AppConfigController extends BaseController {
         } else {
             appConfigService.deleteAppConfig(session.getStudyIdentifier(), guid);
         }
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
         return okResult("App config deleted.");
     }
 
-    private CacheKey getCriteriaContextCacheKey(CriteriaContext context) {
+    static CacheKey getNamespaceKey(BridgeViewCache viewCache, StudyIdentifier studyId) {
+        return viewCache.getNamespaceKey(AppConfig.class, studyId.getIdentifier());
+    }
+
+    static CacheKey getCriteriaContextCacheKey(BridgeViewCache viewCache, CriteriaContext context,
+            long namespaceVersion) {
         ClientInfo info = context.getClientInfo();
         String appVersion = info.getAppVersion() == null ? "0" : Integer.toString(info.getAppVersion());
         String osName = info.getOsName() == null ? "" : info.getOsName();
@@ -123,6 +139,6 @@ public class AppConfigController extends BaseController {
         // them, so it's important they be part of the key
         String langs = BridgeUtils.SPACE_JOINER.join(context.getLanguages());
         
-        return CacheKey.viewKey(AppConfig.class, appVersion, osName, langs, studyId);
+        return viewCache.getNamespacedCacheKey(namespaceVersion, AppConfig.class, appVersion, osName, langs, studyId);
     }
 }
@@ -6,29 +6,38 @@ import static org.sagebionetworks.bridge.Roles.DEVELOPER;
 import java.util.List;
 
 import org.sagebionetworks.bridge.BridgeUtils;
-import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.VersionHolder;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.appconfig.AppConfigElement;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.AppConfigElementService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class AppConfigElementsController extends BaseController {
 
     private static final String INCLUDE_DELETED_PARAM = "includeDeleted";
     private AppConfigElementService service;
     
+    private ViewCacheRefresher viewCacheRefresher;
+    
     @Autowired
     final void setAppConfigElementService(AppConfigElementService service) {
         this.service = service;
     }
     
+    @Autowired
+    final void setViewCacheRefresher(ViewCacheRefresher viewCacheRefresher) {
+        this.viewCacheRefresher = viewCacheRefresher;
+    }
+    
     public Result getMostRecentElements(String includeDeletedStr) {
         UserSession session = getAuthenticatedSession(DEVELOPER);
         boolean includeDeleted = Boolean.valueOf(includeDeletedStr);
@@ -46,8 +55,8 @@ public class AppConfigElementsController extends BaseController {
         
         VersionHolder version = service.createElement(session.getStudyIdentifier(), element);
 
-        // App config elements are included in the app configs, so allow cache to update
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        // App config elements are included in the app configs, so rebuild the cached app configs
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
         return createdResult(version);
     }
 
@@ -94,8 +103,8 @@ public class AppConfigElementsController extends BaseController {
         
         VersionHolder holder = service.updateElementRevision(session.getStudyIdentifier(), element);
 
-        // App config elements are included in the app configs, so allow cache to update
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        // App config elements are included in the app configs, so rebuild the cached app configs
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
         return okResult(holder);
     }
     
@@ -107,8 +116,8 @@ public class AppConfigElementsController extends BaseController {
         } else {
             service.deleteElementAllRevisions(session.getStudyIdentifier(), id);
         }
-        // App config elements are included in the app configs, so allow cache to update
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        // App config elements are included in the app configs, so rebuild the cached app configs
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
         return okResult("App config element deleted.");
     }
     
@@ -125,8 +134,8 @@ public class AppConfigElementsController extends BaseController {
         } else {
             service.deleteElementRevision(session.getStudyIdentifier(), id, revision);
         }
-        // App config elements are included in the app configs, so allow cache to update
-        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(session.getStudyIdentifier()));
+        // App config elements are included in the app configs, so rebuild the cached app configs
+        viewCacheRefresher.refreshAppConfigs(session.getStudyIdentifier());
         return okResult("App config element revision deleted.");
     }
     
@@ -15,9 +15,9 @@ import org.sagebionetworks.bridge.models.accounts.PasswordReset;
 import org.sagebionetworks.bridge.models.accounts.SignIn;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
-import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
 import org.sagebionetworks.bridge.models.accounts.Verification;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.AccountWorkflowService;
 import org.sagebionetworks.bridge.services.AuthenticationService.ChannelType;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +28,7 @@ import play.mvc.Result;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class AuthenticationController extends BaseController {
 
@@ -71,7 +72,7 @@ public class AuthenticationController extends BaseController {
         }
         setCookieAndRecordMetrics(session);
 
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
 
     public Result requestPhoneSignIn() {
@@ -108,7 +109,7 @@ public class AuthenticationController extends BaseController {
         }
         setCookieAndRecordMetrics(session);
 
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     public Result signIn() throws Exception {
@@ -122,14 +123,14 @@ public class AuthenticationController extends BaseController {
 
         UserSession session;
         try {
-            session = authenticationService.signIn(study, context, signIn);
+            session = verifyCredentials(() -> authenticationService.signIn(study, context, signIn));
         } catch (ConsentRequiredException e) {
             setCookieAndRecordMetrics(e.getUserSession());
             throw e;
         }
 
         setCookieAndRecordMetrics(session);
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
 
     public Result reauthenticate() throws Exception {
@@ -144,11 +145,12 @@ public class AuthenticationController extends BaseController {
         verifySupportedVersionOrThrowException(study);
         
         CriteriaContext context = getCriteriaContext(study.getStudyIdentifier());
-        UserSession session = authenticationService.reauthenticate(study, context, signInRequest);
+        UserSession session = verifyCredentials(
+                () -> authenticationService.reauthenticate(study, context, signInRequest));
         
         setCookieAndRecordMetrics(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     @Deprecated
@@ -169,6 +171,8 @@ public class AuthenticationController extends BaseController {
         // Always set, even if we eventually decide to return an error code when there's no session
         if (session != null) {
             authenticationService.signOut(session);
+            sessionInfoCache.removeSessionInfo(session.getSessionToken());
+            revokeLocalSession(session);
         }
         response().discardCookie(BridgeConstants.SESSION_TOKEN_HEADER);
         return okResult("Signed out.");
@@ -182,6 +186,8 @@ public class AuthenticationController extends BaseController {
         response().setHeader(BridgeConstants.CLEAR_SITE_DATA_HEADER, BridgeConstants.CLEAR_SITE_DATA_VALUE);
         if (session != null) {
             authenticationService.signOut(session);
+            sessionInfoCache.removeSessionInfo(session.getSessionToken());
+            revokeLocalSession(session);
         } else {
             throw new BadRequestException("Not signed in");
         }
@@ -3,6 +3,7 @@ package org.sagebionetworks.bridge.play.controllers;
 import static org.sagebionetworks.bridge.Roles.ADMIN;
 
 import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.play.http.LowPriority;
 import org.sagebionetworks.bridge.services.backfill.BackfillService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Controller;
 import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@LowPriority
 @Controller
 public class BackfillController extends BaseController implements ApplicationContextAware  {
 
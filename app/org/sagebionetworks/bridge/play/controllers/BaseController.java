@@ -6,7 +6,9 @@ import static org.sagebionetworks.bridge.BridgeConstants.SESSION_TOKEN_HEADER;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sagebionetworks.bridge.BridgeConstants.X_FORWARDED_FOR_HEADER;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -14,6 +16,7 @@ import java.util.Locale;
 import java.util.Locale.LanguageRange;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -23,15 +26,18 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.exceptions.UnsupportedVersionException;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
+import org.sagebionetworks.bridge.exceptions.EntityTooLargeException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.NotAuthenticatedException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
-import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.json.AfterburnerObjectMapper;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.CriteriaContext;
 import org.sagebionetworks.bridge.models.Metrics;
@@ -45,6 +51,7 @@ import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.play.interceptors.RequestUtils;
 import org.sagebionetworks.bridge.services.AuthenticationService;
 import org.sagebionetworks.bridge.services.SessionUpdateService;
+import org.sagebionetworks.bridge.services.SignInExecutor;
 import org.sagebionetworks.bridge.services.StudyService;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -61,11 +68,18 @@ import play.mvc.Http.Request;
 import play.mvc.Result;
 
 import com.amazonaws.util.Throwables;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
@@ -74,7 +88,10 @@ public abstract class BaseController extends Controller {
 
     private final static Logger LOG = LoggerFactory.getLogger(BaseController.class);
     
-    protected final static ObjectMapper MAPPER = BridgeObjectMapper.get();
+    protected final static ObjectMapper MAPPER = AfterburnerObjectMapper.get();
+    
+    /** Query parameter selecting a subset of the response's properties, e.g. ?fields=identifier,name */
+    static final String FIELDS_PARAM = "fields";
 
     CacheProvider cacheProvider;
     
@@ -87,6 +104,12 @@ public abstract class BaseController extends Controller {
     AuthenticationService authenticationService;
     
     SessionUpdateService sessionUpdateService;
+    
+    UserSessionInfoCache sessionInfoCache;
+    
+    LocalSessionCache localSessionCache;
+    
+    SignInExecutor signInExecutor;
 
     @Autowired
     final void setBridgeConfig(BridgeConfig bridgeConfig) {
@@ -117,6 +140,29 @@ public abstract class BaseController extends Controller {
     final void setSessionUpdateService(SessionUpdateService sessionUpdateService) {
         this.sessionUpdateService = sessionUpdateService;
     }
+    
+    @Autowired
+    final void setUserSessionInfoCache(UserSessionInfoCache sessionInfoCache) {
+        this.sessionInfoCache = sessionInfoCache;
+    }
+    
+    @Autowired
+    final void setLocalSessionCache(LocalSessionCache localSessionCache) {
+        this.localSessionCache = localSessionCache;
+    }
+
+    @Autowired
+    final void setSignInExecutor(SignInExecutor signInExecutor) {
+        this.signInExecutor = signInExecutor;
+    }
+
+    /**
+     * Run a sign in that verifies a password or reauthentication token on the SignInExecutor, which limits how many
+     * are verified at once. Throws a ServiceUnavailableException if too many sign ins are waiting.
+     */
+    UserSession verifyCredentials(Supplier<UserSession> signIn) {
+        return signInExecutor.execute(signIn);
+    }
 
     /**
      * Returns a session. Will not throw exception if user is not authorized or has not consented to research.
@@ -127,10 +173,24 @@ public abstract class BaseController extends Controller {
         if (StringUtils.isBlank(sessionToken)){
             return null;
         }
-        final UserSession session = authenticationService.getSession(sessionToken);
+        UserSession session = RequestUtils.getLoadedSession(Http.Context.current.get(), sessionToken);
+        if (session == null) {
+            session = localSessionCache.getSession(sessionToken, authenticationService::getSession);
+            RequestUtils.setLoadedSession(Http.Context.current.get(), session);
+        }
         writeSessionInfoToMetrics(session);
         return session;
     }
+    
+    /**
+     * After a session has been changed or signed out, other servers must not go on using their copy of it. Call this
+     * once the change has been saved.
+     */
+    void revokeLocalSession(UserSession session) {
+        if (session != null) {
+            localSessionCache.revokeSession(session.getSessionToken());
+        }
+    }
 
     /**
      * Retrieve user's session using the Bridge-Session header, throwing an exception if the session doesn't
@@ -272,6 +332,7 @@ public abstract class BaseController extends Controller {
                     .withLanguages(languages).build();
 
             sessionUpdateService.updateLanguage(session, newContext);
+            revokeLocalSession(session);
         }
         return languages;
     }
@@ -345,15 +406,188 @@ public abstract class BaseController extends Controller {
     }
 
     Result okResult(Object obj) {
+        if (negotiateFormat()) {
+            return generatedResult(generator -> MAPPER.writer().writeValue(generator, obj));
+        }
         return ok((JsonNode)MAPPER.valueToTree(obj));
     }
     
     <T> Result okResult(List<T> list) {
-        return ok((JsonNode)MAPPER.valueToTree(new ResourceList<T>(list)));
+        return okResult(new ResourceList<T>(list));
     }
     
     Result okResult(ObjectWriter writer, Object object) throws JsonGenerationException, JsonMappingException, IOException {
-        return ok( writer.writeValueAsString(object) ).as(BridgeConstants.JSON_MIME_TYPE);
+        ObjectWriter fastWriter = AfterburnerObjectMapper.writer(writer);
+        if (negotiateFormat()) {
+            return generatedResult(generator -> fastWriter.writeValue(generator, object));
+        }
+        return ok( fastWriter.writeValueAsString(object) ).as(BridgeConstants.JSON_MIME_TYPE);
+    }
+    
+    /**
+     * Result for JSON that has already been serialized, such as a view from the ViewCache. If the client asked for
+     * a binary format or a subset of fields, the JSON is streamed from a parser into the generator; it is never
+     * read into a tree.
+     */
+    Result okJsonResult(String json) {
+        if (negotiateFormat()) {
+            return generatedResult(generator -> copyJson(MAPPER.getFactory().createParser(json), generator));
+        }
+        return ok(json).as(BridgeConstants.JSON_MIME_TYPE);
+    }
+    
+    Result okJsonResult(byte[] json) {
+        if (negotiateFormat()) {
+            return generatedResult(generator -> copyJson(MAPPER.getFactory().createParser(json), generator));
+        }
+        return ok(json).as(BridgeConstants.JSON_MIME_TYPE);
+    }
+    
+    /** The UserSessionInfo for this session, reusing the serialized payload if the session hasn't changed. */
+    Result okSessionResult(UserSession session) {
+        return okJsonResult(sessionInfoCache.getSessionInfo(session));
+    }
+    
+    private static void copyJson(JsonParser parser, JsonGenerator generator) throws IOException {
+        try (JsonParser jsonParser = parser) {
+            jsonParser.nextToken();
+            generator.copyCurrentStructure(jsonParser);
+        }
+    }
+    
+    /**
+     * Binary encodings of JSON that clients can ask for in the Accept header. These are meant for worker accounts
+     * pulling large volumes of data: both are smaller than JSON and cheaper to generate and parse. The object is
+     * written through the same ObjectWriter (and so the same views and filters) as JSON, only the generator differs.
+     */
+    enum BinaryFormat {
+        SMILE("application/x-jackson-smile", new SmileFactory()),
+        CBOR("application/cbor", new CBORFactory());
+        
+        private final String mimeType;
+        private final JsonFactory factory;
+        
+        BinaryFormat(String mimeType, JsonFactory factory) {
+            this.mimeType = mimeType;
+            this.factory = factory;
+        }
+        String getMimeType() {
+            return mimeType;
+        }
+        JsonFactory getFactory() {
+            return factory;
+        }
+    }
+    
+    /**
+     * The binary format requested in the Accept header, or null if the response should be JSON. Of JSON, Smile and
+     * CBOR, the one with the highest q-value (1 if not given) wins, and the first listed wins a tie. A q-value of 0
+     * means the format is not acceptable. Wildcards and a missing header mean JSON, so existing clients are
+     * unaffected.
+     */
+    static BinaryFormat getBinaryFormat(String acceptHeader) {
+        if (isBlank(acceptHeader)) {
+            return null;
+        }
+        BinaryFormat bestFormat = null;
+        double bestQuality = 0.0;
+        for (String range : acceptHeader.split(",")) {
+            String[] params = range.split(";");
+            String mimeType = params[0].trim();
+            BinaryFormat format = null;
+            if (!Http.MimeTypes.JSON.equalsIgnoreCase(mimeType)) {
+                format = getBinaryFormatForMimeType(mimeType);
+                if (format == null) {
+                    continue;
+                }
+            }
+            double quality = getQuality(params);
+            if (quality > bestQuality) {
+                bestFormat = format;
+                bestQuality = quality;
+            }
+        }
+        return bestFormat;
+    }
+    
+    private static BinaryFormat getBinaryFormatForMimeType(String mimeType) {
+        for (BinaryFormat format : BinaryFormat.values()) {
+            if (format.getMimeType().equalsIgnoreCase(mimeType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+    
+    /** The q parameter of a media range, or 1 if it has none or it can't be read. */
+    private static double getQuality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() > 2 && param.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 1.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+    
+    private static BinaryFormat getRequestedBinaryFormat() {
+        Http.Context context = Http.Context.current.get();
+        if (context == null || context.request() == null) {
+            return null;
+        }
+        return getBinaryFormat(context.request().getHeader(ACCEPT));
+    }
+    
+    /**
+     * The fields filter from the fields query parameter, or null if the client wants the whole object. See
+     * FieldsFilter.
+     */
+    private static FieldsFilter getRequestedFieldsFilter() {
+        Http.Context context = Http.Context.current.get();
+        if (context == null || context.request() == null) {
+            return null;
+        }
+        return FieldsFilter.parse(context.request().getQueryString(FIELDS_PARAM));
+    }
+    
+    /**
+     * Every result that goes through here depends on the Accept header, JSON included, so caches must not serve it
+     * for other Accept headers. Returns true if the result has to be written through a generator (a binary format or
+     * a subset of fields), false if it can be sent as JSON.
+     */
+    private static boolean negotiateFormat() {
+        Http.Context context = Http.Context.current.get();
+        if (context != null && context.response() != null) {
+            context.response().setHeader(VARY, ACCEPT);
+        }
+        return getRequestedBinaryFormat() != null || getRequestedFieldsFilter() != null;
+    }
+    
+    @FunctionalInterface
+    private static interface GeneratorContent {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+    
+    /**
+     * Write the response through a generator for the requested format, filtered to the requested fields.
+     */
+    private static Result generatedResult(GeneratorContent content) {
+        BinaryFormat format = getRequestedBinaryFormat();
+        FieldsFilter filter = getRequestedFieldsFilter();
+        JsonFactory factory = (format == null) ? MAPPER.getFactory() : format.getFactory();
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            content.writeTo((filter == null) ? generator : filter.filter(generator));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String mimeType = (format == null) ? BridgeConstants.JSON_MIME_TYPE : format.getMimeType();
+        return ok(out.toByteArray()).as(mimeType);
     }
     
     Result createdResult(String message)  {
@@ -365,7 +599,7 @@ public abstract class BaseController extends Controller {
     }
     
     Result createdResult(ObjectWriter writer, Object object) throws JsonGenerationException, JsonMappingException, IOException {
-        return created( writer.writeValueAsString(object) ).as(BridgeConstants.JSON_MIME_TYPE);
+        return created( AfterburnerObjectMapper.writer(writer).writeValueAsString(object) ).as(BridgeConstants.JSON_MIME_TYPE);
     }
     
     Result acceptedResult(String message) {
@@ -383,7 +617,43 @@ public abstract class BaseController extends Controller {
      * @return object parsed from JSON, will be non-null
      */
     static @Nonnull <T> T parseJson(Request request, Class<? extends T> clazz) {
+        return parseJson(request, MAPPER.getTypeFactory().constructType(clazz));
+    }
+
+    /**
+     * Parses the JSON from the given request as the given generic type, e.g. a list of a model class.
+     */
+    static @Nonnull <T> T parseJson(Request request, TypeReference<? extends T> typeRef) {
+        return parseJson(request, MAPPER.getTypeFactory().constructType(typeRef));
+    }
+
+    /**
+     * Binds JSON that has already been parsed from the request to the given class, for controllers that need to look
+     * at the JSON as well as the bound object. Errors are reported the same way as parseJson(Request, Class).
+     */
+    static @Nonnull <T> T parseJson(JsonNode node, Class<? extends T> clazz) {
         try {
+            return MAPPER.treeToValue(node, clazz);
+        } catch (Throwable ex) {
+            throw toInvalidEntityException(ex);
+        }
+    }
+
+    private static <T> T parseJson(Request request, JavaType type) {
+        try {
+            // Play leaves an empty body, rather than failing the request, when the body is over the parser's limit
+            Http.RequestBody body = request.body();
+            if (body != null && body.isMaxSizeExceeded()) {
+                throw new EntityTooLargeException("The request body is too large");
+            }
+
+            // Controllers using the JsonBodyParser receive the body as raw bytes, which are bound directly to the
+            // target type by Jackson's streaming parser, without first building a JsonNode tree.
+            byte[] bytes = RequestUtils.getBodyBytes(request);
+            if (bytes != null && bytes.length > 0) {
+                return MAPPER.readValue(bytes, type);
+            }
+
             // Calling request.body() twice is safe. (Has been confirmed using "play debug" and stepping through this
             // code in a debugger.)
             // Whether asText() or asJson() works depends on the content-type header of the request
@@ -391,21 +661,27 @@ public abstract class BaseController extends Controller {
             // text/json or application/json.
             String jsonText = request.body().asText();
             if (!Strings.isNullOrEmpty(jsonText)) {
-                return MAPPER.readValue(jsonText, clazz);
+                return MAPPER.readValue(jsonText, type);
             }
 
             JsonNode jsonNode = request.body().asJson();
             if (jsonNode != null) {
-                return MAPPER.convertValue(jsonNode, clazz);
+                return MAPPER.convertValue(jsonNode, type);
             }
+        } catch (EntityTooLargeException ex) {
+            throw ex;
         } catch (Throwable ex) {
-            if (Throwables.getRootCause(ex) instanceof InvalidEntityException) {
-                throw (InvalidEntityException)Throwables.getRootCause(ex);
-            }
-            throw new InvalidEntityException("Error parsing JSON in request body: " + ex.getMessage());    
+            throw toInvalidEntityException(ex);
         }
         throw new InvalidEntityException("Expected JSON in the request body is missing");
     }
+
+    private static InvalidEntityException toInvalidEntityException(Throwable ex) {
+        if (Throwables.getRootCause(ex) instanceof InvalidEntityException) {
+            return (InvalidEntityException)Throwables.getRootCause(ex);
+        }
+        return new InvalidEntityException("Error parsing JSON in request body: " + ex.getMessage());
+    }
     
     /**
      * Retrieves the metrics object from the cache. Can be null if the metrics is not in the cache.
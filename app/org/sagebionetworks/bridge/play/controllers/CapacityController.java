@@ -0,0 +1,126 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.sagebionetworks.bridge.Roles.ADMIN;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
+import org.sagebionetworks.bridge.cache.ViewCacheStats;
+import org.sagebionetworks.bridge.outbound.OutboundMessageQueue;
+import org.sagebionetworks.bridge.play.http.Bulkheads;
+import org.sagebionetworks.bridge.play.http.LoadShedder;
+import org.sagebionetworks.bridge.ratelimit.RequestRateLimiter;
+import org.sagebionetworks.bridge.redis.JedisPoolStats;
+import org.sagebionetworks.bridge.redis.RedisValueCodec;
+import org.sagebionetworks.bridge.redis.TwoLevelLockDao;
+
+import play.mvc.Result;
+import redis.clients.jedis.JedisPool;
+
+/** How close this server is to the limits on the work it accepts, and how well its caches are doing. */
+@Controller
+public class CapacityController extends BaseController {
+
+    private OutboundMessageQueue outboundMessageQueue;
+
+    private RequestRateLimiter requestRateLimiter;
+
+    private LoadShedder loadShedder;
+
+    private Bulkheads bulkheads;
+
+    private BridgeViewCache genericViewCache;
+
+    private BridgeViewCache appLinkViewCache;
+
+    private RedisValueCodec redisValueCodec;
+
+    private JedisPool jedisPool;
+
+    private TwoLevelLockDao lockDao;
+
+    @Autowired
+    final void setOutboundMessageQueue(OutboundMessageQueue outboundMessageQueue) {
+        this.outboundMessageQueue = outboundMessageQueue;
+    }
+
+    @Autowired
+    final void setRequestRateLimiter(RequestRateLimiter requestRateLimiter) {
+        this.requestRateLimiter = requestRateLimiter;
+    }
+
+    @Autowired
+    final void setLoadShedder(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    @Autowired
+    final void setBulkheads(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Resource(name = "genericViewCache")
+    final void setGenericViewCache(BridgeViewCache genericViewCache) {
+        this.genericViewCache = genericViewCache;
+    }
+
+    @Resource(name = "appLinkViewCache")
+    final void setAppLinkViewCache(BridgeViewCache appLinkViewCache) {
+        this.appLinkViewCache = appLinkViewCache;
+    }
+
+    @Autowired
+    final void setRedisValueCodec(RedisValueCodec redisValueCodec) {
+        this.redisValueCodec = redisValueCodec;
+    }
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    @Autowired
+    final void setLockDao(TwoLevelLockDao lockDao) {
+        this.lockDao = lockDao;
+    }
+
+    /**
+     * All of this server's stats in one report:
+     * <ul>
+     *   <li>signIn: sign ins waiting and running, and how many were turned away</li>
+     *   <li>outbound: email and SMS messages waiting to be sent, and how many were sent, retried and failed</li>
+     *   <li>rateLimits: requests allowed and turned away under the rate limits</li>
+     *   <li>loadShedding: how long requests are waiting, and how many low priority requests were turned away</li>
+     *   <li>bulkheads: worker and administrator requests waiting and running on their own threads</li>
+     *   <li>viewCache: local and Redis hit ratios of the view caches, by type of view</li>
+     *   <li>compression: how much compressing large Redis values saves, and what it costs</li>
+     *   <li>redisPool: utilization of the pool of Redis connections, and how long requests wait for one</li>
+     *   <li>locks: lock requests refused locally or by Redis, and wait and hold times</li>
+     * </ul>
+     */
+    public Result getCapacity() {
+        getAuthenticatedSession(ADMIN);
+
+        Map<String, ViewCacheStats> viewCacheStats = new TreeMap<>(genericViewCache.getStats());
+        viewCacheStats.putAll(appLinkViewCache.getStats());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("signIn", signInExecutor.getStats());
+        stats.put("outbound", outboundMessageQueue.getStats());
+        stats.put("rateLimits", requestRateLimiter.getStats());
+        stats.put("loadShedding", loadShedder.getStats());
+        stats.put("bulkheads", bulkheads.getStats());
+        stats.put("viewCache", viewCacheStats);
+        stats.put("compression", redisValueCodec);
+        stats.put("redisPool", new JedisPoolStats(jedisPool, bridgeConfig.getPropertyAsInt("redis.max.total")));
+        stats.put("locks", lockDao.getStats());
+        return okResult(stats);
+    }
+}
@@ -6,15 +6,18 @@ import java.util.List;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.schedules.CompoundActivityDefinition;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.CompoundActivityDefinitionService;
 
 /** Play controller for managing Compound Activity Definitions. */
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class CompoundActivityDefinitionController extends BaseController {
     private CompoundActivityDefinitionService compoundActivityDefService;
@@ -16,6 +16,7 @@ import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.models.subpopulations.ConsentSignature;
 import org.sagebionetworks.bridge.models.subpopulations.Subpopulation;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ConsentService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class ConsentController extends BaseController {
 
@@ -113,8 +115,9 @@ public class ConsentController extends BaseController {
         // We must do a full refresh of the session because consents can set data groups and substudies.
         UserSession updatedSession = authenticationService.getSession(study, context);
         sessionUpdateService.updateSession(session, updatedSession);
+        revokeLocalSession(session);
 
-        return okResult(UserSessionInfo.toJSON(updatedSession));
+        return okSessionResult(updatedSession);
     }
     
     public Result withdrawFromStudy() {
@@ -126,6 +129,7 @@ public class ConsentController extends BaseController {
         consentService.withdrawFromStudy(study, session.getParticipant(), withdrawal, withdrewOn);
         
         authenticationService.signOut(session);
+        revokeLocalSession(session);
         response().discardCookie(BridgeConstants.SESSION_TOKEN_HEADER);
         return okResult("Signed out.");
     }
@@ -146,8 +150,9 @@ public class ConsentController extends BaseController {
                 account -> account.setSharingScope(sharingScope));
 
         sessionUpdateService.updateSharingScope(session, sharingScope);
+        revokeLocalSession(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     private Result giveConsentForVersion(int version, SubpopulationGuid subpopGuid) throws Exception {
@@ -177,6 +182,7 @@ public class ConsentController extends BaseController {
         CriteriaContext updatedContext = getCriteriaContext(session);
         UserSession updatedSession = authenticationService.getSession(study, updatedContext);
         sessionUpdateService.updateSession(session, updatedSession);
+        revokeLocalSession(session);
         
         return createdResult(UserSessionInfo.toJSON(updatedSession));
     }
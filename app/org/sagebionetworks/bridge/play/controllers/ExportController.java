@@ -11,6 +11,7 @@ import play.mvc.Result;
 
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.play.http.LowPriority;
 import org.sagebionetworks.bridge.services.ExportService;
 
 /** Controller that interfaces Bridge Server with Bridge Exporter. */
@@ -25,6 +26,7 @@ public class ExportController extends BaseController {
     }
 
     /** Kicks off an on-demand export for the given study. */
+    @LowPriority
     @BodyParser.Of(BodyParser.Empty.class)
     public Result startOnDemandExport() throws JsonProcessingException {
         UserSession session = getAuthenticatedSession(DEVELOPER);
@@ -12,6 +12,7 @@ import org.sagebionetworks.bridge.models.accounts.ExternalIdentifierInfo;
 import org.sagebionetworks.bridge.models.accounts.GeneratedPassword;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ExternalIdService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -19,6 +20,7 @@ import org.springframework.stereotype.Controller;
 import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller("externalIdControllerV4")
 public class ExternalIdControllerV4 extends BaseController {
 
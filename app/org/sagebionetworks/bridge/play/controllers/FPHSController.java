@@ -12,16 +12,18 @@ import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.FPHSService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Sets;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller("fphsController")
 public class FPHSController extends BaseController {
     
@@ -60,6 +62,7 @@ public class FPHSController extends BaseController {
         CriteriaContext context = getCriteriaContext(session);
         
         sessionUpdateService.updateParticipant(session, context, updated);
+        revokeLocalSession(session);
         
         return okResult("External identifier added to user profile.");
     }
@@ -73,8 +76,7 @@ public class FPHSController extends BaseController {
     public Result addExternalIdentifiers() throws Exception {
         getAuthenticatedSession(ADMIN);
         
-        List<FPHSExternalIdentifier> externalIds = MAPPER.convertValue(parseJson(request(), JsonNode.class),
-                EXTERNAL_ID_TYPE_REF);
+        List<FPHSExternalIdentifier> externalIds = parseJson(request(), EXTERNAL_ID_TYPE_REF);
         fphsService.addExternalIdentifiers(externalIds);
         
         return createdResult("External identifiers added.");
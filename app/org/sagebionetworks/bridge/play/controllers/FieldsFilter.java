@@ -0,0 +1,114 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+/**
+ * <p>
+ * Sparse projection of a response, from a fields query parameter such as
+ * {@code ?fields=identifier,name,minSupportedAppVersions}. Properties not listed are dropped as the object is
+ * written, by wrapping the generator, so they are never written out (or held in a tree to be pruned afterwards).
+ * </p>
+ * <p>
+ * Nested properties can be selected with dots, e.g. {@code fields=guid,elements.identifier}. A nested selection
+ * applies to every element when the property is an array. The "type" property is always kept, at every level, so
+ * clients can still tell what kind of object they received.
+ * </p>
+ */
+class FieldsFilter extends TokenFilter {
+
+    static final String TYPE_PROPERTY = "type";
+
+    // A null value means the property is included in full.
+    private final Map<String, FieldsFilter> properties = new HashMap<>();
+
+    /** Parse the fields parameter, or return null if it is missing or names no fields. */
+    static FieldsFilter parse(String fields) {
+        if (isBlank(fields)) {
+            return null;
+        }
+        FieldsFilter root = new FieldsFilter();
+        for (String field : fields.split(",")) {
+            FieldsFilter filter = root;
+            String[] names = field.trim().split("\\.");
+            for (int i=0; i < names.length && filter != null; i++) {
+                String name = names[i].trim();
+                if (name.isEmpty()) {
+                    break;
+                }
+                boolean last = (i == names.length-1) || names[i+1].trim().isEmpty();
+                filter = filter.add(name, last);
+            }
+        }
+        return root.properties.isEmpty() ? null : root;
+    }
+
+    private FieldsFilter add(String name, boolean last) {
+        if (properties.containsKey(name) && properties.get(name) == null) {
+            // Already included in full; a narrower selection doesn't change that.
+            return null;
+        }
+        if (last) {
+            properties.put(name, null);
+            return null;
+        }
+        return properties.computeIfAbsent(name, key -> new FieldsFilter());
+    }
+
+    /** Wrap the generator so that only the selected properties are written through to it. */
+    JsonGenerator filter(JsonGenerator generator) {
+        return new ProjectingGenerator(generator, this);
+    }
+
+    @Override
+    public TokenFilter includeProperty(String name) {
+        if (TYPE_PROPERTY.equals(name)) {
+            return TokenFilter.INCLUDE_ALL;
+        }
+        if (!properties.containsKey(name)) {
+            return null;
+        }
+        FieldsFilter nested = properties.get(name);
+        return (nested == null) ? TokenFilter.INCLUDE_ALL : nested;
+    }
+
+    /**
+     * Jackson only writes the start of an object once one of its properties is included. That's what we want for
+     * nested objects, but the response itself should be an object (if an empty one) even when nothing matches.
+     */
+    private static class ProjectingGenerator extends FilteringGeneratorDelegate {
+        ProjectingGenerator(JsonGenerator generator, TokenFilter filter) {
+            super(generator, filter, true, true);
+        }
+        @Override
+        public void writeStartObject() throws IOException {
+            if (_filterContext.inRoot()) {
+                delegate.writeStartObject();
+                _filterContext = _filterContext.createChildObjectContext(_itemFilter, true);
+            } else {
+                super.writeStartObject();
+            }
+        }
+        @Override
+        public void writeStartObject(Object forValue) throws IOException {
+            if (_filterContext.inRoot()) {
+                delegate.writeStartObject(forValue);
+                _filterContext = _filterContext.createChildObjectContext(_itemFilter, true);
+            } else {
+                super.writeStartObject(forValue);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FieldsFilter" + properties;
+    }
+}
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 import org.sagebionetworks.bridge.BridgeUtils;
@@ -23,11 +24,14 @@ import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
 import org.sagebionetworks.bridge.models.healthdata.HealthDataSubmission;
 import org.sagebionetworks.bridge.models.healthdata.RecordExportStatusRequest;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
+import org.sagebionetworks.bridge.play.http.LowPriority;
 import org.sagebionetworks.bridge.services.HealthDataService;
 import org.sagebionetworks.bridge.services.ParticipantService;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.upload.UploadValidationException;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class HealthDataController extends BaseController {
     static final TypeReference<DateTimeRangeResourceList<HealthDataRecord>> RECORD_RESOURCE_LIST_TYPE_REF =
@@ -112,6 +116,7 @@ public class HealthDataController extends BaseController {
         return createdResult(HealthDataRecord.PUBLIC_RECORD_WRITER, savedRecord);
     }
 
+    @LowPriority
     public Result updateRecordsStatus() {
         getAuthenticatedSession(WORKER);
 
@@ -2,14 +2,17 @@ package org.sagebionetworks.bridge.play.controllers;
 
 import org.sagebionetworks.bridge.models.accounts.SharingOption;
 import org.sagebionetworks.bridge.models.itp.IntentToParticipate;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.IntentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller("intentController")
 public class IntentController extends BaseController {
 
@@ -21,13 +24,13 @@ public class IntentController extends BaseController {
     }
     
     public Result submitIntentToParticipate() throws Exception {
-        IntentToParticipate intent = parseJson(request(), IntentToParticipate.class);
+        JsonNode requestNode = parseJson(request(), JsonNode.class);
+        IntentToParticipate intent = parseJson(requestNode, IntentToParticipate.class);
         
         // An early hack in the system was that sharing scope was added to the consent signature 
         // JSON even though it is not part of the signature. We need to move that value because 
         // the client API continues to treat sharing as part of the consent signature.
-        JsonNode requestNode = parseJson(request(), JsonNode.class);
-        if (requestNode != null && requestNode.has("consentSignature")) {
+        if (requestNode.has("consentSignature")) {
             SharingOption sharing = SharingOption.fromJson(requestNode.get("consentSignature"), 2);
             intent = new IntentToParticipate.Builder().copyOf(intent)
                     .withScope(sharing.getSharingScope()).build();
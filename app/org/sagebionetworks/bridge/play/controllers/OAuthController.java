@@ -8,14 +8,18 @@ import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.oauth.OAuthAccessToken;
 import org.sagebionetworks.bridge.models.oauth.OAuthAuthorizationToken;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
+import org.sagebionetworks.bridge.play.http.LowPriority;
 import org.sagebionetworks.bridge.services.OAuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller("oauthController")
 public class OAuthController extends BaseController {
     
@@ -41,6 +45,7 @@ public class OAuthController extends BaseController {
         return okResult(accessToken);
     }
     
+    @LowPriority
     public Result getHealthCodesGrantingAccess(String studyIdentifier, String vendorId, String offsetKey, String pageSizeKey) {
         getAuthenticatedSession(Roles.WORKER);
         
@@ -40,7 +40,6 @@ import org.sagebionetworks.bridge.models.accounts.IdentifierHolder;
 import org.sagebionetworks.bridge.models.accounts.IdentifierUpdate;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
-import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
 import org.sagebionetworks.bridge.models.accounts.Withdrawal;
 import org.sagebionetworks.bridge.models.notifications.NotificationMessage;
 import org.sagebionetworks.bridge.models.notifications.NotificationRegistration;
@@ -50,10 +49,13 @@ import org.sagebionetworks.bridge.models.studies.SmsTemplate;
 import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.models.upload.UploadView;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
+import org.sagebionetworks.bridge.play.http.LowPriority;
 import org.sagebionetworks.bridge.services.AuthenticationService.ChannelType;
 import org.sagebionetworks.bridge.services.ParticipantService;
 import org.sagebionetworks.bridge.services.UserAdminService;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class ParticipantController extends BaseController {
     
@@ -72,6 +74,7 @@ public class ParticipantController extends BaseController {
     final void setUserAdminService(UserAdminService userAdminService) {
         this.userAdminService = userAdminService;
     }
+    
 
     /** Researcher API to allow backfill of SMS notification registrations. */
     @BodyParser.Of(BodyParser.Empty.class)
@@ -90,9 +93,7 @@ public class ParticipantController extends BaseController {
         CriteriaContext context = getCriteriaContext(session);
         StudyParticipant participant = participantService.getSelfParticipant(study, context, consents);
         
-        String ser = StudyParticipant.API_NO_HEALTH_CODE_WRITER.writeValueAsString(participant);
-        
-        return ok(ser).as(BridgeConstants.JSON_MIME_TYPE);
+        return okResult(StudyParticipant.API_NO_HEALTH_CODE_WRITER, participant);
     }
     
     public Result updateSelfParticipant() throws Exception {
@@ -124,8 +125,9 @@ public class ParticipantController extends BaseController {
                 .build();
         
         sessionUpdateService.updateParticipant(session, context, updated);
+        revokeLocalSession(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     public Result deleteTestParticipant(String userId) {
@@ -177,8 +179,9 @@ public class ParticipantController extends BaseController {
         
         StudyParticipant participant = participantService.updateIdentifiers(study, context, update);
         sessionUpdateService.updateParticipant(session, context, participant);
+        revokeLocalSession(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     @Deprecated
@@ -202,6 +205,7 @@ public class ParticipantController extends BaseController {
         return okResult(page);
     }
     
+    @LowPriority
     @Deprecated
     public Result getParticipantsForWorker(String studyId, String offsetByString, String pageSizeString,
             String emailFilter, String phoneFilter, String startDateString, String endDateString,
@@ -213,6 +217,7 @@ public class ParticipantController extends BaseController {
                 endDateString, startTimeString, endTimeString);
     }
     
+    @LowPriority
     public Result searchForAccountSummariesForWorker(String studyId) throws Exception {
         getAuthenticatedSession(WORKER);
         Study study = studyService.getStudy(studyId);
@@ -241,9 +246,7 @@ public class ParticipantController extends BaseController {
         ObjectWriter writer = (study.isHealthCodeExportEnabled()) ?
                 StudyParticipant.API_WITH_HEALTH_CODE_WRITER :
                 StudyParticipant.API_NO_HEALTH_CODE_WRITER;
-        String ser = writer.writeValueAsString(participant);
-
-        return ok(ser).as(BridgeConstants.JSON_MIME_TYPE);
+        return okResult(writer, participant);
     }
     
     public Result getParticipantForWorker(String studyId, String userId, boolean consents) throws Exception {
@@ -252,10 +255,7 @@ public class ParticipantController extends BaseController {
 
         StudyParticipant participant = participantService.getParticipant(study, userId, consents);
         
-        ObjectWriter writer = StudyParticipant.API_WITH_HEALTH_CODE_WRITER;
-        String ser = writer.writeValueAsString(participant);
-
-        return ok(ser).as(BridgeConstants.JSON_MIME_TYPE);
+        return okResult(StudyParticipant.API_WITH_HEALTH_CODE_WRITER, participant);
     }
     
     public Result getRequestInfo(String userId) throws Exception {
@@ -292,6 +292,7 @@ public class ParticipantController extends BaseController {
         Study study = studyService.getStudy(session.getStudyIdentifier());
 
         participantService.signUserOut(study, userId, deleteReauthToken);
+        localSessionCache.revokeUserSessions(userId);
 
         return okResult("User signed out.");
     }
@@ -28,10 +28,12 @@ import org.sagebionetworks.bridge.models.reports.ReportType;
 import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ReportService;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 /**
@@ -44,6 +46,7 @@ import play.mvc.Result;
  *   <li>developers/workers can add/delete</li>
  * </ul>
  */
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class ParticipantReportController extends BaseController {
     
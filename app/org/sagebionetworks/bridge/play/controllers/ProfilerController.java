@@ -0,0 +1,41 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.sagebionetworks.bridge.Roles.ADMIN;
+
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.tracing.SlowRequestProfiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+
+import play.mvc.Result;
+
+@Controller
+public class ProfilerController extends BaseController {
+
+    private SlowRequestProfiler profiler;
+
+    @Autowired
+    final void setSlowRequestProfiler(SlowRequestProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Samples of slow requests as collapsed stacks (the input format for flame graph tools), optionally for a single
+     * route, e.g. "ScheduledActivityController.getActivities".
+     */
+    public Result getCollapsedStacks(String route) {
+        getAuthenticatedSession(ADMIN);
+        if (!profiler.isEnabled()) {
+            throw new BadRequestException("Slow request profiler is not enabled.");
+        }
+        
+        return ok(profiler.getCollapsedStacks(route)).as("text/plain");
+    }
+
+    public Result clearCollapsedStacks() {
+        getAuthenticatedSession(ADMIN);
+        
+        profiler.clear();
+        return okResult("Profiler samples cleared.");
+    }
+}
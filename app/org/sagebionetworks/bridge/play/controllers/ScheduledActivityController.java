@@ -24,6 +24,7 @@ import org.sagebionetworks.bridge.models.schedules.ActivityType;
 import org.sagebionetworks.bridge.models.schedules.ScheduleContext;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ScheduledActivityService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -33,8 +34,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class ScheduledActivityController extends BaseController {
     
@@ -134,8 +137,7 @@ public class ScheduledActivityController extends BaseController {
     public Result updateScheduledActivities() throws Exception {
         UserSession session = getAuthenticatedAndConsentedSession();
 
-        List<ScheduledActivity> scheduledActivities = MAPPER.convertValue(
-                parseJson(request(), JsonNode.class), scheduledActivityTypeRef);
+        List<ScheduledActivity> scheduledActivities = parseJson(request(), scheduledActivityTypeRef);
         scheduledActivityService.updateScheduledActivities(session.getHealthCode(), scheduledActivities);
 
         return okResult("Activities updated.");
@@ -219,6 +221,7 @@ public class ScheduledActivityController extends BaseController {
         accountDao.editAccount(session.getStudyIdentifier(), session.getHealthCode(),
                 account -> account.setTimeZone(timeZone));
         sessionUpdateService.updateTimeZone(session, timeZone);
+        revokeLocalSession(session);
         return timeZone;
     }
 }
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Controller;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Maps;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 import org.sagebionetworks.bridge.BridgeConstants;
@@ -22,9 +23,11 @@ import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.sharedmodules.SharedModuleMetadata;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.SharedModuleMetadataService;
 
 /** Play controller for Shared Module Metadata. */
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class SharedModuleMetadataController extends BaseController {
     private SharedModuleMetadataService metadataService;
@@ -38,12 +38,15 @@ import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
 import org.sagebionetworks.bridge.models.studies.SynapseProjectIdTeamIdHolder;
 import org.sagebionetworks.bridge.models.upload.UploadView;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
+import org.sagebionetworks.bridge.play.http.LowPriority;
 import org.sagebionetworks.bridge.services.EmailVerificationService;
 import org.sagebionetworks.bridge.services.EmailVerificationStatus;
 import org.sagebionetworks.bridge.services.StudyEmailType;
 import org.sagebionetworks.bridge.services.UploadCertificateService;
 import org.sagebionetworks.bridge.services.UploadService;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class StudyController extends BaseController {
 
@@ -229,6 +232,7 @@ public class StudyController extends BaseController {
         return okResult(new EmailVerificationStatusHolder(status));
     }
 
+    @LowPriority
     public Result getUploads(String startTimeString, String endTimeString, Integer pageSize, String offsetKey) {
         UserSession session = getAuthenticatedSession(ADMIN);
 
@@ -247,6 +251,7 @@ public class StudyController extends BaseController {
      * @param endTimeString
      * @return
      */
+    @LowPriority
     public Result getUploadsForStudy(String studyIdString, String startTimeString, String endTimeString, Integer pageSize, String offsetKey) throws EntityNotFoundException {
         getAuthenticatedSession(WORKER);
 
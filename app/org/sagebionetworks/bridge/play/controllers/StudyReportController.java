@@ -25,8 +25,10 @@ import org.sagebionetworks.bridge.models.reports.ReportIndex;
 import org.sagebionetworks.bridge.models.reports.ReportType;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ReportService;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 /**
@@ -38,6 +40,7 @@ import play.mvc.Result;
  *   <li>developers/workers can add/delete</li>
  * </ul>
  */
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class StudyReportController extends BaseController {
     
@@ -21,6 +21,7 @@ import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
 import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.SurveyService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +32,7 @@ import play.mvc.Result;
 
 import com.google.common.base.Supplier;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class SurveyController extends BaseController {
 
@@ -40,6 +42,8 @@ public class SurveyController extends BaseController {
     private SurveyService surveyService;
     
     private ViewCache viewCache;
+    
+    private ViewCacheRefresher viewCacheRefresher;
 
     @Autowired
     public void setSurveyService(SurveyService surveyService) {
@@ -49,6 +53,10 @@ public class SurveyController extends BaseController {
     public void setViewCache(ViewCache viewCache) {
         this.viewCache = viewCache;
     }
+    @Autowired
+    public void setViewCacheRefresher(ViewCacheRefresher viewCacheRefresher) {
+        this.viewCacheRefresher = viewCacheRefresher;
+    }
     
     public Result getAllSurveysMostRecentVersion(String includeDeletedString) throws Exception {
         UserSession session = getAuthenticatedSession(DEVELOPER, RESEARCHER);
@@ -240,7 +248,7 @@ public class SurveyController extends BaseController {
         GuidCreatedOnVersionHolder keys = new GuidCreatedOnVersionHolderImpl(surveyGuid, createdOn);
         
         Survey survey = surveyService.publishSurvey(studyId, keys, Boolean.parseBoolean(newSchemaRev));
-        expireCache(surveyGuid, createdOnString, studyId);
+        viewCacheRefresher.refreshSurvey(studyId, surveyGuid, createdOnString);
         
         return okResult(new GuidCreatedOnVersionHolderImpl(survey));
     }
@@ -256,7 +264,7 @@ public class SurveyController extends BaseController {
             return surveyService.getSurvey(session.getStudyIdentifier(), keys, true, true);
         });
 
-        return ok(json).as(JSON_MIME_TYPE);
+        return okJsonResult(json);
     }
     
     private Result getCachedSurveyMostRecentlyPublishedInternal(String surveyGuid, UserSession session) {
@@ -9,6 +9,7 @@ import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 import org.sagebionetworks.bridge.json.JsonUtils;
@@ -20,8 +21,10 @@ import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
 import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.UserAdminService;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class UserManagementController extends BaseController {
 
@@ -48,18 +51,20 @@ public class UserManagementController extends BaseController {
         CriteriaContext context = getCriteriaContext(study.getStudyIdentifier());
 
         // We do not check consent, but do verify this is an administrator
-        UserSession session = authenticationService.signIn(study, context, signIn);
+        UserSession session = verifyCredentials(() -> authenticationService.signIn(study, context, signIn));
 
         if (!session.isInRole(Roles.ADMIN)) {
             authenticationService.signOut(session);
+            revokeLocalSession(session);
             throw new UnauthorizedException("Not an admin account");
         }
         
         // Now act as if the user is in the study that was requested
         sessionUpdateService.updateStudy(session, originStudy);
+        revokeLocalSession(session);
         setCookieAndRecordMetrics(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     public Result changeStudyForAdmin() throws Exception {
@@ -72,8 +77,9 @@ public class UserManagementController extends BaseController {
         // Verify it's correct
         Study study = studyService.getStudy(studyId);
         sessionUpdateService.updateStudy(session, study.getStudyIdentifier());
+        revokeLocalSession(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     public Result createUser() throws Exception {
@@ -81,7 +87,7 @@ public class UserManagementController extends BaseController {
         Study study = studyService.getStudy(session.getStudyIdentifier());
 
         JsonNode node = parseJson(request(), JsonNode.class);
-        StudyParticipant participant = parseJson(request(), StudyParticipant.class);
+        StudyParticipant participant = parseJson(node, StudyParticipant.class);
 
         boolean consent = JsonUtils.asBoolean(node, CONSENT_FIELD);
         
@@ -102,7 +108,7 @@ public class UserManagementController extends BaseController {
         Study study = studyService.getStudy(studyId);
 
         JsonNode node = parseJson(request(), JsonNode.class);
-        StudyParticipant participant = parseJson(request(), StudyParticipant.class);
+        StudyParticipant participant = parseJson(node, StudyParticipant.class);
 
         boolean consent = JsonUtils.asBoolean(node, CONSENT_FIELD);
 
@@ -16,8 +16,8 @@ import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.ExternalIdentifier;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
-import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.play.http.JsonBodyParser;
 import org.sagebionetworks.bridge.services.ParticipantService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,8 +31,10 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
+@BodyParser.Of(JsonBodyParser.class)
 @Controller
 public class UserProfileController extends BaseController {
     
@@ -112,11 +114,12 @@ public class UserProfileController extends BaseController {
         CriteriaContext context = getCriteriaContext(session);
         
         sessionUpdateService.updateParticipant(session, context, updated);
+        revokeLocalSession(session);
         
         CacheKey cacheKey = viewCache.getCacheKey(ObjectNode.class, userId, study.getIdentifier());
         viewCache.removeView(cacheKey);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     @Deprecated
@@ -131,8 +134,9 @@ public class UserProfileController extends BaseController {
         
         participantService.assignExternalId(accountId, externalId);
         sessionUpdateService.updateExternalId(session, externalId);
+        revokeLocalSession(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
     @Deprecated
@@ -183,8 +187,9 @@ public class UserProfileController extends BaseController {
                 .build();
         
         sessionUpdateService.updateDataGroups(session, context);
+        revokeLocalSession(session);
         
-        return okResult(UserSessionInfo.toJSON(session));
+        return okSessionResult(session);
     }
     
 }
@@ -0,0 +1,244 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.sagebionetworks.bridge.play.controllers.SurveyController.MOSTRECENT_KEY;
+import static org.sagebionetworks.bridge.play.controllers.SurveyController.PUBLISHED_KEY;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
+import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.services.AppConfigService;
+import org.sagebionetworks.bridge.services.SurveyService;
+import org.sagebionetworks.bridge.time.DateUtils;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+/**
+ * <p>
+ * Rebuilds the cached views that a change makes stale, rather than removing them. Removing a published survey or an
+ * app config from the cache sends the next request from every client to DynamoDB; refreshing it replaces the old
+ * view with the new one in a single write, so clients get the old view until the new one is ready, and never miss.
+ * </p>
+ * <p>
+ * Refreshes run on the async executor after the change has been saved. If a survey view can't be rebuilt (the
+ * survey was deleted, say), it is removed so that the next request builds or fails in the usual way.
+ * </p>
+ * <p>
+ * App config views depend on the client asking for them, so every server records the contexts it serves in a set
+ * in Redis for each study, and whichever server handles a change rebuilds the views for all of them.
+ * </p>
+ */
+@Component
+public class ViewCacheRefresher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ViewCacheRefresher.class);
+
+    static final int MAX_APP_CONFIG_CONTEXTS = 10000;
+    static final String APP_CONFIG_CONTEXTS_KEY_PREFIX = "appconfig-contexts:";
+    /** Contexts no server has recorded for this long are dropped, along with the set if none are left. */
+    static final int APP_CONFIG_CONTEXTS_EXPIRE_SECONDS = (int)TimeUnit.DAYS.toSeconds(1);
+    private static final String APP_VERSION_FIELD = "appVersion";
+    private static final String OS_NAME_FIELD = "osName";
+    private static final String LANGUAGES_FIELD = "languages";
+
+    /** The contexts this server has already added to Redis, so each is only written once a day. */
+    private final Cache<String, Boolean> recordedContexts = CacheBuilder.newBuilder()
+            .maximumSize(MAX_APP_CONFIG_CONTEXTS).expireAfterWrite(1, TimeUnit.DAYS).build();
+
+    private BridgeViewCache viewCache;
+    private SurveyService surveyService;
+    private AppConfigService appConfigService;
+    private ExecutorService executor;
+    private JedisPool jedisPool;
+
+    @Resource(name = "genericViewCache")
+    final void setViewCache(BridgeViewCache viewCache) {
+        this.viewCache = viewCache;
+    }
+
+    @Autowired
+    final void setSurveyService(SurveyService surveyService) {
+        this.surveyService = surveyService;
+    }
+
+    @Autowired
+    final void setAppConfigService(AppConfigService appConfigService) {
+        this.appConfigService = appConfigService;
+    }
+
+    @Resource(name = "asyncExecutorService")
+    final void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * Refresh every cached view of a survey that a publish can change: the revision itself, and the most recent and
+     * most recently published revisions.
+     */
+    public void refreshSurvey(StudyIdentifier studyId, String surveyGuid, String createdOnString) {
+        long createdOn = DateUtils.convertToMillisFromEpoch(createdOnString);
+        GuidCreatedOnVersionHolder keys = new GuidCreatedOnVersionHolderImpl(surveyGuid, createdOn);
+        String studyIdString = studyId.getIdentifier();
+
+        refresh(viewCache.getCacheKey(Survey.class, surveyGuid, createdOnString, studyIdString),
+                () -> surveyService.getSurvey(studyId, keys, true, true));
+        refresh(viewCache.getCacheKey(Survey.class, surveyGuid, PUBLISHED_KEY, studyIdString),
+                () -> surveyService.getSurveyMostRecentlyPublishedVersion(studyId, surveyGuid, true));
+        refresh(viewCache.getCacheKey(Survey.class, surveyGuid, MOSTRECENT_KEY, studyIdString),
+                () -> surveyService.getSurveyMostRecentVersion(studyId, surveyGuid));
+    }
+
+    /**
+     * Record the context of an app config request in Redis, so its view can be rebuilt by any server when the
+     * study's app configs change. Each server writes a context at most once a day; a study keeps at most
+     * MAX_APP_CONFIG_CONTEXTS of them.
+     */
+    public void recordAppConfigContext(CriteriaContext context) {
+        String member = toMember(context);
+        String redisKey = getAppConfigContextsKey(context.getStudyIdentifier());
+        String recordedKey = redisKey + ":" + member;
+        if (recordedContexts.getIfPresent(recordedKey) != null) {
+            return;
+        }
+        recordedContexts.put(recordedKey, Boolean.TRUE);
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (jedis.scard(redisKey) < MAX_APP_CONFIG_CONTEXTS) {
+                Pipeline pipeline = jedis.pipelined();
+                pipeline.sadd(redisKey, member);
+                pipeline.expire(redisKey, APP_CONFIG_CONTEXTS_EXPIRE_SECONDS);
+                pipeline.sync();
+            }
+        } catch (RuntimeException e) {
+            // Try again on the next request with this context
+            recordedContexts.invalidate(recordedKey);
+            LOG.warn("Could not record app config context in Redis: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Switch the app config views of a study to a new version of its namespace, and build the views at that version
+     * for every context recorded in Redis. The views are built at the version the increment returns, so a change
+     * made while they are being built increments the version again rather than being lost. Requests that arrive
+     * before a view is built, and views that can't be built, are filled in on request in the usual way.
+     */
+    public void refreshAppConfigs(StudyIdentifier studyId) {
+        CacheKey namespaceKey = AppConfigController.getNamespaceKey(viewCache, studyId);
+        execute(() -> {
+            long version = viewCache.removeNamespace(namespaceKey);
+            for (CriteriaContext context : readAppConfigContexts(studyId)) {
+                CacheKey key = AppConfigController.getCriteriaContextCacheKey(viewCache, context, version);
+                try {
+                    viewCache.refreshView(key, () -> appConfigService.getAppConfigForUser(context, true));
+                } catch (RuntimeException e) {
+                    LOG.info("Could not build view " + key + ": " + e.getMessage());
+                }
+            }
+        }, () -> viewCache.removeNamespace(namespaceKey));
+    }
+
+    List<CriteriaContext> readAppConfigContexts(StudyIdentifier studyId) {
+        Set<String> members;
+        try (Jedis jedis = jedisPool.getResource()) {
+            members = jedis.smembers(getAppConfigContextsKey(studyId));
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read app config contexts from Redis: " + e.getMessage());
+            return ImmutableList.of();
+        }
+        return members.stream().map(member -> fromMember(studyId, member)).filter(context -> context != null)
+                .collect(Collectors.toList());
+    }
+
+    static String getAppConfigContextsKey(StudyIdentifier studyId) {
+        return APP_CONFIG_CONTEXTS_KEY_PREFIX + studyId.getIdentifier();
+    }
+
+    /** Only the parts of the context that select an app config (and make up its view key) are recorded. */
+    static String toMember(CriteriaContext context) {
+        ClientInfo info = context.getClientInfo();
+        ObjectNode node = BridgeObjectMapper.get().createObjectNode();
+        if (info.getAppVersion() != null) {
+            node.put(APP_VERSION_FIELD, info.getAppVersion());
+        }
+        if (info.getOsName() != null) {
+            node.put(OS_NAME_FIELD, info.getOsName());
+        }
+        ArrayNode languages = node.putArray(LANGUAGES_FIELD);
+        context.getLanguages().forEach(languages::add);
+        return node.toString();
+    }
+
+    static CriteriaContext fromMember(StudyIdentifier studyId, String member) {
+        try {
+            JsonNode node = BridgeObjectMapper.get().readTree(member);
+            ClientInfo.Builder clientInfo = new ClientInfo.Builder();
+            if (node.hasNonNull(APP_VERSION_FIELD)) {
+                clientInfo.withAppVersion(node.get(APP_VERSION_FIELD).intValue());
+            }
+            if (node.hasNonNull(OS_NAME_FIELD)) {
+                clientInfo.withOsName(node.get(OS_NAME_FIELD).textValue());
+            }
+            ImmutableList.Builder<String> languages = ImmutableList.builder();
+            node.path(LANGUAGES_FIELD).forEach(language -> languages.add(language.textValue()));
+            return new CriteriaContext.Builder().withClientInfo(clientInfo.build())
+                    .withLanguages(languages.build())
+                    .withStudyIdentifier(studyId).build();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Skipping app config context that can't be read: " + member);
+            return null;
+        }
+    }
+
+    private <T> void refresh(CacheKey key, Supplier<T> supplier) {
+        execute(() -> {
+            try {
+                viewCache.refreshView(key, supplier);
+            } catch (RuntimeException e) {
+                LOG.info("Could not refresh view " + key + ", removing it: " + e.getMessage());
+                viewCache.removeView(key);
+            }
+        }, () -> viewCache.removeView(key));
+    }
+
+    private void execute(Runnable task, Runnable ifRejected) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            ifRejected.run();
+        }
+    }
+}
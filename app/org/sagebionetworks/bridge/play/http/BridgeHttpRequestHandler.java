@@ -2,17 +2,45 @@ package org.sagebionetworks.bridge.play.http;
 
 import static play.mvc.Http.HeaderNames.X_FORWARDED_PROTO;
 import static play.mvc.Http.Status.MOVED_PERMANENTLY;
+import static play.mvc.Http.Status.SERVICE_UNAVAILABLE;
 
 import java.lang.reflect.Method;
 
+import javax.inject.Inject;
+
+import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+import org.sagebionetworks.bridge.play.interceptors.RequestUtils;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import akka.actor.ActorSystem;
 import play.http.DefaultHttpRequestHandler;
 import play.libs.F.Promise;
+import play.libs.F.RedeemablePromise;
 import play.mvc.Action;
 import play.mvc.Http;
 import play.mvc.Http.Context;
 import play.mvc.Result;
+import play.mvc.Results;
 
 public class BridgeHttpRequestHandler extends DefaultHttpRequestHandler {
+    
+    private final LoadShedder loadShedder;
+    
+    private final Bulkheads bulkheads;
+    
+    /**
+     * Requests are handled on the actor system's default dispatcher, which is where the load shedder measures how
+     * long requests wait.
+     */
+    @Inject
+    public BridgeHttpRequestHandler(ActorSystem actorSystem, LoadShedder loadShedder, Bulkheads bulkheads) {
+        this.loadShedder = loadShedder;
+        this.bulkheads = bulkheads;
+        loadShedder.start(actorSystem.dispatcher());
+    }
 
     @SuppressWarnings("rawtypes")
     @Override
@@ -29,6 +57,56 @@ public class BridgeHttpRequestHandler extends DefaultHttpRequestHandler {
                 };
             }
         }
+        if (!loadShedder.admit(actionMethod)) {
+            return new Action.Simple() {
+                @Override
+                public Promise<Result> call(Context context) throws Throwable {
+                    return Promise.<Result>pure(getBusyResult(context, LoadShedder.MESSAGE,
+                            loadShedder.getRetryAfterSeconds()));
+                }
+            };
+        }
+        final Bulkheads.Bulkhead bulkhead = bulkheads.select(RequestUtils.getSessionToken(request));
+        if (bulkhead != null) {
+            return new Action.Simple() {
+                @Override
+                public Promise<Result> call(Context context) throws Throwable {
+                    return callInBulkhead(bulkhead, delegate, context);
+                }
+            };
+        }
         return super.createAction(request, actionMethod);
     }
+    
+    /**
+     * Hand the rest of the request to the bulkhead's threads, freeing this dispatcher thread. The request's context is
+     * set on the bulkhead thread while the request runs there.
+     */
+    private Promise<Result> callInBulkhead(Bulkheads.Bulkhead bulkhead, Action<?> delegate, Context context) {
+        RedeemablePromise<Result> promise = RedeemablePromise.empty();
+        boolean accepted = bulkhead.execute(() -> {
+            Http.Context.current.set(context);
+            try {
+                promise.completeWith(delegate.call(context));
+            } catch (Throwable throwable) {
+                promise.failure(throwable);
+            } finally {
+                Http.Context.current.remove();
+            }
+        });
+        if (!accepted) {
+            return Promise.<Result>pure(getBusyResult(context, Bulkheads.MESSAGE, Bulkheads.RETRY_AFTER_SECONDS));
+        }
+        return promise;
+    }
+    
+    private Result getBusyResult(Context context, String message, int retryAfterSeconds) {
+        context.response().setHeader(Http.HeaderNames.RETRY_AFTER, Integer.toString(retryAfterSeconds));
+        
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put("statusCode", SERVICE_UNAVAILABLE);
+        node.put("message", message);
+        node.put("type", ServiceUnavailableException.class.getSimpleName());
+        return Results.status(SERVICE_UNAVAILABLE, node).as(BridgeConstants.JSON_MIME_TYPE);
+    }
 }
@@ -0,0 +1,54 @@
+package org.sagebionetworks.bridge.play.http;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.hibernate.c3p0.internal.C3P0ConnectionProvider;
+
+import org.sagebionetworks.bridge.play.http.Bulkheads.Bulkhead;
+import org.sagebionetworks.bridge.play.http.Bulkheads.ConnectionBudget;
+
+/**
+ * The c3p0 connection pool, with each connection taken from a bulkhead's thread held to the bulkhead's budget of
+ * database connections (see Bulkheads). Set it as hibernate.connection.provider_class; the hibernate.c3p0 settings
+ * apply as before.
+ */
+@SuppressWarnings("serial")
+public class BulkheadConnectionProvider extends C3P0ConnectionProvider {
+
+    private final Map<Connection, ConnectionBudget> checkedOut = Collections
+            .synchronizedMap(new IdentityHashMap<>());
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkhead bulkhead = Bulkhead.current();
+        if (bulkhead == null) {
+            return super.getConnection();
+        }
+        ConnectionBudget budget = bulkhead.getDatabaseConnections();
+        budget.acquire();
+        try {
+            Connection connection = super.getConnection();
+            checkedOut.put(connection, budget);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            budget.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        ConnectionBudget budget = checkedOut.remove(connection);
+        try {
+            super.closeConnection(connection);
+        } finally {
+            if (budget != null) {
+                budget.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.sagebionetworks.bridge.play.http;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+
+import org.sagebionetworks.bridge.play.http.Bulkheads.Bulkhead;
+import org.sagebionetworks.bridge.play.http.Bulkheads.ConnectionBudget;
+
+/**
+ * AWS SDK request handler that holds each call made from a bulkhead's thread to the bulkhead's budget of DynamoDB
+ * connections (see Bulkheads). Calls from other threads go through as before. Register it on the DynamoDB client
+ * ahead of other handlers, so they don't see calls that are turned away.
+ */
+public class BulkheadRequestHandler extends RequestHandler2 {
+
+    private final Map<Request<?>, ConnectionBudget> inflight = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        Bulkhead bulkhead = Bulkhead.current();
+        if (bulkhead != null) {
+            ConnectionBudget budget = bulkhead.getDynamoDbConnections();
+            budget.acquire();
+            inflight.put(request, budget);
+        }
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        release(request);
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        release(request);
+    }
+
+    private void release(Request<?> request) {
+        ConnectionBudget budget = inflight.remove(request);
+        if (budget != null) {
+            budget.release();
+        }
+    }
+}
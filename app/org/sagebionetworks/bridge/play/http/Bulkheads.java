@@ -0,0 +1,278 @@
+package org.sagebionetworks.bridge.play.http;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.services.AuthenticationService;
+
+/**
+ * <p>
+ * Requests from workers (the Bridge Exporter and other back-end jobs) and from administrators (backfills, creating
+ * studies and users) run on thread pools of their own, so that a burst of them can't take the dispatcher threads
+ * that participants' requests need. Requests from everyone else, and requests without a session, run on the
+ * dispatcher as before. A worker or administrator request that can't be queued on its pool fails with a 503 and a
+ * Retry-After header.
+ * </p>
+ * <p>
+ * Each bulkhead also has a budget of DynamoDB and database connections, so its requests can't take all the
+ * connections that participants' requests share with them. A call made from a bulkhead's thread waits for a
+ * connection from the budget (see BulkheadRequestHandler for DynamoDB and BulkheadConnectionProvider for the
+ * database), and fails with a 503 if none comes free in CONNECTION_WAIT_SECONDS. Calls from any other thread aren't
+ * budgeted.
+ * </p>
+ * <p>
+ * Configuration: bulkhead.enabled (false runs every request on the dispatcher; true by default),
+ * bulkhead.worker.threads (8), bulkhead.admin.threads (4), bulkhead.queue.size (requests waiting on each pool,
+ * 100), bulkhead.worker.dynamodb.connections (4), bulkhead.worker.database.connections (4),
+ * bulkhead.admin.dynamodb.connections (2) and bulkhead.admin.database.connections (2).
+ * </p>
+ */
+@Component
+public class Bulkheads {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Bulkheads.class);
+
+    static final String ENABLED_PROPERTY = "bulkhead.enabled";
+    static final String WORKER_THREADS_PROPERTY = "bulkhead.worker.threads";
+    static final String ADMIN_THREADS_PROPERTY = "bulkhead.admin.threads";
+    static final String QUEUE_SIZE_PROPERTY = "bulkhead.queue.size";
+    static final int DEFAULT_WORKER_THREADS = 8;
+    static final int DEFAULT_ADMIN_THREADS = 4;
+    static final int DEFAULT_QUEUE_SIZE = 100;
+    static final String WORKER_DYNAMODB_CONNECTIONS_PROPERTY = "bulkhead.worker.dynamodb.connections";
+    static final String WORKER_DATABASE_CONNECTIONS_PROPERTY = "bulkhead.worker.database.connections";
+    static final String ADMIN_DYNAMODB_CONNECTIONS_PROPERTY = "bulkhead.admin.dynamodb.connections";
+    static final String ADMIN_DATABASE_CONNECTIONS_PROPERTY = "bulkhead.admin.database.connections";
+    static final int DEFAULT_WORKER_CONNECTIONS = 4;
+    static final int DEFAULT_ADMIN_CONNECTIONS = 2;
+    static final int CONNECTION_WAIT_SECONDS = 10;
+    static final int RETRY_AFTER_SECONDS = 2;
+    static final String MESSAGE = "Too many requests of this kind are in progress. Please try again later.";
+
+    private LocalSessionCache localSessionCache;
+    private AuthenticationService authenticationService;
+    private Bulkhead worker;
+    private Bulkhead admin;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        if ("false".equalsIgnoreCase(bridgeConfig.get(ENABLED_PROPERTY))) {
+            return;
+        }
+        int queueSize = getInt(bridgeConfig, QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE);
+        worker = new Bulkhead("worker", getInt(bridgeConfig, WORKER_THREADS_PROPERTY, DEFAULT_WORKER_THREADS),
+                queueSize,
+                getInt(bridgeConfig, WORKER_DYNAMODB_CONNECTIONS_PROPERTY, DEFAULT_WORKER_CONNECTIONS),
+                getInt(bridgeConfig, WORKER_DATABASE_CONNECTIONS_PROPERTY, DEFAULT_WORKER_CONNECTIONS));
+        admin = new Bulkhead("admin", getInt(bridgeConfig, ADMIN_THREADS_PROPERTY, DEFAULT_ADMIN_THREADS),
+                queueSize,
+                getInt(bridgeConfig, ADMIN_DYNAMODB_CONNECTIONS_PROPERTY, DEFAULT_ADMIN_CONNECTIONS),
+                getInt(bridgeConfig, ADMIN_DATABASE_CONNECTIONS_PROPERTY, DEFAULT_ADMIN_CONNECTIONS));
+    }
+
+    @Autowired
+    final void setLocalSessionCache(LocalSessionCache localSessionCache) {
+        this.localSessionCache = localSessionCache;
+    }
+
+    @Autowired
+    final void setAuthenticationService(AuthenticationService authenticationService) {
+        this.authenticationService = authenticationService;
+    }
+
+    /**
+     * The bulkhead that requests with this session token run in, or null if they run on the dispatcher. Workers'
+     * requests run in the worker bulkhead, and other administrators' requests in the admin bulkhead. If the session
+     * can't be loaded (Redis is down, say), the request runs on the dispatcher, where it fails in the usual way.
+     */
+    public Bulkhead select(String sessionToken) {
+        if (worker == null || StringUtils.isBlank(sessionToken)) {
+            return null;
+        }
+        UserSession session;
+        try {
+            session = localSessionCache.getSession(sessionToken, authenticationService::getSession);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not load session to select a bulkhead: " + e.getMessage());
+            return null;
+        }
+        if (session == null || session.getParticipant() == null) {
+            return null;
+        }
+        Set<Roles> roles = session.getParticipant().getRoles();
+        if (roles.contains(Roles.WORKER)) {
+            return worker;
+        } else if (roles.contains(Roles.ADMIN)) {
+            return admin;
+        }
+        return null;
+    }
+
+    /** Stats for each bulkhead, by name. */
+    public Map<String, Bulkhead.Stats> getStats() {
+        Map<String, Bulkhead.Stats> stats = new TreeMap<>();
+        if (worker != null) {
+            stats.put(worker.getName(), worker.getStats());
+            stats.put(admin.getName(), admin.getStats());
+        }
+        return stats;
+    }
+
+    private static int getInt(BridgeConfig bridgeConfig, String property, int defaultValue) {
+        String value = bridgeConfig.get(property);
+        return (value == null) ? defaultValue : Integer.parseInt(value);
+    }
+
+    /** A fixed pool of threads with a bounded queue, and budgets of connections, for one kind of caller. */
+    public static class Bulkhead {
+        private static final ThreadLocal<Bulkhead> CURRENT = new ThreadLocal<>();
+
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final ConnectionBudget dynamoDbConnections;
+        private final ConnectionBudget databaseConnections;
+        private final LongAdder rejected = new LongAdder();
+
+        Bulkhead(String name, int threads, int queueSize, int dynamoDbConnections, int databaseConnections) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat(StringUtils.capitalize(name) + "Bulkhead-%d").build());
+            this.dynamoDbConnections = new ConnectionBudget(dynamoDbConnections);
+            this.databaseConnections = new ConnectionBudget(databaseConnections);
+        }
+
+        /** The bulkhead whose thread this is, or null for the dispatcher and every other thread. */
+        static Bulkhead current() {
+            return CURRENT.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        ConnectionBudget getDynamoDbConnections() {
+            return dynamoDbConnections;
+        }
+
+        ConnectionBudget getDatabaseConnections() {
+            return databaseConnections;
+        }
+
+        /** Run the task on this bulkhead's threads. Returns false if the queue is full and the task won't run. */
+        public boolean execute(Runnable task) {
+            try {
+                executor.execute(() -> {
+                    CURRENT.set(this);
+                    try {
+                        task.run();
+                    } finally {
+                        CURRENT.remove();
+                    }
+                });
+                return true;
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                return false;
+            }
+        }
+
+        public Stats getStats() {
+            return new Stats();
+        }
+
+        /** Requests waiting and running in this bulkhead, and how many were turned away. */
+        public class Stats {
+            public int getThreads() {
+                return executor.getMaximumPoolSize();
+            }
+
+            public int getActive() {
+                return executor.getActiveCount();
+            }
+
+            public int getQueueDepth() {
+                return executor.getQueue().size();
+            }
+
+            public long getCompleted() {
+                return executor.getCompletedTaskCount();
+            }
+
+            public long getRejected() {
+                return rejected.sum();
+            }
+
+            public int getDynamoDbConnectionsInUse() {
+                return dynamoDbConnections.getInUse();
+            }
+
+            public int getDatabaseConnectionsInUse() {
+                return databaseConnections.getInUse();
+            }
+
+            public long getConnectionTimeouts() {
+                return dynamoDbConnections.getTimeouts() + databaseConnections.getTimeouts();
+            }
+        }
+    }
+
+    /** The connections of one kind (DynamoDB or database) that a bulkhead's requests can hold at once. */
+    static class ConnectionBudget {
+        private final int size;
+        private final Semaphore permits;
+        private final LongAdder timeouts = new LongAdder();
+
+        ConnectionBudget(int size) {
+            this.size = size;
+            this.permits = new Semaphore(size, true);
+        }
+
+        /** Take a connection from the budget, waiting up to CONNECTION_WAIT_SECONDS. Release it when done. */
+        void acquire() {
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(CONNECTION_WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                timeouts.increment();
+                throw new ServiceUnavailableException(MESSAGE, RETRY_AFTER_SECONDS);
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        int getInUse() {
+            return size - permits.availablePermits();
+        }
+
+        long getTimeouts() {
+            return timeouts.sum();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.sagebionetworks.bridge.play.http;
+
+import play.api.libs.iteratee.Iteratee;
+import play.api.mvc.RequestHeader;
+import play.api.mvc.Result;
+import play.core.j.JavaParsers;
+import play.filters.gzip.Gzip$;
+import play.mvc.BodyParser;
+import play.mvc.Http;
+import scala.Option;
+import scala.runtime.AbstractFunction1;
+import scala.util.Either;
+
+/**
+ * <p>
+ * Body parser for controllers that accept JSON. Play's default parser builds a JsonNode tree for JSON content, which
+ * BaseController.parseJson() then walks again to bind the model object. This parser keeps the body as raw bytes
+ * instead, so parseJson() can bind them in a single pass with Jackson's streaming parser. Controllers that need both
+ * views of the body can get the bytes from RequestUtils.getBodyBytes().
+ * </p>
+ * <p>
+ * Bodies sent with "Content-Encoding: gzip" are decompressed as they stream in, ahead of the raw parser, and large
+ * bodies are buffered to disk by Play as usual rather than held in memory. Gzipped and plain bodies have the same size
+ * limit, which applies to the decompressed body: Play's parsers.text.maxLength, unless the annotation specifies a
+ * maxLength. A gzipped body can't carry more JSON than a plain one. Play marks a body over the limit rather than
+ * failing the request, and parseJson() rejects it with a 413.
+ * </p>
+ * <p>
+ * Apply it with {@code @BodyParser.Of(JsonBodyParser.class)} on the controller. Methods that take no body keep their
+ * own {@code @BodyParser.Of(BodyParser.Empty.class)}, which takes precedence. Controllers that accept form posts must
+ * not use it, as the body is not decoded.
+ * </p>
+ */
+public class JsonBodyParser implements BodyParser {
+
+    static final int GUNZIP_BUFFER_BYTES = 8 * 1024;
+
+    @Override
+    public play.api.mvc.BodyParser<Http.RequestBody> parser(int maxLength) {
+        final play.api.mvc.BodyParser<Http.RequestBody> raw = JavaParsers.raw(maxLength);
+
+        return play.api.mvc.BodyParser$.MODULE$.apply("json-bytes",
+                new AbstractFunction1<RequestHeader, Iteratee<byte[], Either<Result, Http.RequestBody>>>() {
+                    @Override
+                    public Iteratee<byte[], Either<Result, Http.RequestBody>> apply(RequestHeader request) {
+                        if (isGzipped(request.headers().get(Http.HeaderNames.CONTENT_ENCODING))) {
+                            return Gzip$.MODULE$.gunzip(GUNZIP_BUFFER_BYTES).transform(raw.apply(request));
+                        }
+                        return raw.apply(request);
+                    }
+                });
+    }
+
+    static boolean isGzipped(Option<String> contentEncoding) {
+        return contentEncoding.isDefined() && "gzip".equalsIgnoreCase(contentEncoding.get().trim());
+    }
+}
@@ -0,0 +1,210 @@
+package org.sagebionetworks.bridge.play.http;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+/**
+ * <p>
+ * Turns away low priority requests (see {@link LowPriority}) while requests are queueing on this server, so the
+ * requests participants make keep being handled promptly. When a downstream service like DynamoDB slows down or
+ * throttles, requests take longer, the threads that handle them are all busy, and new requests wait on the dispatcher
+ * for a thread. That wait is what this measures: every few milliseconds it hands a no-op task to the dispatcher and
+ * times how long the task waits to run.
+ * </p>
+ * <p>
+ * Shedding follows CoDel (controlled delay). A short burst that queues requests for a moment is fine, so shedding
+ * starts only when the wait has stayed above the target (admission.target.millis, 100 by default) for a full interval
+ * (admission.interval.millis, 1000), and stops as soon as a wait is measured under the target. Low priority requests
+ * that arrive while shedding fail right away with a 503 and a Retry-After header, rather than adding to the queue.
+ * </p>
+ * <p>
+ * Other configuration: admission.enabled (false turns shedding off; true by default) and admission.probe.millis (how
+ * often the wait is measured, 10).
+ * </p>
+ */
+@Component
+public class LoadShedder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadShedder.class);
+
+    static final String ENABLED_PROPERTY = "admission.enabled";
+    static final String TARGET_MILLIS_PROPERTY = "admission.target.millis";
+    static final String INTERVAL_MILLIS_PROPERTY = "admission.interval.millis";
+    static final String PROBE_MILLIS_PROPERTY = "admission.probe.millis";
+    static final long DEFAULT_TARGET_MILLIS = 100L;
+    static final long DEFAULT_INTERVAL_MILLIS = 1000L;
+    static final long DEFAULT_PROBE_MILLIS = 10L;
+    static final String MESSAGE = "The server is too busy to handle this request. Please try again later.";
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAccumulator maxDelayNanos = new LongAccumulator(Long::max, 0L);
+    private Ticker ticker = Ticker.systemTicker();
+    private boolean enabled = true;
+    private long targetMillis = DEFAULT_TARGET_MILLIS;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private long probeMillis = DEFAULT_PROBE_MILLIS;
+    private ScheduledThreadPoolExecutor prober;
+    private Executor dispatcher;
+    private volatile long probeSubmittedOn = NONE;
+    private volatile long lastDelayNanos;
+    private volatile boolean shedding;
+    // When the delay has been above the target for a full interval; NONE while it's under the target
+    private long aboveTargetUntil = NONE;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        enabled = !"false".equalsIgnoreCase(bridgeConfig.get(ENABLED_PROPERTY));
+        targetMillis = getLong(bridgeConfig, TARGET_MILLIS_PROPERTY, DEFAULT_TARGET_MILLIS);
+        intervalMillis = getLong(bridgeConfig, INTERVAL_MILLIS_PROPERTY, DEFAULT_INTERVAL_MILLIS);
+        probeMillis = getLong(bridgeConfig, PROBE_MILLIS_PROPERTY, DEFAULT_PROBE_MILLIS);
+    }
+
+    /** For tests. */
+    final void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start measuring how long tasks wait on the dispatcher that handles requests. Called once the server has
+     * created the dispatcher; later calls are ignored.
+     */
+    public synchronized void start(Executor dispatcher) {
+        if (!enabled || prober != null) {
+            return;
+        }
+        this.dispatcher = dispatcher;
+        prober = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("LoadShedder-%d").build());
+        prober.scheduleWithFixedDelay(this::probe, probeMillis, probeMillis, MILLISECONDS);
+        LOG.info("Shedding low priority requests when dispatcher delay stays above " + targetMillis + "ms");
+    }
+
+    /**
+     * Returns true if a request to this controller method should be handled, false if it should be turned away.
+     * Only low priority requests are ever turned away.
+     */
+    public boolean admit(Method actionMethod) {
+        if (!shedding || !isLowPriority(actionMethod)) {
+            admitted.increment();
+            return true;
+        }
+        shed.increment();
+        return false;
+    }
+
+    static boolean isLowPriority(Method actionMethod) {
+        return actionMethod != null && (actionMethod.isAnnotationPresent(LowPriority.class)
+                || actionMethod.getDeclaringClass().isAnnotationPresent(LowPriority.class));
+    }
+
+    /** Seconds a caller that was turned away should wait: long enough for one more interval to pass. */
+    public int getRetryAfterSeconds() {
+        return (int)Math.max(1L, MILLISECONDS.toSeconds(intervalMillis));
+    }
+
+    /**
+     * Measure the dispatcher's delay. Only one probe task is waiting on the dispatcher at a time. If it's still
+     * waiting, how long it has waited so far is the delay, so a dispatcher that's stopped altogether is still seen.
+     */
+    void probe() {
+        try {
+            long now = ticker.read();
+            long submittedOn = probeSubmittedOn;
+            if (submittedOn != NONE) {
+                recordDelay(now - submittedOn, now);
+                return;
+            }
+            probeSubmittedOn = now;
+            dispatcher.execute(() -> {
+                long ranOn = ticker.read();
+                probeSubmittedOn = NONE;
+                recordDelay(ranOn - now, ranOn);
+            });
+        } catch (RuntimeException e) {
+            // The dispatcher is shutting down, or rejected the task. Try again on the next probe.
+            probeSubmittedOn = NONE;
+            LOG.debug("Could not probe dispatcher delay", e);
+        }
+    }
+
+    /** Update the shedding state with a delay measured at this time. */
+    synchronized void recordDelay(long delayNanos, long now) {
+        lastDelayNanos = delayNanos;
+        maxDelayNanos.accumulate(delayNanos);
+        if (delayNanos < MILLISECONDS.toNanos(targetMillis)) {
+            aboveTargetUntil = NONE;
+            if (shedding) {
+                shedding = false;
+                LOG.info("Dispatcher delay back under target, no longer shedding low priority requests");
+            }
+        } else if (aboveTargetUntil == NONE) {
+            aboveTargetUntil = now + MILLISECONDS.toNanos(intervalMillis);
+        } else if (!shedding && now - aboveTargetUntil >= 0L) {
+            shedding = true;
+            LOG.warn("Dispatcher delay above " + targetMillis + "ms for " + intervalMillis
+                    + "ms, shedding low priority requests");
+        }
+    }
+
+    public boolean isShedding() {
+        return shedding;
+    }
+
+    private static long getLong(BridgeConfig bridgeConfig, String property, long defaultValue) {
+        String value = bridgeConfig.get(property);
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+
+    public Stats getStats() {
+        return new Stats();
+    }
+
+    /** The dispatcher's delay, and the requests admitted and shed since the server started. */
+    public class Stats {
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public boolean isShedding() {
+            return shedding;
+        }
+
+        /** The most recently measured delay. */
+        public double getQueueDelayMillis() {
+            return lastDelayNanos / 1000000.0;
+        }
+
+        public double getMaxQueueDelayMillis() {
+            return maxDelayNanos.get() / 1000000.0;
+        }
+
+        public long getAdmitted() {
+            return admitted.sum();
+        }
+
+        public long getShed() {
+            return shed.sum();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.sagebionetworks.bridge.play.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method (or every method of a controller) whose requests can wait: backfills, exports, and the
+ * bulk reads made by workers. When the server is overloaded, these requests are turned away first (see
+ * {@link LoadShedder}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface LowPriority {
+}
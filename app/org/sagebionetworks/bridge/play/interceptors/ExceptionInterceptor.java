@@ -6,18 +6,21 @@ import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededExce
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.lang3.StringUtils;
+import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
 import org.sagebionetworks.bridge.exceptions.NoStackTraceException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+import org.sagebionetworks.bridge.exceptions.TooManyRequestsException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
-import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.amazonaws.AmazonServiceException;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Sets;
 
@@ -37,12 +40,20 @@ public class ExceptionInterceptor implements MethodInterceptor {
             "suppressed", "cause", "errorType", "errorMessage", "retryable", "requestId", "serviceName", "httpHeaders",
             "errorCode", "rawResponse", "rawResponseContent");
     
+    private UserSessionInfoCache sessionInfoCache;
+    
+    @Autowired
+    final void setUserSessionInfoCache(UserSessionInfoCache sessionInfoCache) {
+        this.sessionInfoCache = sessionInfoCache;
+    }
+    
     @Override
     public Object invoke(MethodInvocation method) throws Throwable {
         try {
             return method.proceed();
         } catch(Throwable throwable) {
             logException(throwable);
+            setRetryAfterHeader(throwable);
             return getResult(throwable);
         }
     }
@@ -58,14 +69,27 @@ public class ExceptionInterceptor implements MethodInterceptor {
         logger.error(msg, throwable);
     }
 
-    private Result getResult(Throwable throwable) throws JsonProcessingException {
+    private void setRetryAfterHeader(final Throwable throwable) {
+        Integer seconds = null;
+        if (throwable instanceof ServiceUnavailableException) {
+            seconds = ((ServiceUnavailableException)throwable).getRetryAfterSeconds();
+        } else if (throwable instanceof TooManyRequestsException) {
+            seconds = ((TooManyRequestsException)throwable).getRetryAfterSeconds();
+        }
+        if (seconds != null) {
+            Http.Context.current().response().setHeader(Http.HeaderNames.RETRY_AFTER, Integer.toString(seconds));
+        }
+    }
+
+    /** Package-scoped to make available in benchmarks. */
+    Result getResult(Throwable throwable) throws JsonProcessingException {
         // Consent exceptions return a session payload (you are signed in),
         // but a 412 error status code.
         if (throwable instanceof ConsentRequiredException) {
             ConsentRequiredException cre = (ConsentRequiredException)throwable;
             
-            JsonNode info = UserSessionInfo.toJSON(cre.getUserSession());
-            return Results.status(cre.getStatusCode(), info);
+            byte[] info = sessionInfoCache.getSessionInfo(cre.getUserSession());
+            return Results.status(cre.getStatusCode(), info).as(BridgeConstants.JSON_MIME_TYPE);
         }
         ObjectNode node = BridgeObjectMapper.get().valueToTree(throwable);
         final int status = getStatusCode(throwable);
@@ -4,11 +4,18 @@ import static org.apache.http.HttpHeaders.USER_AGENT;
 import static org.sagebionetworks.bridge.BridgeConstants.METRICS_EXPIRE_SECONDS;
 import static org.sagebionetworks.bridge.BridgeConstants.X_FORWARDED_FOR_HEADER;
 
+import java.util.concurrent.TimeUnit;
+
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.models.Metrics;
+import org.sagebionetworks.bridge.tracing.SlowRequestProfiler;
+import org.sagebionetworks.bridge.tracing.SpanRecorder;
+import org.sagebionetworks.bridge.tracing.TrafficCapture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import play.cache.Cache;
@@ -21,18 +28,63 @@ public class MetricsInterceptor implements MethodInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(MetricsInterceptor.class);
 
+    /** Requests slower than this have their full trace logged, not just the span summary. */
+    static final String SLOW_REQUEST_MILLIS_PROPERTY = "metrics.slow.request.millis";
+    static final long DEFAULT_SLOW_REQUEST_MILLIS = 2000L;
+
+    private long slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_REQUEST_MILLIS);
+
+    private SlowRequestProfiler profiler;
+    private TrafficCapture trafficCapture;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        String value = bridgeConfig.get(SLOW_REQUEST_MILLIS_PROPERTY);
+        if (value != null) {
+            slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(value));
+        }
+    }
+
+    @Autowired
+    final void setSlowRequestProfiler(SlowRequestProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Autowired
+    final void setTrafficCapture(TrafficCapture trafficCapture) {
+        this.trafficCapture = trafficCapture;
+    }
+
     @Override
     public Object invoke(MethodInvocation method) throws Throwable {
         final Metrics metrics = initMetrics();
         Cache.set(metrics.getCacheKey(), metrics, METRICS_EXPIRE_SECONDS);
+        final SpanRecorder recorder = SpanRecorder.start(
+                RequestUtils.getRequestId(Http.Context.current().request()));
+        final SlowRequestProfiler.Watch watch = (profiler == null) ? null :
+                profiler.watch(Thread.currentThread(), getRoute(method));
+        // Errors are normally converted to results by an inner interceptor, so this only sticks if one escapes.
+        int status = 500;
         try {
             final Result result = (Result)method.proceed();
-            metrics.setStatus(result.toScala().header().status());
+            status = result.toScala().header().status();
+            metrics.setStatus(status);
             return result;
         } finally {
+            if (watch != null) {
+                watch.stop();
+            }
+            SpanRecorder.clear();
             Cache.remove(metrics.getCacheKey());
             metrics.end();
-            logger.info(metrics.toJsonString());
+            logger.info(getLogLine(metrics, recorder));
+            if (recorder.getElapsedNanos() > slowRequestNanos) {
+                logger.info("Slow request trace: " + recorder.getTrace().toString());
+            }
+            if (trafficCapture != null) {
+                trafficCapture.capture(Http.Context.current().request(), getRoute(method), status,
+                        recorder.getElapsedNanos());
+            }
         }
     }
 
@@ -46,4 +98,17 @@ public class MetricsInterceptor implements MethodInterceptor {
         metrics.setUserAgent(RequestUtils.header(request, USER_AGENT, null));
         return metrics;
     }
+
+    /** The controller method handling the request, e.g. "ScheduledActivityController.getActivities". */
+    static String getRoute(MethodInvocation method) {
+        return method.getMethod().getDeclaringClass().getSimpleName() + "." + method.getMethod().getName();
+    }
+
+    /** The metrics JSON, with a summary of downstream calls added if any were made during the request. */
+    String getLogLine(Metrics metrics, SpanRecorder recorder) {
+        if (!recorder.isEmpty()) {
+            metrics.getJson().set("spans", recorder.getSummary());
+        }
+        return metrics.toJsonString();
+    }
 }
@@ -0,0 +1,99 @@
+package org.sagebionetworks.bridge.play.interceptors;
+
+import static org.sagebionetworks.bridge.BridgeConstants.X_FORWARDED_FOR_HEADER;
+
+import java.util.Set;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.ratelimit.RequestRateLimiter;
+import org.sagebionetworks.bridge.services.AuthenticationService;
+
+import play.mvc.Http;
+
+/**
+ * Counts each request against the caller's rate limits (see {@link RequestRateLimiter}) before the controller
+ * handles it. Requests are grouped by the controller that handles them. Signed in callers are limited by study and
+ * user; the session is read through the {@link LocalSessionCache} and kept with the request, where the controller
+ * finds it again. Workers and administrators aren't limited. Other callers are limited by IP address. Requests over a
+ * limit fail with a 429 and a Retry-After header.
+ */
+@Component("rateLimitInterceptor")
+public class RateLimitInterceptor implements MethodInterceptor {
+
+    private RequestRateLimiter rateLimiter;
+    private LocalSessionCache localSessionCache;
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    final void setRequestRateLimiter(RequestRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Autowired
+    final void setLocalSessionCache(LocalSessionCache localSessionCache) {
+        this.localSessionCache = localSessionCache;
+    }
+
+    @Autowired
+    final void setAuthenticationService(AuthenticationService authenticationService) {
+        this.authenticationService = authenticationService;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation method) throws Throwable {
+        if (rateLimiter.isEnabled()) {
+            Http.Context context = Http.Context.current();
+            Http.Request request = context.request();
+            String route = method.getMethod().getDeclaringClass().getSimpleName();
+
+            UserSession session = getSession(context, request);
+            if (session != null && isExempt(session)) {
+                return method.proceed();
+            } else if (session != null) {
+                rateLimiter.acquire(session.getStudyIdentifier().getIdentifier(), session.getId(), route);
+            } else {
+                rateLimiter.acquire(null, "ip:" + getIpAddress(request), route);
+            }
+        }
+        return method.proceed();
+    }
+
+    private UserSession getSession(Http.Context context, Http.Request request) {
+        String sessionToken = RequestUtils.getSessionToken(request);
+        if (StringUtils.isBlank(sessionToken)) {
+            return null;
+        }
+        UserSession session = RequestUtils.getLoadedSession(context, sessionToken);
+        if (session == null) {
+            session = localSessionCache.getSession(sessionToken, authenticationService::getSession);
+            RequestUtils.setLoadedSession(context, session);
+        }
+        return session;
+    }
+
+    /** The Bridge Exporter and other back-end jobs run as workers, and call in bursts. */
+    private static boolean isExempt(UserSession session) {
+        Set<Roles> roles = (session.getParticipant() == null) ? null : session.getParticipant().getRoles();
+        return roles != null && (roles.contains(Roles.WORKER) || roles.contains(Roles.ADMIN));
+    }
+
+    /**
+     * The last address in X-Forwarded-For is the one Amazon's load balancer appended: the address that connected to
+     * it. Anything before that was sent by the client, who can put any address there, so it can't be used as a key.
+     */
+    static String getIpAddress(Http.Request request) {
+        String addresses = RequestUtils.header(request, X_FORWARDED_FOR_HEADER, request.remoteAddress());
+        if (addresses == null) {
+            return null;
+        }
+        return addresses.substring(addresses.lastIndexOf(',') + 1).trim();
+    }
+}
@@ -2,12 +2,20 @@ package org.sagebionetworks.bridge.play.interceptors;
 
 import static org.sagebionetworks.bridge.BridgeConstants.X_REQUEST_ID_HEADER;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
 import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
 
+import play.mvc.Http;
 import play.mvc.Http.Request;
 
 public final class RequestUtils {
 
+    private static final String SESSION_ARG = "bridge.session";
+
     private RequestUtils() {
     }
 
@@ -24,4 +32,44 @@ public final class RequestUtils {
         final String value = request.getHeader(name);
         return (value != null) ? value : defaultVal;
     }
+
+    /**
+     * The session already loaded for this token earlier in the request (by an interceptor or the controller), or null
+     * if it hasn't been loaded yet.
+     */
+    public static UserSession getLoadedSession(final Http.Context context, final String sessionToken) {
+        if (context == null || context.args == null || sessionToken == null) {
+            return null;
+        }
+        final Object session = context.args.get(SESSION_ARG);
+        if (session instanceof UserSession && sessionToken.equals(((UserSession)session).getSessionToken())) {
+            return (UserSession)session;
+        }
+        return null;
+    }
+
+    /** Keep the session for the rest of the request, so it's read from the session cache only once. */
+    public static void setLoadedSession(final Http.Context context, final UserSession session) {
+        if (context != null && context.args != null && session != null) {
+            context.args.put(SESSION_ARG, session);
+        }
+    }
+
+    /**
+     * The raw bytes of the request body, or null if the body was not kept as raw bytes (see JsonBodyParser). Play
+     * keeps small bodies in memory and buffers larger ones to a temporary file, which is read in that case.
+     */
+    public static byte[] getBodyBytes(final Request request) throws IOException {
+        final Http.RequestBody body = request.body();
+        final Http.RawBuffer raw = (body == null) ? null : body.asRaw();
+        if (raw == null) {
+            return null;
+        }
+        final byte[] bytes = raw.asBytes();
+        if (bytes != null) {
+            return bytes;
+        }
+        final File file = raw.asFile();
+        return (file == null) ? null : Files.readAllBytes(file.toPath());
+    }
 }
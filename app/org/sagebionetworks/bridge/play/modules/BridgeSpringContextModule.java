@@ -10,6 +10,8 @@ import com.google.inject.Binder;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.dynamodb.AnnotationBasedTableCreator;
 import org.sagebionetworks.bridge.dynamodb.DynamoInitializer;
+import org.sagebionetworks.bridge.play.http.Bulkheads;
+import org.sagebionetworks.bridge.play.http.LoadShedder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanFactory;
@@ -38,6 +40,7 @@ public abstract class BridgeSpringContextModule extends AbstractModule {
         ConfigurableApplicationContext appContext = loadAppContext();
         loadDynamo(appContext);
         bindControllers(appContext);
+        bindHttpComponents(appContext);
     }
 
     private void loadDynamo(ConfigurableApplicationContext appContext) {
@@ -74,6 +77,12 @@ public abstract class BridgeSpringContextModule extends AbstractModule {
         }
     }
 
+    /** Spring beans used by the HTTP request handler, which Play creates. */
+    private void bindHttpComponents(final ConfigurableApplicationContext appContext) {
+        binder().bind(LoadShedder.class).toInstance(appContext.getBean(LoadShedder.class));
+        binder().bind(Bulkheads.class).toInstance(appContext.getBean(Bulkheads.class));
+    }
+
     private <T> void bindBean(final Binder binder, final BeanFactory beanFactory,
             final String name, final Class<T> clazz) {
         if (!name.endsWith("Proxied")) {
@@ -0,0 +1,296 @@
+package org.sagebionetworks.bridge.ratelimit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.TooManyRequestsException;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * <p>
+ * Limits the requests each caller makes to each group of routes (the controller class handling the request). Every
+ * request counts against two limits: one for the user in the study, and one for the study as a whole. Requests
+ * without a session are limited by IP address, and only by the user limit.
+ * </p>
+ * <p>
+ * Each server checks a token bucket of its own for each key, so the check never leaves the server. Once a second,
+ * the tokens each bucket handed out are added to a count for the current minute in Redis, and a key whose count
+ * across all servers is over its limit is blocked on this server until the minute is over. If Redis can't be
+ * reached, each server goes on limiting on its own.
+ * </p>
+ * <p>
+ * Configuration (limits are requests per minute; 0 turns a limit off):
+ * <ul>
+ *   <li>ratelimit.enabled: true turns rate limiting on (false, until each study's limits are set)</li>
+ *   <li>ratelimit.user.per.minute: requests a user makes to one group of routes (600)</li>
+ *   <li>ratelimit.study.per.minute: requests all of a study's users make to one group of routes (60000)</li>
+ *   <li>ratelimit.sync.millis: how often counts are added up in Redis (1000)</li>
+ * </ul>
+ * Either limit can be set for a study, a group of routes, or both, by adding them to the property name, e.g.
+ * ratelimit.user.per.minute.api, ratelimit.user.per.minute.UploadController, or
+ * ratelimit.user.per.minute.api.UploadController. The most specific setting applies.
+ * </p>
+ */
+@Component
+public class RequestRateLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestRateLimiter.class);
+
+    static final String ENABLED_PROPERTY = "ratelimit.enabled";
+    static final String USER_LIMIT_PROPERTY = "ratelimit.user.per.minute";
+    static final String STUDY_LIMIT_PROPERTY = "ratelimit.study.per.minute";
+    static final String SYNC_MILLIS_PROPERTY = "ratelimit.sync.millis";
+    static final int DEFAULT_USER_LIMIT = 600;
+    static final int DEFAULT_STUDY_LIMIT = 60000;
+    static final long DEFAULT_SYNC_MILLIS = 1000L;
+    static final String REDIS_KEY_PREFIX = "ratelimit:";
+    static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    /** Counts are kept in Redis a little past the end of their window, for servers with a slow clock. */
+    static final int WINDOW_EXPIRE_SECONDS = 120;
+    static final int MAX_BUCKETS = 100000;
+    static final String MESSAGE = "Too many requests. Please try again later.";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** Stands in for a limit that has been turned off. */
+    private static final TokenBucket UNLIMITED = new TokenBucket("unlimited", Integer.MAX_VALUE, 0L);
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder syncFailures = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> rejectedByRoute = new ConcurrentHashMap<>();
+    private Cache<String, TokenBucket> buckets = createCache(Ticker.systemTicker());
+    private Ticker ticker = Ticker.systemTicker();
+    private BridgeConfig bridgeConfig;
+    private JedisPool jedisPool;
+    private ScheduledThreadPoolExecutor executor;
+    private boolean enabled;
+    private volatile boolean syncing = true;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+        this.enabled = "true".equalsIgnoreCase(bridgeConfig.get(ENABLED_PROPERTY));
+        if (enabled) {
+            long syncMillis = getLong(SYNC_MILLIS_PROPERTY, DEFAULT_SYNC_MILLIS);
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("RequestRateLimiter-%d").build());
+            executor.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, MILLISECONDS);
+        }
+    }
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /** For tests. */
+    final void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+        this.buckets = createCache(ticker);
+    }
+
+    private static Cache<String, TokenBucket> createCache(Ticker ticker) {
+        // Buckets idle for longer than a window are full again, and can be dropped
+        return CacheBuilder.newBuilder().maximumSize(MAX_BUCKETS).expireAfterAccess(2 * WINDOW_MILLIS, MILLISECONDS)
+                .ticker(ticker).build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Count a request against the caller's limits.
+     *
+     * @param studyId
+     *      the caller's study, or null if the caller isn't signed in
+     * @param userKey
+     *      the caller's user ID, or some other key for the caller (such as an IP address) if not signed in
+     * @param route
+     *      the group of routes called, e.g. the name of the controller handling the request
+     * @throws TooManyRequestsException
+     *      if the caller is over either limit
+     */
+    public void acquire(String studyId, String userKey, String route) {
+        if (!enabled) {
+            return;
+        }
+        long now = ticker.read();
+        TokenBucket userBucket = bucket(USER_LIMIT_PROPERTY, "u:" + studyId + ":" + userKey + ":" + route, studyId,
+                route, now);
+        long wait = tryAcquire(userBucket, now);
+        if (wait == 0L && studyId != null) {
+            TokenBucket studyBucket = bucket(STUDY_LIMIT_PROPERTY, "s:" + studyId + ":" + route, studyId, route,
+                    now);
+            wait = tryAcquire(studyBucket, now);
+            if (wait != 0L && userBucket != UNLIMITED) {
+                userBucket.release();
+            }
+        }
+        if (wait == 0L) {
+            allowed.increment();
+            return;
+        }
+        rejected.increment();
+        rejectedByRoute.computeIfAbsent(route, key -> new LongAdder()).increment();
+        long retryAfterSeconds = (wait + NANOS_PER_SECOND - 1L) / NANOS_PER_SECOND;
+        throw new TooManyRequestsException(MESSAGE, (int)Math.max(1L, retryAfterSeconds));
+    }
+
+    private static long tryAcquire(TokenBucket bucket, long now) {
+        return (bucket == UNLIMITED) ? 0L : bucket.tryAcquire(now);
+    }
+
+    private TokenBucket bucket(String property, String key, String studyId, String route, long now) {
+        TokenBucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            int limit = getLimit(property, studyId, route);
+            bucket = buckets.asMap().computeIfAbsent(key,
+                    newKey -> (limit <= 0) ? UNLIMITED : new TokenBucket(newKey, limit, now));
+        }
+        return bucket;
+    }
+
+    /** The most specific limit configured for this study and route. */
+    int getLimit(String property, String studyId, String route) {
+        int defaultLimit = USER_LIMIT_PROPERTY.equals(property) ? DEFAULT_USER_LIMIT : DEFAULT_STUDY_LIMIT;
+        if (bridgeConfig == null) {
+            return defaultLimit;
+        }
+        String value = null;
+        if (studyId != null) {
+            value = bridgeConfig.get(property + "." + studyId + "." + route);
+            if (value == null) {
+                value = bridgeConfig.get(property + "." + studyId);
+            }
+        }
+        if (value == null) {
+            value = bridgeConfig.get(property + "." + route);
+        }
+        if (value == null) {
+            value = bridgeConfig.get(property);
+        }
+        return (value == null) ? defaultLimit : Integer.parseInt(value);
+    }
+
+    /**
+     * Add the tokens each bucket has handed out since the last sync to the count for the current window in Redis,
+     * and block the buckets whose count across all servers is over the limit, until the window is over.
+     */
+    void sync() {
+        if (jedisPool == null) {
+            return;
+        }
+        List<TokenBucket> synced = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (TokenBucket bucket : buckets.asMap().values()) {
+            int count = bucket.drainUnsynced();
+            if (count > 0) {
+                synced.add(bucket);
+                counts.add(count);
+            }
+        }
+        if (synced.isEmpty()) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        long window = nowMillis / WINDOW_MILLIS;
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Long>> totals = new ArrayList<>(synced.size());
+            for (int i=0; i < synced.size(); i++) {
+                String key = REDIS_KEY_PREFIX + synced.get(i).getKey() + ":" + window;
+                totals.add(pipeline.incrBy(key, counts.get(i)));
+                pipeline.expire(key, WINDOW_EXPIRE_SECONDS);
+            }
+            pipeline.sync();
+
+            long windowEnds = ticker.read() + MILLISECONDS.toNanos((window + 1) * WINDOW_MILLIS - nowMillis);
+            for (int i=0; i < synced.size(); i++) {
+                TokenBucket bucket = synced.get(i);
+                if (totals.get(i).get() > bucket.getLimitPerMinute()) {
+                    bucket.blockUntil(windowEnds);
+                }
+            }
+            if (!syncing) {
+                LOG.info("Rate limit counts are being synced through Redis again");
+                syncing = true;
+            }
+        } catch (RuntimeException e) {
+            // These counts are lost, and until Redis is back each server only limits the requests it sees itself.
+            syncFailures.increment();
+            if (syncing) {
+                LOG.warn("Could not sync rate limit counts through Redis", e);
+                syncing = false;
+            }
+        }
+    }
+
+    private long getLong(String property, long defaultValue) {
+        String value = bridgeConfig.get(property);
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+
+    public Stats getStats() {
+        return new Stats();
+    }
+
+    /** Requests counted on this server since it started. */
+    public class Stats {
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public long getAllowed() {
+            return allowed.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        /** Requests turned away for each group of routes. */
+        public Map<String, Long> getRejectedByRoute() {
+            Map<String, Long> map = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : rejectedByRoute.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().sum());
+            }
+            return map;
+        }
+
+        /** Callers with requests counted on this server in the last couple of minutes. */
+        public long getBuckets() {
+            return buckets.size();
+        }
+
+        public long getSyncFailures() {
+            return syncFailures.sum();
+        }
+    }
+}
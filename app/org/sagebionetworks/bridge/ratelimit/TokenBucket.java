@@ -0,0 +1,84 @@
+package org.sagebionetworks.bridge.ratelimit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Requests allowed for one key on this server. The bucket holds up to limitPerMinute tokens and is refilled at
+ * limitPerMinute tokens a minute; each request takes a token. Times are in nanoseconds from a Ticker, passed in by
+ * the caller.
+ * </p>
+ * <p>
+ * Tokens taken since the last sync are counted so they can be added to the count across all servers, and the bucket
+ * can be blocked until a time, when that count is over the limit.
+ * </p>
+ */
+final class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final String key;
+    private final int limitPerMinute;
+    private final double nanosPerToken;
+    private double tokens;
+    private long refilledOn;
+    private int unsynced;
+    private volatile long blockedUntil;
+
+    TokenBucket(String key, int limitPerMinute, long now) {
+        checkArgument(limitPerMinute > 0);
+        this.key = checkNotNull(key);
+        this.limitPerMinute = limitPerMinute;
+        this.nanosPerToken = NANOS_PER_MINUTE / limitPerMinute;
+        this.tokens = limitPerMinute;
+        this.refilledOn = now;
+        this.blockedUntil = now;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    int getLimitPerMinute() {
+        return limitPerMinute;
+    }
+
+    /** Take a token. Returns 0 if one was taken, otherwise the nanoseconds until one can be. */
+    synchronized long tryAcquire(long now) {
+        long blockedFor = blockedUntil - now;
+        if (blockedFor > 0L) {
+            return blockedFor;
+        }
+        if (now - refilledOn > 0L) {
+            tokens = Math.min(limitPerMinute, tokens + (now - refilledOn) / nanosPerToken);
+            refilledOn = now;
+        }
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            unsynced++;
+            return 0L;
+        }
+        return (long)Math.ceil((1.0 - tokens) * nanosPerToken);
+    }
+
+    /** Give back a token taken for a request that was then turned away by another bucket. */
+    synchronized void release() {
+        tokens = Math.min(limitPerMinute, tokens + 1.0);
+        unsynced = Math.max(0, unsynced - 1);
+    }
+
+    /** Tokens taken since the last call to this method. */
+    synchronized int drainUnsynced() {
+        int count = unsynced;
+        unsynced = 0;
+        return count;
+    }
+
+    /** Turn away every request until this time. */
+    void blockUntil(long time) {
+        blockedUntil = time;
+    }
+}
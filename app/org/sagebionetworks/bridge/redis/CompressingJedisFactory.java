@@ -0,0 +1,127 @@
+package org.sagebionetworks.bridge.redis;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * <p>
+ * Creates the pool's connections to Redis, like the pool's own factory does, except that values are passed through
+ * a {@link RedisValueCodec} on the connection: SET and SETEX values are encoded (and so compressed when they're
+ * large), and GET replies are decoded. Encoding on the connection rather than in JedisOps means that values written
+ * in a transaction, like user sessions, are compressed as well.
+ * </p>
+ * <p>
+ * Only GET replies are decoded. Every other reply (counters, TTLs, lock values, pub/sub messages, and anything read
+ * in a transaction or pipeline) is returned as Redis sent it, so a value that happens to start with the codec's
+ * header byte can't be mangled. Read compressed values through JedisOps.get().
+ * </p>
+ */
+public class CompressingJedisFactory implements PooledObjectFactory<Jedis> {
+
+    private final String host;
+    private final int port;
+    private final int timeout;
+    private final String password;
+    private final RedisValueCodec codec;
+
+    public CompressingJedisFactory(String host, int port, int timeout, String password, RedisValueCodec codec) {
+        this.host = checkNotNull(host);
+        this.port = port;
+        this.timeout = timeout;
+        this.password = password;
+        this.codec = checkNotNull(codec);
+    }
+
+    @Override
+    public PooledObject<Jedis> makeObject() throws Exception {
+        Jedis jedis = new CompressingJedis(host, port, timeout, codec);
+        try {
+            jedis.connect();
+            if (password != null) {
+                jedis.auth(password);
+            }
+        } catch (JedisException e) {
+            jedis.close();
+            throw e;
+        }
+        return new DefaultPooledObject<>(jedis);
+    }
+
+    @Override
+    public void destroyObject(PooledObject<Jedis> pooledJedis) throws Exception {
+        Jedis jedis = pooledJedis.getObject();
+        if (jedis.isConnected()) {
+            try {
+                jedis.quit();
+            } catch (Exception e) {
+                // Closing anyway
+            }
+            jedis.disconnect();
+        }
+    }
+
+    @Override
+    public boolean validateObject(PooledObject<Jedis> pooledJedis) {
+        Jedis jedis = pooledJedis.getObject();
+        try {
+            return jedis.isConnected() && "PONG".equals(jedis.ping());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void activateObject(PooledObject<Jedis> pooledJedis) throws Exception {
+    }
+
+    @Override
+    public void passivateObject(PooledObject<Jedis> pooledJedis) throws Exception {
+    }
+
+    static final class CompressingJedis extends Jedis {
+        private final RedisValueCodec codec;
+
+        CompressingJedis(String host, int port, int timeout, RedisValueCodec codec) {
+            super(host, port, timeout);
+            this.codec = codec;
+            this.client = new CompressingClient(host, port, codec);
+            this.client.setConnectionTimeout(timeout);
+            this.client.setSoTimeout(timeout);
+        }
+
+        @Override
+        public String get(String key) {
+            checkIsInMultiOrPipeline();
+            client.get(key);
+            byte[] reply = client.getBinaryBulkReply();
+            return (reply == null) ? null : codec.decode(reply);
+        }
+    }
+
+    static final class CompressingClient extends Client {
+        private final RedisValueCodec codec;
+
+        CompressingClient(String host, int port, RedisValueCodec codec) {
+            super(host, port);
+            this.codec = codec;
+        }
+
+        @Override
+        public void set(String key, String value) {
+            set(SafeEncoder.encode(key), codec.encode(value));
+        }
+
+        @Override
+        public void setex(String key, int seconds, String value) {
+            setex(SafeEncoder.encode(key), seconds, codec.encode(value));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.sagebionetworks.bridge.redis;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * <p>
+ * Assigns keys to nodes by consistent hashing. Each node is placed on the ring at many points (derived from its name,
+ * so every server builds the same ring), and a key belongs to the first node point at or after the key's hash. Adding
+ * a node to a ring of N nodes moves about 1/(N+1) of the keys, all of them to the new node.
+ * </p>
+ * <p>
+ * As in Redis Cluster, if a key contains a non-empty tag in braces, only the tag is hashed, so "{userId}:session" and
+ * "{userId}:request-info" are always on the same node.
+ * </p>
+ */
+public final class ConsistentHashRing<T> {
+
+    static final int POINTS_PER_NODE = 160;
+
+    private static final HashFunction HASH = Hashing.murmur3_32();
+
+    private final Map<String, T> nodes;
+    private final NavigableMap<Integer, T> ring = new TreeMap<>();
+
+    /** @param nodes the nodes by name (for Redis, the URL). The name decides where the node is on the ring. */
+    public ConsistentHashRing(Map<String, T> nodes) {
+        checkArgument(!nodes.isEmpty(), "Ring must have at least one node");
+        this.nodes = ImmutableMap.copyOf(nodes);
+        for (Map.Entry<String, T> entry : nodes.entrySet()) {
+            for (int i=0; i < POINTS_PER_NODE; i++) {
+                ring.put(hash(entry.getKey() + "#" + i), entry.getValue());
+            }
+        }
+    }
+
+    public T get(String key) {
+        Map.Entry<Integer, T> entry = ring.ceilingEntry(hash(hashTag(key)));
+        return (entry == null) ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    public Map<String, T> getNodes() {
+        return nodes;
+    }
+
+    /** The part of the key that is hashed: the contents of the first non-empty {tag}, or else the whole key. */
+    static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start >= 0) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return key.substring(start + 1, end);
+            }
+        }
+        return key;
+    }
+
+    private static int hash(String value) {
+        return HASH.hashString(value, UTF_8).asInt();
+    }
+}
@@ -0,0 +1,58 @@
+package org.sagebionetworks.bridge.redis;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * A snapshot of how busy the Redis connection pool is. If utilization stays near 1.0 or requests wait to borrow a
+ * connection, the pool (redis.max.total) is too small for the load.
+ */
+public final class JedisPoolStats {
+
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxTotal;
+    private final long meanBorrowWaitMillis;
+    private final long maxBorrowWaitMillis;
+
+    public JedisPoolStats(JedisPool pool, int maxTotal) {
+        this.active = pool.getNumActive();
+        this.idle = pool.getNumIdle();
+        this.waiters = pool.getNumWaiters();
+        this.maxTotal = maxTotal;
+        this.meanBorrowWaitMillis = pool.getMeanBorrowWaitTimeMillis();
+        this.maxBorrowWaitMillis = pool.getMaxBorrowWaitTimeMillis();
+    }
+
+    /** Connections borrowed right now. */
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    /** Threads waiting for a connection right now. */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /** The fraction of the pool's connections that are borrowed. */
+    public double getUtilization() {
+        return (maxTotal <= 0) ? 0.0 : ((double) active) / maxTotal;
+    }
+
+    /** Mean time to borrow a connection, over the most recent borrows. */
+    public long getMeanBorrowWaitMillis() {
+        return meanBorrowWaitMillis;
+    }
+
+    public long getMaxBorrowWaitMillis() {
+        return maxBorrowWaitMillis;
+    }
+}
@@ -0,0 +1,137 @@
+package org.sagebionetworks.bridge.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * <p>
+ * Encodes the string values we write to Redis, compressing the large ones (published surveys, sessions) with LZ4.
+ * A compressed value starts with a header byte that can't start one of our text values, followed by the length of
+ * the uncompressed value (4 bytes) and the LZ4 block. Everything else is stored as plain UTF-8, as before.
+ * </p>
+ * <p>
+ * Values are always decoded this way, so compressed and uncompressed values can be read side by side and nothing
+ * has to be migrated. Servers that don't have this code can't read compressed values, so compression is turned on
+ * for writes (setCompressionEnabled) only after every server can read them.
+ * </p>
+ */
+public class RedisValueCodec {
+
+    static final byte LZ4_HEADER = 0x01;
+    static final int HEADER_LENGTH = 5;
+    public static final int DEFAULT_MIN_COMPRESSED_BYTES = 1024;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+    private volatile boolean compressionEnabled;
+    private volatile int minCompressedBytes = DEFAULT_MIN_COMPRESSED_BYTES;
+
+    private final LongAdder compressAttempts = new LongAdder();
+    private final LongAdder compressedValues = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressedValues = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /** Values shorter than this (in UTF-8 bytes) are not worth compressing. */
+    public void setMinCompressedBytes(int minCompressedBytes) {
+        this.minCompressedBytes = minCompressedBytes;
+    }
+
+    public byte[] encode(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        if (!compressionEnabled || bytes.length < minCompressedBytes) {
+            return bytes;
+        }
+        long start = System.nanoTime();
+        byte[] compressed = new byte[HEADER_LENGTH + compressor.maxCompressedLength(bytes.length)];
+        compressed[0] = LZ4_HEADER;
+        compressed[1] = (byte) (bytes.length >>> 24);
+        compressed[2] = (byte) (bytes.length >>> 16);
+        compressed[3] = (byte) (bytes.length >>> 8);
+        compressed[4] = (byte) bytes.length;
+        int length = HEADER_LENGTH + compressor.compress(bytes, 0, bytes.length, compressed, HEADER_LENGTH,
+                compressed.length - HEADER_LENGTH);
+        compressNanos.add(System.nanoTime() - start);
+        compressAttempts.increment();
+        if (length >= bytes.length) {
+            // Already compressed or random (encrypted), leave it as it is
+            return bytes;
+        }
+        compressedValues.increment();
+        uncompressedBytes.add(bytes.length);
+        compressedBytes.add(length);
+
+        byte[] result = new byte[length];
+        System.arraycopy(compressed, 0, result, 0, length);
+        return result;
+    }
+
+    public String decode(byte[] value) {
+        if (value.length < HEADER_LENGTH || value[0] != LZ4_HEADER) {
+            return new String(value, UTF_8);
+        }
+        long start = System.nanoTime();
+        int length = ((value[1] & 0xFF) << 24) | ((value[2] & 0xFF) << 16) | ((value[3] & 0xFF) << 8)
+                | (value[4] & 0xFF);
+        byte[] bytes = new byte[length];
+        decompressor.decompress(value, HEADER_LENGTH, bytes, 0, length);
+        decompressNanos.add(System.nanoTime() - start);
+        decompressedValues.increment();
+        return new String(bytes, UTF_8);
+    }
+
+    /** Values over the threshold, all of which were compressed, whether or not the compressed value was kept. */
+    public long getCompressAttempts() {
+        return compressAttempts.sum();
+    }
+
+    /** Values that were stored compressed. */
+    public long getCompressedValues() {
+        return compressedValues.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /** Uncompressed size over compressed size, for the values that were compressed. */
+    public double getCompressionRatio() {
+        long compressed = getCompressedBytes();
+        return (compressed == 0L) ? 0.0 : ((double) getUncompressedBytes()) / compressed;
+    }
+
+    /** Average time spent compressing a value over the threshold, in microseconds. */
+    public double getCompressMicros() {
+        return micros(compressNanos.sum(), getCompressAttempts());
+    }
+
+    public long getDecompressedValues() {
+        return decompressedValues.sum();
+    }
+
+    /** Average time spent decompressing a value, in microseconds. */
+    public double getDecompressMicros() {
+        return micros(decompressNanos.sum(), getDecompressedValues());
+    }
+
+    private static double micros(long nanos, long count) {
+        return (count == 0L) ? 0.0 : nanos / 1000.0 / count;
+    }
+}
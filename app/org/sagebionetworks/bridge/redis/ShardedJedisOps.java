@@ -0,0 +1,164 @@
+package org.sagebionetworks.bridge.redis;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * <p>
+ * JedisOps that spreads cached views (keys ending in ":view") and users' request info (keys ending in
+ * ":request-info") across several Redis nodes by consistent hashing. Request info is placed by the user's ID, as if
+ * its key were "{userId}:request-info", so other per-user keys tagged the same way land on the same node.
+ * </p>
+ * <p>
+ * All other keys stay on the primary node, the one in elasticache.url. That includes sessions and locks.
+ * CacheProvider writes a session in a MULTI transaction. That transaction runs on one connection, which is chosen
+ * before the keys are known, so session keys can't be routed.
+ * </p>
+ * <p>
+ * When nodes are added, keys that move are read from their new node and, if they aren't there yet, from the node
+ * they belonged to on the previous ring. Writes only go to the new node, and deletes go to both, so a removed view
+ * can't be read back from the previous node. Once the longest expiration of the moved keys has passed, the previous
+ * ring can be dropped.
+ * </p>
+ */
+public class ShardedJedisOps extends JedisOps {
+
+    static final String VIEW_SUFFIX = ":view";
+    static final String REQUEST_INFO_SUFFIX = ":request-info";
+
+    private final ConsistentHashRing<JedisOps> ring;
+    private final ConsistentHashRing<JedisOps> previousRing;
+
+    /**
+     * @param primaryPool
+     *         pool for keys that aren't sharded, and for transactions
+     * @param ring
+     *         the current nodes
+     * @param previousRing
+     *         the nodes before the most recent change, or null if no keys are moving
+     */
+    public ShardedJedisOps(JedisPool primaryPool, ConsistentHashRing<JedisOps> ring,
+            ConsistentHashRing<JedisOps> previousRing) {
+        super(primaryPool);
+        this.ring = checkNotNull(ring);
+        this.previousRing = previousRing;
+    }
+
+    static boolean isSharded(String key) {
+        return key.endsWith(VIEW_SUFFIX) || key.endsWith(REQUEST_INFO_SUFFIX);
+    }
+
+    /** What the ring hashes to place the key: request info goes by the user's ID, everything else by its key. */
+    static String routingKey(String key) {
+        if (key.endsWith(REQUEST_INFO_SUFFIX) && ConsistentHashRing.hashTag(key).equals(key)) {
+            return "{" + key.substring(0, key.length() - REQUEST_INFO_SUFFIX.length()) + "}" + REQUEST_INFO_SUFFIX;
+        }
+        return key;
+    }
+
+    @Override
+    public String get(String key) {
+        if (!isSharded(key)) {
+            return super.get(key);
+        }
+        JedisOps node = ring.get(routingKey(key));
+        String value = node.get(key);
+        if (value == null) {
+            JedisOps previousNode = previousNode(key, node);
+            if (previousNode != null) {
+                value = previousNode.get(key);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public String set(String key, String value) {
+        return isSharded(key) ? ring.get(routingKey(key)).set(key, value) : super.set(key, value);
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        return isSharded(key) ? ring.get(routingKey(key)).setex(key, seconds, value) : super.setex(key, seconds, value);
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        return isSharded(key) ? ring.get(routingKey(key)).expire(key, seconds) : super.expire(key, seconds);
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return isSharded(key) ? ring.get(routingKey(key)).ttl(key) : super.ttl(key);
+    }
+
+    @Override
+    public Long incr(String key) {
+        if (!isSharded(key)) {
+            return super.incr(key);
+        }
+        JedisOps node = ring.get(routingKey(key));
+        JedisOps previousNode = previousNode(key, node);
+        if (previousNode != null && node.get(key) == null) {
+            // Carry a counter (a view namespace version) over, or it would start again from zero on the new node.
+            String previousValue = previousNode.get(key);
+            if (previousValue != null) {
+                node.set(key, previousValue);
+            }
+        }
+        return node.incr(key);
+    }
+
+    /** Deletes from the current node and, while keys are moving, the previous one. Counts the current deletes. */
+    @Override
+    public Long del(String... keys) {
+        long deleted = 0L;
+        for (Map.Entry<JedisOps, List<String>> entry : byNode(Arrays.asList(keys), ring).entrySet()) {
+            String[] nodeKeys = entry.getValue().toArray(new String[entry.getValue().size()]);
+            Long count = (entry.getKey() == this) ? super.del(nodeKeys) : entry.getKey().del(nodeKeys);
+            deleted += (count == null) ? 0L : count;
+        }
+        if (previousRing != null) {
+            List<String> movingKeys = new ArrayList<>();
+            for (String key : keys) {
+                if (previousNode(key, nodeFor(key, ring)) != null) {
+                    movingKeys.add(key);
+                }
+            }
+            for (Map.Entry<JedisOps, List<String>> entry : byNode(movingKeys, previousRing).entrySet()) {
+                entry.getKey().del(entry.getValue().toArray(new String[entry.getValue().size()]));
+            }
+        }
+        return deleted;
+    }
+
+    /** The node the key was on before the most recent change, if that's a different node, or else null. */
+    private JedisOps previousNode(String key, JedisOps node) {
+        if (previousRing == null || !isSharded(key)) {
+            return null;
+        }
+        JedisOps previousNode = previousRing.get(routingKey(key));
+        return (previousNode == node) ? null : previousNode;
+    }
+
+    /** This instance stands for the primary node. */
+    private JedisOps nodeFor(String key, ConsistentHashRing<JedisOps> keyRing) {
+        return isSharded(key) ? keyRing.get(routingKey(key)) : this;
+    }
+
+    private Map<JedisOps, List<String>> byNode(Iterable<String> keys,
+            ConsistentHashRing<JedisOps> keyRing) {
+        Map<JedisOps, List<String>> byNode = new IdentityHashMap<>();
+        for (String key : keys) {
+            byNode.computeIfAbsent(nodeFor(key, keyRing), node -> new ArrayList<>()).add(key);
+        }
+        return byNode;
+    }
+}
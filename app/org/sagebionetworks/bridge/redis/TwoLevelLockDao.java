@@ -0,0 +1,180 @@
+package org.sagebionetworks.bridge.redis;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.dao.DistributedLockDao;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
+
+/**
+ * <p>
+ * A lock DAO that checks the locks held on this server before going to Redis. If a thread on this server already
+ * holds a lock, another thread asking for it fails right away, as it would have after a Redis round trip. Only the
+ * first thread to ask on each server goes on to Redis, where it contends with the other servers.
+ * </p>
+ * <p>
+ * Locks this server holds are tracked per lock in a ConcurrentHashMap, which is itself striped, rather than in a
+ * fixed set of striped locks. Acquiring is a try-lock: if two unrelated locks shared a stripe, the second would fail
+ * with a conflict that doesn't exist. A lock that is never released stops being held here when it expires, as it
+ * does in Redis.
+ * </p>
+ */
+@Primary
+@Component
+public class TwoLevelLockDao implements DistributedLockDao {
+
+    /** The expiration RedisDistributedLockDao uses when none is given. */
+    static final int DEFAULT_EXPIRE_SECONDS = 60;
+
+    private final Map<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+    private final LockStats stats = new LockStats();
+    private DistributedLockDao redisLockDao;
+
+    @Autowired
+    final void setRedisLockDao(RedisDistributedLockDao redisLockDao) {
+        this.redisLockDao = redisLockDao;
+    }
+
+    public LockStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String acquireLock(Class<?> clazz, String identifier) {
+        return acquireLock(clazz, identifier, DEFAULT_EXPIRE_SECONDS, false);
+    }
+
+    @Override
+    public String acquireLock(Class<?> clazz, String identifier, int expireInSeconds) {
+        return acquireLock(clazz, identifier, expireInSeconds, true);
+    }
+
+    @Override
+    public boolean releaseLock(Class<?> clazz, String identifier, String lockId) {
+        checkNotNull(clazz);
+        checkNotNull(identifier);
+        checkNotNull(lockId);
+
+        boolean released = redisLockDao.releaseLock(clazz, identifier, lockId);
+        String key = localKey(clazz, identifier);
+        LocalLock localLock = localLocks.get(key);
+        if (localLock != null && lockId.equals(localLock.lockId) && localLocks.remove(key, localLock)) {
+            stats.recordRelease(System.nanoTime() - localLock.acquiredOn);
+        }
+        return released;
+    }
+
+    private String acquireLock(Class<?> clazz, String identifier, int expireInSeconds, boolean withExpiration) {
+        checkNotNull(clazz);
+        checkNotNull(identifier);
+
+        long start = System.nanoTime();
+        String key = localKey(clazz, identifier);
+        LocalLock localLock = new LocalLock(start, TimeUnit.SECONDS.toNanos(expireInSeconds));
+        LocalLock heldLock = localLocks.putIfAbsent(key, localLock);
+        if (heldLock != null && heldLock.isExpired(start) && localLocks.replace(key, heldLock, localLock)) {
+            // Never released, and expired in Redis too
+            heldLock = null;
+        }
+        if (heldLock != null) {
+            stats.recordLocalConflict(System.nanoTime() - start);
+            throw new ConcurrentModificationException("Lock already set.");
+        }
+        try {
+            String lockId = withExpiration ? redisLockDao.acquireLock(clazz, identifier, expireInSeconds) :
+                    redisLockDao.acquireLock(clazz, identifier);
+            localLock.lockId = lockId;
+            stats.recordAcquire(System.nanoTime() - start);
+            return lockId;
+        } catch (RuntimeException e) {
+            localLocks.remove(key, localLock);
+            if (e instanceof ConcurrentModificationException) {
+                stats.recordRemoteConflict(System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
+    private static String localKey(Class<?> clazz, String identifier) {
+        return clazz.getName() + ":" + identifier;
+    }
+
+    private static final class LocalLock {
+        private final long acquiredOn;
+        private final long expireInNanos;
+        private volatile String lockId;
+
+        LocalLock(long acquiredOn, long expireInNanos) {
+            this.acquiredOn = acquiredOn;
+            this.expireInNanos = expireInNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - acquiredOn >= expireInNanos;
+        }
+    }
+
+    /** Counts and times of lock requests on this server. */
+    public static final class LockStats {
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder localConflicts = new LongAdder();
+        private final LongAdder remoteConflicts = new LongAdder();
+        private final LongAdder released = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+
+        void recordAcquire(long nanos) {
+            acquired.increment();
+            acquireNanos.add(nanos);
+        }
+
+        void recordLocalConflict(long nanos) {
+            localConflicts.increment();
+            acquireNanos.add(nanos);
+        }
+
+        void recordRemoteConflict(long nanos) {
+            remoteConflicts.increment();
+            acquireNanos.add(nanos);
+        }
+
+        void recordRelease(long heldNanos) {
+            released.increment();
+            holdNanos.add(heldNanos);
+        }
+
+        public long getAcquired() {
+            return acquired.sum();
+        }
+
+        /** Requests refused because another thread on this server held the lock. These never went to Redis. */
+        public long getLocalConflicts() {
+            return localConflicts.sum();
+        }
+
+        /** Requests refused by Redis, because another server held the lock. */
+        public long getRemoteConflicts() {
+            return remoteConflicts.sum();
+        }
+
+        /** Mean time to acquire a lock or be refused, in microseconds. */
+        public double getMeanWaitMicros() {
+            long count = getAcquired() + getLocalConflicts() + getRemoteConflicts();
+            return (count == 0L) ? 0.0 : acquireNanos.sum() / 1000.0 / count;
+        }
+
+        /** Mean time a lock was held until it was released, in milliseconds. */
+        public double getMeanHoldMillis() {
+            long count = released.sum();
+            return (count == 0L) ? 0.0 : holdNanos.sum() / 1000000.0 / count;
+        }
+    }
+}
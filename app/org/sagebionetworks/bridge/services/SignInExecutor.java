@@ -0,0 +1,185 @@
+package org.sagebionetworks.bridge.services;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+import org.sagebionetworks.bridge.tracing.SpanRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Runs password sign ins on a small, fixed pool of threads. Verifying a password hash is deliberately expensive, and
+ * a burst of sign ins running on the request threads uses the CPU that every other request needs. Here at most
+ * signin.threads sign ins (one per core by default) verify passwords at once.
+ * </p>
+ * <p>
+ * The request thread waits for its own sign in, so sign ins are never queued: a sign in that arrives while every
+ * thread is busy fails right away with a 503 and a Retry-After header. At most signin.threads request threads are
+ * ever waiting here, each for no longer than one sign in takes.
+ * </p>
+ */
+@Component
+public class SignInExecutor {
+
+    static final String THREADS_PROPERTY = "signin.threads";
+    static final int RETRY_AFTER_SECONDS = 2;
+    static final String BUSY_MESSAGE = "Too many sign ins are in progress. Please try again later.";
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder signInNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanosSeen = new LongAccumulator(Long::max, 0L);
+    private ThreadPoolExecutor executor;
+    private Semaphore waiters;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        int threads = (int)getLong(bridgeConfig, THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        // The queue only holds a sign in for the moment between one finishing and its thread being free again;
+        // waiters keeps it from growing past that.
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("SignInExecutor-%d").build());
+        waiters = new Semaphore(threads);
+    }
+
+    /**
+     * Run the sign in and return its session. Exceptions thrown by the sign in are thrown from here unchanged.
+     *
+     * @throws ServiceUnavailableException
+     *      if every sign in thread is busy
+     */
+    public <T> T execute(Supplier<T> signIn) {
+        if (!waiters.tryAcquire()) {
+            rejected.increment();
+            throw new ServiceUnavailableException(BUSY_MESSAGE, RETRY_AFTER_SECONDS);
+        }
+        final long enqueuedOn = System.nanoTime();
+        final RequestContext context = BridgeUtils.getRequestContext();
+        final SpanRecorder recorder = SpanRecorder.current();
+        Future<T> future = executor.submit(() -> run(signIn, enqueuedOn, context, recorder));
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new BridgeServiceException(cause);
+        } finally {
+            waiters.release();
+        }
+    }
+
+    private <T> T run(Supplier<T> signIn, long enqueuedOn, RequestContext context, SpanRecorder recorder) {
+        final long startedOn = System.nanoTime();
+        final long waited = startedOn - enqueuedOn;
+        queueNanos.add(waited);
+        maxQueueNanosSeen.accumulate(waited);
+        if (recorder != null) {
+            recorder.record("queue", "signIn", enqueuedOn, waited);
+        }
+        // The request thread is waiting for this, so its context and recorder can be used from here.
+        BridgeUtils.setRequestContext(context);
+        SpanRecorder.bind(recorder);
+        try {
+            return signIn.get();
+        } finally {
+            SpanRecorder.clear();
+            BridgeUtils.setRequestContext(null);
+            completed.increment();
+            signInNanos.add(System.nanoTime() - startedOn);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    private static long getLong(BridgeConfig bridgeConfig, String property, long defaultValue) {
+        String value = bridgeConfig.get(property);
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+
+    /** Queue depth, and counts and times of sign ins since the server started. */
+    public static class Stats {
+        private final int threads;
+        private final int active;
+        private final int queueDepth;
+        private final long completed;
+        private final long rejected;
+        private final double meanQueueMillis;
+        private final double maxQueueMillis;
+        private final double meanSignInMillis;
+
+        Stats(SignInExecutor signInExecutor) {
+            ThreadPoolExecutor executor = signInExecutor.executor;
+            this.threads = executor.getMaximumPoolSize();
+            this.active = executor.getActiveCount();
+            this.queueDepth = executor.getQueue().size();
+            this.completed = signInExecutor.completed.sum();
+            this.rejected = signInExecutor.rejected.sum();
+            this.meanQueueMillis = (completed == 0L) ? 0.0 : signInExecutor.queueNanos.sum() / 1000000.0 / completed;
+            this.maxQueueMillis = signInExecutor.maxQueueNanosSeen.get() / 1000000.0;
+            this.meanSignInMillis = (completed == 0L) ? 0.0 : signInExecutor.signInNanos.sum() / 1000000.0 / completed;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /** Sign ins running now. */
+        public int getActive() {
+            return active;
+        }
+
+        /** Sign ins waiting for a thread now. */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /** Sign ins that ran, whether they succeeded or not. */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /** Sign ins refused because every thread was busy. */
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getMeanQueueMillis() {
+            return meanQueueMillis;
+        }
+
+        public double getMaxQueueMillis() {
+            return maxQueueMillis;
+        }
+
+        /** Mean time to run a sign in, most of which is verifying the password hash. */
+        public double getMeanSignInMillis() {
+            return meanSignInMillis;
+        }
+    }
+}
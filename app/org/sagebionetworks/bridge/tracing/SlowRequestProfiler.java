@@ -0,0 +1,160 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Opt-in sampling profiler for slow requests. Every request is watched, but nothing happens unless the request is
+ * still running after the threshold has passed. From then until the request completes, the handling thread's stack
+ * is sampled at a fixed interval. Samples are aggregated per route into collapsed stacks (one line per distinct
+ * stack, frames separated by semicolons, followed by a count), which is the input format of flamegraph.pl and most
+ * other flame graph tools.
+ * </p>
+ * <p>
+ * For requests that finish under the threshold, the cost is scheduling and cancelling a single delayed task.
+ * </p>
+ */
+@Component
+public class SlowRequestProfiler {
+
+    static final String ENABLED_PROPERTY = "profiler.enabled";
+    static final String THRESHOLD_MILLIS_PROPERTY = "profiler.slow.request.millis";
+    static final String INTERVAL_MILLIS_PROPERTY = "profiler.sample.interval.millis";
+    static final long DEFAULT_THRESHOLD_MILLIS = 1000L;
+    static final long DEFAULT_INTERVAL_MILLIS = 20L;
+    /** Bounds memory if a route produces a very large number of distinct stacks. */
+    static final int MAX_STACKS_PER_ROUTE = 5000;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> stacksByRoute = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor executor;
+    private long thresholdMillis = DEFAULT_THRESHOLD_MILLIS;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        thresholdMillis = getLong(bridgeConfig, THRESHOLD_MILLIS_PROPERTY, DEFAULT_THRESHOLD_MILLIS);
+        intervalMillis = getLong(bridgeConfig, INTERVAL_MILLIS_PROPERTY, DEFAULT_INTERVAL_MILLIS);
+        if (Boolean.valueOf(bridgeConfig.get(ENABLED_PROPERTY))) {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("SlowRequestProfiler-%d").build());
+            // Cancelled watches (the common case) are removed from the queue immediately.
+            executor.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Start watching the thread handling a request. Returns null if the profiler is not enabled, otherwise a watch
+     * that must be stopped when the request completes.
+     */
+    public Watch watch(Thread thread, String route) {
+        if (executor == null) {
+            return null;
+        }
+        Watch watch = new Watch(thread, route);
+        watch.future = executor.scheduleAtFixedRate(watch, thresholdMillis, intervalMillis, MILLISECONDS);
+        return watch;
+    }
+
+    /**
+     * All samples in collapsed stack format, with the route as the root frame. If a route is provided, only the
+     * samples for that route are returned.
+     */
+    public String getCollapsedStacks(String route) {
+        StringBuilder sb = new StringBuilder();
+        Map<String, ConcurrentMap<String, LongAdder>> sorted = new TreeMap<>(stacksByRoute);
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> routeEntry : sorted.entrySet()) {
+            if (route != null && !route.equals(routeEntry.getKey())) {
+                continue;
+            }
+            for (Map.Entry<String, LongAdder> entry : routeEntry.getValue().entrySet()) {
+                sb.append(routeEntry.getKey()).append(';').append(entry.getKey());
+                sb.append(' ').append(entry.getValue().sum()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Discard all samples collected so far. */
+    public void clear() {
+        stacksByRoute.clear();
+    }
+
+    void addSample(String route, StackTraceElement[] stack) {
+        if (stack.length == 0) {
+            return;
+        }
+        ConcurrentMap<String, LongAdder> stacks = stacksByRoute.computeIfAbsent(route,
+                key -> new ConcurrentHashMap<>());
+        String collapsed = collapse(stack);
+        LongAdder counter = stacks.get(collapsed);
+        if (counter == null) {
+            if (stacks.size() >= MAX_STACKS_PER_ROUTE) {
+                return;
+            }
+            counter = stacks.computeIfAbsent(collapsed, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    // Thread stacks are leaf first; collapsed stacks are root first.
+    static String collapse(StackTraceElement[] stack) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            sb.append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+            if (i > 0) {
+                sb.append(';');
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Samples one request's thread once the threshold has passed, until stopped. */
+    public final class Watch implements Runnable {
+        private final Thread thread;
+        private final String route;
+        private volatile boolean stopped;
+        private ScheduledFuture<?> future;
+
+        private Watch(Thread thread, String route) {
+            this.thread = thread;
+            this.route = route;
+        }
+
+        @Override
+        public void run() {
+            StackTraceElement[] stack = thread.getStackTrace();
+            // The thread may have moved on to another request while the stack was being captured.
+            if (!stopped) {
+                addSample(route, stack);
+            }
+        }
+
+        public void stop() {
+            stopped = true;
+            future.cancel(false);
+        }
+    }
+
+    private static long getLong(BridgeConfig bridgeConfig, String property, long defaultValue) {
+        String value = bridgeConfig.get(property);
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+}
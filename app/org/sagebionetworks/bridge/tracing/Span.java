@@ -0,0 +1,37 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A single timed call to a downstream system (DynamoDB, S3, Redis or MySQL) made while handling a request. The offset
+ * is measured from the start of the request, so a list of spans can be read as a timeline.
+ */
+public final class Span {
+    private final String downstream;
+    private final String operation;
+    private final long offsetNanos;
+    private final long durationNanos;
+
+    Span(String downstream, String operation, long offsetNanos, long durationNanos) {
+        this.downstream = downstream;
+        this.operation = operation;
+        this.offsetNanos = offsetNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    public String getDownstream() {
+        return downstream;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getOffsetMicros() {
+        return NANOSECONDS.toMicros(offsetNanos);
+    }
+
+    public long getDurationMicros() {
+        return NANOSECONDS.toMicros(durationNanos);
+    }
+}
@@ -0,0 +1,144 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Records the downstream calls made while handling a single request. A recorder is bound to the request thread by the
+ * MetricsInterceptor for the duration of the call. Instrumented clients look it up with {@link #current()} and do
+ * nothing when there isn't one (background threads, Spring initialization, etc.).
+ *
+ * A recorder is only ever written to by the request thread, so it is not synchronized.
+ */
+public final class SpanRecorder {
+
+    /** The number of individual spans kept for the full trace. Totals are kept for all spans. */
+    static final int MAX_RECORDED_SPANS = 500;
+
+    private static final ThreadLocal<SpanRecorder> CURRENT = new ThreadLocal<>();
+
+    private final String requestId;
+    private final long startNanos;
+    private final List<Span> spans = new ArrayList<>();
+    // downstream -> [count, total nanos]
+    private final Map<String, long[]> totals = new TreeMap<>();
+    private int droppedSpans;
+
+    SpanRecorder(String requestId, long startNanos) {
+        this.requestId = requestId;
+        this.startNanos = startNanos;
+    }
+
+    /** Create a recorder and bind it to the current thread. */
+    public static SpanRecorder start(String requestId) {
+        SpanRecorder recorder = new SpanRecorder(requestId, System.nanoTime());
+        CURRENT.set(recorder);
+        return recorder;
+    }
+
+    /** The recorder bound to the current thread, or null if no request is being traced on this thread. */
+    public static SpanRecorder current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind a request's recorder to the current thread, for work handed off to another thread while the request thread
+     * waits for it. Nothing is bound if the recorder is null.
+     */
+    public static void bind(SpanRecorder recorder) {
+        if (recorder != null) {
+            CURRENT.set(recorder);
+        }
+    }
+
+    /** Unbind any recorder from the current thread. */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Record a call to a downstream system.
+     *
+     * @param downstream
+     *      short name of the system called (ddb, s3, redis, mysql)
+     * @param operation
+     *      the operation called on that system, e.g. "Query"
+     * @param callStartNanos
+     *      System.nanoTime() when the call was started
+     * @param durationNanos
+     *      the duration of the call in nanoseconds
+     */
+    public void record(String downstream, String operation, long callStartNanos, long durationNanos) {
+        long[] total = totals.get(downstream);
+        if (total == null) {
+            total = new long[2];
+            totals.put(downstream, total);
+        }
+        total[0]++;
+        total[1] += durationNanos;
+
+        if (spans.size() < MAX_RECORDED_SPANS) {
+            spans.add(new Span(downstream, operation, callStartNanos - startNanos, durationNanos));
+        } else {
+            droppedSpans++;
+        }
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    public boolean isEmpty() {
+        return totals.isEmpty();
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * A compact summary of the calls made to each downstream system, suitable for the metrics log line, e.g.
+     * <code>{"ddb":{"count":3,"millis":12},"redis":{"count":2,"millis":1}}</code>.
+     */
+    public ObjectNode getSummary() {
+        ObjectNode summary = JsonNodeFactory.instance.objectNode();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            ObjectNode node = summary.putObject(entry.getKey());
+            node.put("count", entry.getValue()[0]);
+            node.put("millis", NANOSECONDS.toMillis(entry.getValue()[1]));
+        }
+        return summary;
+    }
+
+    /** The full trace, with every recorded span in the order it was made. */
+    public ObjectNode getTrace() {
+        ObjectNode trace = JsonNodeFactory.instance.objectNode();
+        trace.put("request_id", requestId);
+        trace.put("elapsed_millis", NANOSECONDS.toMillis(getElapsedNanos()));
+        trace.set("summary", getSummary());
+        ArrayNode array = trace.putArray("spans");
+        for (Span span : spans) {
+            ObjectNode node = array.addObject();
+            node.put("downstream", span.getDownstream());
+            node.put("operation", span.getOperation());
+            node.put("offset_micros", span.getOffsetMicros());
+            node.put("duration_micros", span.getDurationMicros());
+        }
+        if (droppedSpans > 0) {
+            trace.put("dropped_spans", droppedSpans);
+        }
+        return trace;
+    }
+}
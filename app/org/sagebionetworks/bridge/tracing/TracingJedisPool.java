@@ -0,0 +1,78 @@
+package org.sagebionetworks.bridge.tracing;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import org.sagebionetworks.bridge.redis.CompressingJedisFactory;
+import org.sagebionetworks.bridge.redis.RedisValueCodec;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * JedisPool that records a span from the moment a connection is borrowed until it is returned. JedisOps borrows a
+ * connection for every command it issues, so each span corresponds to one Redis call (including time waiting on the
+ * pool).
+ */
+public class TracingJedisPool extends JedisPool {
+
+    static final String DOWNSTREAM = "redis";
+
+    private final Map<Jedis, Long> borrowed = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public TracingJedisPool(GenericObjectPoolConfig poolConfig, String host, int port, int timeout) {
+        super(poolConfig, host, port, timeout);
+    }
+
+    public TracingJedisPool(GenericObjectPoolConfig poolConfig, String host, int port, int timeout,
+            String password) {
+        super(poolConfig, host, port, timeout, password);
+    }
+
+    /**
+     * A pool whose connections compress and decompress values with the codec (see CompressingJedisFactory).
+     * JedisPool has no constructor that takes a connection factory, so it's given the same server and settings with
+     * a default pool config, which creates no connections and no evictor, and the pool is then configured with the
+     * compressing factory and the real config before it's used.
+     */
+    public TracingJedisPool(GenericObjectPoolConfig poolConfig, String host, int port, int timeout, String password,
+            RedisValueCodec codec) {
+        super(new GenericObjectPoolConfig(), host, port, timeout, password);
+        initPool(poolConfig, new CompressingJedisFactory(host, port, timeout, password, codec));
+    }
+
+    @Override
+    public Jedis getResource() {
+        long startNanos = System.nanoTime();
+        Jedis jedis = super.getResource();
+        if (SpanRecorder.current() != null) {
+            borrowed.put(jedis, startNanos);
+        }
+        return jedis;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void returnResource(Jedis resource) {
+        finish(resource);
+        super.returnResource(resource);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void returnBrokenResource(Jedis resource) {
+        finish(resource);
+        super.returnBrokenResource(resource);
+    }
+
+    private void finish(Jedis resource) {
+        Long startNanos = borrowed.remove(resource);
+        SpanRecorder recorder = SpanRecorder.current();
+        if (startNanos != null && recorder != null) {
+            recorder.record(DOWNSTREAM, "command", startNanos, System.nanoTime() - startNanos);
+        }
+    }
+}
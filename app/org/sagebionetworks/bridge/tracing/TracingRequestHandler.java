@@ -0,0 +1,59 @@
+package org.sagebionetworks.bridge.tracing;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+
+/**
+ * AWS SDK request handler that records a span for every call made through an AWS client (DynamoDB, S3) while a
+ * request is being traced. Register it with {@code client.addRequestHandler(...)}.
+ */
+public class TracingRequestHandler extends RequestHandler2 {
+
+    private final String downstream;
+    private final Map<Request<?>, Long> inflight = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public TracingRequestHandler(String downstream) {
+        this.downstream = downstream;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        if (SpanRecorder.current() != null) {
+            inflight.put(request, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        finish(request);
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        finish(request);
+    }
+
+    private void finish(Request<?> request) {
+        Long startNanos = inflight.remove(request);
+        SpanRecorder recorder = SpanRecorder.current();
+        if (startNanos != null && recorder != null) {
+            recorder.record(downstream, getOperation(request), startNanos, System.nanoTime() - startNanos);
+        }
+    }
+
+    // QueryRequest => Query, GetObjectRequest => GetObject
+    static String getOperation(Request<?> request) {
+        AmazonWebServiceRequest original = request.getOriginalRequest();
+        if (original == null) {
+            return "unknown";
+        }
+        String name = original.getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+}
@@ -0,0 +1,55 @@
+package org.sagebionetworks.bridge.tracing;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate session listener that records spans for JDBC connection acquisition and statement execution. Hibernate
+ * creates one instance per session (see the "hibernate.session.events.auto" setting), and sessions are confined to a
+ * single thread, so the start times can be held in plain fields.
+ */
+public class TracingSessionEventListener extends BaseSessionEventListener {
+    private static final long serialVersionUID = 6094836722617539254L;
+
+    static final String DOWNSTREAM = "mysql";
+
+    private long connectionStart;
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        connectionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        record("connect", connectionStart);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record("execute", statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record("batch", batchStart);
+    }
+
+    private void record(String operation, long startNanos) {
+        SpanRecorder recorder = SpanRecorder.current();
+        if (recorder != null) {
+            recorder.record(DOWNSTREAM, operation, startNanos, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.play.interceptors.RequestUtils;
+
+import play.mvc.Http.Request;
+
+/**
+ * <p>
+ * Opt-in capture of the shape of incoming traffic, for replay against a local build (see TrafficReplay in the
+ * loadtest project). One JSON line is written per request, with the route, method, path, query string, a whitelist
+ * of headers, whether a session was supplied, the body size, and the status and latency observed. Session tokens,
+ * cookies and client addresses are never written. Path parameters other than a few that can't identify anyone (the
+ * study, schema and survey IDs and the like), and query parameters that can carry personal information, are masked
+ * with asterisks of the same length.
+ * </p>
+ * <p>
+ * If enabled with capture.bodies, JSON bodies are also written with every string replaced by asterisks of the same
+ * length and every number replaced by zero, so the structure and size of payloads are kept but not their content.
+ * </p>
+ * <p>
+ * Records are written to rolling files in capture.dir by a single background thread. If that thread falls behind,
+ * records are dropped rather than slowing down requests.
+ * </p>
+ */
+@Component
+public class TrafficCapture {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrafficCapture.class);
+
+    static final String ENABLED_PROPERTY = "capture.enabled";
+    static final String BODIES_PROPERTY = "capture.bodies";
+    static final String DIR_PROPERTY = "capture.dir";
+    static final String MAX_FILE_BYTES_PROPERTY = "capture.max.file.bytes";
+    static final String MAX_FILES_PROPERTY = "capture.max.files";
+    static final String DEFAULT_DIR = "logs/capture";
+    static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    static final int DEFAULT_MAX_FILES = 10;
+    static final String FILE_PREFIX = "capture-";
+    static final String FILE_SUFFIX = ".jsonl";
+    private static final int QUEUE_SIZE = 10000;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormat.forPattern("yyyyMMdd-HHmmss-SSS")
+            .withZone(DateTimeZone.UTC);
+
+    static final Set<String> CAPTURED_HEADERS = ImmutableSet.of("Accept", "Accept-Encoding", "Accept-Language",
+            "Content-Type", "User-Agent");
+    /** Path parameters kept as they are; every other path parameter (health codes, user IDs...) is masked. */
+    static final Set<String> UNMASKED_PATH_PARAMETERS = ImmutableSet.of("studyId", "study", "guid", "surveyGuid",
+            "schemaId", "createdOn", "revision", "rev", "version", "timestamp", "vendorId", "activityType",
+            "reportId", "referentGuid", "referrentGuid", "taskId", "date");
+    /** The request tag Play's router sets to the route's path pattern, e.g. /v3/participants/$userId<[^/]+>. */
+    static final String ROUTE_PATTERN_TAG = "ROUTE_PATTERN";
+    static final Set<String> MASKED_QUERY_PARAMETERS = ImmutableSet.of("email", "emailFilter", "phone",
+            "phoneFilter", "externalId", "idFilter", "token");
+
+    private final AtomicLong dropped = new AtomicLong();
+    private ThreadPoolExecutor writer;
+    private boolean captureBodies;
+    private File dir;
+    private long maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+    private int maxFiles = DEFAULT_MAX_FILES;
+    // Only touched by the writer thread
+    private OutputStream out;
+    private long outBytes;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        captureBodies = Boolean.valueOf(bridgeConfig.get(BODIES_PROPERTY));
+        String dirName = bridgeConfig.get(DIR_PROPERTY);
+        dir = new File(dirName == null ? DEFAULT_DIR : dirName);
+        String value = bridgeConfig.get(MAX_FILE_BYTES_PROPERTY);
+        if (value != null) {
+            maxFileBytes = Long.parseLong(value);
+        }
+        value = bridgeConfig.get(MAX_FILES_PROPERTY);
+        if (value != null) {
+            maxFiles = Integer.parseInt(value);
+        }
+        if (Boolean.valueOf(bridgeConfig.get(ENABLED_PROPERTY))) {
+            writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("TrafficCapture-%d").build(),
+                    (task, executor) -> dropped.incrementAndGet());
+        }
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /** Number of records dropped because the writer could not keep up. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Capture one completed request. Building the record happens on the calling thread (the request is not safe to
+     * read from another thread), serializing and writing it happens in the background.
+     */
+    public void capture(Request request, String route, int status, long latencyNanos) {
+        if (writer == null) {
+            return;
+        }
+        ObjectNode record = createRecord(request, route, status, latencyNanos);
+        writer.execute(() -> write(record));
+    }
+
+    ObjectNode createRecord(Request request, String route, int status, long latencyNanos) {
+        ObjectNode record = JsonNodeFactory.instance.objectNode();
+        // When the request started, so a replay reproduces the original arrival times
+        record.put("timestamp", DateTime.now().getMillis() - TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        record.put("route", route);
+        record.put("method", request.method());
+        Map<String, String> tags = request.tags();
+        record.put("path", maskPath(request.path(), (tags == null) ? null : tags.get(ROUTE_PATTERN_TAG)));
+        String query = maskQuery(request.uri());
+        if (query != null) {
+            record.put("query", query);
+        }
+        ObjectNode headers = record.putObject("headers");
+        for (String header : CAPTURED_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                headers.put(header, value);
+            }
+        }
+        record.put("session", request.getHeader(BridgeConstants.SESSION_TOKEN_HEADER) != null);
+        String contentLength = request.getHeader("Content-Length");
+        record.put("bodyBytes", contentLength == null ? 0L : Long.parseLong(contentLength));
+        if (captureBodies) {
+            JsonNode body = getJsonBody(request);
+            if (body != null) {
+                record.set("body", scrub(body));
+            }
+        }
+        record.put("status", status);
+        record.put("latencyMillis", TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        return record;
+    }
+
+    /**
+     * The path with each parameter not in UNMASKED_PATH_PARAMETERS replaced by asterisks. If the route's pattern is
+     * unknown or doesn't line up with the path, every segment is masked.
+     */
+    static String maskPath(String path, String pattern) {
+        String[] segments = path.split("/", -1);
+        String[] patternSegments = (pattern == null) ? null : pattern.split("/", -1);
+        boolean matched = patternSegments != null && patternSegments.length == segments.length;
+        StringBuilder sb = new StringBuilder();
+        for (int i=0; i < segments.length; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            if (matched && !isMaskedParameter(patternSegments[i])) {
+                sb.append(segments[i]);
+            } else {
+                sb.append(Strings.repeat("*", segments[i].length()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** A pattern segment is a parameter if it starts with $, e.g. $userId<[^/]+>. */
+    private static boolean isMaskedParameter(String patternSegment) {
+        if (!patternSegment.startsWith("$")) {
+            return false;
+        }
+        int end = patternSegment.indexOf('<');
+        String name = patternSegment.substring(1, (end < 0) ? patternSegment.length() : end);
+        return !UNMASKED_PATH_PARAMETERS.contains(name);
+    }
+
+    static String maskQuery(String uri) {
+        int index = uri.indexOf('?');
+        if (index < 0 || index == uri.length() - 1) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String pair : uri.substring(index + 1).split("&")) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            int equals = pair.indexOf('=');
+            String name = (equals < 0) ? pair : pair.substring(0, equals);
+            if (equals >= 0 && MASKED_QUERY_PARAMETERS.contains(name)) {
+                sb.append(name).append("=").append(Strings.repeat("*", pair.length() - equals - 1));
+            } else {
+                sb.append(pair);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** A copy of the JSON with the same structure and sizes, but with no values other than booleans and nulls. */
+    static JsonNode scrub(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode copy = JsonNodeFactory.instance.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                copy.set(field.getKey(), scrub(field.getValue()));
+            }
+            return copy;
+        } else if (node.isArray()) {
+            ArrayNode copy = JsonNodeFactory.instance.arrayNode();
+            for (JsonNode element : node) {
+                copy.add(scrub(element));
+            }
+            return copy;
+        } else if (node.isTextual()) {
+            return TextNode.valueOf(Strings.repeat("*", node.textValue().length()));
+        } else if (node.isNumber()) {
+            return IntNode.valueOf(0);
+        }
+        return node;
+    }
+
+    private static JsonNode getJsonBody(Request request) {
+        try {
+            byte[] bytes = RequestUtils.getBodyBytes(request);
+            if (bytes != null && bytes.length > 0) {
+                return BridgeObjectMapper.get().readTree(bytes);
+            }
+            JsonNode json = request.body().asJson();
+            if (json != null) {
+                return json;
+            }
+            String text = request.body().asText();
+            return (text == null) ? null : BridgeObjectMapper.get().readTree(text);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void write(ObjectNode record) {
+        try {
+            byte[] bytes = (record.toString() + "\n").getBytes(UTF_8);
+            if (out == null || outBytes + bytes.length > maxFileBytes) {
+                roll();
+            }
+            out.write(bytes);
+            out.flush();
+            outBytes += bytes.length;
+        } catch (IOException e) {
+            LOG.warn("Could not write traffic capture record", e);
+        }
+    }
+
+    private void roll() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create traffic capture directory " + dir);
+        }
+        File file = new File(dir, FILE_PREFIX + FILE_TIMESTAMP.print(DateTime.now()) + FILE_SUFFIX);
+        out = new FileOutputStream(file);
+        outBytes = 0L;
+
+        // The timestamp in the names sorts oldest first.
+        File[] files = dir.listFiles((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files != null && files.length > maxFiles) {
+            Arrays.sort(files);
+            for (int i = 0; i < files.length - maxFiles; i++) {
+                if (!files[i].delete()) {
+                    LOG.warn("Could not delete old traffic capture file " + files[i]);
+                }
+            }
+        }
+    }
+}
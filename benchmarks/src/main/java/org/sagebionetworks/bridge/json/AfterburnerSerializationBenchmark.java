@@ -0,0 +1,98 @@
+package org.sagebionetworks.bridge.json;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.models.ResourceList;
+import org.sagebionetworks.bridge.models.accounts.SharingScope;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+
+/**
+ * Throughput of the models' own (reflective) writers versus the equivalent Afterburner writers used by
+ * BaseController, for the two payloads that dominate our busiest endpoints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AfterburnerSerializationBenchmark {
+
+    private static final ObjectWriter ACTIVITY_WRITER = ScheduledActivity.SCHEDULED_ACTIVITY_WRITER;
+    private static final ObjectWriter PARTICIPANT_WRITER = StudyParticipant.API_NO_HEALTH_CODE_WRITER;
+
+    @Param({"10", "100"})
+    private int activityCount;
+
+    private ObjectWriter fastActivityWriter;
+    private ObjectWriter fastParticipantWriter;
+    private ResourceList<ScheduledActivity> activities;
+    private StudyParticipant participant;
+
+    @Setup
+    public void setup() {
+        fastActivityWriter = AfterburnerObjectMapper.writer(ACTIVITY_WRITER);
+        fastParticipantWriter = AfterburnerObjectMapper.writer(PARTICIPANT_WRITER);
+
+        LocalDateTime scheduledOn = LocalDateTime.parse("2018-10-01T09:00:00");
+        List<ScheduledActivity> list = Lists.newArrayListWithCapacity(activityCount);
+        for (int i=0; i < activityCount; i++) {
+            ScheduledActivity activity = ScheduledActivity.create();
+            activity.setGuid(BridgeUtils.generateGuid());
+            activity.setTimeZone(DateTimeZone.UTC);
+            activity.setLocalScheduledOn(scheduledOn.plusHours(i));
+            activity.setActivity(TestUtils.getActivity1());
+            list.add(activity);
+        }
+        activities = new ResourceList<>(list);
+
+        participant = new StudyParticipant.Builder().withId(BridgeUtils.generateGuid()).withFirstName("FirstName")
+                .withLastName("LastName").withEmail("user@example.com").withExternalId("externalId")
+                .withSharingScope(SharingScope.ALL_QUALIFIED_RESEARCHERS).withNotifyByEmail(true)
+                .withDataGroups(ImmutableSet.of("group1", "group2")).withLanguages(ImmutableList.of("en", "fr"))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] activitiesReflective() throws Exception {
+        return ACTIVITY_WRITER.writeValueAsBytes(activities);
+    }
+
+    @Benchmark
+    public byte[] activitiesAfterburner() throws Exception {
+        return fastActivityWriter.writeValueAsBytes(activities);
+    }
+
+    @Benchmark
+    public byte[] participantReflective() throws Exception {
+        return PARTICIPANT_WRITER.writeValueAsBytes(participant);
+    }
+
+    @Benchmark
+    public byte[] participantAfterburner() throws Exception {
+        return fastParticipantWriter.writeValueAsBytes(participant);
+    }
+}
@@ -0,0 +1,84 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.mvc.Http;
+import play.mvc.Result;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+
+/**
+ * Request parsing and response serialization helpers in BaseController. The Play context is mocked the same way it
+ * is in unit tests, so absolute numbers include a small, constant Mockito overhead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseControllerBenchmark {
+    
+    static final String USER_AGENT = "Asthma/26 (Unknown iPhone; iPhone OS/9.1) BridgeSDK/4";
+    static final String ACCEPT_LANGUAGE = "en-US,en;q=0.9,fr;q=0.8,de;q=0.7";
+    
+    private BaseController controller;
+    
+    private Http.Request request;
+    
+    private StudyParticipant participant;
+    
+    @Setup
+    public void setup() throws Exception {
+        participant = TestUtils.getStudyParticipant(BaseControllerBenchmark.class);
+        String json = BridgeObjectMapper.get().writeValueAsString(participant);
+        
+        TestUtils.mockPlay().withJsonBody(json)
+            .withHeader("User-Agent", USER_AGENT)
+            .withHeader("Accept-Language", ACCEPT_LANGUAGE)
+            .withMockResponse().mock();
+        request = Http.Context.current().request();
+        
+        controller = new BaseController() {};
+    }
+    
+    @Benchmark
+    public StudyParticipant parseJson() {
+        return BaseController.parseJson(request, StudyParticipant.class);
+    }
+    
+    @Benchmark
+    public Result okResult() {
+        return controller.okResult(participant);
+    }
+    
+    @Benchmark
+    public Result okResultWithWriter() throws Exception {
+        return controller.okResult(StudyParticipant.API_WITH_HEALTH_CODE_WRITER, participant);
+    }
+    
+    @Benchmark
+    public List<String> getLanguagesFromAcceptLanguageHeader() {
+        return controller.getLanguagesFromAcceptLanguageHeader();
+    }
+    
+    @Benchmark
+    public ClientInfo getClientInfoFromUserAgentHeader() {
+        return controller.getClientInfoFromUserAgentHeader();
+    }
+}
@@ -0,0 +1,100 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+import play.mvc.Http;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+
+/**
+ * Binding a request body of scheduled activities (as sent to POST /v4/activities) the old way, through a JsonNode
+ * tree, versus directly from the raw bytes kept by the JsonBodyParser. Run with -prof gc to compare allocation rates
+ * (gc.alloc.rate.norm is bytes allocated per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseJsonBenchmark {
+
+    private static final ObjectMapper MAPPER = BridgeObjectMapper.get();
+    private static final TypeReference<ArrayList<ScheduledActivity>> TYPE_REF =
+            new TypeReference<ArrayList<ScheduledActivity>>() {};
+
+    @Param({"10", "100"})
+    private int activityCount;
+
+    private byte[] body;
+
+    private Http.Request request;
+
+    @Setup
+    public void setup() throws Exception {
+        LocalDateTime scheduledOn = LocalDateTime.parse("2018-10-01T09:00:00");
+        List<ScheduledActivity> activities = Lists.newArrayListWithCapacity(activityCount);
+        for (int i=0; i < activityCount; i++) {
+            ScheduledActivity activity = ScheduledActivity.create();
+            activity.setGuid(BridgeUtils.generateGuid());
+            activity.setTimeZone(DateTimeZone.UTC);
+            activity.setLocalScheduledOn(scheduledOn.plusHours(i));
+            activity.setActivity(TestUtils.getActivity1());
+            activities.add(activity);
+        }
+        body = MAPPER.writeValueAsBytes(activities);
+
+        TestUtils.mockPlay().withJsonBody(new String(body, UTF_8)).mock();
+        request = Http.Context.current().request();
+    }
+
+    /** What Play's default parser and the old parseJson(JsonNode) + convertValue() did. */
+    @Benchmark
+    public List<ScheduledActivity> treeThenConvert() throws Exception {
+        JsonNode node = MAPPER.readTree(body);
+        return MAPPER.convertValue(node, TYPE_REF);
+    }
+
+    /** What the old parseJson() did for text/plain bodies. */
+    @Benchmark
+    public List<ScheduledActivity> textThenBind() throws Exception {
+        return MAPPER.readValue(new String(body, UTF_8), TYPE_REF);
+    }
+
+    @Benchmark
+    public List<ScheduledActivity> bytesBind() throws Exception {
+        return MAPPER.readValue(body, TYPE_REF);
+    }
+
+    /** The full parseJson() path from a raw body, including the (mocked) request accessors. */
+    @Benchmark
+    public List<ScheduledActivity> parseJsonFromRawBody() {
+        return BaseController.parseJson(request, TYPE_REF);
+    }
+}
@@ -0,0 +1,75 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.mvc.Result;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.schedules.SchedulePlan;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.services.SchedulePlanService;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The legacy v3 schedules API, which resolves each plan's schedule for the user and then rewrites the serialized
+ * JSON tree. The schedule plan service is mocked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleControllerBenchmark {
+    
+    private ScheduleController controller;
+    
+    @Setup
+    public void setup() throws Exception {
+        StudyIdentifier studyId = new StudyIdentifierImpl("api");
+        ClientInfo clientInfo = ClientInfo.fromUserAgentCache(BaseControllerBenchmark.USER_AGENT);
+        List<SchedulePlan> plans = TestUtils.getSchedulePlans(studyId);
+        
+        SchedulePlanService schedulePlanService = mock(SchedulePlanService.class);
+        when(schedulePlanService.getSchedulePlans(clientInfo, studyId, false)).thenReturn(plans);
+        
+        UserSession session = new UserSession(new StudyParticipant.Builder()
+                .withLanguages(ImmutableList.of("en")).build());
+        session.setStudyIdentifier(studyId);
+        
+        controller = spy(new ScheduleController());
+        controller.setSchedulePlanService(schedulePlanService);
+        doReturn(session).when(controller).getAuthenticatedAndConsentedSession();
+        doReturn(clientInfo).when(controller).getClientInfoFromUserAgentHeader();
+        
+        TestUtils.mockPlay().withMockResponse().mock();
+    }
+    
+    @SuppressWarnings("deprecation")
+    @Benchmark
+    public Result getSchedulesV3() throws Exception {
+        return controller.getSchedulesV3();
+    }
+}
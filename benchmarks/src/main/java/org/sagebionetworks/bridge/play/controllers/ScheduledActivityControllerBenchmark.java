@@ -0,0 +1,77 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+import play.mvc.Result;
+
+import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.models.ResourceList;
+import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+
+/**
+ * Serialization of a participant's scheduled activities, in both the legacy "tasks" format (which rewrites the
+ * serialized tree) and through the filtered writer used by the current APIs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduledActivityControllerBenchmark {
+    
+    @Param({"10", "100"})
+    private int activityCount;
+    
+    private ScheduledActivityController controller;
+    
+    private List<ScheduledActivity> activities;
+    
+    @Setup
+    public void setup() throws Exception {
+        TestUtils.mockPlay().withMockResponse().mock();
+        controller = new ScheduledActivityController();
+        
+        LocalDateTime scheduledOn = LocalDateTime.parse("2018-10-01T09:00:00");
+        activities = Lists.newArrayListWithCapacity(activityCount);
+        for (int i=0; i < activityCount; i++) {
+            ScheduledActivity activity = ScheduledActivity.create();
+            activity.setGuid(BridgeUtils.generateGuid());
+            activity.setHealthCode("healthCode");
+            activity.setSchedulePlanGuid("schedulePlanGuid");
+            activity.setTimeZone(DateTimeZone.UTC);
+            activity.setLocalScheduledOn(scheduledOn.plusHours(i));
+            activity.setActivity(TestUtils.getActivity1());
+            activities.add(activity);
+        }
+    }
+    
+    @Benchmark
+    public Result okResultAsTasks() {
+        return controller.okResultAsTasks(activities);
+    }
+    
+    @Benchmark
+    public Result okResultWithWriter() throws Exception {
+        return controller.okResult(ScheduledActivity.SCHEDULED_ACTIVITY_WRITER,
+                new ResourceList<ScheduledActivity>(activities));
+    }
+}
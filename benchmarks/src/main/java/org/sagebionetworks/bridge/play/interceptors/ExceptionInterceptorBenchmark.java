@@ -0,0 +1,83 @@
+package org.sagebionetworks.bridge.play.interceptors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import play.mvc.Result;
+
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
+import org.sagebionetworks.bridge.config.Environment;
+import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
+import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.models.accounts.SharingScope;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+
+/**
+ * Conversion of exceptions to error responses. The 412 (consent required) response is the most common error we
+ * return, since it's returned on every call from a participant who has not yet consented.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionInterceptorBenchmark {
+    
+    private ExceptionInterceptor interceptor;
+    
+    private ConsentRequiredException consentRequiredException;
+    
+    private EntityNotFoundException entityNotFoundException;
+    
+    @Setup
+    public void setup() {
+        interceptor = new ExceptionInterceptor();
+        interceptor.setUserSessionInfoCache(new UserSessionInfoCache());
+        
+        StudyParticipant participant = new StudyParticipant.Builder()
+                .withEmail("email@email.com")
+                .withFirstName("firstName")
+                .withLastName("lastName")
+                .withHealthCode("healthCode")
+                .withId("userId")
+                .withSharingScope(SharingScope.ALL_QUALIFIED_RESEARCHERS)
+                .withDataGroups(ImmutableSet.of("group1")).build();
+        UserSession session = new UserSession(participant);
+        session.setAuthenticated(true);
+        session.setEnvironment(Environment.DEV);
+        session.setSessionToken("sessionToken");
+        session.setReauthToken("reauthToken");
+        session.setStudyIdentifier(new StudyIdentifierImpl("api"));
+        session.setConsentStatuses(Maps.newHashMap());
+        
+        consentRequiredException = new ConsentRequiredException(session);
+        entityNotFoundException = new EntityNotFoundException(Study.class);
+    }
+    
+    @Benchmark
+    public Result consentRequired() throws Exception {
+        return interceptor.getResult(consentRequiredException);
+    }
+    
+    @Benchmark
+    public Result entityNotFound() throws Exception {
+        return interceptor.getResult(entityNotFoundException);
+    }
+}
@@ -0,0 +1,61 @@
+package org.sagebionetworks.bridge.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.config.BridgeConfigFactory;
+
+/**
+ * The cost the rate limiter adds to every request: finding the caller's two buckets and taking a token from each.
+ * Limits are set high enough that no request is turned away. Syncing counts through Redis happens on another thread
+ * and isn't measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestRateLimiterBenchmark {
+    
+    private static final int USERS = 10000;
+    
+    private RequestRateLimiter limiter;
+    
+    private String[] userIds;
+    
+    private int next;
+    
+    @Setup
+    public void setup() {
+        System.setProperty(RequestRateLimiter.USER_LIMIT_PROPERTY, Integer.toString(Integer.MAX_VALUE));
+        System.setProperty(RequestRateLimiter.STUDY_LIMIT_PROPERTY, Integer.toString(Integer.MAX_VALUE));
+        limiter = new RequestRateLimiter();
+        limiter.setBridgeConfig(BridgeConfigFactory.getConfig());
+        
+        userIds = new String[USERS];
+        for (int i=0; i < USERS; i++) {
+            userIds[i] = "user" + i;
+        }
+    }
+    
+    @Benchmark
+    public void sameUser() {
+        limiter.acquire("api", "user0", "ScheduleController");
+    }
+    
+    @Benchmark
+    public void manyUsers() {
+        limiter.acquire("api", userIds[next++ % USERS], "ScheduleController");
+    }
+}
@@ -0,0 +1,68 @@
+package org.sagebionetworks.bridge.redis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.surveys.TestSurvey;
+
+/**
+ * Time to compress and decompress a published survey, the largest view we cache. The compression ratio is printed
+ * at the end of the run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisValueCodecBenchmark {
+
+    private RedisValueCodec codec;
+    private String survey;
+    private byte[] compressedSurvey;
+    private byte[] plainSurvey;
+
+    @Setup
+    public void setup() throws Exception {
+        codec = new RedisValueCodec();
+        codec.setCompressionEnabled(true);
+        survey = BridgeObjectMapper.get().writeValueAsString(new TestSurvey(RedisValueCodecBenchmark.class, true));
+        compressedSurvey = codec.encode(survey);
+
+        RedisValueCodec uncompressed = new RedisValueCodec();
+        plainSurvey = uncompressed.encode(survey);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nSurvey of %d bytes compressed %.1f:1%n", plainSurvey.length,
+                codec.getCompressionRatio());
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return codec.encode(survey);
+    }
+
+    @Benchmark
+    public String decompress() {
+        return codec.decode(compressedSurvey);
+    }
+
+    @Benchmark
+    public String decodeUncompressed() {
+        return codec.decode(plainSurvey);
+    }
+}
@@ -0,0 +1,268 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.sagebionetworks.bridge.TestUserAdminHelper.TestUser;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+/**
+ * Runs a weighted mix of participant operations against a server from a fixed number of client threads, each issuing
+ * requests back to back, and collects latency per route. Clients sign in as a randomly chosen participant before
+ * each operation and reuse that participant's session until it expires.
+ */
+public class LoadDriver {
+
+    public enum Operation {
+        SIGN_IN("signIn"),
+        ACTIVITIES("activities"),
+        UPLOAD("upload"),
+        REPORT("report"),
+        SURVEY("survey");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        static Operation fromName(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equals(name)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown load test operation: " + name);
+        }
+    }
+
+    static final String USER_AGENT = "LoadTest/1 (Load Generator; Linux/4.0) BridgeJavaSDK/1";
+    static final String REPORT_IDENTIFIER = "loadtest-report";
+    private static final ObjectMapper MAPPER = BridgeObjectMapper.get();
+    private static final int UPLOAD_BYTES = 4096;
+
+    private final String baseUrl;
+    private final LoadTestFixture fixture;
+    private final LoadTestSettings settings;
+    private final Operation[] weightedOperations;
+    private final ConcurrentMap<String, RouteStats> stats = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> sessionTokens = new ConcurrentHashMap<>();
+    private final byte[] uploadContent;
+    private final String uploadMd5;
+    private final CloseableHttpClient client;
+    private volatile long measureFromNanos;
+
+    public LoadDriver(String baseUrl, LoadTestFixture fixture, LoadTestSettings settings) {
+        this.baseUrl = baseUrl;
+        this.fixture = fixture;
+        this.settings = settings;
+        this.weightedOperations = weight(settings.getMix());
+        this.uploadContent = new byte[UPLOAD_BYTES];
+        ThreadLocalRandom.current().nextBytes(uploadContent);
+        this.uploadMd5 = md5(uploadContent);
+        this.client = HttpClients.custom().setUserAgent(USER_AGENT)
+                .setMaxConnTotal(settings.getConcurrency() * 2)
+                .setMaxConnPerRoute(settings.getConcurrency() * 2).build();
+    }
+
+    /** Runs warmup and then the measured period, returning stats by route. */
+    public Map<String, RouteStats> run() throws Exception {
+        long startNanos = System.nanoTime();
+        measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(settings.getWarmupSeconds());
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(settings.getDurationSeconds());
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getConcurrency());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < settings.getConcurrency(); i++) {
+                futures.add(executor.submit(() -> {
+                    while (System.nanoTime() < endNanos) {
+                        runOnce();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            client.close();
+        }
+        return stats;
+    }
+
+    private void runOnce() throws IOException {
+        List<TestUser> users = fixture.getUsers();
+        TestUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+
+        String token = sessionTokens.get(user.getEmail());
+        if (token == null || operation == Operation.SIGN_IN) {
+            token = signIn(user);
+            if (token == null || operation == Operation.SIGN_IN) {
+                return;
+            }
+        }
+        Response response;
+        switch (operation) {
+            case ACTIVITIES:
+                DateTime now = DateTime.now();
+                response = execute("GET /v4/activities", new HttpGet(baseUrl + "/v4/activities?startTime="
+                        + now.toString() + "&endTime=" + now.plusDays(4).toString()), token);
+                break;
+            case UPLOAD:
+                response = upload(token);
+                break;
+            case REPORT:
+                ObjectNode report = MAPPER.createObjectNode();
+                report.put("date", LocalDate.now().toString());
+                report.putObject("data").put("steps", ThreadLocalRandom.current().nextInt(10000));
+                response = execute("POST /v4/users/self/reports/:identifier",
+                        json(new HttpPost(baseUrl + "/v4/users/self/reports/" + REPORT_IDENTIFIER), report), token);
+                break;
+            case SURVEY:
+                response = execute("GET /v3/surveys/:surveyGuid/revisions/published", new HttpGet(
+                        baseUrl + "/v3/surveys/" + fixture.getSurveyGuid() + "/revisions/published"), token);
+                break;
+            default:
+                throw new IllegalStateException("Unhandled operation: " + operation);
+        }
+        if (response.status == 401) {
+            sessionTokens.remove(user.getEmail());
+        }
+    }
+
+    private String signIn(TestUser user) throws IOException {
+        ObjectNode signIn = MAPPER.createObjectNode();
+        signIn.put("study", user.getStudyIdentifier().getIdentifier());
+        signIn.put("email", user.getEmail());
+        signIn.put("password", user.getPassword());
+        Response response = execute("POST /v4/auth/signIn", json(new HttpPost(baseUrl + "/v4/auth/signIn"), signIn),
+                null);
+        if (response.json == null || !response.json.hasNonNull("sessionToken")) {
+            return null;
+        }
+        String token = response.json.get("sessionToken").textValue();
+        sessionTokens.put(user.getEmail(), token);
+        return token;
+    }
+
+    // Create the upload, store the file at the pre-signed URL, then mark it complete, as the mobile SDKs do.
+    private Response upload(String token) throws IOException {
+        ObjectNode request = MAPPER.createObjectNode();
+        request.put("name", "loadtest.zip");
+        request.put("contentLength", uploadContent.length);
+        request.put("contentMd5", uploadMd5);
+        request.put("contentType", "application/zip");
+        Response created = execute("POST /v3/uploads", json(new HttpPost(baseUrl + "/v3/uploads"), request), token);
+        if (created.json == null || !created.json.hasNonNull("url")) {
+            return created;
+        }
+        HttpPut put = new HttpPut(created.json.get("url").textValue());
+        put.setHeader("Content-MD5", uploadMd5);
+        put.setEntity(new ByteArrayEntity(uploadContent, ContentType.create("application/zip")));
+        Response stored = execute("PUT (upload to S3)", put, null);
+        if (stored.status / 100 != 2) {
+            return stored;
+        }
+        String uploadId = created.json.get("id").textValue();
+        return execute("POST /v3/uploads/:uploadId/complete",
+                new HttpPost(baseUrl + "/v3/uploads/" + uploadId + "/complete"), token);
+    }
+
+    private Response execute(String route, HttpRequestBase request, String sessionToken) throws IOException {
+        if (sessionToken != null) {
+            request.setHeader("Bridge-Session", sessionToken);
+        }
+        request.setHeader("Accept-Language", "en-US");
+        long startNanos = System.nanoTime();
+        try {
+            HttpResponse response = client.execute(request);
+            byte[] body = EntityUtils.toByteArray(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            record(route, startNanos, status / 100 == 2);
+            JsonNode json = null;
+            if (body != null && body.length > 0 && response.getEntity().getContentType() != null
+                    && response.getEntity().getContentType().getValue().startsWith("application/json")) {
+                json = MAPPER.readTree(body);
+            }
+            return new Response(status, json);
+        } catch (IOException e) {
+            record(route, startNanos, false);
+            return new Response(-1, null);
+        } finally {
+            request.releaseConnection();
+        }
+    }
+
+    private void record(String route, long startNanos, boolean success) {
+        if (startNanos >= measureFromNanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            stats.computeIfAbsent(route, RouteStats::new).record(micros, success);
+        }
+    }
+
+    private static HttpPost json(HttpPost post, JsonNode body) {
+        post.setEntity(new StringEntity(body.toString(), ContentType.APPLICATION_JSON));
+        return post;
+    }
+
+    private static Operation[] weight(Map<Operation, Integer> mix) {
+        List<Operation> operations = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                operations.add(entry.getKey());
+            }
+        }
+        return operations.toArray(new Operation[operations.size()]);
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final JsonNode json;
+
+        private Response(int status, JsonNode json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+}
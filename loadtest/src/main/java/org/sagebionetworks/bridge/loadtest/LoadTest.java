@@ -0,0 +1,32 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import java.util.Map;
+
+/**
+ * Boots the server against local stand-ins for its backends (see {@link LocalBridge}), drives a configurable mix of
+ * participant traffic (see {@link LoadTestSettings}), and prints throughput and latency percentiles per route. Run
+ * with:
+ * <pre>
+ *   sbt -Dloadtest.concurrency=32 -Dloadtest.duration.seconds=120 loadtest/run
+ * </pre>
+ * The stand-ins are in-process, so results are useful for comparing builds and finding contention in the server,
+ * not for sizing production capacity.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        Map<String, RouteStats> stats;
+        try (LocalBridge bridge = LocalBridge.start(settings)) {
+            System.out.println(String.format("Running %d clients for %ds (after %ds warmup) with mix %s",
+                    settings.getConcurrency(), settings.getDurationSeconds(), settings.getWarmupSeconds(),
+                    settings.getMix()));
+            stats = new LoadDriver(bridge.getBaseUrl(), bridge.getFixture(), settings).run();
+        }
+
+        RouteStats.print(stats, settings.getDurationSeconds());
+        // Play and the AWS clients leave non-daemon threads running.
+        System.exit(0);
+    }
+}
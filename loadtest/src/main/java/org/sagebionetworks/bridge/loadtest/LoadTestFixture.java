@@ -0,0 +1,55 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import org.sagebionetworks.bridge.TestUserAdminHelper;
+import org.sagebionetworks.bridge.TestUserAdminHelper.TestUser;
+import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.models.surveys.TestSurvey;
+import org.sagebionetworks.bridge.services.SurveyService;
+
+/**
+ * The data the load test runs against: consented participants in the API study and one published survey. It is
+ * created through the same service layer the integration tests use, in a test Spring context that shares DynamoDB
+ * and the database with the running server. This must run after the server has started, as the server creates the
+ * DynamoDB tables and bootstraps the API study.
+ */
+public final class LoadTestFixture {
+
+    private final List<TestUser> users;
+    private final String surveyGuid;
+
+    private LoadTestFixture(List<TestUser> users, String surveyGuid) {
+        this.users = users;
+        this.surveyGuid = surveyGuid;
+    }
+
+    public static LoadTestFixture create(int userCount) {
+        try (ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("test-context.xml")) {
+            TestUserAdminHelper helper = context.getBean(TestUserAdminHelper.class);
+            List<TestUser> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                users.add(helper.getBuilder(LoadTestFixture.class).withConsent(true).withSignIn(false).build());
+            }
+
+            SurveyService surveyService = context.getBean(SurveyService.class);
+            Survey survey = surveyService.createSurvey(new TestSurvey(LoadTestFixture.class, true));
+            surveyService.publishSurvey(TEST_STUDY, survey, false);
+
+            return new LoadTestFixture(users, survey.getGuid());
+        }
+    }
+
+    public List<TestUser> getUsers() {
+        return users;
+    }
+
+    public String getSurveyGuid() {
+        return surveyGuid;
+    }
+}
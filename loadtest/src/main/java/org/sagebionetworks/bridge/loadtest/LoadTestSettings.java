@@ -0,0 +1,96 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from system properties (e.g. -Dloadtest.concurrency=32):
+ * <ul>
+ *   <li>loadtest.concurrency - number of simulated clients issuing requests back to back (default 16)</li>
+ *   <li>loadtest.duration.seconds - length of the measured run (default 60)</li>
+ *   <li>loadtest.warmup.seconds - run time before measurement starts, discarded from the results (default 10)</li>
+ *   <li>loadtest.users - number of participant accounts the clients sign in as (default 50)</li>
+ *   <li>loadtest.mix - relative weight of each operation (default {@value #DEFAULT_MIX})</li>
+ *   <li>loadtest.s3.endpoint - optional S3-compatible stand-in, needed for uploads to complete</li>
+ *   <li>loadtest.redis.shards - number of Redis servers that cached views are sharded across (default 1, no
+ *   sharding)</li>
+ * </ul>
+ */
+public final class LoadTestSettings {
+
+    static final String DEFAULT_MIX = "signIn:1,activities:10,upload:2,report:3,survey:5";
+
+    private final int concurrency;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int users;
+    private final Map<LoadDriver.Operation, Integer> mix;
+    private final String s3Endpoint;
+    private final int redisShards;
+
+    LoadTestSettings(int concurrency, int durationSeconds, int warmupSeconds, int users,
+            Map<LoadDriver.Operation, Integer> mix, String s3Endpoint, int redisShards) {
+        this.concurrency = concurrency;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.users = users;
+        this.mix = mix;
+        this.s3Endpoint = s3Endpoint;
+        this.redisShards = redisShards;
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(Integer.getInteger("loadtest.concurrency", 16),
+                Integer.getInteger("loadtest.duration.seconds", 60), Integer.getInteger("loadtest.warmup.seconds", 10),
+                Integer.getInteger("loadtest.users", 50),
+                parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX)),
+                System.getProperty("loadtest.s3.endpoint"), Integer.getInteger("loadtest.redis.shards", 1));
+    }
+
+    /** Parses "signIn:1,activities:10,...". Operations that are not listed are not run. */
+    static Map<LoadDriver.Operation, Integer> parseMix(String mix) {
+        Map<LoadDriver.Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(LoadDriver.Operation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no operations with a positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public Map<LoadDriver.Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public String getS3Endpoint() {
+        return s3Endpoint;
+    }
+
+    public int getRedisShards() {
+        return redisShards;
+    }
+}
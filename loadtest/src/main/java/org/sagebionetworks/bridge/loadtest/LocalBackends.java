@@ -0,0 +1,122 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
+import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
+
+import org.sagebionetworks.bridge.outbound.LocalMessagingServer;
+
+import redis.embedded.RedisServer;
+
+/**
+ * In-process stand-ins for the backends Bridge depends on: DynamoDB Local (in-memory), an embedded Redis server, H2
+ * running in MySQL compatibility mode in place of MySQL, and a stand-in for SES and SNS that accepts every email and
+ * SMS. Each is started on a free local port. With more than one
+ * Redis shard, further Redis servers are started and cached views are sharded across all of them. The Bridge config
+ * overrides needed to point the server at them are applied as system properties, which take precedence over the
+ * values in bridge-server.conf, so this must happen before the server's Spring context is loaded.
+ */
+public class LocalBackends implements AutoCloseable {
+
+    static final String H2_URL = "jdbc:h2:mem:bridge;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private final int dynamoPort;
+    private final List<Integer> redisPorts = new ArrayList<>();
+    private final String s3Endpoint;
+    private final List<RedisServer> redisServers = new ArrayList<>();
+    private final LocalMessagingServer messaging;
+    private final Path outboundSpoolDir;
+    private DynamoDBProxyServer dynamo;
+
+    /**
+     * @param s3Endpoint
+     *         optional endpoint of an S3-compatible stand-in. Without one, uploads are created (the pre-signed URL is
+     *         generated locally) but storing and completing them fail.
+     * @param redisShards
+     *         number of Redis servers to start. The first is the primary node.
+     */
+    public LocalBackends(String s3Endpoint, int redisShards) throws IOException {
+        this.dynamoPort = freePort();
+        for (int i=0; i < Math.max(1, redisShards); i++) {
+            redisPorts.add(freePort());
+        }
+        this.s3Endpoint = s3Endpoint;
+        this.messaging = new LocalMessagingServer();
+        this.outboundSpoolDir = Files.createTempDirectory("bridge-outbound");
+    }
+
+    public void start() throws Exception {
+        dynamo = ServerRunner.createServerFromCommandLineArgs(
+                new String[] { "-inMemory", "-port", Integer.toString(dynamoPort) });
+        dynamo.start();
+
+        for (int redisPort : redisPorts) {
+            RedisServer redis = new RedisServer(redisPort);
+            redis.start();
+            redisServers.add(redis);
+        }
+        messaging.start();
+
+        for (Map.Entry<String, String> entry : getBridgeConfigOverrides().entrySet()) {
+            System.setProperty(entry.getKey(), entry.getValue());
+        }
+    }
+
+    Map<String, String> getBridgeConfigOverrides() {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        overrides.put("dynamodb.endpoint", "http://localhost:" + dynamoPort);
+        overrides.put("elasticache.url", redisUrl(redisPorts.get(0)));
+        if (redisPorts.size() > 1) {
+            overrides.put("redis.shard.urls",
+                    redisPorts.stream().map(LocalBackends::redisUrl).collect(Collectors.joining(",")));
+        }
+        overrides.put("hibernate.connection.url", H2_URL);
+        overrides.put("hibernate.connection.driver_class", "org.h2.Driver");
+        overrides.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        overrides.put("hibernate.connection.username", "sa");
+        overrides.put("hibernate.connection.password", "");
+        // "update" rather than "create", as the seeding context shares the database with the running server.
+        overrides.put("hibernate.hbm2ddl.auto", "update");
+        if (s3Endpoint != null) {
+            overrides.put("s3.endpoint", s3Endpoint);
+        }
+        overrides.put("ses.endpoint", messaging.getEndpoint());
+        overrides.put("sns.endpoint", messaging.getEndpoint());
+        overrides.put("outbound.spool.dir", outboundSpoolDir.toString());
+        // A few test users make all the requests, so the rate limits are checked but never reached.
+        overrides.put("ratelimit.enabled", "true");
+        overrides.put("ratelimit.user.per.minute", "1000000");
+        overrides.put("ratelimit.study.per.minute", "10000000");
+        return overrides;
+    }
+
+    @Override
+    public void close() throws Exception {
+        messaging.close();
+        for (RedisServer redis : redisServers) {
+            redis.stop();
+        }
+        if (dynamo != null) {
+            dynamo.stop();
+        }
+    }
+
+    private static String redisUrl(int port) {
+        return "redis://localhost:" + port;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import play.test.Helpers;
+import play.test.TestServer;
+
+/**
+ * A server booted in-process against {@link LocalBackends}, with a {@link LoadTestFixture} seeded into it.
+ */
+public class LocalBridge implements AutoCloseable {
+
+    static final int PORT = 19001;
+
+    private final LocalBackends backends;
+    private final TestServer server;
+    private final LoadTestFixture fixture;
+
+    private LocalBridge(LocalBackends backends, TestServer server, LoadTestFixture fixture) {
+        this.backends = backends;
+        this.server = server;
+        this.fixture = fixture;
+    }
+
+    public static LocalBridge start(LoadTestSettings settings) throws Exception {
+        LocalBackends backends = new LocalBackends(settings.getS3Endpoint(), settings.getRedisShards());
+        backends.start();
+        TestServer server = Helpers.testServer(PORT, Helpers.fakeApplication());
+        server.start();
+        try {
+            return new LocalBridge(backends, server, LoadTestFixture.create(settings.getUsers()));
+        } catch (RuntimeException e) {
+            server.stop();
+            backends.close();
+            throw e;
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + PORT;
+    }
+
+    public LoadTestFixture getFixture() {
+        return fixture;
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+        backends.close();
+    }
+}
@@ -0,0 +1,89 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Latencies and error count for one route over the measurement window. Every latency is kept, so percentiles are
+ * exact; at load-test rates this is a few MB at most.
+ */
+public final class RouteStats {
+
+    private final String route;
+    private long[] latencyMicros = new long[1024];
+    private int count;
+    private int errors;
+
+    public RouteStats(String route) {
+        this.route = route;
+    }
+
+    public synchronized void record(long micros, boolean success) {
+        if (count == latencyMicros.length) {
+            latencyMicros = Arrays.copyOf(latencyMicros, count * 2);
+        }
+        latencyMicros[count++] = micros;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /** Latency at the given percentile (0-100), in milliseconds, using the nearest-rank method. */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0d;
+        }
+        long[] sorted = Arrays.copyOf(latencyMicros, count);
+        Arrays.sort(sorted);
+        int rank = (int)Math.ceil(percentile / 100d * count);
+        return sorted[Math.max(rank, 1) - 1] / 1000d;
+    }
+
+    /** One line of the report: route, count, errors, throughput and p50/p90/p99/max latency. */
+    public synchronized String format(double elapsedSeconds) {
+        return String.format("%-48s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f", route, count, errors,
+                count / elapsedSeconds, getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                getPercentileMillis(100));
+    }
+
+    /** Count, errors and percentiles, in the form TrafficReplay saves results in to compare builds. */
+    public synchronized ObjectNode toJson() {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put("count", count);
+        node.put("errors", errors);
+        node.put("p50", getPercentileMillis(50));
+        node.put("p90", getPercentileMillis(90));
+        node.put("p99", getPercentileMillis(99));
+        node.put("max", getPercentileMillis(100));
+        return node;
+    }
+
+    /** Prints a table of stats, sorted by route. */
+    public static void print(Map<String, RouteStats> stats, double elapsedSeconds) {
+        System.out.println(formatHeader());
+        for (RouteStats routeStats : new TreeMap<>(stats).values()) {
+            System.out.println(routeStats.format(elapsedSeconds));
+        }
+    }
+
+    public static String formatHeader() {
+        return String.format("%-48s %8s %7s %9s %9s %9s %9s %9s", "route", "count", "errors", "req/s", "p50 ms",
+                "p90 ms", "p99 ms", "max ms");
+    }
+}
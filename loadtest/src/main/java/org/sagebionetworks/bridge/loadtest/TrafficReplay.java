@@ -0,0 +1,297 @@
+package org.sagebionetworks.bridge.loadtest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.sagebionetworks.bridge.TestUserAdminHelper.TestUser;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+/**
+ * <p>
+ * Replays traffic recorded by the server's TrafficCapture (capture.enabled=true) against a locally booted build, and
+ * compares the latency distributions of two replays. To compare two builds, replay the same capture on each:
+ * </p>
+ * <pre>
+ *   sbt "loadtest/runMain org.sagebionetworks.bridge.loadtest.TrafficReplay replay logs/capture before.json"
+ *   (switch builds)
+ *   sbt "loadtest/runMain org.sagebionetworks.bridge.loadtest.TrafficReplay replay logs/capture after.json"
+ *   sbt "loadtest/runMain org.sagebionetworks.bridge.loadtest.TrafficReplay diff before.json after.json"
+ * </pre>
+ * <p>
+ * Requests are sent at their original spacing, or scaled by -Dloadtest.replay.rate (2.0 replays twice as fast), from
+ * a pool of -Dloadtest.concurrency threads. Captured requests never include credentials, so requests that had a
+ * session are sent with the session of one of the seeded participants, and sign-in requests are sent with seeded
+ * credentials. Requests for entities that only exist in production (by ID in the path) will fail locally; these are
+ * reported as errors and should be compared as such.
+ * </p>
+ */
+public class TrafficReplay {
+
+    private static final ObjectMapper MAPPER = BridgeObjectMapper.get();
+    /** Latency changes smaller than this are reported as unchanged. */
+    static final double SIGNIFICANT_CHANGE = 0.10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && "replay".equals(args[0])) {
+            replay(new File(args[1]), new File(args[2]));
+            System.exit(0);
+        } else if (args.length == 3 && "diff".equals(args[0])) {
+            diff(MAPPER.readTree(new File(args[1])), MAPPER.readTree(new File(args[2])));
+        } else {
+            System.err.println("Usage: TrafficReplay replay <capture file or directory> <results file>");
+            System.err.println("       TrafficReplay diff <results file> <results file>");
+            System.exit(1);
+        }
+    }
+
+    static void replay(File capture, File results) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        double rate = Double.parseDouble(System.getProperty("loadtest.replay.rate", "1.0"));
+        List<JsonNode> records = readCapture(capture);
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("No captured requests found in " + capture);
+        }
+
+        Map<String, RouteStats> stats;
+        long elapsedMillis;
+        try (LocalBridge bridge = LocalBridge.start(settings)) {
+            Replayer replayer = new Replayer(bridge.getBaseUrl(), bridge.getFixture(), settings.getConcurrency());
+            long start = System.currentTimeMillis();
+            stats = replayer.replay(records, rate);
+            elapsedMillis = System.currentTimeMillis() - start;
+            if (replayer.getMaxLagMillis() > 100) {
+                System.out.println("Warning: replay fell behind schedule by up to " + replayer.getMaxLagMillis()
+                        + "ms. Increase loadtest.concurrency or lower loadtest.replay.rate.");
+            }
+        }
+
+        ObjectNode output = MAPPER.createObjectNode();
+        for (Map.Entry<String, RouteStats> entry : stats.entrySet()) {
+            output.set(entry.getKey(), entry.getValue().toJson());
+        }
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(results, output);
+        RouteStats.print(stats, elapsedMillis / 1000d);
+    }
+
+    /** Prints per-route latency percentiles for two replays side by side, flagging significant changes. */
+    static void diff(JsonNode before, JsonNode after) {
+        System.out.println(String.format("%-48s %6s %21s %21s %21s %21s  %s", "route", "count", "p50 ms", "p90 ms",
+                "p99 ms", "max ms", "errors"));
+        TreeSet<String> routes = new TreeSet<>();
+        before.fieldNames().forEachRemaining(routes::add);
+        after.fieldNames().forEachRemaining(routes::add);
+        for (String route : routes) {
+            JsonNode a = before.get(route);
+            JsonNode b = after.get(route);
+            if (a == null || b == null) {
+                System.out.println(String.format("%-48s only in %s", route, (a == null) ? "second" : "first"));
+                continue;
+            }
+            StringBuilder line = new StringBuilder(String.format("%-48s %6d", route, b.get("count").intValue()));
+            for (String percentile : Arrays.asList("p50", "p90", "p99", "max")) {
+                line.append(' ').append(compare(a.get(percentile).doubleValue(), b.get(percentile).doubleValue()));
+            }
+            line.append(String.format("  %d -> %d", a.get("errors").intValue(), b.get("errors").intValue()));
+            System.out.println(line);
+        }
+    }
+
+    // e.g. "  12.0->  15.5  +29%!" with the "!" marking a regression
+    static String compare(double before, double after) {
+        double change = (before == 0d) ? 0d : (after - before) / before;
+        String flag = (change > SIGNIFICANT_CHANGE) ? "!" : " ";
+        return String.format("%6.1f->%6.1f %+4.0f%%%s", before, after, change * 100, flag);
+    }
+
+    static List<JsonNode> readCapture(File capture) throws IOException {
+        File[] files = capture.isDirectory() ? capture.listFiles((dir, name) -> name.endsWith(".jsonl"))
+                : new File[] { capture };
+        List<JsonNode> records = new ArrayList<>();
+        if (files == null) {
+            return records;
+        }
+        for (File file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        records.add(MAPPER.readTree(line));
+                    }
+                }
+            }
+        }
+        records.sort(Comparator.comparingLong(record -> record.get("timestamp").longValue()));
+        return records;
+    }
+
+    /** Sends captured requests on their (scaled) original schedule and records latency per captured route. */
+    static class Replayer {
+        private final String baseUrl;
+        private final List<TestUser> users;
+        private final CloseableHttpClient client;
+        private final ExecutorService executor;
+        private final ConcurrentMap<String, RouteStats> stats = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, String> sessionTokens = new ConcurrentHashMap<>();
+        private final AtomicInteger nextUser = new AtomicInteger();
+        private final AtomicLong maxLagMillis = new AtomicLong();
+
+        Replayer(String baseUrl, LoadTestFixture fixture, int concurrency) {
+            this.baseUrl = baseUrl;
+            this.users = fixture.getUsers();
+            this.client = HttpClients.custom().setMaxConnTotal(concurrency * 2)
+                    .setMaxConnPerRoute(concurrency * 2).build();
+            this.executor = Executors.newFixedThreadPool(concurrency);
+        }
+
+        Map<String, RouteStats> replay(List<JsonNode> records, double rate) throws Exception {
+            long firstTimestamp = records.get(0).get("timestamp").longValue();
+            long startMillis = System.currentTimeMillis();
+            try {
+                for (JsonNode record : records) {
+                    long dueMillis = startMillis
+                            + (long) ((record.get("timestamp").longValue() - firstTimestamp) / rate);
+                    long waitMillis = dueMillis - System.currentTimeMillis();
+                    if (waitMillis > 0) {
+                        Thread.sleep(waitMillis);
+                    }
+                    executor.execute(() -> send(record, dueMillis));
+                }
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.MINUTES);
+            } finally {
+                executor.shutdownNow();
+                client.close();
+            }
+            return stats;
+        }
+
+        long getMaxLagMillis() {
+            return maxLagMillis.get();
+        }
+
+        private void send(JsonNode record, long dueMillis) {
+            maxLagMillis.accumulateAndGet(System.currentTimeMillis() - dueMillis, Math::max);
+            String route = record.get("route").textValue();
+            TestUser user = users.get(Math.floorMod(nextUser.getAndIncrement(), users.size()));
+            try {
+                HttpRequestBase request = toRequest(record, user);
+                if (record.path("session").booleanValue()) {
+                    String token = getSessionToken(user);
+                    if (token != null) {
+                        request.setHeader("Bridge-Session", token);
+                    }
+                }
+                long startNanos = System.nanoTime();
+                int status = execute(request).status;
+                stats.computeIfAbsent(route, RouteStats::new).record(
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), status / 100 == 2);
+            } catch (IOException e) {
+                stats.computeIfAbsent(route, RouteStats::new).record(0L, false);
+            }
+        }
+
+        private HttpRequestBase toRequest(JsonNode record, TestUser user) {
+            String uri = baseUrl + record.get("path").textValue();
+            if (record.hasNonNull("query")) {
+                uri += "?" + record.get("query").textValue();
+            }
+            RequestBuilder builder = RequestBuilder.create(record.get("method").textValue()).setUri(uri);
+            Iterator<Map.Entry<String, JsonNode>> headers = record.path("headers").fields();
+            while (headers.hasNext()) {
+                Map.Entry<String, JsonNode> header = headers.next();
+                builder.setHeader(header.getKey(), header.getValue().textValue());
+            }
+            HttpRequestBase request = (HttpRequestBase) builder.build();
+            if (request instanceof HttpEntityEnclosingRequestBase) {
+                JsonNode body = record.get("body");
+                if (record.get("route").textValue().startsWith("AuthenticationController.signIn")) {
+                    body = signInBody(user);
+                } else if (body == null) {
+                    body = MAPPER.createObjectNode();
+                }
+                ((HttpEntityEnclosingRequestBase) request).setEntity(
+                        new StringEntity(body.toString(), ContentType.APPLICATION_JSON));
+            }
+            return request;
+        }
+
+        private String getSessionToken(TestUser user) throws IOException {
+            String token = sessionTokens.get(user.getEmail());
+            if (token == null) {
+                HttpRequestBase signIn = (HttpRequestBase) RequestBuilder.post(baseUrl + "/v4/auth/signIn")
+                        .setEntity(new StringEntity(signInBody(user).toString(), ContentType.APPLICATION_JSON))
+                        .build();
+                Response response = execute(signIn);
+                if (response.json != null && response.json.hasNonNull("sessionToken")) {
+                    token = response.json.get("sessionToken").textValue();
+                    sessionTokens.put(user.getEmail(), token);
+                }
+            }
+            return token;
+        }
+
+        private Response execute(HttpRequestBase request) throws IOException {
+            try {
+                HttpResponse response = client.execute(request);
+                byte[] body = EntityUtils.toByteArray(response.getEntity());
+                JsonNode json = null;
+                if (body != null && body.length > 0 && body[0] == '{') {
+                    json = MAPPER.readTree(body);
+                }
+                return new Response(response.getStatusLine().getStatusCode(), json);
+            } finally {
+                request.releaseConnection();
+            }
+        }
+
+        private static ObjectNode signInBody(TestUser user) {
+            ObjectNode signIn = MAPPER.createObjectNode();
+            signIn.put("study", user.getStudyIdentifier().getIdentifier());
+            signIn.put("email", user.getEmail());
+            signIn.put("password", user.getPassword());
+            return signIn;
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final JsonNode json;
+
+        private Response(int status, JsonNode json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -16,6 +17,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -34,6 +37,7 @@ import play.mvc.Http;
 import play.mvc.Result;
 import play.test.Helpers;
 
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoCriteria;
@@ -48,6 +52,7 @@ import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.ConsentStatus;
 import org.sagebionetworks.bridge.models.accounts.SharingScope;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.appconfig.AppConfigElement;
 import org.sagebionetworks.bridge.models.itp.IntentToParticipate;
 import org.sagebionetworks.bridge.models.notifications.NotificationMessage;
@@ -71,6 +76,7 @@ import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
 import org.sagebionetworks.bridge.models.subpopulations.ConsentSignature;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.models.upload.UploadValidationStrictness;
+import org.sagebionetworks.bridge.services.SignInExecutor;
 import org.sagebionetworks.bridge.validators.Validate;
 
 public class TestUtils {
@@ -148,15 +154,17 @@ public class TestUtils {
             if (request != null && json != null) {
                 Http.RequestBody body = Mockito.mock(Http.RequestBody.class);
                 when(request.body()).thenReturn(body);
-                // This mocks the plain/text response, which is called before the JSON response 
-                // in BaseController.parseJson(). The latter method does not need to be mocked. 
+                // Controllers using the JsonBodyParser receive the body as raw bytes. The plain/text 
+                // body is also mocked for code that reads it directly. 
+                Http.RawBuffer raw = Mockito.mock(Http.RawBuffer.class);
+                when(raw.asBytes()).thenReturn(json.getBytes(StandardCharsets.UTF_8));
+                when(body.asRaw()).thenReturn(raw);
                 when(body.asText()).thenReturn(json);
             }
 
             Http.Context context = Mockito.mock(Http.Context.class);
-            if (response != null) {
-                when(context.response()).thenReturn(response);    
-            }
+            // Code under test may set headers even when the test doesn't look at them
+            when(context.response()).thenReturn((response != null) ? response : Mockito.mock(Http.Response.class));
             if (request != null) {
                 when(context.request()).thenReturn(request);    
             }
@@ -206,6 +214,30 @@ public class TestUtils {
         }).when(mockAccountDao).editAccount(any(), any(), any());
     }
     
+    /**
+     * A mock LocalSessionCache that caches nothing: sessions always come from the loader (usually a mocked
+     * AuthenticationService), and revocations do nothing.
+     */
+    @SuppressWarnings("unchecked")
+    public static LocalSessionCache mockLocalSessionCache() {
+        LocalSessionCache mockCache = Mockito.mock(LocalSessionCache.class);
+        Mockito.lenient().when(mockCache.getSession(any(), any())).thenAnswer(invocation -> {
+            Function<String, UserSession> loader = (Function<String, UserSession>)invocation.getArgument(1);
+            return loader.apply(invocation.getArgument(0));
+        });
+        return mockCache;
+    }
+    
+    /** A mock SignInExecutor that runs every sign in on the calling thread, and never rejects one. */
+    @SuppressWarnings("unchecked")
+    public static SignInExecutor mockSignInExecutor() {
+        SignInExecutor mockExecutor = Mockito.mock(SignInExecutor.class);
+        Mockito.lenient().when(mockExecutor.execute(any())).thenAnswer(invocation -> {
+            return ((Supplier<Object>)invocation.getArgument(0)).get();
+        });
+        return mockExecutor;
+    }
+    
     public static void assertDatesWithTimeZoneEqual(DateTime date1, DateTime date2) {
         // I don't know of a one line test for this... maybe just comparing ISO string formats of the date.
         assertTrue(date1.isEqual(date2));
@@ -0,0 +1,336 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.sagebionetworks.bridge.dao.DistributedLockDao;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
+import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.AppleAppSiteAssociation;
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.redis.JedisOps;
+
+public class BridgeViewCacheTest {
+
+    private static final int THREADS = 8;
+
+    private CacheProvider mockCacheProvider;
+    private DistributedLockDao mockLockDao;
+    private BridgeViewCache cache;
+    private CacheKey key;
+    private CacheKey namespaceKey;
+    private JedisOps mockJedisOps;
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        mockCacheProvider = mock(CacheProvider.class);
+        mockLockDao = mock(DistributedLockDao.class);
+        cache = new BridgeViewCache(mockCacheProvider, BridgeObjectMapper.get(), 100);
+        key = cache.getCacheKey(Survey.class, "guid", "published", "api");
+        namespaceKey = cache.getNamespaceKey(AppConfig.class, "api");
+        mockJedisOps = mock(JedisOps.class);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void cachedViewIsReturned() {
+        when(mockCacheProvider.getObject(key, String.class)).thenReturn("{\"a\":1}");
+
+        String view = cache.getView(key, () -> {
+            fail("Should not build the view");
+            return null;
+        });
+
+        assertEquals("{\"a\":1}", view);
+    }
+
+    @Test
+    public void missBuildsAndCachesView() {
+        String view = cache.getView(key, () -> ImmutableMap.of("a", 1));
+
+        assertEquals("{\"a\":1}", view);
+        verify(mockCacheProvider).setObject(key, "{\"a\":1}", 100);
+    }
+
+    @Test
+    public void concurrentMissesBuildViewOnce() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> supplier = () -> {
+            builds.incrementAndGet();
+            started.countDown();
+            await(release);
+            return ImmutableMap.of("a", 1);
+        };
+
+        List<Future<String>> results = Lists.newArrayList();
+        results.add(executor.submit(() -> cache.getView(key, supplier)));
+        started.await(5, TimeUnit.SECONDS);
+        for (int i=1; i < THREADS; i++) {
+            results.add(executor.submit(() -> cache.getView(key, supplier)));
+        }
+        // Give the other requests time to join the one in flight
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("{\"a\":1}", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void waitersGetLeadersException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> supplier = () -> {
+            started.countDown();
+            await(release);
+            throw new EntityNotFoundException(Survey.class);
+        };
+
+        Future<String> leader = executor.submit(() -> cache.getView(key, supplier));
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> waiter = executor.submit(() -> cache.getView(key, supplier));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertCause(EntityNotFoundException.class, leader);
+        assertCause(EntityNotFoundException.class, waiter);
+    }
+
+    @Test
+    public void leaseHolderBuildsAndReleasesLease() {
+        cache.setDistributedLease(mockLockDao, 5);
+        when(mockLockDao.acquireLock(BridgeViewCache.class, key.toString(), 5)).thenReturn("leaseId");
+
+        cache.getView(key, () -> ImmutableMap.of("a", 1));
+
+        verify(mockCacheProvider).setObject(key, "{\"a\":1}", 100);
+        verify(mockLockDao).releaseLock(BridgeViewCache.class, key.toString(), "leaseId");
+    }
+
+    @Test
+    public void withoutLeaseWaitsForOtherServer() {
+        cache.setDistributedLease(mockLockDao, 5);
+        when(mockLockDao.acquireLock(BridgeViewCache.class, key.toString(), 5))
+                .thenThrow(new ConcurrentModificationException("Locked"));
+        when(mockCacheProvider.getObject(key, String.class)).thenReturn(null, null, "{\"a\":2}");
+
+        String view = cache.getView(key, () -> {
+            fail("Should not build the view");
+            return null;
+        });
+
+        assertEquals("{\"a\":2}", view);
+        verify(mockCacheProvider, never()).setObject(any(), anyString(), anyInt());
+    }
+
+    @Test
+    public void buildsViewWhenLeaseExpires() {
+        cache.setDistributedLease(mockLockDao, 0);
+        when(mockLockDao.acquireLock(eq(BridgeViewCache.class), anyString(), anyInt()))
+                .thenThrow(new ConcurrentModificationException("Locked"));
+
+        String view = cache.getView(key, () -> ImmutableMap.of("a", 3));
+
+        assertEquals("{\"a\":3}", view);
+    }
+
+    @Test
+    public void refreshViewReplacesCachedView() {
+        when(mockCacheProvider.getObject(key, String.class)).thenReturn("{\"a\":1}");
+
+        String view = cache.refreshView(key, () -> ImmutableMap.of("a", 2));
+
+        assertEquals("{\"a\":2}", view);
+        verify(mockCacheProvider).setObject(key, "{\"a\":2}", 100);
+        verify(mockCacheProvider, never()).removeObject(key);
+    }
+
+    @Test
+    public void refreshViewIsWrittenAfterViewInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> stale = executor.submit(() -> cache.getView(key, () -> {
+            started.countDown();
+            await(release);
+            return ImmutableMap.of("a", 1);
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> refreshed = executor.submit(() -> cache.refreshView(key, () -> ImmutableMap.of("a", 2)));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals("{\"a\":1}", stale.get(5, TimeUnit.SECONDS));
+        assertEquals("{\"a\":2}", refreshed.get(5, TimeUnit.SECONDS));
+        InOrder inOrder = inOrder(mockCacheProvider);
+        inOrder.verify(mockCacheProvider).setObject(key, "{\"a\":1}", 100);
+        inOrder.verify(mockCacheProvider).setObject(key, "{\"a\":2}", 100);
+    }
+
+    @Test
+    public void removeViewRemovesFromCache() {
+        cache.removeView(key);
+
+        verify(mockCacheProvider).removeObject(key);
+    }
+
+    @Test
+    public void localTierServesRepeatedRequests() {
+        cache.setLocalTier(1024 * 1024, 5);
+        when(mockCacheProvider.getObject(key, String.class)).thenReturn("{\"a\":1}");
+
+        assertEquals("{\"a\":1}", cache.getView(key, () -> ImmutableMap.of("a", 1)));
+        assertEquals("{\"a\":1}", cache.getView(key, () -> ImmutableMap.of("a", 1)));
+
+        verify(mockCacheProvider, times(1)).getObject(key, String.class);
+        ViewCacheStats stats = cache.getStats().get("Survey");
+        assertEquals(1, stats.getLocalHits());
+        assertEquals(1, stats.getRemoteHits());
+        assertEquals(0, stats.getMisses());
+        assertEquals(0.5, stats.getLocalHitRatio(), 0.001);
+        assertEquals(1.0, stats.getHitRatio(), 0.001);
+    }
+
+    @Test
+    public void removeViewRemovesLocalCopy() {
+        cache.setLocalTier(1024 * 1024, 5);
+        cache.getView(key, () -> ImmutableMap.of("a", 1));
+
+        cache.removeView(key);
+        String view = cache.getView(key, () -> ImmutableMap.of("a", 2));
+
+        assertEquals("{\"a\":2}", view);
+        assertEquals(2, cache.getStats().get("Survey").getMisses());
+    }
+
+    @Test
+    public void refreshViewReplacesLocalCopy() {
+        cache.setLocalTier(1024 * 1024, 5);
+        cache.getView(key, () -> ImmutableMap.of("a", 1));
+
+        cache.refreshView(key, () -> ImmutableMap.of("a", 2));
+
+        assertEquals("{\"a\":2}", cache.getView(key, () -> ImmutableMap.of("a", 3)));
+    }
+
+    @Test
+    public void namespaceVersionStartsAtZero() {
+        cache.setJedisOps(mockJedisOps);
+
+        assertEquals(0L, cache.getNamespaceVersion(namespaceKey));
+        assertEquals("26:api:v0:AppConfig:view",
+                cache.getNamespacedCacheKey(0L, AppConfig.class, "26", "api").toString());
+    }
+
+    @Test
+    public void removeNamespaceIncrementsVersion() {
+        cache.setJedisOps(mockJedisOps);
+        when(mockJedisOps.incr("api:namespace:AppConfig:view")).thenReturn(4L);
+
+        assertEquals(4L, cache.removeNamespace(namespaceKey));
+        assertEquals(4L, cache.getNamespaceVersion(namespaceKey));
+        verify(mockJedisOps, never()).get("api:namespace:AppConfig:view");
+    }
+
+    @Test
+    public void namespaceVersionIsReusedWithoutLocalTier() {
+        cache.setJedisOps(mockJedisOps);
+        when(mockJedisOps.get("api:namespace:AppConfig:view")).thenReturn("2");
+
+        assertEquals(2L, cache.getNamespaceVersion(namespaceKey));
+        assertEquals(2L, cache.getNamespaceVersion(namespaceKey));
+        verify(mockJedisOps, times(1)).get("api:namespace:AppConfig:view");
+    }
+
+    @Test
+    public void namespaceVersionIsReadEveryTimeWithZeroTtl() {
+        cache.setJedisOps(mockJedisOps);
+        cache.setNamespaceTtl(0);
+        when(mockJedisOps.get("api:namespace:AppConfig:view")).thenReturn("2");
+
+        assertEquals(2L, cache.getNamespaceVersion(namespaceKey));
+        assertEquals(2L, cache.getNamespaceVersion(namespaceKey));
+        verify(mockJedisOps, times(2)).get("api:namespace:AppConfig:view");
+    }
+
+    @Test
+    public void localTierReusesNamespaceVersion() {
+        cache.setJedisOps(mockJedisOps);
+        cache.setLocalTier(1024 * 1024, 5);
+        when(mockJedisOps.get("api:namespace:AppConfig:view")).thenReturn("2");
+
+        assertEquals(2L, cache.getNamespaceVersion(namespaceKey));
+        assertEquals(2L, cache.getNamespaceVersion(namespaceKey));
+        verify(mockJedisOps, times(1)).get("api:namespace:AppConfig:view");
+
+        // But this server sees its own changes right away
+        when(mockJedisOps.incr("api:namespace:AppConfig:view")).thenReturn(3L);
+        cache.removeNamespace(namespaceKey);
+        assertEquals(3L, cache.getNamespaceVersion(namespaceKey));
+    }
+
+    @Test
+    public void keyTypeIsViewClass() {
+        assertEquals("Survey", BridgeViewCache.getKeyType(key));
+        assertEquals("AppConfig", BridgeViewCache.getKeyType(CacheKey.viewKey(AppConfig.class, "26", "iPhone OS",
+                "en", "api")));
+        assertEquals("AppleAppSiteAssociation",
+                BridgeViewCache.getKeyType(CacheKey.viewKey(AppleAppSiteAssociation.class)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertCause(Class<? extends Exception> expected, Future<String> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Should have thrown an exception");
+        } catch (ExecutionException e) {
+            assertEquals(expected, e.getCause().getClass());
+        }
+    }
+}
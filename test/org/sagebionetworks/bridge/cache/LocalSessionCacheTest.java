@@ -0,0 +1,225 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class LocalSessionCacheTest {
+
+    private static final String TOKEN = "sessionToken";
+    private static final String USER_ID = "userId";
+    private static final long MAX_REVOCATION_DELAY_MILLIS = 1000;
+
+    private FakeTicker ticker;
+    // Sessions as they are in Redis
+    private Map<String, UserSession> redisSessions;
+    private AtomicInteger loads;
+    private Function<String, UserSession> loader;
+    private ExecutorService pubSub;
+
+    @Before
+    public void before() {
+        ticker = new FakeTicker();
+        redisSessions = new ConcurrentHashMap<>();
+        redisSessions.put(TOKEN, session(TOKEN, USER_ID));
+        loads = new AtomicInteger();
+        loader = token -> {
+            loads.incrementAndGet();
+            return redisSessions.get(token);
+        };
+        pubSub = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void after() {
+        pubSub.shutdownNow();
+    }
+
+    @Test
+    public void sessionIsLoadedOnceUntilItExpires() {
+        LocalSessionCache cache = node(null);
+
+        UserSession session = cache.getSession(TOKEN, loader);
+        assertEquals(TOKEN, cache.getSession(TOKEN, loader).getSessionToken());
+        assertEquals(USER_ID, cache.getSession(TOKEN, loader).getId());
+        assertEquals(1, loads.get());
+        assertEquals(TOKEN, session.getSessionToken());
+
+        ticker.advance(LocalSessionCache.DEFAULT_TTL_SECONDS);
+        cache.getSession(TOKEN, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void eachRequestGetsItsOwnCopy() {
+        LocalSessionCache cache = node(null);
+        UserSession first = cache.getSession(TOKEN, loader);
+        UserSession second = cache.getSession(TOKEN, loader);
+        assertNotSame(first, second);
+
+        // A change made in one request, and not yet saved, isn't seen by another
+        second.setParticipant(new StudyParticipant.Builder().withId(USER_ID).withFirstName("Changed").build());
+
+        assertNull(cache.getSession(TOKEN, loader).getParticipant().getFirstName());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void missingSessionIsNotCached() {
+        LocalSessionCache cache = node(null);
+
+        assertNull(cache.getSession("otherToken", loader));
+        assertNull(cache.getSession("otherToken", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void cacheCanBeTurnedOff() {
+        LocalSessionCache cache = node(null);
+        cache.setTtl(0, ticker);
+
+        cache.getSession(TOKEN, loader);
+        cache.getSession(TOKEN, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void revokedSessionIsRejectedOnEveryNode() throws Exception {
+        List<LocalSessionCache> nodes = cluster(3);
+        for (LocalSessionCache node : nodes) {
+            node.getSession(TOKEN, loader);
+        }
+
+        // Sign out on the first node
+        redisSessions.remove(TOKEN);
+        nodes.get(0).revokeSession(TOKEN);
+
+        assertNull(nodes.get(0).getSession(TOKEN, loader));
+        assertRejectedEverywhere(nodes, TOKEN);
+    }
+
+    @Test
+    public void userSessionsAreRevokedOnEveryNode() throws Exception {
+        redisSessions.put("otherToken", session("otherToken", USER_ID));
+        List<LocalSessionCache> nodes = cluster(3);
+        for (LocalSessionCache node : nodes) {
+            node.getSession(TOKEN, loader);
+            node.getSession("otherToken", loader);
+        }
+
+        redisSessions.clear();
+        nodes.get(1).revokeUserSessions(USER_ID);
+
+        assertRejectedEverywhere(nodes, TOKEN);
+        assertRejectedEverywhere(nodes, "otherToken");
+    }
+
+    @Test
+    public void missedRevocationIsRejectedWhenSessionExpires() {
+        JedisPool brokenPool = mock(JedisPool.class);
+        when(brokenPool.getResource()).thenThrow(new RuntimeException("Redis is down"));
+        LocalSessionCache node0 = node(brokenPool);
+        LocalSessionCache node1 = node(brokenPool);
+        node1.getSession(TOKEN, loader);
+
+        redisSessions.remove(TOKEN);
+        node0.revokeSession(TOKEN);
+
+        ticker.advance(LocalSessionCache.DEFAULT_TTL_SECONDS);
+        assertNull(node1.getSession(TOKEN, loader));
+    }
+
+    @Test
+    public void unknownRevocationIsIgnored() {
+        LocalSessionCache cache = node(null);
+        cache.getSession(TOKEN, loader);
+
+        cache.onRevocation("something:else");
+
+        assertEquals(TOKEN, cache.getSession(TOKEN, loader).getSessionToken());
+        assertEquals(1, loads.get());
+    }
+
+    private void assertRejectedEverywhere(List<LocalSessionCache> nodes, String token) throws Exception {
+        long deadline = System.currentTimeMillis() + MAX_REVOCATION_DELAY_MILLIS;
+        for (LocalSessionCache node : nodes) {
+            while (node.getSession(token, loader) != null) {
+                if (System.currentTimeMillis() > deadline) {
+                    fail("Session was not revoked within " + MAX_REVOCATION_DELAY_MILLIS + "ms");
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    // Nodes whose revocations are delivered to every node, asynchronously, as Redis pub/sub would
+    private List<LocalSessionCache> cluster(int size) {
+        List<LocalSessionCache> nodes = new CopyOnWriteArrayList<>();
+        Jedis jedis = mock(Jedis.class);
+        when(jedis.publish(eq(LocalSessionCache.REVOCATION_CHANNEL), anyString())).thenAnswer(invocation -> {
+            String message = invocation.getArgument(1);
+            pubSub.execute(() -> nodes.forEach(node -> node.onRevocation(message)));
+            return (long) nodes.size();
+        });
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        for (int i=0; i < size; i++) {
+            nodes.add(node(pool));
+        }
+        return ImmutableList.copyOf(nodes);
+    }
+
+    private LocalSessionCache node(JedisPool pool) {
+        LocalSessionCache cache = new LocalSessionCache();
+        cache.setTtl(LocalSessionCache.DEFAULT_TTL_SECONDS, ticker);
+        cache.setJedisPool(pool == null ? mock(JedisPool.class) : pool);
+        return cache;
+    }
+
+    private static UserSession session(String token, String userId) {
+        UserSession session = new UserSession(new StudyParticipant.Builder().withId(userId).build());
+        session.setSessionToken(token);
+        return session;
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private volatile long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(int seconds) {
+            nanos += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
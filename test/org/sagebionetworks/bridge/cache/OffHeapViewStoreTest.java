@@ -0,0 +1,120 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+
+public class OffHeapViewStoreTest {
+
+    private static final int CAPACITY = 1600;
+
+    private FakeTicker ticker;
+    private OffHeapViewStore store;
+
+    @Before
+    public void before() {
+        ticker = new FakeTicker();
+        store = new OffHeapViewStore(CAPACITY, 5, ticker);
+    }
+
+    @Test
+    public void storesAndReturnsView() {
+        store.put(key("a"), "{\"name\":\"Ünïcödé\"}");
+
+        assertEquals("{\"name\":\"Ünïcödé\"}", store.get(key("a")));
+        assertNull(store.get(key("b")));
+    }
+
+    @Test
+    public void replacedViewIsReturned() {
+        store.put(key("a"), "{\"version\":1}");
+        store.put(key("a"), "{\"version\":2}");
+
+        assertEquals("{\"version\":2}", store.get(key("a")));
+    }
+
+    @Test
+    public void viewsExpire() {
+        store.put(key("a"), "{}");
+        ticker.advance(4);
+        assertEquals("{}", store.get(key("a")));
+
+        ticker.advance(1);
+        assertNull(store.get(key("a")));
+    }
+
+    @Test
+    public void oldestViewsAreEvictedWhenFull() {
+        // Each view is 100 bytes, so 16 fit
+        for (int i=0; i < 20; i++) {
+            store.put(key(Integer.toString(i)), view(i));
+        }
+
+        for (int i=0; i < 4; i++) {
+            assertNull(store.get(key(Integer.toString(i))));
+        }
+        for (int i=4; i < 20; i++) {
+            assertEquals(view(i), store.get(key(Integer.toString(i))));
+        }
+        assertEquals(16, store.size());
+    }
+
+    @Test
+    public void viewsThatDoNotFitAtTheEndAreWrittenAtTheFront() {
+        // 15 views of 100 bytes leave 100 bytes, then a 90 byte view leaves 10, so the next view wraps around
+        for (int i=0; i < 15; i++) {
+            store.put(key(Integer.toString(i)), view(i));
+        }
+        store.put(key("short"), Strings.repeat("s", 90));
+        store.put(key("wrapped"), view(99));
+
+        assertNull(store.get(key("0")));
+        assertEquals(view(1), store.get(key("1")));
+        assertEquals(Strings.repeat("s", 90), store.get(key("short")));
+        assertEquals(view(99), store.get(key("wrapped")));
+    }
+
+    @Test
+    public void largeViewsAreNotStored() {
+        store.put(key("a"), "{}");
+        store.put(key("a"), Strings.repeat("x", CAPACITY / OffHeapViewStore.MAX_VIEW_FRACTION + 1));
+
+        assertNull(store.get(key("a")));
+    }
+
+    @Test
+    public void removedViewIsNotReturned() {
+        store.put(key("a"), "{}");
+        store.remove(key("a"));
+
+        assertNull(store.get(key("a")));
+    }
+
+    private static CacheKey key(String id) {
+        return CacheKey.viewKey(Object.class, id);
+    }
+
+    private static String view(int i) {
+        return Strings.padEnd("{\"view\":" + i + "}", 100, ' ');
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(int seconds) {
+            nanos += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
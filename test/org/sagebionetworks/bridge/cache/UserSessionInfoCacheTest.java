@@ -0,0 +1,117 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.sagebionetworks.bridge.config.Environment;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.accounts.UserSessionInfo;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+
+public class UserSessionInfoCacheTest {
+
+    private UserSessionInfoCache cache;
+
+    @Before
+    public void before() {
+        cache = new UserSessionInfoCache();
+    }
+
+    @Test
+    public void matchesUncachedSerialization() throws Exception {
+        UserSession session = createSession("sessionToken");
+
+        byte[] json = cache.getSessionInfo(session);
+
+        assertArrayEquals(BridgeObjectMapper.get().writeValueAsBytes(UserSessionInfo.toJSON(session)), json);
+    }
+
+    @Test
+    public void reusesPayloadForUnchangedSession() {
+        byte[] first = cache.getSessionInfo(createSession("sessionToken"));
+        // As on the next request, when the session is loaded from Redis again
+        byte[] second = cache.getSessionInfo(createSession("sessionToken"));
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void regeneratesPayloadWhenParticipantChanges() throws Exception {
+        UserSession session = createSession("sessionToken");
+        byte[] first = cache.getSessionInfo(session);
+
+        session.setParticipant(new StudyParticipant.Builder().copyOf(session.getParticipant())
+                .withDataGroups(ImmutableSet.of("group2")).build());
+        byte[] second = cache.getSessionInfo(session);
+
+        assertNotSame(first, second);
+        JsonNode node = BridgeObjectMapper.get().readTree(second);
+        assertEquals("group2", node.get("dataGroups").get(0).textValue());
+    }
+
+    @Test
+    public void regeneratesPayloadWhenSessionStateChanges() throws Exception {
+        UserSession session = createSession("sessionToken");
+        byte[] first = cache.getSessionInfo(session);
+
+        session.setAuthenticated(false);
+        byte[] second = cache.getSessionInfo(session);
+
+        assertNotSame(first, second);
+        assertTrue(BridgeObjectMapper.get().readTree(first).get("authenticated").booleanValue());
+        assertFalse(BridgeObjectMapper.get().readTree(second).get("authenticated").booleanValue());
+    }
+
+    @Test
+    public void sessionsAreCachedSeparately() throws Exception {
+        byte[] first = cache.getSessionInfo(createSession("tokenA"));
+        byte[] second = cache.getSessionInfo(createSession("tokenB"));
+
+        assertEquals("tokenA", BridgeObjectMapper.get().readTree(first).get("sessionToken").textValue());
+        assertEquals("tokenB", BridgeObjectMapper.get().readTree(second).get("sessionToken").textValue());
+    }
+
+    @Test
+    public void removedSessionIsRegenerated() {
+        byte[] first = cache.getSessionInfo(createSession("sessionToken"));
+        cache.removeSessionInfo("sessionToken");
+        byte[] second = cache.getSessionInfo(createSession("sessionToken"));
+
+        assertNotSame(first, second);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void sessionWithoutTokenIsNotCached() {
+        byte[] first = cache.getSessionInfo(createSession(null));
+        byte[] second = cache.getSessionInfo(createSession(null));
+
+        assertNotSame(first, second);
+    }
+
+    private static UserSession createSession(String sessionToken) {
+        StudyParticipant participant = new StudyParticipant.Builder().withEmail("email@email.com")
+                .withId("userId").withHealthCode("healthCode").withDataGroups(ImmutableSet.of("group1")).build();
+        UserSession session = new UserSession(participant);
+        session.setAuthenticated(true);
+        session.setEnvironment(Environment.DEV);
+        session.setSessionToken(sessionToken);
+        session.setReauthToken("reauthToken");
+        session.setStudyIdentifier(new StudyIdentifierImpl("api"));
+        session.setConsentStatuses(ImmutableMap.of());
+        return session;
+    }
+}
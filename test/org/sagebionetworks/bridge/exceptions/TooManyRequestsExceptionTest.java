@@ -0,0 +1,44 @@
+package org.sagebionetworks.bridge.exceptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static play.test.Helpers.contentAsString;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Test;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.play.interceptors.ExceptionInterceptor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import play.mvc.Http;
+import play.mvc.Result;
+
+public class TooManyRequestsExceptionTest {
+
+    @Test
+    public void serializesCorrectly() throws Throwable {
+        ExceptionInterceptor interceptor = spy(ExceptionInterceptor.class);
+        TooManyRequestsException e = new TooManyRequestsException("Too many requests", 5);
+        Http.Response response = TestUtils.mockPlay().withMockResponse().mock();
+        
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.proceed()).thenThrow(e);
+        
+        Result result = (Result)interceptor.invoke(invocation);
+        JsonNode node = new ObjectMapper().readTree(contentAsString(result));
+        
+        assertEquals(429, result.status());
+        assertEquals(429, node.get("statusCode").asInt());
+        assertEquals("Too many requests", node.get("message").asText());
+        assertEquals("TooManyRequestsException", node.get("type").asText());
+        assertEquals(3, node.size());
+        verify(response).setHeader(Http.HeaderNames.RETRY_AFTER, "5");
+    }
+    
+}
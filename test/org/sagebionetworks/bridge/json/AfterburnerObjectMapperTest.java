@@ -0,0 +1,123 @@
+package org.sagebionetworks.bridge.json;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.models.ResourceList;
+import org.sagebionetworks.bridge.models.accounts.SharingScope;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
+import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+
+/**
+ * The Afterburner writers must produce exactly what the models' own writers do. Each case is checked against the
+ * original writer and against a golden file in test/resources/json/golden, so a change in the output of either
+ * (from a model or Jackson upgrade) shows up in review. The golden files are compared as JSON, so the order of
+ * properties in them doesn't matter. Golden files are only ever written by the original (pre-Afterburner) writer: a
+ * missing one is written on the next run, to be reviewed and committed, and -Dgolden.update=true rewrites them all
+ * after an intended change.
+ *
+ * UserSessionInfo has no case here: UserSessionInfo.toJSON() builds a JsonNode tree, which Jackson writes without
+ * bean serializers, so there is nothing for Afterburner to generate.
+ */
+public class AfterburnerObjectMapperTest {
+
+    private static final File GOLDEN_DIR = new File("test/resources/json/golden");
+    private static final boolean UPDATE = Boolean.getBoolean("golden.update");
+    private static final DateTime CREATED_ON = DateTime.parse("2018-10-01T09:00:00.000Z");
+
+    @Test
+    public void participantWithHealthCode() throws Exception {
+        assertEquivalent("participant-with-health-code", StudyParticipant.API_WITH_HEALTH_CODE_WRITER,
+                createParticipant());
+    }
+
+    @Test
+    public void participantNoHealthCode() throws Exception {
+        assertEquivalent("participant-no-health-code", StudyParticipant.API_NO_HEALTH_CODE_WRITER,
+                createParticipant());
+    }
+
+    @Test
+    public void scheduledActivities() throws Exception {
+        List<ScheduledActivity> activities = ImmutableList.of(createActivity("guid1", 0),
+                createActivity("guid2", 1));
+        assertEquivalent("scheduled-activities", ScheduledActivity.SCHEDULED_ACTIVITY_WRITER,
+                new ResourceList<>(activities));
+    }
+
+    @Test
+    public void healthDataRecord() throws Exception {
+        HealthDataRecord record = HealthDataRecord.create();
+        record.setId("recordId");
+        record.setHealthCode("healthCode");
+        record.setCreatedOn(CREATED_ON.getMillis());
+        record.setSchemaId("schemaId");
+        record.setSchemaRevision(2);
+        record.setData(BridgeObjectMapper.get().readTree(TestUtils.createJson("{'answer':42,'notes':'none'}")));
+        assertEquivalent("health-data-record", HealthDataRecord.PUBLIC_RECORD_WRITER, record);
+    }
+
+    @Test
+    public void writersAreReused() {
+        ObjectWriter writer = AfterburnerObjectMapper.writer(StudyParticipant.API_NO_HEALTH_CODE_WRITER);
+        assertSame(writer, AfterburnerObjectMapper.writer(StudyParticipant.API_NO_HEALTH_CODE_WRITER));
+        assertNotSame(writer, StudyParticipant.API_NO_HEALTH_CODE_WRITER);
+    }
+
+    private static StudyParticipant createParticipant() {
+        return new StudyParticipant.Builder().withId("userId").withFirstName("FirstName").withLastName("LastName")
+                .withEmail("user@example.com").withExternalId("externalId").withHealthCode("healthCode")
+                .withSharingScope(SharingScope.ALL_QUALIFIED_RESEARCHERS).withNotifyByEmail(true)
+                .withDataGroups(ImmutableSet.of("group1")).withLanguages(ImmutableList.of("fr"))
+                .withAttributes(ImmutableMap.of("can_be_recontacted", "true"))
+                .withTimeZone(DateTimeZone.forOffsetHours(-7)).withCreatedOn(CREATED_ON).build();
+    }
+
+    private static ScheduledActivity createActivity(String guid, int hours) {
+        ScheduledActivity activity = ScheduledActivity.create();
+        activity.setGuid(guid);
+        activity.setHealthCode("healthCode");
+        activity.setTimeZone(DateTimeZone.UTC);
+        activity.setLocalScheduledOn(LocalDateTime.parse("2018-10-01T09:00:00").plusHours(hours));
+        activity.setActivity(TestUtils.getActivity1());
+        return activity;
+    }
+
+    private static void assertEquivalent(String name, ObjectWriter original, Object object) throws IOException {
+        String expected = original.writeValueAsString(object);
+        String actual = AfterburnerObjectMapper.convert(AfterburnerObjectMapper.create(), original)
+                .writeValueAsString(object);
+        assertEquals(expected, actual);
+
+        // Through the BaseController path as well, which may be switched off by system property.
+        assertEquals(expected, AfterburnerObjectMapper.writer(original).writeValueAsString(object));
+
+        File golden = new File(GOLDEN_DIR, name + ".json");
+        if (UPDATE || !golden.exists()) {
+            Files.createParentDirs(golden);
+            Files.asCharSink(golden, UTF_8).write(BridgeObjectMapper.get().writerWithDefaultPrettyPrinter()
+                    .writeValueAsString(BridgeObjectMapper.get().readTree(expected)));
+        }
+        assertEquals(BridgeObjectMapper.get().readTree(Files.asCharSource(golden, UTF_8).read()),
+                BridgeObjectMapper.get().readTree(actual));
+    }
+}
@@ -0,0 +1,85 @@
+package org.sagebionetworks.bridge.outbound;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the parts of SES and SNS we send messages through: SES SendRawEmail and SNS Publish. Point
+ * a client at it with setEndpoint(getEndpoint()). Every request is accepted and recorded.
+ */
+public class LocalMessagingServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final List<Map<String, String>> requests = new CopyOnWriteArrayList<>();
+
+    public LocalMessagingServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /** Parameters of each request accepted so far, e.g. Action=SendRawEmail and RawMessage.Data. */
+    public List<Map<String, String>> getRequests() {
+        return requests;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Map<String, String> params;
+        try (InputStream in = exchange.getRequestBody()) {
+            params = parseForm(new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+        }
+        String action = params.get("Action");
+        String requestId = UUID.randomUUID().toString();
+        requests.add(params);
+        respond(exchange, 200, "<" + action + "Response><" + action + "Result><MessageId>" + UUID.randomUUID()
+                + "</MessageId></" + action + "Result><ResponseMetadata><RequestId>" + requestId
+                + "</RequestId></ResponseMetadata></" + action + "Response>");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseForm(String form) throws UnsupportedEncodingException {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : form.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, index), "UTF-8"),
+                        URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
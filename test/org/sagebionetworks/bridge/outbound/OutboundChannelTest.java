@@ -0,0 +1,318 @@
+package org.sagebionetworks.bridge.outbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.crypto.BridgeEncryptor;
+
+public class OutboundChannelTest {
+
+    private static final long RETRY_DELAY_MILLIS = 10L;
+    private static final long FAILED_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1L);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path spoolDir;
+    private BridgeEncryptor encryptor;
+    // Messages as the provider received them
+    private List<String> sent;
+    private OutboundChannel channel;
+
+    @Before
+    public void before() throws Exception {
+        spoolDir = folder.newFolder("ses").toPath();
+        sent = new CopyOnWriteArrayList<>();
+        encryptor = encryptor();
+    }
+
+    @After
+    public void after() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void messagesAreSentAndRemovedFromTheSpool() throws Exception {
+        channel = channel(1000.0, message -> sent.add(message.getId()));
+
+        for (int i=0; i < 10; i++) {
+            channel.enqueue(email("message" + i));
+        }
+
+        waitFor(() -> sent.size() == 10);
+        assertEquals("message0", sent.get(0));
+        assertEquals("message9", sent.get(9));
+        waitFor(() -> spooled().isEmpty());
+        assertEquals(10L, channel.getStats().getSent());
+        assertEquals(0, channel.getStats().getDepth());
+    }
+
+    @Test
+    public void messagesAreSentNoFasterThanTheRate() throws Exception {
+        channel = channel(50.0, message -> sent.add(message.getId()));
+
+        long start = System.nanoTime();
+        for (int i=0; i < 11; i++) {
+            channel.enqueue(email("message" + i));
+        }
+        waitFor(() -> sent.size() == 11);
+
+        // The first is sent right away, the next 10 at 20ms intervals
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+        assertTrue("Sent 11 messages in " + elapsedMillis + "ms", elapsedMillis >= 150L);
+    }
+
+    @Test
+    public void throttledMessageIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        channel = channel(1000.0, message -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw serviceException(400, "Throttling");
+            }
+            sent.add(message.getId());
+        });
+
+        channel.enqueue(email("message"));
+
+        waitFor(() -> sent.size() == 1);
+        assertEquals(3, attempts.get());
+        assertEquals(2L, channel.getStats().getRetried());
+        waitFor(() -> spooled().isEmpty());
+    }
+
+    @Test
+    public void rejectedMessageIsNotRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        channel = channel(1000.0, message -> {
+            attempts.incrementAndGet();
+            throw serviceException(400, "MessageRejected");
+        });
+
+        channel.enqueue(email("message"));
+
+        waitFor(() -> channel.getStats().getFailed() == 1L);
+        assertEquals(1, attempts.get());
+        assertTrue(spooled().isEmpty());
+        assertEquals(1, failed().size());
+    }
+
+    @Test
+    public void messageIsDroppedAfterMaxAttempts() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        channel = channel(1000.0, message -> {
+            attempts.incrementAndGet();
+            throw new AmazonClientException("Unable to execute HTTP request");
+        });
+
+        channel.enqueue(email("message"));
+
+        waitFor(() -> channel.getStats().getFailed() == 1L);
+        assertEquals(3, attempts.get());
+        assertEquals(1, failed().size());
+    }
+
+    @Test
+    public void spooledMessagesAreSentAfterRestart() throws Exception {
+        // The provider doesn't respond, and the server is stopped while waiting for it
+        CountDownLatch unresponsive = new CountDownLatch(1);
+        channel = channel(1000.0, message -> {
+            try {
+                unresponsive.await();
+            } catch (InterruptedException e) {
+                throw new AmazonClientException("Unable to execute HTTP request", e);
+            }
+        });
+        channel.enqueue(OutboundMessage.sms("message1", 1L, "+12065550100", "Hello",
+                ImmutableMap.of("AWS.SNS.SMS.SMSType", new OutboundMessage.Attribute("String", "Transactional"))));
+        channel.enqueue(email("message2"));
+        channel.close();
+        assertEquals(2, spooled().size());
+
+        List<OutboundMessage> received = new CopyOnWriteArrayList<>();
+        channel = channel(1000.0, received::add);
+
+        waitFor(() -> received.size() == 2);
+        assertEquals("message1", received.get(0).getId());
+        assertEquals("+12065550100", received.get(0).getPhoneNumber());
+        assertEquals("Transactional",
+                received.get(0).getAttributes().get("AWS.SNS.SMS.SMSType").getStringValue());
+        assertEquals("message2", received.get(1).getId());
+        assertEquals("raw message", new String(received.get(1).getRawMessage(), "UTF-8"));
+        waitFor(() -> spooled().isEmpty());
+    }
+
+    @Test
+    public void messagesAreRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch unresponsive = new CountDownLatch(1);
+        channel = channel(1000.0, 2, message -> {
+            try {
+                unresponsive.await();
+            } catch (InterruptedException e) {
+                throw new AmazonClientException("Unable to execute HTTP request", e);
+            }
+        });
+        // The first is taken from the queue, and the sender waits on it
+        assertTrue(channel.enqueue(email("message1")));
+        waitFor(() -> channel.getStats().getDepth() == 0);
+
+        assertTrue(channel.enqueue(email("message2")));
+        assertTrue(channel.enqueue(email("message3")));
+        assertFalse(channel.enqueue(email("message4")));
+
+        assertEquals(3L, channel.getStats().getQueued());
+        assertEquals(1L, channel.getStats().getRejected());
+        assertEquals(3, spooled().size());
+    }
+
+    @Test
+    public void closedChannelRejectsMessages() throws Exception {
+        channel = channel(1000.0, message -> sent.add(message.getId()));
+        channel.close();
+
+        assertFalse(channel.enqueue(email("message")));
+        assertTrue(spooled().isEmpty());
+    }
+
+    @Test
+    public void spooledMessagesAreEncryptedAndReadableOnlyByOwner() throws Exception {
+        CountDownLatch unresponsive = new CountDownLatch(1);
+        channel = channel(1000.0, message -> {
+            try {
+                unresponsive.await();
+            } catch (InterruptedException e) {
+                throw new AmazonClientException("Unable to execute HTTP request", e);
+            }
+        });
+        channel.enqueue(OutboundMessage.sms("message1", 1L, "+12065550100", "Your code is 123456",
+                ImmutableMap.of()));
+        channel.close();
+
+        List<Path> spooled = spooled();
+        assertEquals(1, spooled.size());
+        String contents = new String(Files.readAllBytes(spooled.get(0)), StandardCharsets.UTF_8);
+        assertFalse(contents.contains("+12065550100"));
+        assertFalse(contents.contains("123456"));
+        assertEquals(OutboundChannel.FILE_PERMISSIONS, Files.getPosixFilePermissions(spooled.get(0)));
+        assertEquals(OutboundChannel.DIR_PERMISSIONS, Files.getPosixFilePermissions(spoolDir));
+        assertEquals(OutboundChannel.DIR_PERMISSIONS,
+                Files.getPosixFilePermissions(spoolDir.resolve(OutboundChannel.FAILED_DIR)));
+    }
+
+    @Test
+    public void failedMessagesAreDeletedAfterRetentionPeriod() throws Exception {
+        Path failedDir = Files.createDirectories(spoolDir.resolve(OutboundChannel.FAILED_DIR));
+        Path oldMessage = Files.createFile(failedDir.resolve("0000000000001-old" + OutboundChannel.SPOOL_SUFFIX));
+        Files.setLastModifiedTime(oldMessage,
+                FileTime.fromMillis(System.currentTimeMillis() - 2 * FAILED_RETENTION_MILLIS));
+        Path newMessage = Files.createFile(failedDir.resolve("0000000000002-new" + OutboundChannel.SPOOL_SUFFIX));
+
+        channel = channel(1000.0, message -> sent.add(message.getId()));
+
+        assertFalse(Files.exists(oldMessage));
+        assertTrue(Files.exists(newMessage));
+    }
+
+    @Test
+    public void retryableExceptions() {
+        assertTrue(OutboundChannel.isRetryable(serviceException(400, "Throttling")));
+        assertTrue(OutboundChannel.isRetryable(serviceException(400, "ThrottledException")));
+        assertTrue(OutboundChannel.isRetryable(serviceException(500, "InternalError")));
+        assertTrue(OutboundChannel.isRetryable(new AmazonClientException("Unable to execute HTTP request")));
+        assertFalse(OutboundChannel.isRetryable(serviceException(400, "InvalidParameter")));
+        assertFalse(OutboundChannel.isRetryable(new IllegalArgumentException()));
+    }
+
+    private OutboundChannel channel(double rate, OutboundChannel.Sender sender) {
+        return channel(rate, 100, sender);
+    }
+
+    private OutboundChannel channel(double rate, int capacity, OutboundChannel.Sender sender) {
+        OutboundChannel channel = new OutboundChannel("ses", spoolDir, encryptor, rate, capacity, 4, 3,
+                RETRY_DELAY_MILLIS, FAILED_RETENTION_MILLIS, sender);
+        channel.start();
+        return channel;
+    }
+
+    private List<Path> spooled() {
+        return list(spoolDir);
+    }
+
+    private List<Path> failed() {
+        return list(spoolDir.resolve(OutboundChannel.FAILED_DIR));
+    }
+
+    private static List<Path> list(Path dir) {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(path -> path.toString().endsWith(OutboundChannel.SPOOL_SUFFIX))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Stands in for the real encryptor; what matters here is that the spool doesn't hold the message as written. */
+    static BridgeEncryptor encryptor() {
+        BridgeEncryptor encryptor = mock(BridgeEncryptor.class);
+        when(encryptor.encrypt(anyString())).thenAnswer(invocation -> Base64.getEncoder()
+                .encodeToString(invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)));
+        when(encryptor.decrypt(anyString())).thenAnswer(invocation -> new String(
+                Base64.getDecoder().decode(invocation.<String>getArgument(0)), StandardCharsets.UTF_8));
+        return encryptor;
+    }
+
+    private static OutboundMessage email(String id) throws Exception {
+        return OutboundMessage.email(id, System.currentTimeMillis(), "support@sagebase.org",
+                ImmutableList.of("participant@example.com"), "raw message".getBytes("UTF-8"));
+    }
+
+    private static AmazonServiceException serviceException(int status, String errorCode) {
+        AmazonServiceException e = new AmazonServiceException(errorCode);
+        e.setStatusCode(status);
+        e.setErrorCode(errorCode);
+        return e;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for messages to be sent");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
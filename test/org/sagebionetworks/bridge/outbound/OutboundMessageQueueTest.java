@@ -0,0 +1,141 @@
+package org.sagebionetworks.bridge.outbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simpleemail.model.RawMessage;
+import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
+import com.amazonaws.services.simpleemail.model.SendRawEmailResult;
+import com.amazonaws.services.sns.model.MessageAttributeValue;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+public class OutboundMessageQueueTest {
+
+    private static final BasicAWSCredentials CREDENTIALS = new BasicAWSCredentials("key", "secret");
+    private static final byte[] RAW_MESSAGE = "Subject: Sign in\r\n\r\nSign in link".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalMessagingServer server;
+    private OutboundMessageQueue queue;
+    private QueueingSesClient sesClient;
+    private QueueingSnsClient snsClient;
+
+    @Before
+    public void before() throws Exception {
+        server = new LocalMessagingServer();
+        server.start();
+
+        BridgeConfig config = mock(BridgeConfig.class);
+        when(config.get(OutboundMessageQueue.SPOOL_DIR_PROPERTY)).thenReturn(folder.getRoot().getPath());
+        queue = new OutboundMessageQueue();
+        queue.setBridgeConfig(config);
+        queue.setEncryptor(OutboundChannelTest.encryptor());
+
+        sesClient = new QueueingSesClient(CREDENTIALS);
+        sesClient.setEndpoint(server.getEndpoint());
+        sesClient.setOutboundMessageQueue(queue);
+        snsClient = new QueueingSnsClient(CREDENTIALS);
+        snsClient.setEndpoint(server.getEndpoint());
+        snsClient.setOutboundMessageQueue(queue);
+    }
+
+    @After
+    public void after() {
+        sesClient.shutdown();
+        snsClient.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void spoolDirDefaultsToUserHome() {
+        OutboundMessageQueue defaultQueue = new OutboundMessageQueue();
+        defaultQueue.setBridgeConfig(mock(BridgeConfig.class));
+
+        assertEquals(Paths.get(System.getProperty("user.home"), ".bridge", "outbound"), defaultQueue.getSpoolDir());
+    }
+
+    @Test
+    public void smsIsSentRightAwayWhenClosed() {
+        queue.close();
+
+        PublishResult result = snsClient.publish(new PublishRequest().withPhoneNumber("+12065550100")
+                .withMessage("Your code is 123456"));
+
+        // Sent before publish returned, rather than queued
+        assertEquals(1, server.getRequests().size());
+        assertNotNull(result.getMessageId());
+        assertEquals(1L, queue.getStats().get(QueueingSnsClient.CHANNEL_NAME).getRejected());
+    }
+
+    @Test
+    public void emailIsQueuedAndSent() throws Exception {
+        SendRawEmailResult result = sesClient.sendRawEmail(new SendRawEmailRequest(
+                new RawMessage(ByteBuffer.wrap(RAW_MESSAGE))).withSource("support@sagebase.org"));
+        assertNotNull(result.getMessageId());
+
+        waitFor(() -> server.getRequests().size() == 1);
+        Map<String, String> params = server.getRequests().get(0);
+        assertEquals("SendRawEmail", params.get("Action"));
+        assertEquals("support@sagebase.org", params.get("Source"));
+        assertEquals(Base64.getEncoder().encodeToString(RAW_MESSAGE), params.get("RawMessage.Data"));
+        waitFor(() -> queue.getStats().get(QueueingSesClient.CHANNEL_NAME).getSent() == 1L);
+    }
+
+    @Test
+    public void smsIsQueuedAndSent() throws Exception {
+        PublishResult result = snsClient.publish(new PublishRequest().withPhoneNumber("+12065550100")
+                .withMessage("Your code is 123456").addMessageAttributesEntry("AWS.SNS.SMS.SMSType",
+                        new MessageAttributeValue().withDataType("String").withStringValue("Transactional")));
+        assertNotNull(result.getMessageId());
+
+        waitFor(() -> server.getRequests().size() == 1);
+        Map<String, String> params = server.getRequests().get(0);
+        assertEquals("Publish", params.get("Action"));
+        assertEquals("+12065550100", params.get("PhoneNumber"));
+        assertEquals("Your code is 123456", params.get("Message"));
+        assertEquals("AWS.SNS.SMS.SMSType", params.get("MessageAttributes.entry.1.Name"));
+        assertEquals("Transactional", params.get("MessageAttributes.entry.1.Value.StringValue"));
+        waitFor(() -> queue.getStats().get(QueueingSnsClient.CHANNEL_NAME).getSent() == 1L);
+    }
+
+    @Test
+    public void pushNotificationIsNotQueued() {
+        snsClient.publish(new PublishRequest().withTargetArn("arn:aws:sns:us-east-1:000000000000:endpoint/APNS/app/id")
+                .withMessage("New activities are available"));
+
+        assertEquals(1, server.getRequests().size());
+        assertEquals(0L, queue.getStats().get(QueueingSnsClient.CHANNEL_NAME).getQueued());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for messages to be sent");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
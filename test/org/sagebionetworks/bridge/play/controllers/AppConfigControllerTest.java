@@ -26,9 +26,9 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
-import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.CriteriaContext;
 import org.sagebionetworks.bridge.models.ResourceList;
@@ -36,6 +36,7 @@ import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.sagebionetworks.bridge.models.appconfig.AppConfig;
 import org.sagebionetworks.bridge.models.studies.Study;
+import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.services.AppConfigService;
 import org.sagebionetworks.bridge.services.StudyService;
 
@@ -51,7 +52,7 @@ public class AppConfigControllerTest {
     private static final String TEST_UA = "Asthma/26 (Unknown iPhone; iPhone OS/9.1) BridgeSDK/4";
     private static final String TEST_LANG = "en-US,en;q=0.9";
     private static final String GUID = "guid";
-    private static final CacheKey CACHE_KEY = CacheKey.appConfigList(TestConstants.TEST_STUDY);
+    private static final String NAMESPACE_KEY = "api:namespace:AppConfig:view";
     
     @Spy
     private AppConfigController controller;
@@ -65,8 +66,13 @@ public class AppConfigControllerTest {
     @Mock
     private CacheProvider mockCacheProvider;
     
+    private BridgeViewCache viewCache;
+    
+    @Mock
+    private ViewCacheRefresher mockViewCacheRefresher;
+    
     @Mock
-    private ViewCache viewCache;
+    private JedisOps mockJedisOps;
     
     @Captor
     private ArgumentCaptor<CriteriaContext> contextCaptor;
@@ -85,11 +91,10 @@ public class AppConfigControllerTest {
         
         // With mock dependencies, the view cache just doesn't work (no cache hits), and tests that aren't
         // specifically verifying caching behavior pass.
-        viewCache = new ViewCache();
-        viewCache.setCacheProvider(mockCacheProvider);
-        viewCache.setObjectMapper(BridgeObjectMapper.get());
-        viewCache.setCachePeriod(100);
+        viewCache = new BridgeViewCache(mockCacheProvider, BridgeObjectMapper.get(), 100);
+        viewCache.setJedisOps(mockJedisOps);
         controller.setViewCache(viewCache);
+        controller.setViewCacheRefresher(mockViewCacheRefresher);
         
         appConfig = AppConfig.create();
         appConfig.setGuid(BridgeUtils.generateGuid());
@@ -244,11 +249,40 @@ public class AppConfigControllerTest {
         Result result = controller.getStudyAppConfig(TestConstants.TEST_STUDY_IDENTIFIER);
         TestUtils.assertResult(result, 200);
         
-        verify(mockCacheProvider).addCacheKeyToSet(CACHE_KEY, "26:iPhone OS:en:api:AppConfig:view");
+        verify(mockCacheProvider).setObject(eq(CacheKey.viewKey(AppConfig.class, "26", "iPhone OS", "en", "api", "v0")),
+                any(), eq(100));
+    }
+    
+    @Test
+    public void getStudyAppConfigUsesCurrentNamespaceVersion() throws Exception {
+        TestUtils.mockPlay()
+            .withHeader("User-Agent", TEST_UA)
+            .withHeader("Accept-Language", TEST_LANG)
+            .withBody(appConfig).mock();
+        when(mockStudyService.getStudy(TestConstants.TEST_STUDY_IDENTIFIER)).thenReturn(study);
+        when(mockJedisOps.get(NAMESPACE_KEY)).thenReturn("3");
+        
+        Result result = controller.getStudyAppConfig(TestConstants.TEST_STUDY_IDENTIFIER);
+        TestUtils.assertResult(result, 200);
+        
+        verify(mockCacheProvider).setObject(eq(CacheKey.viewKey(AppConfig.class, "26", "iPhone OS", "en", "api", "v3")),
+                any(), eq(100));
+    }
+    
+    @Test
+    public void getStudyAppConfigRecordsContext() throws Exception {
+        mockContext(TEST_UA, TEST_LANG);
+        when(mockStudyService.getStudy(TestConstants.TEST_STUDY_IDENTIFIER)).thenReturn(study);
+        
+        Result result = controller.getStudyAppConfig(TestConstants.TEST_STUDY_IDENTIFIER);
+        TestUtils.assertResult(result, 200);
+        
+        verify(mockViewCacheRefresher).recordAppConfigContext(contextCaptor.capture());
+        assertEquals(TestConstants.TEST_STUDY, contextCaptor.getValue().getStudyIdentifier());
     }
     
     @Test
-    public void createAppConfigDeletesCache() throws Exception {
+    public void createAppConfigRefreshesCache() throws Exception {
         TestUtils.mockPlay().withBody(appConfig).mock();
         doReturn(session).when(controller).getAuthenticatedSession(DEVELOPER);
         when(mockService.createAppConfig(any(), any())).thenReturn(appConfig);
@@ -256,11 +290,11 @@ public class AppConfigControllerTest {
         Result result = controller.createAppConfig();
         TestUtils.assertResult(result, 201);
         
-        verify(mockCacheProvider).removeSetOfCacheKeys(CACHE_KEY);
+        verify(mockViewCacheRefresher).refreshAppConfigs(TEST_STUDY);
     }
     
     @Test
-    public void updateAppConfigDeletesCache() throws Exception {
+    public void updateAppConfigRefreshesCache() throws Exception {
         TestUtils.mockPlay().withBody(appConfig).mock();
         doReturn(session).when(controller).getAuthenticatedSession(DEVELOPER);
         when(mockService.updateAppConfig(any(), any())).thenReturn(appConfig);
@@ -268,17 +302,17 @@ public class AppConfigControllerTest {
         Result result = controller.updateAppConfig("guid");
         TestUtils.assertResult(result, 200);
         
-        verify(mockCacheProvider).removeSetOfCacheKeys(CACHE_KEY);
+        verify(mockViewCacheRefresher).refreshAppConfigs(TEST_STUDY);
     }
     
     @Test
-    public void deleteAppConfigDeletesCache() throws Exception {
+    public void deleteAppConfigRefreshesCache() throws Exception {
         doReturn(session).when(controller).getAuthenticatedSession(DEVELOPER, ADMIN);
         
         Result result = controller.deleteAppConfig("guid", null);
         TestUtils.assertResult(result, 200);
         
-        verify(mockCacheProvider).removeSetOfCacheKeys(CACHE_KEY);
+        verify(mockViewCacheRefresher).refreshAppConfigs(TEST_STUDY);
     }
     
     private void mockContext(String userAgent, String langs) throws Exception {
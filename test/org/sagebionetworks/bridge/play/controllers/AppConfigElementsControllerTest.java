@@ -22,7 +22,6 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
-import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.ResourceList;
@@ -54,21 +53,22 @@ public class AppConfigElementsControllerTest {
     @Captor
     private ArgumentCaptor<AppConfigElement> elementCaptor;
     
-    @Captor
-    private ArgumentCaptor<CacheKey> cacheKeyCaptor;
-    
     @Mock
     private AppConfigElementService service;
     
     @Mock
     private CacheProvider cacheProvider;
     
+    @Mock
+    private ViewCacheRefresher viewCacheRefresher;
+    
     private UserSession session;
     
     @Before
     public void before() { 
         controller.setAppConfigElementService(service);
         controller.setCacheProvider(cacheProvider);
+        controller.setViewCacheRefresher(viewCacheRefresher);
         
         session = new UserSession(new StudyParticipant.Builder().build());
         session.setStudyIdentifier(TestConstants.TEST_STUDY);
@@ -135,8 +135,7 @@ public class AppConfigElementsControllerTest {
         VersionHolder returnedHolder = TestUtils.getResponsePayload(result, VersionHolder.class);
         assertEquals(new Long(1), returnedHolder.getVersion());
         
-        verify(cacheProvider).removeSetOfCacheKeys(cacheKeyCaptor.capture());
-        assertEquals("api:AppConfigList", cacheKeyCaptor.getValue().toString());
+        verify(viewCacheRefresher).refreshAppConfigs(TestConstants.TEST_STUDY);
         
         verify(service).createElement(eq(TestConstants.TEST_STUDY), elementCaptor.capture());
         assertEquals("element-id", elementCaptor.getValue().getId());
@@ -236,8 +235,7 @@ public class AppConfigElementsControllerTest {
         assertEquals(200, result.status());
         assertEquals(new Long(1), returnedHolder.getVersion());
         
-        verify(cacheProvider).removeSetOfCacheKeys(cacheKeyCaptor.capture());
-        assertEquals("api:AppConfigList", cacheKeyCaptor.getValue().toString());
+        verify(viewCacheRefresher).refreshAppConfigs(TestConstants.TEST_STUDY);
         
         verify(service).updateElementRevision(eq(TestConstants.TEST_STUDY), elementCaptor.capture());
         assertEquals("id", elementCaptor.getValue().getId());
@@ -256,8 +254,7 @@ public class AppConfigElementsControllerTest {
         Result result = controller.deleteElementAllRevisions("id", "false");
         TestUtils.assertResult(result, 200, "App config element deleted.");
      
-        verify(cacheProvider).removeSetOfCacheKeys(cacheKeyCaptor.capture());
-        assertEquals("api:AppConfigList", cacheKeyCaptor.getValue().toString());
+        verify(viewCacheRefresher).refreshAppConfigs(TestConstants.TEST_STUDY);
         
         verify(service).deleteElementAllRevisions(TestConstants.TEST_STUDY, "id");
     }
@@ -270,8 +267,7 @@ public class AppConfigElementsControllerTest {
         Result result = controller.deleteElementAllRevisions("id", "true");
         TestUtils.assertResult(result, 200, "App config element deleted.");
         
-        verify(cacheProvider).removeSetOfCacheKeys(cacheKeyCaptor.capture());
-        assertEquals("api:AppConfigList", cacheKeyCaptor.getValue().toString());
+        verify(viewCacheRefresher).refreshAppConfigs(TestConstants.TEST_STUDY);
 
         verify(service).deleteElementAllRevisionsPermanently(TestConstants.TEST_STUDY, "id");
     }
@@ -293,8 +289,7 @@ public class AppConfigElementsControllerTest {
         Result result = controller.deleteElementRevision("id", "3", "false");
         TestUtils.assertResult(result, 200, "App config element revision deleted.");
 
-        verify(cacheProvider).removeSetOfCacheKeys(cacheKeyCaptor.capture());
-        assertEquals("api:AppConfigList", cacheKeyCaptor.getValue().toString());
+        verify(viewCacheRefresher).refreshAppConfigs(TestConstants.TEST_STUDY);
 
         verify(service).deleteElementRevision(TestConstants.TEST_STUDY, "id", 3L);
     }
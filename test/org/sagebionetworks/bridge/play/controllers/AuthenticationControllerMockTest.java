@@ -12,6 +12,7 @@ import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.verify;
@@ -40,6 +41,7 @@ import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.dynamodb.DynamoStudy;
@@ -47,6 +49,7 @@ import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.NotAuthenticatedException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.exceptions.UnsupportedVersionException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
@@ -67,6 +70,7 @@ import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
 import org.sagebionetworks.bridge.services.AccountWorkflowService;
 import org.sagebionetworks.bridge.services.AuthenticationService;
 import org.sagebionetworks.bridge.services.AuthenticationService.ChannelType;
+import org.sagebionetworks.bridge.services.SignInExecutor;
 import org.sagebionetworks.bridge.services.StudyService;
 
 import play.mvc.Http;
@@ -152,6 +156,9 @@ public class AuthenticationControllerMockTest {
         
         controller.setBridgeConfig(mockConfig);
         controller.setAuthenticationService(authenticationService);
+        controller.setUserSessionInfoCache(new UserSessionInfoCache());
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
+        controller.setSignInExecutor(TestUtils.mockSignInExecutor());
         controller.setCacheProvider(cacheProvider);
         controller.setAccountWorkflowService(accountWorkflowService);
         
@@ -520,6 +527,24 @@ public class AuthenticationControllerMockTest {
         signInNewSession(true, null);
     }
 
+    @Test
+    public void signInRejectedWhenTooManySignInsWaiting() throws Exception {
+        SignInExecutor mockSignInExecutor = mock(SignInExecutor.class);
+        when(mockSignInExecutor.execute(any())).thenThrow(new ServiceUnavailableException("Too many sign ins", 1));
+        controller.setSignInExecutor(mockSignInExecutor);
+        doReturn(TEST_CONTEXT).when(controller).getCriteriaContext(any(StudyIdentifier.class));
+        TestUtils.mockPlay().withJsonBody(TestUtils.createJson("{'email':'" + TEST_EMAIL + "','password':'"
+                + TEST_PASSWORD + "','study':'" + TEST_STUDY_ID_STRING + "'}")).withMockResponse().mock();
+        
+        try {
+            controller.signInV3();
+            fail("Should have thrown exception");
+        } catch (ServiceUnavailableException e) {
+            // expected exception
+        }
+        verify(authenticationService, never()).signIn(any(), any(), any());
+    }
+
     @SuppressWarnings("deprecation")
     @Test
     public void signOut() throws Exception {
@@ -1,5 +1,6 @@
 package org.sagebionetworks.bridge.play.controllers;
 
+import static org.apache.http.HttpHeaders.ACCEPT;
 import static org.apache.http.HttpHeaders.ACCEPT_LANGUAGE;
 import static org.apache.http.HttpHeaders.USER_AGENT;
 import static org.junit.Assert.assertNotNull;
@@ -9,10 +10,12 @@ import static org.sagebionetworks.bridge.BridgeConstants.*;
 import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.sagebionetworks.bridge.TestUtils.createJson;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,15 +32,19 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
 import org.mockito.ArgumentCaptor;
 import play.mvc.Http;
+import play.mvc.Result;
+import play.test.Helpers;
 
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
+import org.sagebionetworks.bridge.exceptions.EntityTooLargeException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.NotAuthenticatedException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
@@ -56,6 +63,12 @@ import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.services.SessionUpdateService;
 import org.sagebionetworks.bridge.services.StudyService;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -155,6 +168,201 @@ public class BaseControllerTest {
         BaseController.parseJson(mockRequest, Map.class);
     }
     
+    @Test(expected = EntityTooLargeException.class)
+    public void testParseJsonBodyTooLarge() throws Exception {
+        Http.RequestBody mockBody = mock(Http.RequestBody.class);
+        when(mockBody.isMaxSizeExceeded()).thenReturn(true);
+
+        Http.Request mockRequest = mock(Http.Request.class);
+        when(mockRequest.body()).thenReturn(mockBody);
+
+        BaseController.parseJson(mockRequest, Map.class);
+    }
+    
+    @Test
+    public void testParseJsonFromRawBytes() throws Exception {
+        // mock request. The raw bytes take precedence, so the other views are never read.
+        Http.RawBuffer mockRaw = mock(Http.RawBuffer.class);
+        when(mockRaw.asBytes()).thenReturn(DUMMY_JSON.getBytes(StandardCharsets.UTF_8));
+        Http.RequestBody mockBody = mock(Http.RequestBody.class);
+        when(mockBody.asRaw()).thenReturn(mockRaw);
+
+        Http.Request mockRequest = mock(Http.Request.class);
+        when(mockRequest.body()).thenReturn(mockBody);
+
+        // execute and validate
+        Map<String, String> resultMap = BaseController.parseJson(mockRequest, Map.class);
+        assertEquals(1, resultMap.size());
+        assertEquals("dummy-value", resultMap.get("dummy-key"));
+        verify(mockBody, never()).asText();
+        verify(mockBody, never()).asJson();
+    }
+
+    @Test
+    public void testParseJsonWithTypeReference() throws Exception {
+        TestUtils.mockPlay().withJsonBody(createJson("[{'dummy-key':'dummy-value'}]")).mock();
+
+        List<Map<String, String>> result = BaseController.parseJson(Http.Context.current().request(),
+                new TypeReference<List<Map<String, String>>>() {});
+        assertEquals(1, result.size());
+        assertEquals("dummy-value", result.get(0).get("dummy-key"));
+    }
+
+    @Test
+    public void testParseJsonFromNodeAlreadyParsed() throws Exception {
+        JsonNode node = BridgeObjectMapper.get().readTree(DUMMY_JSON);
+        Map<String, String> resultMap = BaseController.parseJson(node, Map.class);
+        assertEquals("dummy-value", resultMap.get("dummy-key"));
+    }
+
+    @Test(expected = InvalidEntityException.class)
+    public void testParseJsonFromNodeError() throws Exception {
+        JsonNode node = BridgeObjectMapper.get().readTree("[1,2]");
+        BaseController.parseJson(node, StudyParticipant.class);
+    }
+
+    @Test
+    public void binaryFormatNegotiation() {
+        assertNull(BaseController.getBinaryFormat(null));
+        assertNull(BaseController.getBinaryFormat("*/*"));
+        assertNull(BaseController.getBinaryFormat("application/json"));
+        assertNull(BaseController.getBinaryFormat("application/json, application/cbor"));
+        assertEquals(BaseController.BinaryFormat.SMILE,
+                BaseController.getBinaryFormat("application/x-jackson-smile"));
+        assertEquals(BaseController.BinaryFormat.CBOR,
+                BaseController.getBinaryFormat("application/cbor;q=1.0, application/json;q=0.5"));
+    }
+
+    @Test
+    public void binaryFormatNegotiationHonorsQuality() {
+        assertNull(BaseController.getBinaryFormat("application/cbor;q=0.1, application/json;q=1"));
+        assertNull(BaseController.getBinaryFormat("application/json;q=1, application/cbor;q=0.1"));
+        assertEquals(BaseController.BinaryFormat.SMILE, BaseController.getBinaryFormat(
+                "application/json;q=0.5, application/cbor;q=0.8, application/x-jackson-smile; Q=0.9"));
+        // Ties go to the first listed
+        assertEquals(BaseController.BinaryFormat.CBOR,
+                BaseController.getBinaryFormat("application/cbor, application/x-jackson-smile"));
+        // q=0 means not acceptable
+        assertNull(BaseController.getBinaryFormat("application/cbor;q=0"));
+        assertNull(BaseController.getBinaryFormat("application/cbor;q=0, */*"));
+        // A q-value that can't be read counts as 1
+        assertEquals(BaseController.BinaryFormat.CBOR,
+                BaseController.getBinaryFormat("application/cbor;q=high, application/json;q=0.9"));
+    }
+
+    @Test
+    public void okResultIsJsonByDefault() throws Exception {
+        Http.Response mockResponse = TestUtils.mockPlay().withHeader(ACCEPT, "*/*").withMockResponse().mock();
+        Result result = new SchedulePlanController().okResult(ImmutableMap.of("key", "value"));
+        assertEquals("application/json", Helpers.contentType(result));
+        // JSON is negotiated too, so caches must key it on the Accept header
+        verify(mockResponse).setHeader("Vary", ACCEPT);
+        assertEquals("value", TestUtils.getJson(result).get("key").textValue());
+    }
+
+    @Test
+    public void jsonResultsVaryOnAccept() throws Exception {
+        Http.Response mockResponse = TestUtils.mockPlay().withMockResponse().mock();
+        SchedulePlanController controller = new SchedulePlanController();
+        StudyParticipant participant = new StudyParticipant.Builder().withFirstName("First").build();
+
+        controller.okResult(StudyParticipant.API_NO_HEALTH_CODE_WRITER, participant);
+        controller.okJsonResult("{\"key\":\"value\"}");
+        controller.okJsonResult("{\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8));
+
+        verify(mockResponse, times(3)).setHeader("Vary", ACCEPT);
+    }
+
+    @Test
+    public void okResultAsSmile() throws Exception {
+        Http.Response mockResponse = TestUtils.mockPlay().withHeader(ACCEPT, "application/x-jackson-smile")
+                .withMockResponse().mock();
+        Result result = new SchedulePlanController().okResult(ImmutableMap.of("key", "value"));
+        assertEquals("application/x-jackson-smile", Helpers.contentType(result));
+        verify(mockResponse).setHeader("Vary", ACCEPT);
+        JsonNode node = new ObjectMapper(new SmileFactory()).readTree(Helpers.contentAsBytes(result));
+        assertEquals("value", node.get("key").textValue());
+    }
+
+    @Test
+    public void okResultWithWriterAsCbor() throws Exception {
+        TestUtils.mockPlay().withHeader(ACCEPT, "application/cbor").mock();
+        StudyParticipant participant = new StudyParticipant.Builder().withFirstName("First").build();
+        Result result = new SchedulePlanController().okResult(StudyParticipant.API_NO_HEALTH_CODE_WRITER,
+                participant);
+        assertEquals("application/cbor", Helpers.contentType(result));
+        JsonNode node = new ObjectMapper(new CBORFactory()).readTree(Helpers.contentAsBytes(result));
+        assertEquals("First", node.get("firstName").textValue());
+    }
+
+    @Test
+    public void okResultWithFields() throws Exception {
+        TestUtils.mockPlay().mock();
+        when(Http.Context.current().request().getQueryString("fields")).thenReturn("identifier,minSupportedAppVersions");
+        Result result = new SchedulePlanController().okResult(ImmutableMap.of("identifier", "api", "name", "Test",
+                "minSupportedAppVersions", ImmutableMap.of("iPhone OS", 10)));
+        
+        assertEquals("application/json", Helpers.contentType(result));
+        JsonNode node = TestUtils.getJson(result);
+        assertEquals(2, node.size());
+        assertEquals("api", node.get("identifier").textValue());
+        assertEquals(10, node.get("minSupportedAppVersions").get("iPhone OS").intValue());
+    }
+    
+    @Test
+    public void okResultWithWriterAndFields() throws Exception {
+        TestUtils.mockPlay().mock();
+        when(Http.Context.current().request().getQueryString("fields")).thenReturn("lastName");
+        StudyParticipant participant = new StudyParticipant.Builder().withFirstName("First")
+                .withLastName("Last").build();
+        Result result = new SchedulePlanController().okResult(StudyParticipant.API_NO_HEALTH_CODE_WRITER,
+                participant);
+        
+        JsonNode node = TestUtils.getJson(result);
+        assertEquals("Last", node.get("lastName").textValue());
+        assertEquals("StudyParticipant", node.get("type").textValue());
+        assertFalse(node.has("firstName"));
+    }
+    
+    @Test
+    public void okJsonResultWithNestedFields() throws Exception {
+        TestUtils.mockPlay().mock();
+        when(Http.Context.current().request().getQueryString("fields")).thenReturn("guid,elements.identifier");
+        String json = createJson("{'guid':'abc','name':'Survey','type':'Survey','elements':["+
+                "{'identifier':'q1','prompt':'Question 1','type':'SurveyQuestion'},"+
+                "{'identifier':'q2','prompt':'Question 2','type':'SurveyQuestion'}]}");
+        
+        Result result = new SchedulePlanController().okJsonResult(json);
+        
+        JsonNode node = TestUtils.getJson(result);
+        assertEquals(createJson("{'guid':'abc','type':'Survey','elements':["+
+                "{'identifier':'q1','type':'SurveyQuestion'},{'identifier':'q2','type':'SurveyQuestion'}]}"),
+                node.toString());
+    }
+    
+    @Test
+    public void okJsonResultUnchangedWithoutFields() throws Exception {
+        TestUtils.mockPlay().mock();
+        String json = createJson("{'guid':'abc','name':'Survey'}");
+        
+        Result result = new SchedulePlanController().okJsonResult(json);
+        
+        assertEquals(json, Helpers.contentAsString(result));
+    }
+    
+    @Test
+    public void okJsonResultAsSmileWithFields() throws Exception {
+        TestUtils.mockPlay().withHeader(ACCEPT, "application/x-jackson-smile").mock();
+        when(Http.Context.current().request().getQueryString("fields")).thenReturn("name");
+        
+        Result result = new SchedulePlanController().okJsonResult(createJson("{'guid':'abc','name':'Survey'}"));
+        
+        assertEquals("application/x-jackson-smile", Helpers.contentType(result));
+        JsonNode node = new ObjectMapper(new SmileFactory()).readTree(Helpers.contentAsBytes(result));
+        assertEquals(1, node.size());
+        assertEquals("Survey", node.get("name").textValue());
+    }
+    
     @Test
     public void canRetrieveClientInfoObject() throws Exception {
         TestUtils.mockPlay().withHeader(USER_AGENT, "Asthma/26 (Unknown iPhone; iPhone OS 9.0.2) BridgeSDK/4").mock();
@@ -451,9 +659,12 @@ public class BaseControllerTest {
 
         SessionUpdateService mockSessionUpdateService = mock(SessionUpdateService.class);
 
+        LocalSessionCache mockLocalSessionCache = mock(LocalSessionCache.class);
+
         BaseController controller = new SchedulePlanController();
         controller.setAccountDao(accountDao);
         controller.setSessionUpdateService(mockSessionUpdateService);
+        controller.setLocalSessionCache(mockLocalSessionCache);
         
         TestUtils.mockPlay().withHeader(ACCEPT_LANGUAGE, "en,fr").withMockResponse().mock();
 
@@ -477,6 +688,9 @@ public class BaseControllerTest {
         ArgumentCaptor<CriteriaContext> contextCaptor = ArgumentCaptor.forClass(CriteriaContext.class);
         verify(mockSessionUpdateService).updateLanguage(same(session), contextCaptor.capture());
         assertEquals(LANGUAGES, contextCaptor.getValue().getLanguages());
+
+        // Other servers must drop their copy of the session.
+        verify(mockLocalSessionCache).revokeSession("aSessionToken");
     }
     
     @Test
@@ -0,0 +1,102 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.Roles.ADMIN;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import play.mvc.Result;
+import redis.clients.jedis.JedisPool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
+import org.sagebionetworks.bridge.cache.ViewCacheStats;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.outbound.OutboundMessageQueue;
+import org.sagebionetworks.bridge.play.http.Bulkheads;
+import org.sagebionetworks.bridge.play.http.LoadShedder;
+import org.sagebionetworks.bridge.ratelimit.RequestRateLimiter;
+import org.sagebionetworks.bridge.redis.RedisValueCodec;
+import org.sagebionetworks.bridge.redis.TwoLevelLockDao;
+import org.sagebionetworks.bridge.services.SignInExecutor;
+
+public class CapacityControllerTest {
+    
+    private CapacityController controller;
+    
+    private SignInExecutor mockSignInExecutor;
+    
+    private OutboundMessageQueue mockOutboundMessageQueue;
+    
+    private BridgeViewCache mockGenericViewCache;
+    
+    private BridgeViewCache mockAppLinkViewCache;
+    
+    @Before
+    public void before() {
+        controller = spy(new CapacityController());
+        doReturn(new UserSession()).when(controller).getAuthenticatedSession(ADMIN);
+        
+        BridgeConfig mockConfig = mock(BridgeConfig.class);
+        when(mockConfig.getPropertyAsInt("redis.max.total")).thenReturn(50);
+        controller.setBridgeConfig(mockConfig);
+        
+        mockSignInExecutor = mock(SignInExecutor.class);
+        controller.setSignInExecutor(mockSignInExecutor);
+        
+        mockOutboundMessageQueue = mock(OutboundMessageQueue.class);
+        controller.setOutboundMessageQueue(mockOutboundMessageQueue);
+        
+        controller.setRequestRateLimiter(new RequestRateLimiter());
+        controller.setLoadShedder(new LoadShedder());
+        
+        Bulkheads bulkheads = new Bulkheads();
+        bulkheads.setBridgeConfig(mockConfig);
+        controller.setBulkheads(bulkheads);
+        
+        mockGenericViewCache = mock(BridgeViewCache.class);
+        controller.setGenericViewCache(mockGenericViewCache);
+        mockAppLinkViewCache = mock(BridgeViewCache.class);
+        controller.setAppLinkViewCache(mockAppLinkViewCache);
+        
+        controller.setRedisValueCodec(new RedisValueCodec());
+        controller.setJedisPool(mock(JedisPool.class));
+        controller.setLockDao(new TwoLevelLockDao());
+    }
+    
+    @Test
+    public void getCapacity() throws Exception {
+        SignInExecutor.Stats signInStats = mock(SignInExecutor.Stats.class);
+        when(signInStats.getQueueDepth()).thenReturn(7);
+        when(mockSignInExecutor.getStats()).thenReturn(signInStats);
+        when(mockOutboundMessageQueue.getStats()).thenReturn(ImmutableMap.of());
+        when(mockGenericViewCache.getStats()).thenReturn(ImmutableMap.of("Survey", new ViewCacheStats()));
+        when(mockAppLinkViewCache.getStats()).thenReturn(ImmutableMap.of("Object", new ViewCacheStats()));
+        
+        Result result = controller.getCapacity();
+        
+        assertEquals(200, result.status());
+        JsonNode node = TestUtils.getJson(result);
+        assertEquals(ImmutableList.of("signIn", "outbound", "rateLimits", "loadShedding", "bulkheads", "viewCache",
+                "compression", "redisPool", "locks"), ImmutableList.copyOf(node.fieldNames()));
+        assertEquals(7, node.get("signIn").get("queueDepth").asInt());
+        assertEquals(0, node.get("rateLimits").get("rejected").asInt());
+        assertFalse(node.get("loadShedding").get("shedding").asBoolean());
+        assertEquals(8, node.get("bulkheads").get("worker").get("threads").asInt());
+        assertEquals(ImmutableList.of("Object", "Survey"), ImmutableList.copyOf(node.get("viewCache").fieldNames()));
+        assertEquals(50, node.get("redisPool").get("maxTotal").asInt());
+        verify(controller).getAuthenticatedSession(ADMIN);
+    }
+}
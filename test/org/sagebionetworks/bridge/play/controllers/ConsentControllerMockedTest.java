@@ -35,6 +35,7 @@ import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
@@ -100,6 +101,8 @@ public class ConsentControllerMockedTest {
         
         controller.setAccountDao(accountDao);
         controller.setSessionUpdateService(sessionUpdateService);
+        controller.setUserSessionInfoCache(new UserSessionInfoCache());
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
         controller.setStudyService(studyService);
         controller.setConsentService(consentService);
         controller.setAuthenticationService(authenticationService);
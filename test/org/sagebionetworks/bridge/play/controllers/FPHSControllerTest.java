@@ -83,6 +83,7 @@ public class FPHSControllerTest {
         controller.setFPHSService(fphsService);
         controller.setAuthenticationService(authenticationService);
         controller.setSessionUpdateService(sessionUpdateService);
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
         controller.setStudyService(mockStudyService);
         controller.setBridgeConfig(mockBridgeConfig);
     }
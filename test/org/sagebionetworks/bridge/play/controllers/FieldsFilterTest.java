@@ -0,0 +1,64 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.sagebionetworks.bridge.TestUtils.createJson;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+public class FieldsFilterTest {
+
+    private static final ObjectMapper MAPPER = BridgeObjectMapper.get();
+
+    @Test
+    public void missingOrEmptyFieldsSelectEverything() {
+        assertNull(FieldsFilter.parse(null));
+        assertNull(FieldsFilter.parse(""));
+        assertNull(FieldsFilter.parse(" , ,"));
+    }
+
+    @Test
+    public void includesOnlyListedProperties() {
+        FieldsFilter filter = FieldsFilter.parse("identifier, name");
+        assertSame(TokenFilter.INCLUDE_ALL, filter.includeProperty("identifier"));
+        assertSame(TokenFilter.INCLUDE_ALL, filter.includeProperty("name"));
+        assertSame(TokenFilter.INCLUDE_ALL, filter.includeProperty("type"));
+        assertNull(filter.includeProperty("sponsorName"));
+    }
+
+    @Test
+    public void wholePropertyWinsOverNestedSelection() throws Exception {
+        String json = createJson("{'a':{'b':1,'c':2},'d':3}");
+        assertEquals(createJson("{'a':{'b':1,'c':2}}"), filter("a.b,a", json));
+        assertEquals(createJson("{'a':{'b':1,'c':2}}"), filter("a,a.b", json));
+        assertEquals(createJson("{'a':{'b':1}}"), filter("a.b", json));
+    }
+
+    @Test
+    public void nestedSelectionAppliesToArrayElements() throws Exception {
+        String json = createJson("{'items':[{'id':1,'x':true},{'id':2,'x':false}],'total':2}");
+        assertEquals(createJson("{'items':[{'id':1},{'id':2}]}"), filter("items.id", json));
+    }
+
+    @Test
+    public void unknownFieldsProduceAnEmptyObject() throws Exception {
+        assertEquals("{}", filter("nope", createJson("{'a':1}")));
+    }
+
+    private static String filter(String fields, String json) throws Exception {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = FieldsFilter.parse(fields).filter(MAPPER.getFactory().createGenerator(writer))) {
+            MAPPER.writeValue(generator, MAPPER.readTree(json));
+        }
+        return writer.toString();
+    }
+}
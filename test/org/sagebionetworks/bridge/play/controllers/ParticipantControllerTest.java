@@ -43,6 +43,7 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import play.mvc.Http;
 import play.mvc.Result;
 import play.test.Helpers;
 
@@ -53,6 +54,7 @@ import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.dynamodb.DynamoActivityEvent;
 import org.sagebionetworks.bridge.dynamodb.DynamoScheduledActivity;
 import org.sagebionetworks.bridge.dynamodb.DynamoStudy;
@@ -160,6 +162,7 @@ public class ParticipantControllerTest {
     @Mock
     private CacheProvider mockCacheProvider;
     
+    
     @Mock
     private UserAdminService userAdminService;
     
@@ -247,6 +250,8 @@ public class ParticipantControllerTest {
         sessionUpdateService.setNotificationTopicService(mock(NotificationTopicService.class));
 
         controller.setSessionUpdateService(sessionUpdateService);
+        controller.setUserSessionInfoCache(new UserSessionInfoCache());
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
         
         TestUtils.mockPlay().mock();
     }
@@ -342,6 +347,25 @@ public class ParticipantControllerTest {
         verify(mockParticipantService).getParticipant(study, ID, true);
     }
     
+    @Test
+    public void getParticipantWithFields() throws Exception {
+        when(Http.Context.current().request().getQueryString("fields")).thenReturn("firstName,healthCode");
+        study.setHealthCodeExportEnabled(false);
+        StudyParticipant studyParticipant = new StudyParticipant.Builder().withFirstName("Test")
+                .withLastName("Last").withHealthCode("healthCode").build();
+        when(mockParticipantService.getParticipant(study, ID, true)).thenReturn(studyParticipant);
+        
+        Result result = controller.getParticipant(ID, true);
+        TestUtils.assertResult(result, 200);
+        
+        // The writer's view still applies, so the healthCode can't be selected.
+        JsonNode node = TestUtils.getJson(result);
+        assertEquals("Test", node.get("firstName").textValue());
+        assertEquals("StudyParticipant", node.get("type").textValue());
+        assertFalse(node.has("lastName"));
+        assertFalse(node.has("healthCode"));
+    }
+    
     @Test
     public void getParticipantWithNoHealthCode() throws Exception {
         study.setHealthCodeExportEnabled(false);
@@ -364,6 +388,7 @@ public class ParticipantControllerTest {
         TestUtils.assertResult(result, 200, "User signed out.");
 
         verify(mockParticipantService).signUserOut(study, ID, false);
+        verify(controller.localSessionCache).revokeUserSessions(ID);
     }
 
     @Test
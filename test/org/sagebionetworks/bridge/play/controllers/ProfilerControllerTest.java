@@ -0,0 +1,61 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.Roles.ADMIN;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import play.mvc.Result;
+import play.test.Helpers;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.tracing.SlowRequestProfiler;
+
+public class ProfilerControllerTest {
+    
+    private ProfilerController controller;
+    
+    private SlowRequestProfiler mockProfiler;
+    
+    @Before
+    public void before() {
+        controller = spy(new ProfilerController());
+        doReturn(new UserSession()).when(controller).getAuthenticatedSession(ADMIN);
+        
+        mockProfiler = mock(SlowRequestProfiler.class);
+        controller.setSlowRequestProfiler(mockProfiler);
+    }
+    
+    @Test
+    public void getCollapsedStacks() throws Exception {
+        when(mockProfiler.isEnabled()).thenReturn(true);
+        when(mockProfiler.getCollapsedStacks("Route.method")).thenReturn("Route.method;a.A.a 3\n");
+        
+        Result result = controller.getCollapsedStacks("Route.method");
+        
+        assertEquals(200, result.status());
+        assertEquals("Route.method;a.A.a 3\n", Helpers.contentAsString(result));
+        verify(controller).getAuthenticatedSession(ADMIN);
+    }
+    
+    @Test(expected = BadRequestException.class)
+    public void getCollapsedStacksWhenDisabled() throws Exception {
+        controller.getCollapsedStacks(null);
+    }
+    
+    @Test
+    public void clearCollapsedStacks() throws Exception {
+        Result result = controller.clearCollapsedStacks();
+        
+        TestUtils.assertResult(result, 200, "Profiler samples cleared.");
+        verify(mockProfiler).clear();
+    }
+}
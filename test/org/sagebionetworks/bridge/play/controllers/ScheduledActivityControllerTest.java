@@ -182,6 +182,7 @@ public class ScheduledActivityControllerTest {
         sessionUpdateService = spy(new SessionUpdateService());
         sessionUpdateService.setCacheProvider(cacheProvider);
         controller.setSessionUpdateService(sessionUpdateService);
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
         doReturn(session).when(controller).getAuthenticatedAndConsentedSession();
         
         doReturn(CLIENT_INFO).when(controller).getClientInfoFromUserAgentHeader();
@@ -35,9 +35,9 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
-import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
@@ -62,6 +62,7 @@ import org.sagebionetworks.bridge.services.SurveyService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import play.mvc.Result;
 import play.test.Helpers;
 
@@ -89,7 +90,9 @@ public class SurveyControllerTest {
     
     private StudyService studyService;
     
-    private ViewCache viewCache;
+    private BridgeViewCache viewCache;
+    
+    private ViewCacheRefresher viewCacheRefresher;
     
     private Map<CacheKey,String> cacheMap;
     
@@ -102,10 +105,6 @@ public class SurveyControllerTest {
         
         // Dummy this out so it works and we can forget about it as a dependency
         cacheMap = Maps.newHashMap();
-        viewCache = new ViewCache();
-        viewCache.setObjectMapper(BridgeObjectMapper.get());
-        viewCache.setCachePeriod(BridgeConstants.BRIDGE_VIEW_EXPIRE_IN_SECONDS);
-        
         CacheProvider provider = mock(CacheProvider.class);
         when(provider.getObject(any(), eq(String.class))).thenAnswer(new Answer<String>() {
             @Override
@@ -131,7 +130,9 @@ public class SurveyControllerTest {
                 return null;
             }
         }).when(provider).removeObject(any());
-        viewCache.setCacheProvider(provider);
+        viewCache = new BridgeViewCache(provider, BridgeObjectMapper.get(),
+                BridgeConstants.BRIDGE_VIEW_EXPIRE_IN_SECONDS);
+        viewCacheRefresher = mock(ViewCacheRefresher.class);
         
         studyService = mock(StudyService.class);
         Study study = Study.create();
@@ -140,6 +141,7 @@ public class SurveyControllerTest {
         controller = spy(new SurveyController());
         controller.setSurveyService(service);
         controller.setViewCache(viewCache);
+        controller.setViewCacheRefresher(viewCacheRefresher);
         controller.setStudyService(studyService);
         controller.setBridgeConfig(mock(BridgeConfig.class));
     }
@@ -592,6 +594,19 @@ public class SurveyControllerTest {
         verifyNoMoreInteractions(service);
     }
 
+    @Test
+    public void publishSurveyRefreshesCache() throws Exception {
+        setupContext(API_STUDY_ID, UNCONSENTED, DEVELOPER);
+        TestUtils.mockPlay().mock();
+        doReturn(session).when(controller).getAuthenticatedSession(DEVELOPER);
+        when(service.publishSurvey(eq(TestConstants.TEST_STUDY), eq(KEYS), eq(false))).thenReturn(getSurvey(false));
+
+        Result result = controller.publishSurvey(SURVEY_GUID, CREATED_ON.toString(), null);
+        TestUtils.assertResult(result, 200);
+        
+        verify(viewCacheRefresher).refreshSurvey(TEST_STUDY, SURVEY_GUID, CREATED_ON.toString());
+    }
+
     @Test
     public void publishSurveyNewSchemaRev() throws Exception {
         setupContext(API_STUDY_ID, UNCONSENTED, DEVELOPER);
@@ -659,6 +674,14 @@ public class SurveyControllerTest {
     
     @Test
     public void publishSurveyInvalidatesCache() throws Exception {
+        // Rebuild the views on the calling thread. The rebuilt view replaces the cached one, and it is built
+        // from the service, once.
+        ViewCacheRefresher refresher = new ViewCacheRefresher();
+        refresher.setViewCache(viewCache);
+        refresher.setSurveyService(service);
+        refresher.setExecutor(MoreExecutors.newDirectExecutorService());
+        controller.setViewCacheRefresher(refresher);
+        
         assertCacheIsCleared((guid, dateString) -> controller.publishSurvey(guid, dateString, null));
     }
     
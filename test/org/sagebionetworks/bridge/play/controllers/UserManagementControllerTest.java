@@ -32,6 +32,7 @@ import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
@@ -95,6 +96,9 @@ public class UserManagementControllerTest {
         controller.setUserAdminService(userAdminService);
         controller.setAuthenticationService(authService);
         controller.setSessionUpdateService(sessionUpdateService);
+        controller.setUserSessionInfoCache(new UserSessionInfoCache());
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
+        controller.setSignInExecutor(TestUtils.mockSignInExecutor());
         controller.setBridgeConfig(bridgeConfig);
         controller.setCacheProvider(cacheProvider);
         
@@ -32,6 +32,7 @@ import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoStudy;
@@ -140,6 +141,8 @@ public class UserProfileControllerTest {
         sessionUpdateService.setConsentService(consentService);
         sessionUpdateService.setNotificationTopicService(mock(NotificationTopicService.class));
         controller.setSessionUpdateService(sessionUpdateService);
+        controller.setUserSessionInfoCache(new UserSessionInfoCache());
+        controller.setLocalSessionCache(TestUtils.mockLocalSessionCache());
         
         session = new UserSession(new StudyParticipant.Builder()
                 .withHealthCode(HEALTH_CODE)
@@ -0,0 +1,190 @@
+package org.sagebionetworks.bridge.play.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.play.controllers.ViewCacheRefresher.APP_CONFIG_CONTEXTS_EXPIRE_SECONDS;
+import static org.sagebionetworks.bridge.play.controllers.ViewCacheRefresher.MAX_APP_CONFIG_CONTEXTS;
+import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.sagebionetworks.bridge.cache.BridgeViewCache;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifier;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.models.surveys.Survey;
+import org.sagebionetworks.bridge.redis.JedisOps;
+import org.sagebionetworks.bridge.services.AppConfigService;
+import org.sagebionetworks.bridge.services.SurveyService;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+public class ViewCacheRefresherTest {
+
+    private static final String SURVEY_GUID = "surveyGuid";
+    private static final DateTime CREATED_ON = DateTime.parse("2018-10-01T10:00:00.000Z");
+    private static final String NAMESPACE_KEY = "api:namespace:AppConfig:view";
+    private static final String CONTEXTS_KEY = "appconfig-contexts:api";
+
+    private CacheProvider mockCacheProvider;
+    private JedisOps mockJedisOps;
+    private Jedis mockJedis;
+    private Pipeline mockPipeline;
+    private SurveyService mockSurveyService;
+    private AppConfigService mockAppConfigService;
+    private BridgeViewCache viewCache;
+    private ViewCacheRefresher refresher;
+
+    @Before
+    public void before() {
+        mockCacheProvider = mock(CacheProvider.class);
+        mockJedisOps = mock(JedisOps.class);
+        mockSurveyService = mock(SurveyService.class);
+        mockAppConfigService = mock(AppConfigService.class);
+        viewCache = new BridgeViewCache(mockCacheProvider, BridgeObjectMapper.get(), 100);
+        viewCache.setJedisOps(mockJedisOps);
+
+        refresher = new ViewCacheRefresher();
+        refresher.setViewCache(viewCache);
+        refresher.setSurveyService(mockSurveyService);
+        refresher.setAppConfigService(mockAppConfigService);
+        refresher.setExecutor(MoreExecutors.newDirectExecutorService());
+
+        mockJedis = mock(Jedis.class);
+        mockPipeline = mock(Pipeline.class);
+        when(mockJedis.pipelined()).thenReturn(mockPipeline);
+        JedisPool mockJedisPool = mock(JedisPool.class);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+        refresher.setJedisPool(mockJedisPool);
+    }
+
+    @Test
+    public void refreshSurveyReplacesAllSurveyViews() {
+        Survey survey = Survey.create();
+        survey.setGuid(SURVEY_GUID);
+        when(mockSurveyService.getSurvey(TEST_STUDY,
+                new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, CREATED_ON.getMillis()), true, true))
+                        .thenReturn(survey);
+        when(mockSurveyService.getSurveyMostRecentlyPublishedVersion(TEST_STUDY, SURVEY_GUID, true))
+                .thenReturn(survey);
+        when(mockSurveyService.getSurveyMostRecentVersion(TEST_STUDY, SURVEY_GUID)).thenReturn(survey);
+
+        refresher.refreshSurvey(TEST_STUDY, SURVEY_GUID, CREATED_ON.toString());
+
+        verify(mockCacheProvider).setObject(eq(surveyKey(CREATED_ON.toString())), anyString(), eq(100));
+        verify(mockCacheProvider).setObject(eq(surveyKey(SurveyController.PUBLISHED_KEY)), anyString(), eq(100));
+        verify(mockCacheProvider).setObject(eq(surveyKey(SurveyController.MOSTRECENT_KEY)), anyString(), eq(100));
+        verify(mockCacheProvider, never()).removeObject(surveyKey(SurveyController.PUBLISHED_KEY));
+    }
+
+    @Test
+    public void viewThatCannotBeRebuiltIsRemoved() {
+        when(mockSurveyService.getSurveyMostRecentlyPublishedVersion(TEST_STUDY, SURVEY_GUID, true))
+                .thenThrow(new EntityNotFoundException(Survey.class));
+
+        refresher.refreshSurvey(TEST_STUDY, SURVEY_GUID, CREATED_ON.toString());
+
+        verify(mockCacheProvider).removeObject(surveyKey(SurveyController.PUBLISHED_KEY));
+    }
+
+    @Test
+    public void recordAppConfigContextAddsContextToRedisOnce() {
+        refresher.recordAppConfigContext(appConfigContext(TEST_STUDY));
+        refresher.recordAppConfigContext(appConfigContext(TEST_STUDY));
+        refresher.recordAppConfigContext(appConfigContext(new StudyIdentifierImpl("other-study")));
+
+        String member = ViewCacheRefresher.toMember(appConfigContext(TEST_STUDY));
+        verify(mockPipeline, times(1)).sadd(CONTEXTS_KEY, member);
+        verify(mockPipeline, times(1)).expire(CONTEXTS_KEY, APP_CONFIG_CONTEXTS_EXPIRE_SECONDS);
+        verify(mockPipeline, times(1)).sadd("appconfig-contexts:other-study", member);
+    }
+
+    @Test
+    public void recordAppConfigContextStopsAtMaximum() {
+        when(mockJedis.scard(CONTEXTS_KEY)).thenReturn((long)MAX_APP_CONFIG_CONTEXTS);
+
+        refresher.recordAppConfigContext(appConfigContext(TEST_STUDY));
+
+        verify(mockPipeline, never()).sadd(anyString(), any());
+    }
+
+    @Test
+    public void contextRoundTripsThroughRedis() {
+        CriteriaContext context = appConfigContext(TEST_STUDY);
+        when(mockJedis.smembers(CONTEXTS_KEY)).thenReturn(ImmutableSet.of(ViewCacheRefresher.toMember(context),
+                "not json"));
+
+        List<CriteriaContext> contexts = refresher.readAppConfigContexts(TEST_STUDY);
+
+        assertEquals(1, contexts.size());
+        assertEquals(AppConfigController.getCriteriaContextCacheKey(viewCache, context, 1L),
+                AppConfigController.getCriteriaContextCacheKey(viewCache, contexts.get(0), 1L));
+    }
+
+    @Test
+    public void refreshAppConfigsSwitchesVersionThenBuildsEveryRecordedContext() {
+        when(mockJedis.smembers(CONTEXTS_KEY))
+                .thenReturn(ImmutableSet.of(ViewCacheRefresher.toMember(appConfigContext(TEST_STUDY))));
+        when(mockJedisOps.incr(NAMESPACE_KEY)).thenReturn(3L);
+        when(mockAppConfigService.getAppConfigForUser(any(), eq(true))).thenReturn(AppConfig.create());
+
+        refresher.refreshAppConfigs(TEST_STUDY);
+
+        InOrder inOrder = inOrder(mockJedisOps, mockAppConfigService, mockCacheProvider);
+        inOrder.verify(mockJedisOps).incr(NAMESPACE_KEY);
+        inOrder.verify(mockAppConfigService).getAppConfigForUser(any(), eq(true));
+        inOrder.verify(mockCacheProvider).setObject(
+                eq(CacheKey.viewKey(AppConfig.class, "26", "iPhone OS", "en fr", "api", "v3")), anyString(), eq(100));
+        verify(mockJedisOps, never()).get(NAMESPACE_KEY);
+    }
+
+    @Test
+    public void namespaceIsIncrementedWhenViewCannotBeBuilt() {
+        when(mockJedis.smembers(CONTEXTS_KEY))
+                .thenReturn(ImmutableSet.of(ViewCacheRefresher.toMember(appConfigContext(TEST_STUDY))));
+        when(mockAppConfigService.getAppConfigForUser(any(), eq(true)))
+                .thenThrow(new EntityNotFoundException(AppConfig.class));
+
+        refresher.refreshAppConfigs(TEST_STUDY);
+
+        verify(mockJedisOps).incr(NAMESPACE_KEY);
+        verify(mockCacheProvider, never()).setObject(any(), anyString(), eq(100));
+    }
+
+    private static CriteriaContext appConfigContext(StudyIdentifier studyId) {
+        return new CriteriaContext.Builder()
+                .withClientInfo(ClientInfo.fromUserAgentCache("Asthma/26 (Unknown iPhone; iPhone OS/9.1) BridgeSDK/4"))
+                .withLanguages(ImmutableList.of("en", "fr"))
+                .withStudyIdentifier(studyId).build();
+    }
+
+    private CacheKey surveyKey(String version) {
+        return viewCache.getCacheKey(Survey.class, SURVEY_GUID, version, TEST_STUDY.getIdentifier());
+    }
+}
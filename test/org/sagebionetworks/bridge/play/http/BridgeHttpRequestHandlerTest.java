@@ -0,0 +1,132 @@
+package org.sagebionetworks.bridge.play.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.play.controllers.BackfillController;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
+
+import akka.actor.ActorSystem;
+import play.libs.F.Promise;
+import play.mvc.Action;
+import play.mvc.Http;
+import play.mvc.Result;
+
+public class BridgeHttpRequestHandlerTest {
+
+    private LoadShedder loadShedder;
+    private Bulkheads bulkheads;
+    private BridgeHttpRequestHandler handler;
+    private Http.Request request;
+    private Http.Context context;
+    private Http.Response response;
+    private Method method;
+
+    @Before
+    public void before() throws Exception {
+        loadShedder = mock(LoadShedder.class);
+        when(loadShedder.getRetryAfterSeconds()).thenReturn(1);
+        when(loadShedder.admit(any())).thenReturn(true);
+        bulkheads = mock(Bulkheads.class);
+        handler = new BridgeHttpRequestHandler(mock(ActorSystem.class), loadShedder, bulkheads);
+
+        request = mock(Http.Request.class);
+        when(request.headers()).thenReturn(ImmutableMap.of());
+        response = mock(Http.Response.class);
+        context = mock(Http.Context.class);
+        when(context.response()).thenReturn(response);
+        method = BackfillController.class.getMethod("backfill", String.class);
+    }
+
+    @Test
+    public void shedRequestGets503() throws Throwable {
+        when(loadShedder.admit(method)).thenReturn(false);
+
+        Result result = call(handler.createAction(request, method));
+
+        assertEquals(503, result.status());
+        JsonNode node = TestUtils.getJson(result);
+        assertEquals(503, node.get("statusCode").asInt());
+        assertEquals(LoadShedder.MESSAGE, node.get("message").asText());
+        assertEquals("ServiceUnavailableException", node.get("type").asText());
+        verify(response).setHeader(Http.HeaderNames.RETRY_AFTER, "1");
+    }
+
+    @Test
+    public void httpRequestIsRedirectedBeforeAdmission() throws Throwable {
+        when(request.headers()).thenReturn(ImmutableMap.of(Http.HeaderNames.X_FORWARDED_PROTO,
+                new String[] { "http" }));
+        when(request.host()).thenReturn("webservices.sagebridge.org");
+        when(request.uri()).thenReturn("/v3/backfill/name");
+
+        Result result = call(handler.createAction(request, method));
+
+        assertEquals(301, result.status());
+        verify(loadShedder, never()).admit(any());
+    }
+
+    @Test
+    public void workerRequestRunsInBulkhead() throws Throwable {
+        when(request.getHeader(BridgeConstants.SESSION_TOKEN_HEADER)).thenReturn("sessionToken");
+        Bulkheads.Bulkhead bulkhead = new Bulkheads.Bulkhead("worker", 1, 1, 1, 1);
+        when(bulkheads.select("sessionToken")).thenReturn(bulkhead);
+        
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        AtomicReference<Http.Context> ranWith = new AtomicReference<>();
+        Result ok = mock(Result.class);
+        Action<?> action = handler.createAction(request, method);
+        action.delegate = new Action.Simple() {
+            @Override
+            public Promise<Result> call(Http.Context context) throws Throwable {
+                ranOn.set(Thread.currentThread());
+                ranWith.set(Http.Context.current());
+                return Promise.pure(ok);
+            }
+        };
+        
+        assertSame(ok, call(action));
+        assertEquals("WorkerBulkhead-0", ranOn.get().getName());
+        assertSame(context, ranWith.get());
+        assertEquals(1L, bulkhead.getStats().getCompleted());
+    }
+    
+    @Test
+    public void fullBulkheadGets503() throws Throwable {
+        Bulkheads.Bulkhead bulkhead = mock(Bulkheads.Bulkhead.class);
+        when(bulkheads.select(any())).thenReturn(bulkhead);
+        when(bulkhead.execute(any())).thenReturn(false);
+        
+        Result result = call(handler.createAction(request, method));
+        
+        assertEquals(503, result.status());
+        assertEquals(Bulkheads.MESSAGE, TestUtils.getJson(result).get("message").asText());
+        verify(response).setHeader(Http.HeaderNames.RETRY_AFTER, Integer.toString(Bulkheads.RETRY_AFTER_SECONDS));
+    }
+    
+    @Test
+    public void participantRequestRunsOnDispatcher() throws Throwable {
+        handler.createAction(request, method);
+        
+        verify(bulkheads).select(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result call(@SuppressWarnings("rawtypes") Action action) throws Throwable {
+        return ((Action<Void>)action).call(context).get(1000L);
+    }
+}
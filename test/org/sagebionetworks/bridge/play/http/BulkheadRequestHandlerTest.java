@@ -0,0 +1,47 @@
+package org.sagebionetworks.bridge.play.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.Request;
+
+public class BulkheadRequestHandlerTest {
+
+    private final BulkheadRequestHandler handler = new BulkheadRequestHandler();
+
+    @Test
+    public void callsFromBulkheadThreadsHoldAConnection() throws Exception {
+        Bulkheads.Bulkhead bulkhead = new Bulkheads.Bulkhead("worker", 1, 1, 2, 2);
+        Request<?> request = mock(Request.class);
+        AtomicInteger inUse = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        bulkhead.execute(() -> {
+            handler.beforeRequest(request);
+            inUse.set(bulkhead.getStats().getDynamoDbConnectionsInUse());
+            handler.afterError(request, null, new RuntimeException());
+            done.countDown();
+        });
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, inUse.get());
+        assertEquals(0, bulkhead.getStats().getDynamoDbConnectionsInUse());
+        assertEquals(0, bulkhead.getStats().getDatabaseConnectionsInUse());
+    }
+
+    @Test
+    public void callsFromOtherThreadsAreNotBudgeted() {
+        Request<?> request = mock(Request.class);
+
+        // Nothing to hold or release
+        handler.beforeRequest(request);
+        handler.afterResponse(request, null);
+    }
+}
@@ -0,0 +1,138 @@
+package org.sagebionetworks.bridge.play.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.services.AuthenticationService;
+
+public class BulkheadsTest {
+
+    private BridgeConfig config;
+    private LocalSessionCache localSessionCache;
+    private Bulkheads bulkheads;
+
+    @Before
+    public void before() {
+        config = mock(BridgeConfig.class);
+        localSessionCache = mock(LocalSessionCache.class);
+
+        bulkheads = new Bulkheads();
+        bulkheads.setBridgeConfig(config);
+        bulkheads.setLocalSessionCache(localSessionCache);
+        bulkheads.setAuthenticationService(mock(AuthenticationService.class));
+    }
+
+    @Test
+    public void workersAndAdminsGetTheirOwnBulkheads() {
+        mockSession("workerToken", Roles.WORKER, Roles.ADMIN);
+        mockSession("adminToken", Roles.ADMIN);
+        mockSession("developerToken", Roles.DEVELOPER);
+        mockSession("participantToken");
+
+        assertEquals("worker", bulkheads.select("workerToken").getName());
+        assertEquals("admin", bulkheads.select("adminToken").getName());
+        assertNull(bulkheads.select("developerToken"));
+        assertNull(bulkheads.select("participantToken"));
+        assertNull(bulkheads.select("unknownToken"));
+        assertNull(bulkheads.select(null));
+    }
+
+    @Test
+    public void sessionThatCannotBeLoadedRunsOnDispatcher() {
+        when(localSessionCache.getSession(eq("workerToken"), any()))
+                .thenThrow(new RuntimeException("Could not get a resource from the pool"));
+
+        assertNull(bulkheads.select("workerToken"));
+    }
+
+    @Test
+    public void bulkheadThreadsKnowTheirBulkhead() throws Exception {
+        Bulkheads.Bulkhead bulkhead = new Bulkheads.Bulkhead("worker", 1, 1, 1, 1);
+        AtomicReference<Bulkheads.Bulkhead> current = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        bulkhead.execute(() -> {
+            current.set(Bulkheads.Bulkhead.current());
+            done.countDown();
+        });
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertSame(bulkhead, current.get());
+        assertNull(Bulkheads.Bulkhead.current());
+    }
+
+    @Test
+    public void fullBulkheadRejectsTasks() throws Exception {
+        Bulkheads.Bulkhead bulkhead = new Bulkheads.Bulkhead("worker", 1, 1, 1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        assertTrue(bulkhead.execute(blocked));
+        assertTrue(running.await(1, TimeUnit.SECONDS));
+        assertTrue(bulkhead.execute(() -> {}));
+        assertFalse(bulkhead.execute(() -> {}));
+
+        Bulkheads.Bulkhead.Stats stats = bulkhead.getStats();
+        assertEquals(1, stats.getThreads());
+        assertEquals(1, stats.getActive());
+        assertEquals(1, stats.getQueueDepth());
+        assertEquals(1L, stats.getRejected());
+        release.countDown();
+    }
+
+    @Test
+    public void disabledRunsEverythingOnDispatcher() {
+        when(config.get(Bulkheads.ENABLED_PROPERTY)).thenReturn("false");
+        bulkheads = new Bulkheads();
+        bulkheads.setBridgeConfig(config);
+        bulkheads.setLocalSessionCache(localSessionCache);
+        mockSession("workerToken", Roles.WORKER);
+
+        assertNull(bulkheads.select("workerToken"));
+        assertTrue(bulkheads.getStats().isEmpty());
+    }
+
+    @Test
+    public void getStats() {
+        assertEquals(2, bulkheads.getStats().size());
+        assertEquals(8, bulkheads.getStats().get("worker").getThreads());
+        assertEquals(4, bulkheads.getStats().get("admin").getThreads());
+        assertEquals(0, bulkheads.getStats().get("worker").getDynamoDbConnectionsInUse());
+        assertEquals(0, bulkheads.getStats().get("worker").getDatabaseConnectionsInUse());
+    }
+
+    private void mockSession(String sessionToken, Roles... roles) {
+        UserSession session = new UserSession(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.copyOf(roles)).build());
+        when(localSessionCache.getSession(eq(sessionToken), any())).thenReturn(session);
+    }
+}
@@ -0,0 +1,115 @@
+package org.sagebionetworks.bridge.play.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+import play.api.libs.iteratee.Enumerator;
+import play.api.libs.iteratee.Enumerator$;
+import play.api.mvc.Headers;
+import play.api.mvc.RequestHeader;
+import play.api.mvc.Result;
+import play.mvc.Http;
+import scala.Option;
+import scala.collection.JavaConversions;
+import scala.concurrent.Await;
+import scala.concurrent.ExecutionContext$;
+import scala.concurrent.duration.Duration;
+import scala.util.Either;
+
+public class JsonBodyParserTest {
+
+    private static final byte[] JSON = ("{\"data\":\"" + Strings.repeat("a", 4096) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void detectsGzipContentEncoding() {
+        assertTrue(JsonBodyParser.isGzipped(Option.apply("gzip")));
+        assertTrue(JsonBodyParser.isGzipped(Option.apply(" GZIP ")));
+    }
+
+    @Test
+    public void otherContentEncodingsAreNotDecompressed() {
+        assertFalse(JsonBodyParser.isGzipped(Option.<String>empty()));
+        assertFalse(JsonBodyParser.isGzipped(Option.apply("identity")));
+        assertFalse(JsonBodyParser.isGzipped(Option.apply("deflate")));
+    }
+
+    @Test
+    public void plainBodyIsKeptAsBytes() throws Exception {
+        Http.RequestBody body = parse(JSON, null, 8192);
+
+        assertFalse(body.isMaxSizeExceeded());
+        assertArrayEquals(JSON, body.asRaw().asBytes());
+    }
+
+    @Test
+    public void gzippedBodyIsDecompressed() throws Exception {
+        Http.RequestBody body = parse(gzip(JSON), "gzip", 8192);
+
+        assertFalse(body.isMaxSizeExceeded());
+        assertArrayEquals(JSON, body.asRaw().asBytes());
+    }
+
+    @Test
+    public void gzippedBodyOverLimitIsRejected() throws Exception {
+        byte[] gzipped = gzip(JSON);
+        // The compressed body is well under the limit, but the limit applies to the decompressed body
+        assertTrue(gzipped.length < 1024);
+
+        Http.RequestBody body = parse(gzipped, "gzip", 1024);
+
+        assertTrue(body.isMaxSizeExceeded());
+        assertNull(body.asRaw());
+    }
+
+    @Test
+    public void plainBodyOverLimitIsRejected() throws Exception {
+        Http.RequestBody body = parse(JSON, null, 1024);
+
+        assertTrue(body.isMaxSizeExceeded());
+        assertNull(body.asRaw());
+    }
+
+    /** Run the bytes through the parser in small chunks, as they would arrive from the network. */
+    private static Http.RequestBody parse(byte[] bytes, String contentEncoding, int maxLength) throws Exception {
+        Headers headers = mock(Headers.class);
+        when(headers.get(Http.HeaderNames.CONTENT_ENCODING)).thenReturn(Option.apply(contentEncoding));
+        RequestHeader request = mock(RequestHeader.class);
+        when(request.headers()).thenReturn(headers);
+
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 256) {
+            chunks.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 256)));
+        }
+        Enumerator<byte[]> enumerator = Enumerator$.MODULE$.enumerate(
+                JavaConversions.asScalaIterator(chunks.iterator()), ExecutionContext$.MODULE$.global());
+
+        Either<Result, Http.RequestBody> result = Await.result(
+                enumerator.run(new JsonBodyParser().parser(maxLength).apply(request)), Duration.create(5, "seconds"));
+        assertTrue(result.isRight());
+        return result.right().get();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
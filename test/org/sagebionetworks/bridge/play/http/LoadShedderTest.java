@@ -0,0 +1,164 @@
+package org.sagebionetworks.bridge.play.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+public class LoadShedderTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private FakeTicker ticker;
+    private LoadShedder shedder;
+    private Method lowPriorityMethod;
+    private Method normalMethod;
+
+    @Before
+    public void before() throws Exception {
+        BridgeConfig config = mock(BridgeConfig.class);
+        when(config.get(LoadShedder.TARGET_MILLIS_PROPERTY)).thenReturn("50");
+        when(config.get(LoadShedder.INTERVAL_MILLIS_PROPERTY)).thenReturn("500");
+        // Probes are run by the tests
+        when(config.get(LoadShedder.PROBE_MILLIS_PROPERTY)).thenReturn("3600000");
+
+        ticker = new FakeTicker();
+        shedder = new LoadShedder();
+        shedder.setBridgeConfig(config);
+        shedder.setTicker(ticker);
+
+        lowPriorityMethod = Routes.class.getMethod("export");
+        normalMethod = Routes.class.getMethod("getActivities");
+    }
+
+    @Test
+    public void admitsEverythingUnderTarget() {
+        shedder.recordDelay(10 * MILLI, 0L);
+        shedder.recordDelay(40 * MILLI, 600 * MILLI);
+
+        assertFalse(shedder.isShedding());
+        assertTrue(shedder.admit(lowPriorityMethod));
+        assertTrue(shedder.admit(normalMethod));
+    }
+
+    @Test
+    public void shortBurstIsNotShed() {
+        shedder.recordDelay(200 * MILLI, 0L);
+        shedder.recordDelay(200 * MILLI, 400 * MILLI);
+
+        assertFalse(shedder.isShedding());
+        assertTrue(shedder.admit(lowPriorityMethod));
+    }
+
+    @Test
+    public void standingQueueShedsLowPriorityOnly() {
+        shedder.recordDelay(60 * MILLI, 0L);
+        shedder.recordDelay(80 * MILLI, 250 * MILLI);
+        shedder.recordDelay(70 * MILLI, 500 * MILLI);
+
+        assertTrue(shedder.isShedding());
+        assertFalse(shedder.admit(lowPriorityMethod));
+        assertTrue(shedder.admit(normalMethod));
+        assertEquals(1L, shedder.getStats().getShed());
+        assertEquals(1L, shedder.getStats().getAdmitted());
+        assertEquals(80.0, shedder.getStats().getMaxQueueDelayMillis(), 0.001);
+
+        // One measurement under target and the queue has drained
+        shedder.recordDelay(5 * MILLI, 600 * MILLI);
+        assertFalse(shedder.isShedding());
+        assertTrue(shedder.admit(lowPriorityMethod));
+    }
+
+    @Test
+    public void lowPriorityControllerShedsEveryMethod() throws Exception {
+        assertTrue(LoadShedder.isLowPriority(BackfillRoutes.class.getMethod("backfill")));
+        assertTrue(LoadShedder.isLowPriority(lowPriorityMethod));
+        assertFalse(LoadShedder.isLowPriority(normalMethod));
+        assertFalse(LoadShedder.isLowPriority(null));
+    }
+
+    @Test
+    public void probeMeasuresTimeWaitingOnDispatcher() {
+        List<Runnable> queued = new ArrayList<>();
+        shedder.start(queued::add);
+
+        shedder.probe();
+        assertEquals(1, queued.size());
+        // The dispatcher is stuck; the waiting probe's age is the delay
+        ticker.advance(100);
+        shedder.probe();
+        ticker.advance(500);
+        shedder.probe();
+        assertEquals(1, queued.size());
+        assertTrue(shedder.isShedding());
+
+        ticker.advance(10);
+        queued.get(0).run();
+        assertEquals(610.0, shedder.getStats().getQueueDelayMillis(), 0.001);
+
+        // The next probe runs right away
+        shedder.probe();
+        assertEquals(2, queued.size());
+        queued.get(1).run();
+        assertFalse(shedder.isShedding());
+    }
+
+    @Test
+    public void disabledNeverSheds() {
+        BridgeConfig config = mock(BridgeConfig.class);
+        when(config.get(LoadShedder.ENABLED_PROPERTY)).thenReturn("false");
+        shedder.setBridgeConfig(config);
+        List<Runnable> queued = new ArrayList<>();
+
+        shedder.start(queued::add);
+
+        assertFalse(shedder.isEnabled());
+        assertTrue(shedder.admit(lowPriorityMethod));
+    }
+
+    @Test
+    public void retryAfterIsOneInterval() {
+        assertEquals(1, shedder.getRetryAfterSeconds());
+    }
+
+    public static class Routes {
+        @LowPriority
+        public void export() {
+        }
+
+        public void getActivities() {
+        }
+    }
+
+    @LowPriority
+    public static class BackfillRoutes {
+        public void backfill() {
+        }
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private volatile long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(int millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
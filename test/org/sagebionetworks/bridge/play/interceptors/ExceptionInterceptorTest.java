@@ -17,6 +17,7 @@ import org.hibernate.QueryParameterException;
 import org.junit.Before;
 import org.junit.Test;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.UserSessionInfoCache;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.dynamodb.DynamoStudy;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
@@ -49,6 +50,7 @@ public class ExceptionInterceptorTest {
     @Before
     public void before() throws Exception {
         interceptor = new ExceptionInterceptor();
+        interceptor.setUserSessionInfoCache(new UserSessionInfoCache());
         mockContext();
     }
     
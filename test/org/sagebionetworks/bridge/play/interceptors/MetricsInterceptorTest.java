@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.play.interceptors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -8,8 +9,12 @@ import static org.mockito.Mockito.when;
 
 import org.junit.Test;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.Metrics;
 import org.sagebionetworks.bridge.play.interceptors.MetricsInterceptor;
+import org.sagebionetworks.bridge.tracing.SpanRecorder;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import play.mvc.Http;
 import play.mvc.Http.Context;
@@ -55,4 +60,24 @@ public class MetricsInterceptorTest {
         assertTrue(json.contains("\"remote_address\":\"1.2.3.4\""));
         assertTrue(json.contains("\"user_agent\":\"ifeng 6\""));
     }
+    
+    @Test
+    public void testLogLineIncludesSpanSummary() throws Throwable {
+        Metrics metrics = new Metrics("12345");
+        
+        SpanRecorder recorder = SpanRecorder.start("12345");
+        SpanRecorder.clear();
+        MetricsInterceptor interceptor = new MetricsInterceptor();
+        
+        // No calls, no spans
+        assertFalse(interceptor.getLogLine(metrics, recorder).contains("\"spans\""));
+        
+        recorder.record("ddb", "Query", System.nanoTime(), 2000000L);
+        JsonNode node = BridgeObjectMapper.get().readTree(interceptor.getLogLine(metrics, recorder));
+        assertEquals("12345", node.get("request_id").asText());
+        assertEquals(1, node.get("spans").get("ddb").get("count").asInt());
+        assertEquals(2, node.get("spans").get("ddb").get("millis").asInt());
+        // Added to the metrics themselves, which are serialized once
+        assertEquals(node.get("spans"), metrics.getJson().get("spans"));
+    }
 }
@@ -0,0 +1,167 @@
+package org.sagebionetworks.bridge.play.interceptors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.LocalSessionCache;
+import org.sagebionetworks.bridge.exceptions.TooManyRequestsException;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.studies.StudyIdentifierImpl;
+import org.sagebionetworks.bridge.play.controllers.ScheduleController;
+import org.sagebionetworks.bridge.ratelimit.RequestRateLimiter;
+import org.sagebionetworks.bridge.services.AuthenticationService;
+
+import play.mvc.Http;
+import play.mvc.Result;
+
+public class RateLimitInterceptorTest {
+
+    private MethodInvocation invocation;
+
+    private RequestRateLimiter rateLimiter;
+
+    private LocalSessionCache localSessionCache;
+
+    private Result result;
+
+    private RateLimitInterceptor interceptor;
+
+    @Before
+    public void before() throws Throwable {
+        invocation = mock(MethodInvocation.class);
+        rateLimiter = mock(RequestRateLimiter.class);
+        localSessionCache = mock(LocalSessionCache.class);
+        result = mock(Result.class);
+
+        interceptor = new RateLimitInterceptor();
+        interceptor.setRequestRateLimiter(rateLimiter);
+        interceptor.setLocalSessionCache(localSessionCache);
+        interceptor.setAuthenticationService(mock(AuthenticationService.class));
+
+        Method method = ScheduleController.class.getMethod("getSchedules");
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.proceed()).thenReturn(result);
+        when(rateLimiter.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    public void signedInCallerIsLimitedByStudyAndUser() throws Throwable {
+        mockRequest(BridgeConstants.SESSION_TOKEN_HEADER, "sessionToken");
+        UserSession session = new UserSession(new StudyParticipant.Builder().withId("userId").build());
+        session.setStudyIdentifier(new StudyIdentifierImpl("api"));
+        when(localSessionCache.getSession(eq("sessionToken"), any())).thenReturn(session);
+
+        assertSame(result, interceptor.invoke(invocation));
+
+        verify(rateLimiter).acquire("api", "userId", "ScheduleController");
+    }
+
+    @Test
+    public void workersAndAdminsAreNotLimited() throws Throwable {
+        mockRequest(BridgeConstants.SESSION_TOKEN_HEADER, "sessionToken");
+        for (Roles role : ImmutableList.of(Roles.WORKER, Roles.ADMIN)) {
+            UserSession session = new UserSession(new StudyParticipant.Builder().withId("userId")
+                    .withRoles(ImmutableSet.of(role)).build());
+            session.setStudyIdentifier(new StudyIdentifierImpl("api"));
+            when(localSessionCache.getSession(eq("sessionToken"), any())).thenReturn(session);
+
+            assertSame(result, interceptor.invoke(invocation));
+        }
+        verify(rateLimiter, never()).acquire(any(), any(), any());
+    }
+
+    @Test
+    public void sessionIsKeptForTheController() throws Throwable {
+        mockRequest(BridgeConstants.SESSION_TOKEN_HEADER, "sessionToken");
+        Http.Context.current().args = new HashMap<>();
+        UserSession session = new UserSession(new StudyParticipant.Builder().withId("userId").build());
+        session.setSessionToken("sessionToken");
+        session.setStudyIdentifier(new StudyIdentifierImpl("api"));
+        when(localSessionCache.getSession(eq("sessionToken"), any())).thenReturn(session);
+
+        interceptor.invoke(invocation);
+
+        assertSame(session, RequestUtils.getLoadedSession(Http.Context.current(), "sessionToken"));
+        assertNull(RequestUtils.getLoadedSession(Http.Context.current(), "otherToken"));
+    }
+
+    @Test
+    public void otherCallersAreLimitedByIpAddress() throws Throwable {
+        mockRequest(BridgeConstants.X_FORWARDED_FOR_HEADER, "1.2.3.4");
+
+        assertSame(result, interceptor.invoke(invocation));
+
+        verify(rateLimiter).acquire(null, "ip:1.2.3.4", "ScheduleController");
+    }
+
+    @Test
+    public void spoofedForwardedForAddressesAreIgnored() throws Throwable {
+        // The client sends its own X-Forwarded-For, and the load balancer appends the address it connected from
+        mockRequest(BridgeConstants.X_FORWARDED_FOR_HEADER, "10.0.0.1, 1.2.3.4");
+        assertSame(result, interceptor.invoke(invocation));
+        mockRequest(BridgeConstants.X_FORWARDED_FOR_HEADER, "10.0.0.2, 1.2.3.4");
+        assertSame(result, interceptor.invoke(invocation));
+
+        verify(rateLimiter, times(2)).acquire(null, "ip:1.2.3.4", "ScheduleController");
+    }
+
+    @Test
+    public void requestOverLimitIsNotHandled() throws Throwable {
+        mockRequest(BridgeConstants.X_FORWARDED_FOR_HEADER, "1.2.3.4");
+        doThrow(new TooManyRequestsException("Too many requests", 2)).when(rateLimiter)
+                .acquire(null, "ip:1.2.3.4", "ScheduleController");
+
+        try {
+            interceptor.invoke(invocation);
+            fail("Should have thrown exception");
+        } catch(TooManyRequestsException e) {
+            assertEquals(2, e.getRetryAfterSeconds());
+        }
+        verify(invocation, never()).proceed();
+    }
+
+    @Test
+    public void disabled() throws Throwable {
+        when(rateLimiter.isEnabled()).thenReturn(false);
+
+        assertSame(result, interceptor.invoke(invocation));
+
+        verify(rateLimiter, never()).acquire(any(), any(), any());
+    }
+
+    @Test
+    public void getIpAddressFallsBackToRemoteAddress() throws Exception {
+        Http.Request request = mock(Http.Request.class);
+        when(request.remoteAddress()).thenReturn("9.8.7.6");
+
+        assertEquals("9.8.7.6", RateLimitInterceptor.getIpAddress(request));
+    }
+
+    private void mockRequest(String header, String value) throws Exception {
+        TestUtils.mockPlay().withHeader(header, value).mock();
+    }
+}
@@ -0,0 +1,213 @@
+package org.sagebionetworks.bridge.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.TooManyRequestsException;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+public class RequestRateLimiterTest {
+
+    private static final String ROUTE = "ScheduleController";
+
+    private FakeTicker ticker;
+    private BridgeConfig config;
+    private RequestRateLimiter limiter;
+
+    @Before
+    public void before() {
+        ticker = new FakeTicker();
+        config = mock(BridgeConfig.class);
+        when(config.get(RequestRateLimiter.ENABLED_PROPERTY)).thenReturn("true");
+        when(config.get(RequestRateLimiter.USER_LIMIT_PROPERTY)).thenReturn("5");
+        when(config.get(RequestRateLimiter.STUDY_LIMIT_PROPERTY)).thenReturn("8");
+        // Syncs are run by the tests
+        when(config.get(RequestRateLimiter.SYNC_MILLIS_PROPERTY)).thenReturn("3600000");
+
+        limiter = new RequestRateLimiter();
+        limiter.setBridgeConfig(config);
+        limiter.setTicker(ticker);
+    }
+
+    @Test
+    public void userIsLimited() {
+        acquire("api", "userA", 5);
+
+        TooManyRequestsException e = assertRejected("api", "userA");
+        // 5 a minute, so the next is allowed in 12 seconds
+        assertEquals(12, e.getRetryAfterSeconds());
+        // Other users and other routes aren't affected
+        limiter.acquire("api", "userB", ROUTE);
+        limiter.acquire("api", "userA", "ActivityController");
+
+        ticker.advance(12);
+        limiter.acquire("api", "userA", ROUTE);
+    }
+
+    @Test
+    public void studyIsLimited() {
+        acquire("api", "userA", 5);
+        acquire("api", "userB", 3);
+
+        assertRejected("api", "userC");
+        // Other studies aren't affected
+        limiter.acquire("other-study", "userC", ROUTE);
+        assertEquals(1L, limiter.getStats().getRejected());
+        assertEquals(9L, limiter.getStats().getAllowed());
+        assertEquals(Long.valueOf(1L), limiter.getStats().getRejectedByRoute().get(ROUTE));
+    }
+
+    @Test
+    public void callersWithoutStudyOnlyHaveUserLimit() {
+        acquire(null, "ip:1.2.3.4", 5);
+
+        assertRejected(null, "ip:1.2.3.4");
+        acquire(null, "ip:5.6.7.8", 5);
+    }
+
+    @Test
+    public void mostSpecificLimitApplies() {
+        when(config.get(RequestRateLimiter.USER_LIMIT_PROPERTY + "." + ROUTE)).thenReturn("10");
+        when(config.get(RequestRateLimiter.USER_LIMIT_PROPERTY + ".api")).thenReturn("20");
+        when(config.get(RequestRateLimiter.USER_LIMIT_PROPERTY + ".api." + ROUTE)).thenReturn("30");
+
+        assertEquals(30, limiter.getLimit(RequestRateLimiter.USER_LIMIT_PROPERTY, "api", ROUTE));
+        assertEquals(20, limiter.getLimit(RequestRateLimiter.USER_LIMIT_PROPERTY, "api", "ActivityController"));
+        assertEquals(10, limiter.getLimit(RequestRateLimiter.USER_LIMIT_PROPERTY, "other-study", ROUTE));
+        assertEquals(5, limiter.getLimit(RequestRateLimiter.USER_LIMIT_PROPERTY, null, "ActivityController"));
+        assertEquals(8, limiter.getLimit(RequestRateLimiter.STUDY_LIMIT_PROPERTY, "api", ROUTE));
+    }
+
+    @Test
+    public void zeroTurnsLimitOff() {
+        when(config.get(RequestRateLimiter.USER_LIMIT_PROPERTY + ".api")).thenReturn("0");
+        when(config.get(RequestRateLimiter.STUDY_LIMIT_PROPERTY + ".api")).thenReturn("0");
+
+        acquire("api", "userA", 100);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        RequestRateLimiter defaultLimiter = new RequestRateLimiter();
+        defaultLimiter.setBridgeConfig(mock(BridgeConfig.class));
+
+        assertFalse(defaultLimiter.isEnabled());
+    }
+
+    @Test
+    public void disabled() {
+        when(config.get(RequestRateLimiter.ENABLED_PROPERTY)).thenReturn("false");
+        limiter.setBridgeConfig(config);
+
+        assertFalse(limiter.isEnabled());
+        acquire("api", "userA", 100);
+    }
+
+    @Test
+    public void syncBlocksKeysOverTheLimitAcrossServers() {
+        Pipeline pipeline = mockRedis();
+        Response<Long> userTotal = response(2L);
+        Response<Long> studyTotal = response(9L);
+        when(pipeline.incrBy(startsWith(RequestRateLimiter.REDIS_KEY_PREFIX + "u:api:userA:" + ROUTE + ":"),
+                anyLong())).thenReturn(userTotal);
+        when(pipeline.incrBy(startsWith(RequestRateLimiter.REDIS_KEY_PREFIX + "s:api:" + ROUTE + ":"),
+                anyLong())).thenReturn(studyTotal);
+        acquire("api", "userA", 2);
+
+        limiter.sync();
+
+        verify(pipeline).incrBy(startsWith(RequestRateLimiter.REDIS_KEY_PREFIX + "u:api:userA:" + ROUTE + ":"),
+                eq(2L));
+        verify(pipeline).expire(startsWith(RequestRateLimiter.REDIS_KEY_PREFIX + "u:api:userA:" + ROUTE + ":"),
+                eq(RequestRateLimiter.WINDOW_EXPIRE_SECONDS));
+        verify(pipeline).sync();
+        // Other servers have used up the study's limit for this minute
+        assertRejected("api", "userB");
+        ticker.advance(60);
+        limiter.acquire("api", "userB", ROUTE);
+    }
+
+    @Test
+    public void syncFailureIsCounted() {
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenThrow(new RuntimeException("Connection refused"));
+        limiter.setJedisPool(pool);
+        acquire("api", "userA", 1);
+
+        limiter.sync();
+
+        assertEquals(1L, limiter.getStats().getSyncFailures());
+        // Still limited on this server
+        acquire("api", "userA", 4);
+        assertRejected("api", "userA");
+    }
+
+    private void acquire(String studyId, String userKey, int times) {
+        for (int i=0; i < times; i++) {
+            limiter.acquire(studyId, userKey, ROUTE);
+        }
+    }
+
+    private TooManyRequestsException assertRejected(String studyId, String userKey) {
+        try {
+            limiter.acquire(studyId, userKey, ROUTE);
+            fail("Should have thrown exception");
+        } catch (TooManyRequestsException e) {
+            return e;
+        }
+        return null;
+    }
+
+    private Pipeline mockRedis() {
+        Pipeline pipeline = mock(Pipeline.class);
+        Jedis jedis = mock(Jedis.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Long> expired = response(1L);
+        when(pipeline.expire(anyString(), anyInt())).thenReturn(expired);
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        limiter.setJedisPool(pool);
+        return pipeline;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Response<Long> response(long value) {
+        Response<Long> response = mock(Response.class);
+        when(response.get()).thenReturn(value);
+        return response;
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private volatile long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(int seconds) {
+            nanos += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.sagebionetworks.bridge.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void allowsUpToTheLimitAtOnce() {
+        TokenBucket bucket = new TokenBucket("key", 60, 0L);
+
+        for (int i=0; i < 60; i++) {
+            assertEquals(0L, bucket.tryAcquire(0L));
+        }
+        // The next token is a second away (60 a minute)
+        assertEquals(SECOND, bucket.tryAcquire(0L));
+    }
+
+    @Test
+    public void refillsAtTheLimitPerMinute() {
+        TokenBucket bucket = new TokenBucket("key", 60, 0L);
+        for (int i=0; i < 60; i++) {
+            bucket.tryAcquire(0L);
+        }
+
+        assertEquals(0L, bucket.tryAcquire(SECOND));
+        assertTrue(bucket.tryAcquire(SECOND) > 0L);
+
+        // Never refills past the limit
+        long later = 10 * 60 * SECOND;
+        for (int i=0; i < 60; i++) {
+            assertEquals(0L, bucket.tryAcquire(later));
+        }
+        assertTrue(bucket.tryAcquire(later) > 0L);
+    }
+
+    @Test
+    public void countsTokensTakenSinceLastSync() {
+        TokenBucket bucket = new TokenBucket("key", 60, 0L);
+        bucket.tryAcquire(0L);
+        bucket.tryAcquire(0L);
+        bucket.tryAcquire(0L);
+        bucket.release();
+
+        assertEquals(2, bucket.drainUnsynced());
+        assertEquals(0, bucket.drainUnsynced());
+    }
+
+    @Test
+    public void blockedBucketAllowsNothingUntilUnblocked() {
+        TokenBucket bucket = new TokenBucket("key", 60, 0L);
+        bucket.blockUntil(30 * SECOND);
+
+        assertEquals(20 * SECOND, bucket.tryAcquire(10 * SECOND));
+        assertEquals(0L, bucket.tryAcquire(30 * SECOND));
+    }
+}
@@ -0,0 +1,88 @@
+package org.sagebionetworks.bridge.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEY_COUNT = 10000;
+
+    @Test
+    public void keysAreSpreadAcrossNodes() {
+        ConsistentHashRing<String> ring = ring(4);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i=0; i < KEY_COUNT; i++) {
+            counts.merge(ring.get("key" + i + ":Survey:view"), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            // Within 30% of an even share
+            assertTrue("Uneven count: " + count, Math.abs(count - KEY_COUNT / 4) < KEY_COUNT / 4 * 0.3);
+        }
+    }
+
+    @Test
+    public void addingANodeOnlyMovesKeysToTheNewNode() {
+        ConsistentHashRing<String> before = ring(3);
+        ConsistentHashRing<String> after = ring(4);
+
+        int moved = 0;
+        for (int i=0; i < KEY_COUNT; i++) {
+            String key = "key" + i;
+            if (!before.get(key).equals(after.get(key))) {
+                assertEquals("node3", after.get(key));
+                moved++;
+            }
+        }
+        // About a quarter of the keys move
+        assertTrue("Moved: " + moved, moved > KEY_COUNT / 4 * 0.7 && moved < KEY_COUNT / 4 * 1.3);
+    }
+
+    @Test
+    public void ringDoesNotDependOnOrderOfNodes() {
+        ConsistentHashRing<String> ring = ring(3);
+        ConsistentHashRing<String> reversed = new ConsistentHashRing<>(
+                ImmutableMap.of("node2", "node2", "node1", "node1", "node0", "node0"));
+
+        for (int i=0; i < 1000; i++) {
+            assertEquals(ring.get("key" + i), reversed.get("key" + i));
+        }
+    }
+
+    @Test
+    public void keysWithTheSameTagAreOnTheSameNode() {
+        ConsistentHashRing<String> ring = ring(8);
+
+        for (int i=0; i < 1000; i++) {
+            String userId = "user" + i;
+            assertEquals(ring.get("{" + userId + "}:session"), ring.get("{" + userId + "}:request-info"));
+        }
+    }
+
+    @Test
+    public void hashTag() {
+        assertEquals("userId", ConsistentHashRing.hashTag("{userId}:session"));
+        assertEquals("userId", ConsistentHashRing.hashTag("session:{userId}:{other}"));
+        assertEquals("{}:session", ConsistentHashRing.hashTag("{}:session"));
+        assertEquals("{userId:session", ConsistentHashRing.hashTag("{userId:session"));
+        assertEquals("userId:session", ConsistentHashRing.hashTag("userId:session"));
+    }
+
+    private static ConsistentHashRing<String> ring(int nodeCount) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (int i=0; i < nodeCount; i++) {
+            nodes.put("node" + i, "node" + i);
+        }
+        return new ConsistentHashRing<>(nodes);
+    }
+}
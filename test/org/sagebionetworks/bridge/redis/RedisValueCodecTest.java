@@ -0,0 +1,113 @@
+package org.sagebionetworks.bridge.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.io.BaseEncoding;
+
+public class RedisValueCodecTest {
+
+    private static final String LARGE_VALUE = Strings.repeat("{\"guid\":\"abc\",\"type\":\"SurveyQuestion\"},", 100);
+
+    private RedisValueCodec codec;
+
+    @Before
+    public void before() {
+        codec = new RedisValueCodec();
+        codec.setCompressionEnabled(true);
+    }
+
+    @Test
+    public void largeValueIsCompressed() {
+        byte[] encoded = codec.encode(LARGE_VALUE);
+
+        assertEquals(RedisValueCodec.LZ4_HEADER, encoded[0]);
+        assertTrue(encoded.length < LARGE_VALUE.length() / 4);
+        assertEquals(LARGE_VALUE, codec.decode(encoded));
+
+        assertEquals(1L, codec.getCompressAttempts());
+        assertEquals(1L, codec.getCompressedValues());
+        assertEquals(LARGE_VALUE.length(), codec.getUncompressedBytes());
+        assertEquals(encoded.length, codec.getCompressedBytes());
+        assertTrue(codec.getCompressionRatio() > 4.0);
+        assertEquals(1L, codec.getDecompressedValues());
+    }
+
+    @Test
+    public void smallValueIsNotCompressed() {
+        String value = "{\"sessionToken\":\"abc\"}";
+
+        assertArrayEquals(value.getBytes(UTF_8), codec.encode(value));
+        assertEquals(0L, codec.getCompressAttempts());
+        assertEquals(0L, codec.getCompressedValues());
+    }
+
+    @Test
+    public void thresholdCanBeChanged() {
+        codec.setMinCompressedBytes(LARGE_VALUE.length() + 1);
+
+        assertArrayEquals(LARGE_VALUE.getBytes(UTF_8), codec.encode(LARGE_VALUE));
+    }
+
+    @Test
+    public void nothingIsCompressedWhenDisabled() {
+        codec.setCompressionEnabled(false);
+
+        assertArrayEquals(LARGE_VALUE.getBytes(UTF_8), codec.encode(LARGE_VALUE));
+    }
+
+    @Test
+    public void incompressibleValueIsStoredAsIs() {
+        byte[] random = new byte[4096];
+        new Random(1L).nextBytes(random);
+        // Base64 of random bytes has almost no repeats, so LZ4 can't make it any smaller
+        String value = BaseEncoding.base64().encode(random);
+        codec.setMinCompressedBytes(0);
+
+        byte[] encoded = codec.encode(value);
+
+        assertArrayEquals(value.getBytes(UTF_8), encoded);
+        assertEquals(1L, codec.getCompressAttempts());
+        assertEquals(0L, codec.getCompressedValues());
+        assertEquals(0L, codec.getCompressedBytes());
+    }
+
+    @Test
+    public void compressTimeIsAveragedOverAttempts() {
+        byte[] random = new byte[4096];
+        new Random(1L).nextBytes(random);
+        codec.setMinCompressedBytes(0);
+
+        // One value is kept compressed and one isn't, but the time spent on both counts
+        codec.encode(LARGE_VALUE);
+        codec.encode(BaseEncoding.base64().encode(random));
+
+        assertEquals(2L, codec.getCompressAttempts());
+        assertEquals(1L, codec.getCompressedValues());
+        assertTrue(codec.getCompressMicros() > 0.0);
+    }
+
+    @Test
+    public void valuesWrittenBeforeCompressionAreRead() {
+        String value = LARGE_VALUE + "Ünïcödé";
+
+        assertEquals(value, codec.decode(value.getBytes(UTF_8)));
+        assertEquals("", codec.decode(new byte[0]));
+        assertEquals(0L, codec.getDecompressedValues());
+    }
+
+    @Test
+    public void multibyteCharactersSurviveCompression() {
+        String value = Strings.repeat("Ünïcödé ", 500);
+
+        assertEquals(value, codec.decode(codec.encode(value)));
+    }
+}
@@ -0,0 +1,142 @@
+package org.sagebionetworks.bridge.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.cache.CacheKey;
+
+import redis.clients.jedis.JedisPool;
+
+public class ShardedJedisOpsTest {
+
+    private JedisOps node0;
+    private JedisOps node1;
+    private JedisOps node2;
+    private ConsistentHashRing<JedisOps> twoNodes;
+    private ConsistentHashRing<JedisOps> threeNodes;
+    // A key that is on node0 with two nodes, and moves to node2 when it's added
+    private String movedKey;
+
+    @Before
+    public void before() {
+        node0 = mock(JedisOps.class);
+        node1 = mock(JedisOps.class);
+        node2 = mock(JedisOps.class);
+        twoNodes = new ConsistentHashRing<>(ImmutableMap.of("node0", node0, "node1", node1));
+        threeNodes = new ConsistentHashRing<>(ImmutableMap.of("node0", node0, "node1", node1, "node2", node2));
+
+        for (int i=0; movedKey == null; i++) {
+            String key = "key" + i + ":Survey:view";
+            if (twoNodes.get(key) == node0 && threeNodes.get(key) == node2) {
+                movedKey = key;
+            }
+        }
+    }
+
+    @Test
+    public void viewsAndRequestInfoAreSharded() {
+        assertTrue(ShardedJedisOps.isSharded("guid:Survey:view"));
+        assertTrue(ShardedJedisOps.isSharded("api:namespace:AppConfig:view"));
+        assertTrue(ShardedJedisOps.isSharded("userId:request-info"));
+        assertTrue(ShardedJedisOps.isSharded(CacheKey.requestInfo("userId").toString()));
+        assertFalse(ShardedJedisOps.isSharded("sessionToken:session"));
+        assertFalse(ShardedJedisOps.isSharded("lock:key"));
+    }
+
+    @Test
+    public void requestInfoIsPlacedByUserId() {
+        assertEquals("{userId}:request-info", ShardedJedisOps.routingKey("userId:request-info"));
+        assertEquals("guid:Survey:view", ShardedJedisOps.routingKey("guid:Survey:view"));
+        for (int i=0; i < 100; i++) {
+            String userId = "user" + i;
+            assertSame(threeNodes.get("{" + userId + "}:session"),
+                    threeNodes.get(ShardedJedisOps.routingKey(userId + ":request-info")));
+        }
+    }
+
+    @Test
+    public void requestInfoIsReadAndWrittenOnTheUsersNode() {
+        ShardedJedisOps jedisOps = jedisOps(threeNodes, null);
+        String key = "userId:request-info";
+        JedisOps node = threeNodes.get("{userId}");
+        when(node.get(key)).thenReturn("value");
+
+        assertEquals("value", jedisOps.get(key));
+        jedisOps.setex(key, 60, "value");
+
+        verify(node).setex(key, 60, "value");
+    }
+
+    @Test
+    public void keysAreReadAndWrittenOnTheirNode() {
+        ShardedJedisOps jedisOps = jedisOps(threeNodes, null);
+        when(node2.get(movedKey)).thenReturn("value");
+
+        assertEquals("value", jedisOps.get(movedKey));
+        jedisOps.setex(movedKey, 60, "value");
+
+        verify(node2).setex(movedKey, 60, "value");
+        verify(node0, never()).get(anyString());
+        verify(node0, never()).setex(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    public void movedKeyIsReadFromPreviousNodeUntilWritten() {
+        ShardedJedisOps jedisOps = jedisOps(threeNodes, twoNodes);
+        when(node0.get(movedKey)).thenReturn("old value");
+
+        assertEquals("old value", jedisOps.get(movedKey));
+
+        when(node2.get(movedKey)).thenReturn("new value");
+        assertEquals("new value", jedisOps.get(movedKey));
+    }
+
+    @Test
+    public void movedKeyIsNotReadFromPreviousNodeAfterRebalancing() {
+        ShardedJedisOps jedisOps = jedisOps(threeNodes, null);
+        when(node0.get(movedKey)).thenReturn("old value");
+
+        assertNull(jedisOps.get(movedKey));
+    }
+
+    @Test
+    public void movedKeyIsDeletedFromBothNodes() {
+        ShardedJedisOps jedisOps = jedisOps(threeNodes, twoNodes);
+        when(node2.del(movedKey)).thenReturn(1L);
+
+        assertEquals(Long.valueOf(1L), jedisOps.del(movedKey));
+
+        verify(node2).del(movedKey);
+        verify(node0).del(movedKey);
+    }
+
+    @Test
+    public void movedCounterContinuesFromPreviousValue() {
+        ShardedJedisOps jedisOps = jedisOps(threeNodes, twoNodes);
+        when(node0.get(movedKey)).thenReturn("3");
+        when(node2.incr(movedKey)).thenReturn(4L);
+
+        assertEquals(Long.valueOf(4L), jedisOps.incr(movedKey));
+
+        verify(node2).set(movedKey, "3");
+    }
+
+    private static ShardedJedisOps jedisOps(ConsistentHashRing<JedisOps> ring,
+            ConsistentHashRing<JedisOps> previousRing) {
+        return new ShardedJedisOps(mock(JedisPool.class), ring, previousRing);
+    }
+}
@@ -0,0 +1,191 @@
+package org.sagebionetworks.bridge.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.sagebionetworks.bridge.dao.DistributedLockDao;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
+
+public class TwoLevelLockDaoTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+    private static final int IDENTIFIERS = 4;
+    private static final long HOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    // Redis, as far as locks go: one lock ID per key
+    private Map<String, String> redisLocks;
+    private AtomicInteger redisAcquires;
+    private RedisDistributedLockDao mockRedisLockDao;
+    private TwoLevelLockDao lockDao;
+
+    @Before
+    public void before() {
+        redisLocks = new ConcurrentHashMap<>();
+        redisAcquires = new AtomicInteger();
+        mockRedisLockDao = mock(RedisDistributedLockDao.class);
+        doAnswer(invocation -> {
+            redisAcquires.incrementAndGet();
+            String key = invocation.getArgument(0).toString() + invocation.getArgument(1);
+            String lockId = UUID.randomUUID().toString();
+            if (redisLocks.putIfAbsent(key, lockId) != null) {
+                throw new ConcurrentModificationException("Lock already set.");
+            }
+            return lockId;
+        }).when(mockRedisLockDao).acquireLock(any(), anyString(), anyInt());
+        doAnswer(invocation -> {
+            String key = invocation.getArgument(0).toString() + invocation.getArgument(1);
+            return redisLocks.remove(key, invocation.getArgument(2));
+        }).when(mockRedisLockDao).releaseLock(any(), anyString(), anyString());
+
+        lockDao = new TwoLevelLockDao();
+        lockDao.setRedisLockDao(mockRedisLockDao);
+    }
+
+    @Test
+    public void lockHeldOnThisServerIsRefusedWithoutGoingToRedis() {
+        String lockId = lockDao.acquireLock(getClass(), "id", 60);
+        try {
+            lockDao.acquireLock(getClass(), "id", 60);
+            fail("expected exception");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+        verify(mockRedisLockDao, times(1)).acquireLock(any(), anyString(), anyInt());
+        assertEquals(1L, lockDao.getStats().getLocalConflicts());
+
+        assertTrue(lockDao.releaseLock(getClass(), "id", lockId));
+        lockDao.acquireLock(getClass(), "id", 60);
+        assertEquals(2L, lockDao.getStats().getAcquired());
+        assertEquals(0L, lockDao.getStats().getRemoteConflicts());
+    }
+
+    @Test
+    public void lockHeldOnAnotherServerIsRefusedByRedis() {
+        redisLocks.put(getClass().toString() + "id", "otherServerLockId");
+
+        try {
+            lockDao.acquireLock(getClass(), "id", 60);
+            fail("expected exception");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+        assertEquals(1L, lockDao.getStats().getRemoteConflicts());
+
+        // Not left held on this server
+        redisLocks.clear();
+        lockDao.acquireLock(getClass(), "id", 60);
+    }
+
+    @Test
+    public void releaseWithWrongLockIdKeepsLock() {
+        String lockId = lockDao.acquireLock(getClass(), "id", 60);
+
+        assertFalse(lockDao.releaseLock(getClass(), "id", "wrongLockId"));
+        try {
+            lockDao.acquireLock(getClass(), "id", 60);
+            fail("expected exception");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+        assertTrue(lockDao.releaseLock(getClass(), "id", lockId));
+    }
+
+    @Test
+    public void expiredLocalLockIsNotHeld() {
+        lockDao.acquireLock(getClass(), "id", 0);
+        redisLocks.clear();
+
+        lockDao.acquireLock(getClass(), "id", 60);
+    }
+
+    @Test
+    public void locksOnDifferentIdentifiersAreIndependent() {
+        lockDao.acquireLock(getClass(), "id1", 60);
+        lockDao.acquireLock(getClass(), "id2", 60);
+        lockDao.acquireLock(String.class, "id1", 60);
+
+        verify(mockRedisLockDao, never()).releaseLock(any(), anyString(), anyString());
+        assertEquals(3L, lockDao.getStats().getAcquired());
+    }
+
+    @Test
+    public void contentionOnOneServerOnlyReachesRedisForWinners() throws Exception {
+        int attempts = THREADS * ATTEMPTS_PER_THREAD;
+
+        int directRedisAcquires = contend(mockRedisLockDao);
+        assertEquals(attempts, directRedisAcquires);
+
+        int twoLevelRedisAcquires = contend(lockDao);
+        // Every request that went to Redis got the lock; the rest were refused on this server
+        assertEquals(0L, lockDao.getStats().getRemoteConflicts());
+        assertEquals(lockDao.getStats().getAcquired(), twoLevelRedisAcquires);
+        assertEquals(attempts, lockDao.getStats().getAcquired() + lockDao.getStats().getLocalConflicts());
+        assertTrue("Redis acquires " + twoLevelRedisAcquires + " of " + attempts,
+                twoLevelRedisAcquires < attempts);
+    }
+
+    /** Threads repeatedly lock, hold briefly, and release a few identifiers. Returns the Redis acquire calls. */
+    private int contend(DistributedLockDao dao) throws Exception {
+        redisAcquires.set(0);
+        Map<String, AtomicInteger> holders = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t=0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i=0; i < ATTEMPTS_PER_THREAD; i++) {
+                        String id = "id" + (i % IDENTIFIERS);
+                        String lockId;
+                        try {
+                            lockId = dao.acquireLock(TwoLevelLockDaoTest.class, id, 60);
+                        } catch (ConcurrentModificationException e) {
+                            continue;
+                        }
+                        AtomicInteger count = holders.computeIfAbsent(id, key -> new AtomicInteger());
+                        assertEquals("Lock held twice", 1, count.incrementAndGet());
+                        LockSupport.parkNanos(HOLD_NANOS);
+                        count.decrementAndGet();
+                        dao.releaseLock(TwoLevelLockDaoTest.class, id, lockId);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return redisAcquires.get();
+    }
+}
@@ -0,0 +1,125 @@
+package org.sagebionetworks.bridge.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.tracing.SpanRecorder;
+
+public class SignInExecutorTest {
+
+    private SignInExecutor signInExecutor;
+    private ExecutorService requestThreads;
+    private CountDownLatch release;
+
+    @Before
+    public void before() {
+        signInExecutor = signInExecutor("1");
+        requestThreads = Executors.newCachedThreadPool();
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void after() {
+        release.countDown();
+        requestThreads.shutdownNow();
+        SpanRecorder.clear();
+    }
+
+    @Test
+    public void returnsSession() {
+        UserSession session = new UserSession();
+
+        assertSame(session, signInExecutor.execute(() -> session));
+        assertEquals(1L, signInExecutor.getStats().getCompleted());
+    }
+
+    @Test
+    public void signInExceptionIsThrownUnchanged() {
+        UserSession session = new UserSession();
+        try {
+            signInExecutor.execute(() -> {
+                throw new ConsentRequiredException(session);
+            });
+            fail("Should have thrown exception");
+        } catch (ConsentRequiredException e) {
+            assertSame(session, e.getUserSession());
+        }
+    }
+
+    @Test
+    public void signInIsRejectedWhenEveryThreadIsBusy() throws Exception {
+        Future<UserSession> running = requestThreads.submit(() -> signInExecutor.execute(this::blockedSignIn));
+        waitFor(() -> signInExecutor.getStats().getActive() == 1);
+
+        try {
+            signInExecutor.execute(UserSession::new);
+            fail("Should have thrown exception");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(503, e.getStatusCode());
+            assertEquals(SignInExecutor.RETRY_AFTER_SECONDS, e.getRetryAfterSeconds());
+        }
+        SignInExecutor.Stats stats = signInExecutor.getStats();
+        assertEquals(1L, stats.getRejected());
+        assertEquals(0, stats.getQueueDepth());
+
+        release.countDown();
+        running.get();
+
+        // Once the thread is free, sign ins are accepted again
+        assertSame(UserSession.class, signInExecutor.execute(UserSession::new).getClass());
+        assertEquals(2L, signInExecutor.getStats().getCompleted());
+    }
+
+    @Test
+    public void signInIsTracedOnTheRequest() {
+        SpanRecorder recorder = SpanRecorder.start("requestId");
+
+        assertSame(recorder, signInExecutor.execute(SpanRecorder::current));
+        assertSame(recorder, SpanRecorder.current());
+    }
+
+    private UserSession blockedSignIn() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new UserSession();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for sign ins to start");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static SignInExecutor signInExecutor(String threads) {
+        BridgeConfig config = mock(BridgeConfig.class);
+        when(config.get(SignInExecutor.THREADS_PROPERTY)).thenReturn(threads);
+        SignInExecutor signInExecutor = new SignInExecutor();
+        signInExecutor.setBridgeConfig(config);
+        return signInExecutor;
+    }
+}
@@ -0,0 +1,97 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+public class SlowRequestProfilerTest {
+    
+    private static StackTraceElement frame(String className, String methodName) {
+        return new StackTraceElement(className, methodName, className + ".java", 1);
+    }
+    
+    private static SlowRequestProfiler createProfiler(String enabled, String threshold) {
+        BridgeConfig config = mock(BridgeConfig.class);
+        when(config.get(SlowRequestProfiler.ENABLED_PROPERTY)).thenReturn(enabled);
+        when(config.get(SlowRequestProfiler.THRESHOLD_MILLIS_PROPERTY)).thenReturn(threshold);
+        when(config.get(SlowRequestProfiler.INTERVAL_MILLIS_PROPERTY)).thenReturn("5");
+        SlowRequestProfiler profiler = new SlowRequestProfiler();
+        profiler.setBridgeConfig(config);
+        return profiler;
+    }
+    
+    @Test
+    public void disabledByDefault() {
+        SlowRequestProfiler profiler = createProfiler(null, null);
+        assertFalse(profiler.isEnabled());
+        assertNull(profiler.watch(Thread.currentThread(), "Controller.method"));
+    }
+    
+    @Test
+    public void collapsesStacksRootFirst() {
+        StackTraceElement[] stack = new StackTraceElement[] { frame("c.Leaf", "run"), frame("b.Middle", "call"),
+                frame("a.Root", "main") };
+        assertEquals("a.Root.main;b.Middle.call;c.Leaf.run", SlowRequestProfiler.collapse(stack));
+    }
+    
+    @Test
+    public void aggregatesSamplesPerRoute() {
+        SlowRequestProfiler profiler = createProfiler(null, null);
+        StackTraceElement[] stack1 = new StackTraceElement[] { frame("b.B", "b"), frame("a.A", "a") };
+        StackTraceElement[] stack2 = new StackTraceElement[] { frame("c.C", "c"), frame("a.A", "a") };
+        
+        profiler.addSample("Route.one", stack1);
+        profiler.addSample("Route.one", stack1);
+        profiler.addSample("Route.one", stack2);
+        profiler.addSample("Route.two", stack1);
+        
+        String all = profiler.getCollapsedStacks(null);
+        assertTrue(all.contains("Route.one;a.A.a;b.B.b 2\n"));
+        assertTrue(all.contains("Route.one;a.A.a;c.C.c 1\n"));
+        assertTrue(all.contains("Route.two;a.A.a;b.B.b 1\n"));
+        
+        assertEquals("Route.two;a.A.a;b.B.b 1\n", profiler.getCollapsedStacks("Route.two"));
+        
+        profiler.clear();
+        assertEquals("", profiler.getCollapsedStacks(null));
+    }
+    
+    @Test
+    public void samplesOnlyRequestsOverThreshold() throws Exception {
+        SlowRequestProfiler profiler = createProfiler("true", "20");
+        assertTrue(profiler.isEnabled());
+        
+        // A fast request is never sampled
+        SlowRequestProfiler.Watch watch = profiler.watch(Thread.currentThread(), "Fast.request");
+        watch.stop();
+        
+        // A slow one is
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+            }
+        });
+        thread.start();
+        watch = profiler.watch(thread, "Slow.request");
+        Thread.sleep(200);
+        watch.stop();
+        latch.countDown();
+        thread.join();
+        
+        String stacks = profiler.getCollapsedStacks(null);
+        assertFalse(stacks.contains("Fast.request"));
+        assertTrue(stacks.contains("Slow.request;"));
+        assertTrue(stacks.contains("java.util.concurrent.CountDownLatch.await"));
+    }
+}
@@ -0,0 +1,82 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class SpanRecorderTest {
+    
+    private static final long MILLIS = 1000000L;
+    
+    @After
+    public void after() {
+        SpanRecorder.clear();
+    }
+
+    @Test
+    public void startBindsRecorderToThread() {
+        assertNull(SpanRecorder.current());
+        
+        SpanRecorder recorder = SpanRecorder.start("request-id");
+        assertSame(recorder, SpanRecorder.current());
+        assertEquals("request-id", recorder.getRequestId());
+        assertTrue(recorder.isEmpty());
+        
+        SpanRecorder.clear();
+        assertNull(SpanRecorder.current());
+    }
+    
+    @Test
+    public void summaryTotalsByDownstream() {
+        SpanRecorder recorder = new SpanRecorder("request-id", 0L);
+        recorder.record("ddb", "Query", 1*MILLIS, 10*MILLIS);
+        recorder.record("redis", "command", 11*MILLIS, 1*MILLIS);
+        recorder.record("ddb", "GetItem", 12*MILLIS, 5*MILLIS);
+        
+        assertFalse(recorder.isEmpty());
+        JsonNode summary = recorder.getSummary();
+        assertEquals(2, summary.get("ddb").get("count").asInt());
+        assertEquals(15, summary.get("ddb").get("millis").asInt());
+        assertEquals(1, summary.get("redis").get("count").asInt());
+        assertEquals(1, summary.get("redis").get("millis").asInt());
+        assertFalse(summary.has("s3"));
+    }
+    
+    @Test
+    public void traceIncludesSpansInOrder() {
+        SpanRecorder recorder = new SpanRecorder("request-id", 0L);
+        recorder.record("ddb", "Query", 1*MILLIS, 10*MILLIS);
+        recorder.record("s3", "GetObject", 11*MILLIS, 2*MILLIS);
+        
+        JsonNode trace = recorder.getTrace();
+        assertEquals("request-id", trace.get("request_id").asText());
+        assertEquals(2, trace.get("spans").size());
+        
+        JsonNode span = trace.get("spans").get(1);
+        assertEquals("s3", span.get("downstream").asText());
+        assertEquals("GetObject", span.get("operation").asText());
+        assertEquals(11000, span.get("offset_micros").asLong());
+        assertEquals(2000, span.get("duration_micros").asLong());
+        assertFalse(trace.has("dropped_spans"));
+    }
+    
+    @Test
+    public void spansBeyondLimitAreCountedButDropped() {
+        SpanRecorder recorder = new SpanRecorder("request-id", 0L);
+        for (int i=0; i < SpanRecorder.MAX_RECORDED_SPANS + 5; i++) {
+            recorder.record("redis", "command", i, 1*MILLIS);
+        }
+        assertEquals(SpanRecorder.MAX_RECORDED_SPANS, recorder.getSpans().size());
+        
+        JsonNode trace = recorder.getTrace();
+        assertEquals(5, trace.get("dropped_spans").asInt());
+        assertEquals(SpanRecorder.MAX_RECORDED_SPANS + 5, trace.get("summary").get("redis").get("count").asInt());
+    }
+}
@@ -0,0 +1,111 @@
+package org.sagebionetworks.bridge.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+import play.mvc.Http;
+import play.mvc.Http.Request;
+
+public class TrafficCaptureTest {
+
+    private static TrafficCapture createCapture(String enabled, String bodies) {
+        BridgeConfig config = mock(BridgeConfig.class);
+        when(config.get(TrafficCapture.ENABLED_PROPERTY)).thenReturn(enabled);
+        when(config.get(TrafficCapture.BODIES_PROPERTY)).thenReturn(bodies);
+        TrafficCapture capture = new TrafficCapture();
+        capture.setBridgeConfig(config);
+        return capture;
+    }
+
+    private static Request mockRequest(String json) throws Exception {
+        Http.RequestBody body = mock(Http.RequestBody.class);
+        when(body.asJson()).thenReturn(BridgeObjectMapper.get().readTree(json));
+        Request request = mock(Request.class);
+        when(request.method()).thenReturn("POST");
+        when(request.path()).thenReturn("/v4/auth/signIn");
+        when(request.tags()).thenReturn(ImmutableMap.of(TrafficCapture.ROUTE_PATTERN_TAG, "/v4/auth/signIn"));
+        when(request.uri()).thenReturn("/v4/auth/signIn?email=test@test.com&pageSize=10");
+        when(request.getHeader("User-Agent")).thenReturn("Asthma/26 BridgeSDK/4");
+        when(request.getHeader("Bridge-Session")).thenReturn("session-token");
+        when(request.getHeader("X-Forwarded-For")).thenReturn("1.2.3.4");
+        when(request.getHeader("Content-Length")).thenReturn(Integer.toString(json.length()));
+        when(request.body()).thenReturn(body);
+        return request;
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        TrafficCapture capture = createCapture(null, null);
+        assertFalse(capture.isEnabled());
+        // Does nothing
+        capture.capture(mockRequest("{}"), "Controller.method", 200, 1000L);
+    }
+
+    @Test
+    public void masksPersonalQueryParameters() {
+        assertNull(TrafficCapture.maskQuery("/v3/participants"));
+        assertNull(TrafficCapture.maskQuery("/v3/participants?"));
+        assertEquals("emailFilter=*****&offsetBy=0&pageSize",
+                TrafficCapture.maskQuery("/v3/participants?emailFilter=a@b.c&offsetBy=0&pageSize"));
+    }
+
+    @Test
+    public void masksPersonalPathParameters() {
+        assertEquals("/v3/studies/api/oauth/vendor/**********",
+                TrafficCapture.maskPath("/v3/studies/api/oauth/vendor/healthCode",
+                        "/v3/studies/$studyId<[^/]+>/oauth/$vendorId<[^/]+>/$healthCode<[^/]+>"));
+        assertEquals("/v3/externalIds/*****",
+                TrafficCapture.maskPath("/v3/externalIds/ext-1", "/v3/externalIds/$externalId<[^/]+>"));
+        assertEquals("/v4/auth/signIn", TrafficCapture.maskPath("/v4/auth/signIn", "/v4/auth/signIn"));
+        // Without a pattern to go by, nothing is kept
+        assertEquals("/**/************/******", TrafficCapture.maskPath("/v3/participants/userId", null));
+    }
+
+    @Test
+    public void scrubsValuesButKeepsShape() throws Exception {
+        JsonNode node = BridgeObjectMapper.get().readTree(
+                "{\"email\":\"a@b.c\",\"age\":42,\"consented\":true,\"groups\":[\"ab\",null],\"nested\":{\"x\":1.5}}");
+        JsonNode scrubbed = TrafficCapture.scrub(node);
+        assertEquals("{\"email\":\"*****\",\"age\":0,\"consented\":true,\"groups\":[\"**\",null],\"nested\":{\"x\":0}}",
+                scrubbed.toString());
+    }
+
+    @Test
+    public void recordOmitsSessionAndAddress() throws Exception {
+        TrafficCapture capture = createCapture("false", "true");
+        String json = "{\"study\":\"api\",\"email\":\"test@test.com\",\"password\":\"P4ssword!\"}";
+        JsonNode record = capture.createRecord(mockRequest(json), "AuthenticationController.signIn", 412,
+                TimeUnit.MILLISECONDS.toNanos(25));
+
+        assertEquals("AuthenticationController.signIn", record.get("route").textValue());
+        assertEquals("POST", record.get("method").textValue());
+        assertEquals("/v4/auth/signIn", record.get("path").textValue());
+        assertEquals("email=*************&pageSize=10", record.get("query").textValue());
+        assertEquals("Asthma/26 BridgeSDK/4", record.get("headers").get("User-Agent").textValue());
+        assertEquals(1, record.get("headers").size());
+        assertTrue(record.get("session").booleanValue());
+        assertEquals(json.length(), record.get("bodyBytes").intValue());
+        assertEquals("*********", record.get("body").get("password").textValue());
+        assertEquals(412, record.get("status").intValue());
+        assertEquals(25, record.get("latencyMillis").intValue());
+
+        String serialized = record.toString();
+        assertFalse(serialized.contains("session-token"));
+        assertFalse(serialized.contains("1.2.3.4"));
+        assertFalse(serialized.contains("test@test.com"));
+    }
+}